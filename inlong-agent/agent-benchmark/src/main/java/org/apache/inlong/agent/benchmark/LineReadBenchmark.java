@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.benchmark;
+
+import org.apache.inlong.agent.plugin.utils.file.ChannelLineReader;
+import org.apache.inlong.agent.plugin.utils.file.LineSplitter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of reading the lines of a log file, one operation reads the whole file:
+ * streamRead() reads byte by byte through a ByteArrayOutputStream as the stream read mode,
+ * channelRead() reads by ChannelLineReader as the channel read mode.
+ * scanBytes() and scanWords() only find the line ends in a buffer of the file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineReadBenchmark {
+
+    private static final int FILE_SIZE = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LEN = 500 * 1024;
+    private static final int BATCH_READ_LINE_COUNT = 10000;
+    private static final int BATCH_READ_LINE_TOTAL_LEN = 1024 * 1024;
+
+    @Param({"100", "1000"})
+    private int lineLength;
+
+    private File file;
+    private byte[] streamBuffer;
+    private ChannelLineReader channelReader;
+    private ByteBuffer scanBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("agent-line-bench", ".log");
+        Random random = new Random(lineLength);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            int written = 0;
+            while (written < FILE_SIZE) {
+                // printable lines of lengths around the line length
+                int len = lineLength / 2 + random.nextInt(lineLength);
+                for (int i = 0; i < len; i++) {
+                    out.write(' ' + random.nextInt(95));
+                }
+                out.write('\n');
+                written += len + 1;
+            }
+        }
+        streamBuffer = new byte[READ_BUFFER_SIZE];
+        channelReader = new ChannelLineReader(READ_BUFFER_SIZE, MAX_LINE_LEN);
+        scanBuffer = LineSplitter.allocateReadBuffer((int) file.length());
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (scanBuffer.hasRemaining() && channel.read(scanBuffer) > 0) {
+                // read the whole file
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public long streamRead() throws IOException {
+        long pos = 0;
+        long bodyLen = 0;
+        try (RandomAccessFile reader = new RandomAccessFile(file, "r")) {
+            while (true) {
+                List<byte[]> lines = new ArrayList<>();
+                pos = streamReadLines(reader, pos, lines);
+                if (lines.isEmpty()) {
+                    break;
+                }
+                for (byte[] line : lines) {
+                    bodyLen += line.length;
+                }
+            }
+        }
+        return bodyLen;
+    }
+
+    @Benchmark
+    public long channelRead() throws IOException {
+        long pos = 0;
+        long bodyLen = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (true) {
+                List<byte[]> lines = new ArrayList<>();
+                List<Long> lineEnds = new ArrayList<>();
+                pos = channelReader.readLines(channel, pos, lines, lineEnds,
+                        BATCH_READ_LINE_COUNT, BATCH_READ_LINE_TOTAL_LEN);
+                if (lines.isEmpty()) {
+                    break;
+                }
+                for (byte[] line : lines) {
+                    bodyLen += line.length;
+                }
+            }
+        }
+        return bodyLen;
+    }
+
+    @Benchmark
+    public int scanBytes() {
+        int count = 0;
+        int limit = scanBuffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (scanBuffer.get(i) == LineSplitter.LINE_END) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int scanWords() {
+        int count = 0;
+        int limit = scanBuffer.limit();
+        int lineEnd = LineSplitter.indexOfLineEnd(scanBuffer, 0, limit);
+        while (lineEnd >= 0) {
+            count++;
+            lineEnd = LineSplitter.indexOfLineEnd(scanBuffer, lineEnd + 1, limit);
+        }
+        return count;
+    }
+
+    /**
+     * Read lines byte by byte, as the stream read mode of LogFileSource.
+     */
+    private long streamReadLines(RandomAccessFile reader, long pos, List<byte[]> lines) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        reader.seek(pos);
+        long rePos = pos;
+        int num;
+        int lineTotalLen = 0;
+        while ((num = reader.read(streamBuffer)) != -1) {
+            int i = 0;
+            for (; i < num; i++) {
+                byte ch = streamBuffer[i];
+                switch (ch) {
+                    case '\n':
+                        byte[] temp = baos.toByteArray();
+                        lines.add(temp);
+                        lineTotalLen += temp.length;
+                        rePos = pos + i + 1;
+                        baos.reset();
+                        break;
+                    case '\r':
+                        break;
+                    default:
+                        if (baos.size() < MAX_LINE_LEN) {
+                            baos.write(ch);
+                        }
+                }
+                if (lines.size() >= BATCH_READ_LINE_COUNT || lineTotalLen >= BATCH_READ_LINE_TOTAL_LEN) {
+                    break;
+                }
+            }
+            if (lines.size() >= BATCH_READ_LINE_COUNT || lineTotalLen >= BATCH_READ_LINE_TOTAL_LEN) {
+                break;
+            }
+            if (i == num) {
+                pos = reader.getFilePointer();
+            }
+        }
+        return rePos;
+    }
+}
@@ -49,6 +49,11 @@ public class OffsetProfile extends AbstractConfiguration {
         setInodeInfo(inodeInfo);
     }
 
+    public OffsetProfile(String taskId, String instanceId, long offset, long byteOffset, String inodeInfo) {
+        this(taskId, instanceId, offset, inodeInfo);
+        setByteOffset(byteOffset);
+    }
+
     public String toJsonStr() {
         return GSON.toJson(getConfigStorage());
     }
@@ -85,6 +90,17 @@ public class OffsetProfile extends AbstractConfiguration {
         setLong(TaskConstants.OFFSET, offset);
     }
 
+    /**
+     * byte position after the line of the offset, DEFAULT_OFFSET if saved by line only
+     */
+    public Long getByteOffset() {
+        return getLong(TaskConstants.BYTE_OFFSET, TaskConstants.DEFAULT_OFFSET);
+    }
+
+    public void setByteOffset(Long byteOffset) {
+        setLong(TaskConstants.BYTE_OFFSET, byteOffset);
+    }
+
     public String getInodeInfo() {
         return get(TaskConstants.INODE_INFO);
     }
@@ -58,6 +58,7 @@ public class TaskConstants extends CommonConstants {
     public static final String JOB_MQ_TOPIC = "job.topicInfo";
     public static final String OFFSET = "offset";
     public static final Long DEFAULT_OFFSET = -1L;
+    public static final String BYTE_OFFSET = "byteOffset";
     public static final String INODE_INFO = "inodeInfo";
 
     // File job
@@ -86,6 +87,11 @@ public class TaskConstants extends CommonConstants {
     public static final String FILE_SOURCE_EXTEND_CLASS = "task.fileTask.extendedClass";
     public static final String DEFAULT_FILE_SOURCE_EXTEND_CLASS =
             "org.apache.inlong.agent.plugin.sources.file.extend.ExtendedHandler";
+    // stream: read by RandomAccessFile byte by byte, channel: read by FileChannel a word at a time
+    public static final String TASK_FILE_READ_MODE = "task.fileTask.readMode";
+    public static final String FILE_READ_MODE_STREAM = "stream";
+    public static final String FILE_READ_MODE_CHANNEL = "channel";
+    public static final String DEFAULT_TASK_FILE_READ_MODE = FILE_READ_MODE_STREAM;
 
     // Binlog job
     public static final String JOB_DATABASE_USER = "job.binlogJob.user";
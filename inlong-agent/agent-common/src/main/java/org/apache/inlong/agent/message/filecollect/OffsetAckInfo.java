@@ -17,6 +17,8 @@
 
 package org.apache.inlong.agent.message.filecollect;
 
+import org.apache.inlong.agent.constant.TaskConstants;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -27,4 +29,9 @@ public class OffsetAckInfo {
     private Long offset;
     private int len;
     private Boolean hasAck;
+    private Long byteOffset;
+
+    public OffsetAckInfo(Long offset, int len, Boolean hasAck) {
+        this(offset, len, hasAck, TaskConstants.DEFAULT_OFFSET);
+    }
 }
@@ -51,7 +51,9 @@ public class ProxyMessage implements Message {
         // use the batch key of user and inlongStreamId to determine one batch
         this.batchKey = dataKey + inlongStreamId;
         Long offset = Long.parseLong(header.get(TaskConstants.OFFSET));
-        ackInfo = new OffsetAckInfo(offset, body.length, false);
+        String byteOffset = header.get(TaskConstants.BYTE_OFFSET);
+        ackInfo = new OffsetAckInfo(offset, body.length, false,
+                byteOffset == null ? TaskConstants.DEFAULT_OFFSET : Long.parseLong(byteOffset));
     }
 
     public ProxyMessage(Message message) {
@@ -17,12 +17,30 @@
 
 package org.apache.inlong.agent.metrics;
 
+import org.apache.inlong.common.metric.DimensionKey;
 import org.apache.inlong.common.metric.MetricDomain;
+import org.apache.inlong.common.metric.MetricHandle;
 import org.apache.inlong.common.metric.MetricItemSet;
 
+import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_COMPONENT_NAME;
+import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_GROUP_ID;
+import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_STREAM_ID;
+import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_PLUGIN_ID;
+
 @MetricDomain(name = "Agent")
 public class AgentMetricItemSet extends MetricItemSet<AgentMetricItem> {
 
+    // the dimension schema, the plugins set the first 3 dimensions, the components the last one
+    private static final int DIM_PLUGIN_ID = 0;
+    private static final int DIM_INLONG_GROUP_ID = 1;
+    private static final int DIM_INLONG_STREAM_ID = 2;
+    private static final int DIM_COMPONENT_NAME = 3;
+    private static final String[] DIMENSIONS = {
+            KEY_PLUGIN_ID, KEY_INLONG_GROUP_ID, KEY_INLONG_STREAM_ID, KEY_COMPONENT_NAME};
+    // the reused lookup keys of the threads
+    private static final ThreadLocal<DimensionKey> PROBES =
+            ThreadLocal.withInitial(() -> new DimensionKey(DIMENSIONS));
+
     /**
      * Constructor
      *
@@ -32,6 +50,46 @@ public class AgentMetricItemSet extends MetricItemSet<AgentMetricItem> {
         super(name);
     }
 
+    /**
+     * Find the plugin metric item, without building the dimension map
+     *
+     * @param pluginId          the plugin id
+     * @param inlongGroupId     the inlong group id
+     * @param inlongStreamId    the inlong stream id
+     * @return the metric item
+     */
+    public AgentMetricItem findPluginMetricItem(String pluginId, String inlongGroupId, String inlongStreamId) {
+        return findMetricItem(PROBES.get().set(DIM_PLUGIN_ID, pluginId)
+                .set(DIM_INLONG_GROUP_ID, inlongGroupId)
+                .set(DIM_INLONG_STREAM_ID, inlongStreamId)
+                .set(DIM_COMPONENT_NAME, null));
+    }
+
+    /**
+     * Get the handle of the plugin metric item, which is kept by the plugin
+     *
+     * @param pluginId          the plugin id
+     * @param inlongGroupId     the inlong group id
+     * @param inlongStreamId    the inlong stream id
+     * @return the metric handle
+     */
+    public MetricHandle<AgentMetricItem> getPluginHandle(String pluginId,
+            String inlongGroupId, String inlongStreamId) {
+        return getHandle(new DimensionKey(DIMENSIONS).set(DIM_PLUGIN_ID, pluginId)
+                .set(DIM_INLONG_GROUP_ID, inlongGroupId)
+                .set(DIM_INLONG_STREAM_ID, inlongStreamId));
+    }
+
+    /**
+     * Get the handle of the component metric item, which is kept by the component
+     *
+     * @param componentName     the component name
+     * @return the metric handle
+     */
+    public MetricHandle<AgentMetricItem> getComponentHandle(String componentName) {
+        return getHandle(new DimensionKey(DIMENSIONS).set(DIM_COMPONENT_NAME, componentName));
+    }
+
     @Override
     protected AgentMetricItem createItem() {
         return new AgentMetricItem();
@@ -26,14 +26,13 @@ import org.apache.inlong.agent.metrics.AgentMetricItem;
 import org.apache.inlong.agent.metrics.AgentMetricItemSet;
 import org.apache.inlong.agent.utils.AgentUtils;
 import org.apache.inlong.agent.utils.ThreadUtils;
+import org.apache.inlong.common.metric.MetricHandle;
 import org.apache.inlong.common.metric.MetricRegister;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -41,8 +40,6 @@ import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_COMPONENT_NAME;
-
 /**
  * Task manager maintains lots of tasks and communicate with job level components.
  * It also provide functions to execute commands from job level like killing/submit tasks.
@@ -63,7 +60,7 @@ public class TaskManager extends AbstractDaemon {
 
     // metrics
     private final AgentMetricItemSet taskMetrics;
-    private final Map<String, String> dimensions;
+    private final MetricHandle<AgentMetricItem> taskMetricHandle;
 
     /**
      * Init task manager.
@@ -79,8 +76,8 @@ public class TaskManager extends AbstractDaemon {
                 new AgentThreadFactory("task"));
         // metric for task level
         this.taskMetrics = new AgentMetricItemSet(this.getClass().getSimpleName());
-        this.dimensions = new HashMap<>();
-        this.dimensions.put(KEY_COMPONENT_NAME, this.getClass().getSimpleName());
+        // the running gauges are kept by the handle between the snapshots
+        this.taskMetricHandle = taskMetrics.getComponentHandle(this.getClass().getSimpleName());
         MetricRegister.register(taskMetrics);
 
         tasks = new ConcurrentHashMap<>();
@@ -105,7 +102,7 @@ public class TaskManager extends AbstractDaemon {
      * @return task metrics
      */
     public AgentMetricItem getTaskMetrics() {
-        return this.taskMetrics.findMetricItem(dimensions);
+        return this.taskMetricHandle.get();
     }
 
     public TaskWrapper getTaskWrapper(String taskId) {
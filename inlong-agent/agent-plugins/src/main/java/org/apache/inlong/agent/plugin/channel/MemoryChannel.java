@@ -28,8 +28,6 @@ import org.apache.inlong.common.metric.MetricRegister;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -38,9 +36,6 @@ import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_INL
 import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_INLONG_STREAM_ID;
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_INLONG_GROUP_ID;
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_INLONG_STREAM_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_GROUP_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_STREAM_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_PLUGIN_ID;
 
 /**
  * memory channel
@@ -63,7 +58,7 @@ public class MemoryChannel implements Channel {
     public void push(Message message) {
         try {
             if (message != null) {
-                AgentMetricItem metricItem = getMetricItem(new HashMap<String, String>());
+                AgentMetricItem metricItem = getMetricItem();
                 metricItem.pluginReadCount.incrementAndGet();
                 queue.put(message);
                 metricItem.pluginReadSuccessCount.incrementAndGet();
@@ -77,7 +72,7 @@ public class MemoryChannel implements Channel {
     public boolean push(Message message, long timeout, TimeUnit unit) {
         try {
             if (message != null) {
-                AgentMetricItem metricItem = getMetricItem(new HashMap<String, String>());
+                AgentMetricItem metricItem = getMetricItem();
                 metricItem.pluginReadCount.incrementAndGet();
                 boolean result = queue.offer(message, timeout, unit);
                 if (result) {
@@ -98,7 +93,7 @@ public class MemoryChannel implements Channel {
         try {
             Message message = queue.poll(timeout, unit);
             if (message != null) {
-                AgentMetricItem metricItem = getMetricItem(new HashMap<String, String>());
+                AgentMetricItem metricItem = getMetricItem();
                 metricItem.pluginSendSuccessCount.incrementAndGet();
                 metricItem.pluginSendCount.incrementAndGet();
             }
@@ -130,36 +125,24 @@ public class MemoryChannel implements Channel {
         LOGGER.info("destroy channel, show memory channel metric:");
     }
 
-    private AgentMetricItem getMetricItem(Map<String, String> dimens) {
-        Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(KEY_PLUGIN_ID, this.getClass().getSimpleName());
-        dimensions.put(KEY_INLONG_GROUP_ID, inlongGroupId);
-        dimensions.put(KEY_INLONG_STREAM_ID, inlongStreamId);
-        dimens.forEach((key, value) -> {
-            dimensions.put(key, value);
-        });
-        return this.metricItemSet.findMetricItem(dimensions);
+    private AgentMetricItem getMetricItem() {
+        return this.metricItemSet.findPluginMetricItem(this.getClass().getSimpleName(),
+                inlongGroupId, inlongStreamId);
     }
 
     private void metricItemReadFailed() {
-        Map<String, String> dimensions = new HashMap<String, String>();
-        dimensions.put(KEY_INLONG_GROUP_ID, inlongGroupId);
-        dimensions.put(KEY_INLONG_STREAM_ID, inlongStreamId);
-        AgentMetricItem metricItem = getMetricItem(dimensions);
+        AgentMetricItem metricItem = getMetricItem();
         metricItem.pluginReadFailCount.incrementAndGet();
-        LOGGER.debug("plugin read failed:{}", dimensions.toString());
+        LOGGER.debug("plugin read failed:{},{}", inlongGroupId, inlongStreamId);
         Thread.currentThread().interrupt();
         return;
     }
 
     private void metricItemSendFailed() {
-        Map<String, String> dimensions = new HashMap<String, String>();
-        dimensions.put(KEY_INLONG_GROUP_ID, inlongGroupId);
-        dimensions.put(KEY_INLONG_STREAM_ID, inlongStreamId);
-        AgentMetricItem metricItem = getMetricItem(dimensions);
+        AgentMetricItem metricItem = getMetricItem();
         metricItem.pluginSendFailCount.incrementAndGet();
         metricItem.pluginSendCount.incrementAndGet();
-        LOGGER.debug("plugin send failed:{}", dimensions.toString());
+        LOGGER.debug("plugin send failed:{},{}", inlongGroupId, inlongStreamId);
         Thread.currentThread().interrupt();
         return;
     }
@@ -23,13 +23,12 @@ import org.apache.inlong.agent.metrics.AgentMetricItem;
 import org.apache.inlong.agent.metrics.AgentMetricItemSet;
 import org.apache.inlong.agent.plugin.MessageFilter;
 import org.apache.inlong.agent.plugin.Sink;
+import org.apache.inlong.common.metric.MetricHandle;
 import org.apache.inlong.common.metric.MetricRegister;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -41,9 +40,6 @@ import static org.apache.inlong.agent.constant.CommonConstants.PROXY_BATCH_FLUSH
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_INLONG_GROUP_ID;
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_INLONG_STREAM_ID;
 import static org.apache.inlong.agent.constant.JobConstants.JOB_INSTANCE_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_GROUP_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_STREAM_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_PLUGIN_ID;
 
 /**
  * abstract sink: sink data to remote data center
@@ -56,8 +52,7 @@ public abstract class AbstractSink implements Sink {
 
     // metric
     protected AgentMetricItemSet metricItemSet;
-    protected AgentMetricItem sinkMetric;
-    protected Map<String, String> dimensions;
+    protected MetricHandle<AgentMetricItem> sinkMetric;
     protected static final AtomicLong METRIC_INDEX = new AtomicLong(0);
 
     protected JobProfile jobConf;
@@ -94,14 +89,10 @@ public abstract class AbstractSink implements Sink {
         cache = new ConcurrentHashMap<>(10);
         batchFlushInterval = jobConf.getInt(PROXY_BATCH_FLUSH_INTERVAL, DEFAULT_PROXY_BATCH_FLUSH_INTERVAL);
 
-        this.dimensions = new HashMap<>();
-        dimensions.put(KEY_PLUGIN_ID, this.getClass().getSimpleName());
-        dimensions.put(KEY_INLONG_GROUP_ID, inlongGroupId);
-        dimensions.put(KEY_INLONG_STREAM_ID, inlongStreamId);
         String metricName = String.join("-", this.getClass().getSimpleName(),
                 String.valueOf(METRIC_INDEX.incrementAndGet()));
         this.metricItemSet = new AgentMetricItemSet(metricName);
         MetricRegister.register(metricItemSet);
-        sinkMetric = metricItemSet.findMetricItem(dimensions);
+        sinkMetric = metricItemSet.getPluginHandle(this.getClass().getSimpleName(), inlongGroupId, inlongStreamId);
     }
 }
@@ -37,10 +37,10 @@ public class ConsoleSink extends AbstractSink {
         if (message != null) {
             System.out.println(new String(message.getBody(), StandardCharsets.UTF_8));
             // increment the count of successful sinks
-            sinkMetric.sinkSuccessCount.incrementAndGet();
+            sinkMetric.get().sinkSuccessCount.incrementAndGet();
         } else {
             // increment the count of failed sinks
-            sinkMetric.sinkFailCount.incrementAndGet();
+            sinkMetric.get().sinkFailCount.incrementAndGet();
         }
     }
 
@@ -131,9 +131,9 @@ public class KafkaSink extends AbstractSink {
                         return packProxyMessage;
                     });
             // increment the count of successful sinks
-            sinkMetric.sinkSuccessCount.incrementAndGet();
+            sinkMetric.get().sinkSuccessCount.incrementAndGet();
         } catch (Exception e) {
-            sinkMetric.sinkFailCount.incrementAndGet();
+            sinkMetric.get().sinkFailCount.incrementAndGet();
             LOGGER.error("write job[{}] data to cache error", jobInstanceId, e);
         } catch (Throwable t) {
             ThreadUtils.threadThrowableHandler(Thread.currentThread(), t);
@@ -232,7 +232,7 @@ public class KafkaSink extends AbstractSink {
         }
 
         ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, batchMsg.getInLongMsg().buildArray());
-        sinkMetric.pluginSendCount.addAndGet(batchMsg.getMsgCnt());
+        sinkMetric.get().pluginSendCount.addAndGet(batchMsg.getMsgCnt());
         if (asyncSend) {
             producer.send(record, new AsyncSinkCallback(System.currentTimeMillis(), batchMsg));
         } else {
@@ -241,7 +241,7 @@ public class KafkaSink extends AbstractSink {
                 future.get(DEFAULT_KAFKA_SINK_SYNC_SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
                 updateSuccessSendMetrics(batchMsg);
             } catch (Exception e) {
-                sinkMetric.pluginSendFailCount.addAndGet(batchMsg.getMsgCnt());
+                sinkMetric.get().pluginSendFailCount.addAndGet(batchMsg.getMsgCnt());
                 LOGGER.error("send job[{}] data fail to kafka, add back to send queue, send queue size {}",
                         jobInstanceId,
                         kafkaSendQueue.size(), e);
@@ -254,7 +254,7 @@ public class KafkaSink extends AbstractSink {
         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_SEND_SUCCESS, batchMsg.getGroupId(),
                 batchMsg.getStreamId(), batchMsg.getDataTime(), batchMsg.getMsgCnt(),
                 batchMsg.getTotalSize());
-        sinkMetric.pluginSendSuccessCount.addAndGet(batchMsg.getMsgCnt());
+        sinkMetric.get().pluginSendSuccessCount.addAndGet(batchMsg.getMsgCnt());
     }
 
     private KafkaProducer<String, byte[]> selectProducer() {
@@ -411,7 +411,7 @@ public class KafkaSink extends AbstractSink {
         @Override
         public void onCompletion(RecordMetadata metadata, Exception exception) {
             if (exception != null) {
-                sinkMetric.pluginSendFailCount.addAndGet(batchMsg.getMsgCnt());
+                sinkMetric.get().pluginSendFailCount.addAndGet(batchMsg.getMsgCnt());
                 LOGGER.error("send job[{}] data fail to kafka, will add back to sendqueue, current sendqueue size {}",
                         jobInstanceId,
                         kafkaSendQueue.size(), exception);
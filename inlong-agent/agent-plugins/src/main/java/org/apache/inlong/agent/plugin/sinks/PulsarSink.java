@@ -175,10 +175,10 @@ public class PulsarSink extends AbstractSink {
                                 return packProxyMessage;
                             });
                     // increment the count of successful sinks
-                    sinkMetric.sinkSuccessCount.incrementAndGet();
+                    sinkMetric.get().sinkSuccessCount.incrementAndGet();
                 } else {
                     // increment the count of failed sinks
-                    sinkMetric.sinkFailCount.incrementAndGet();
+                    sinkMetric.get().sinkFailCount.incrementAndGet();
                 }
             }
         } catch (Exception e) {
@@ -279,14 +279,14 @@ public class PulsarSink extends AbstractSink {
             return;
         }
         InLongMsg message = batchMsg.getInLongMsg();
-        sinkMetric.pluginSendCount.addAndGet(batchMsg.getMsgCnt());
+        sinkMetric.get().pluginSendCount.addAndGet(batchMsg.getMsgCnt());
         if (asyncSend) {
             CompletableFuture<MessageId> future = producer.newMessage().eventTime(batchMsg.getDataTime())
                     .value(message.buildArray()).sendAsync();
             future.whenCompleteAsync((m, t) -> {
                 if (t != null) {
                     // send error
-                    sinkMetric.pluginSendFailCount.addAndGet(batchMsg.getMsgCnt());
+                    sinkMetric.get().pluginSendFailCount.addAndGet(batchMsg.getMsgCnt());
                     LOGGER.error("send data fail to pulsar, add back to sendqueue, current queue size {}",
                             pulsarSendQueue.size(), t);
                     try {
@@ -306,7 +306,7 @@ public class PulsarSink extends AbstractSink {
                 sendQueueSemaphore.release();
                 updateSuccessSendMetrics(batchMsg);
             } catch (PulsarClientException e) {
-                sinkMetric.pluginSendFailCount.addAndGet(batchMsg.getMsgCnt());
+                sinkMetric.get().pluginSendFailCount.addAndGet(batchMsg.getMsgCnt());
                 LOGGER.error("send data fail to pulsar, add back to send queue, send queue size {}",
                         pulsarSendQueue.size(), e);
                 pulsarSendQueue.put(batchMsg);
@@ -318,7 +318,7 @@ public class PulsarSink extends AbstractSink {
         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_SEND_SUCCESS, batchMsg.getGroupId(),
                 batchMsg.getStreamId(), batchMsg.getDataTime(), batchMsg.getMsgCnt(),
                 batchMsg.getTotalSize());
-        sinkMetric.pluginSendSuccessCount.addAndGet(batchMsg.getMsgCnt());
+        sinkMetric.get().pluginSendSuccessCount.addAndGet(batchMsg.getMsgCnt());
     }
 
     private Producer selectProducer() {
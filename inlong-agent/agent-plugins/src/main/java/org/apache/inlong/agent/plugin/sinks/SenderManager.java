@@ -39,8 +39,6 @@ import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -57,9 +55,6 @@ import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_MANAGER_VI
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_MANAGER_VIP_HTTP_PORT;
 import static org.apache.inlong.agent.constant.JobConstants.DEFAULT_JOB_PROXY_SEND;
 import static org.apache.inlong.agent.constant.JobConstants.JOB_PROXY_SEND;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_GROUP_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_STREAM_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_PLUGIN_ID;
 
 /**
  * proxy client
@@ -99,7 +94,6 @@ public class SenderManager {
     private volatile boolean shutdown = false;
     // metric
     private AgentMetricItemSet metricItemSet;
-    private Map<String, String> dimensions;
     private PositionManager positionManager;
     private int ioThreadNum;
     private boolean enableBusyWait;
@@ -147,8 +141,6 @@ public class SenderManager {
         this.sourcePath = sourcePath;
         this.inlongGroupId = inlongGroupId;
 
-        this.dimensions = new HashMap<>();
-        dimensions.put(KEY_PLUGIN_ID, this.getClass().getSimpleName());
         String metricName = String.join("-", this.getClass().getSimpleName(),
                 String.valueOf(METRIC_INDEX.incrementAndGet()));
         this.metricItemSet = new AgentMetricItemSet(metricName);
@@ -178,18 +170,8 @@ public class SenderManager {
         }
     }
 
-    private AgentMetricItem getMetricItem(Map<String, String> otherDimensions) {
-        Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(KEY_PLUGIN_ID, this.getClass().getSimpleName());
-        dimensions.putAll(otherDimensions);
-        return this.metricItemSet.findMetricItem(dimensions);
-    }
-
     private AgentMetricItem getMetricItem(String groupId, String streamId) {
-        Map<String, String> dims = new HashMap<>();
-        dims.put(KEY_INLONG_GROUP_ID, groupId);
-        dims.put(KEY_INLONG_STREAM_ID, streamId);
-        return getMetricItem(dims);
+        return this.metricItemSet.findPluginMetricItem(this.getClass().getSimpleName(), groupId, streamId);
     }
 
     /**
@@ -22,20 +22,16 @@ import org.apache.inlong.agent.message.filecollect.ProxyMessageCache;
 import org.apache.inlong.agent.metrics.AgentMetricItem;
 import org.apache.inlong.agent.metrics.AgentMetricItemSet;
 import org.apache.inlong.agent.plugin.file.Sink;
+import org.apache.inlong.common.metric.MetricHandle;
 import org.apache.inlong.common.metric.MetricRegister;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_BATCH_FLUSH_INTERVAL;
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_BATCH_FLUSH_INTERVAL;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_GROUP_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_STREAM_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_PLUGIN_ID;
 
 /**
  * abstract sink: sink data to remote data center
@@ -48,8 +44,7 @@ public abstract class AbstractSink implements Sink {
 
     // metric
     protected AgentMetricItemSet metricItemSet;
-    protected AgentMetricItem sinkMetric;
-    protected Map<String, String> dimensions;
+    protected MetricHandle<AgentMetricItem> sinkMetric;
     protected static final AtomicLong METRIC_INDEX = new AtomicLong(0);
 
     protected InstanceProfile profile;
@@ -73,14 +68,10 @@ public abstract class AbstractSink implements Sink {
         cache = new ProxyMessageCache(this.profile, inlongGroupId, inlongStreamId);
         batchFlushInterval = profile.getInt(PROXY_BATCH_FLUSH_INTERVAL, DEFAULT_PROXY_BATCH_FLUSH_INTERVAL);
 
-        this.dimensions = new HashMap<>();
-        dimensions.put(KEY_PLUGIN_ID, this.getClass().getSimpleName());
-        dimensions.put(KEY_INLONG_GROUP_ID, inlongGroupId);
-        dimensions.put(KEY_INLONG_STREAM_ID, inlongStreamId);
         String metricName = String.join("-", this.getClass().getSimpleName(),
                 String.valueOf(METRIC_INDEX.incrementAndGet()));
         this.metricItemSet = new AgentMetricItemSet(metricName);
         MetricRegister.register(metricItemSet);
-        sinkMetric = metricItemSet.findMetricItem(dimensions);
+        sinkMetric = metricItemSet.getPluginHandle(this.getClass().getSimpleName(), inlongGroupId, inlongStreamId);
     }
 }
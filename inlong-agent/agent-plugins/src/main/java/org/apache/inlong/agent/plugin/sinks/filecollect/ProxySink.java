@@ -98,7 +98,7 @@ public class ProxySink extends AbstractSink {
             extractStreamFromMessage(message, fieldSplitter);
             if (message instanceof EndMessage) {
                 // increment the count of failed sinks
-                sinkMetric.sinkFailCount.incrementAndGet();
+                sinkMetric.get().sinkFailCount.incrementAndGet();
                 return true;
             }
             ProxyMessage proxyMessage = new ProxyMessage(message);
@@ -116,7 +116,7 @@ public class ProxySink extends AbstractSink {
             } else {
                 MemoryManager.getInstance().release(AGENT_GLOBAL_WRITER_PERMIT, message.getBody().length);
                 // increment the count of failed sinks
-                sinkMetric.sinkFailCount.incrementAndGet();
+                sinkMetric.get().sinkFailCount.incrementAndGet();
             }
             return suc;
         } catch (Exception e) {
@@ -267,10 +267,10 @@ public class ProxySink extends AbstractSink {
             }
         }
         if (info != null) {
-            LOGGER.info("save offset {} taskId {} instanceId {}", info.getOffset(), profile.getTaskId(),
-                    profile.getInstanceId());
+            LOGGER.info("save offset {} byteOffset {} taskId {} instanceId {}", info.getOffset(),
+                    info.getByteOffset(), profile.getTaskId(), profile.getInstanceId());
             OffsetProfile offsetProfile = new OffsetProfile(profile.getTaskId(), profile.getInstanceId(),
-                    info.getOffset(), profile.get(INODE_INFO));
+                    info.getOffset(), info.getByteOffset(), profile.get(INODE_INFO));
             offsetManager.setOffset(offsetProfile);
         }
         packageAckInfoLock.writeLock().unlock();
@@ -40,7 +40,6 @@ import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -58,9 +57,6 @@ import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_MANAGER_VI
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_MANAGER_VIP_HTTP_PORT;
 import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_JOB_PROXY_SEND;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_PROXY_SEND;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_GROUP_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_STREAM_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_PLUGIN_ID;
 
 /**
  * proxy client
@@ -101,7 +97,6 @@ public class SenderManager {
     private volatile boolean shutdown = false;
     // metric
     private AgentMetricItemSet metricItemSet;
-    private Map<String, String> dimensions;
     private int ioThreadNum;
     private boolean enableBusyWait;
     private String authSecretId;
@@ -151,8 +146,6 @@ public class SenderManager {
         this.sourcePath = sourcePath;
         this.inlongGroupId = inlongGroupId;
 
-        this.dimensions = new HashMap<>();
-        dimensions.put(KEY_PLUGIN_ID, this.getClass().getSimpleName());
         String metricName = String.join("-", this.getClass().getSimpleName(),
                 String.valueOf(METRIC_INDEX.incrementAndGet()));
         this.metricItemSet = new AgentMetricItemSet(metricName);
@@ -185,18 +178,8 @@ public class SenderManager {
         }
     }
 
-    private AgentMetricItem getMetricItem(Map<String, String> otherDimensions) {
-        Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(KEY_PLUGIN_ID, this.getClass().getSimpleName());
-        dimensions.putAll(otherDimensions);
-        return this.metricItemSet.findMetricItem(dimensions);
-    }
-
     private AgentMetricItem getMetricItem(String groupId, String streamId) {
-        Map<String, String> dims = new HashMap<>();
-        dims.put(KEY_INLONG_GROUP_ID, groupId);
-        dims.put(KEY_INLONG_STREAM_ID, streamId);
-        return getMetricItem(dims);
+        return this.metricItemSet.findPluginMetricItem(this.getClass().getSimpleName(), groupId, streamId);
     }
 
     /**
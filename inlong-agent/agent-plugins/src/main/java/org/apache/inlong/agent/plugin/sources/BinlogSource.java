@@ -44,7 +44,7 @@ public class BinlogSource extends AbstractSource {
         binlogReader.setReadSource(conf.getInstanceId());
         List<Reader> readerList = new ArrayList<>();
         readerList.add(binlogReader);
-        sourceMetric.sourceSuccessCount.incrementAndGet();
+        sourceMetric.get().sourceSuccessCount.incrementAndGet();
         return readerList;
     }
 
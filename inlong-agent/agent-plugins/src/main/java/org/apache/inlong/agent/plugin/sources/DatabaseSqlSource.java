@@ -79,11 +79,11 @@ public class DatabaseSqlSource extends AbstractSource {
         }
         if (readerList != null) {
             // increment the count of successful sources
-            sourceMetric.sourceSuccessCount.incrementAndGet();
+            sourceMetric.get().sourceSuccessCount.incrementAndGet();
         } else {
             // database type or sql is incorrect
             // increment the count of failed sources
-            sourceMetric.sourceFailCount.incrementAndGet();
+            sourceMetric.get().sourceFailCount.incrementAndGet();
         }
         return readerList;
     }
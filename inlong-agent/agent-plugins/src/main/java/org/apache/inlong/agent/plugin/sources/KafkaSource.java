@@ -128,9 +128,9 @@ public class KafkaSource extends AbstractSource {
                 addValidator(filterPattern, kafkaReader);
                 result.add(kafkaReader);
             }
-            sourceMetric.sourceSuccessCount.incrementAndGet();
+            sourceMetric.get().sourceSuccessCount.incrementAndGet();
         } else {
-            sourceMetric.sourceFailCount.incrementAndGet();
+            sourceMetric.get().sourceFailCount.incrementAndGet();
         }
         return result;
     }
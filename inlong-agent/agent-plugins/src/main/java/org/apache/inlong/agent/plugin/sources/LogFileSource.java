@@ -34,6 +34,7 @@ import org.apache.inlong.agent.plugin.file.Reader;
 import org.apache.inlong.agent.plugin.sources.file.AbstractSource;
 import org.apache.inlong.agent.plugin.sources.file.extend.ExtendedHandler;
 import org.apache.inlong.agent.plugin.sources.reader.file.KubernetesMetadataProvider;
+import org.apache.inlong.agent.plugin.utils.file.ChannelLineReader;
 import org.apache.inlong.agent.plugin.utils.file.FileDataUtils;
 import org.apache.inlong.agent.utils.AgentUtils;
 import org.apache.inlong.agent.utils.DateTransUtils;
@@ -49,12 +50,13 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.io.RandomAccessFile;
 import java.lang.reflect.Constructor;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -83,10 +85,14 @@ import static org.apache.inlong.agent.constant.MetadataConstants.ENV_CVM;
 import static org.apache.inlong.agent.constant.MetadataConstants.METADATA_FILE_NAME;
 import static org.apache.inlong.agent.constant.MetadataConstants.METADATA_HOST_NAME;
 import static org.apache.inlong.agent.constant.MetadataConstants.METADATA_SOURCE_IP;
+import static org.apache.inlong.agent.constant.TaskConstants.BYTE_OFFSET;
 import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_FILE_SOURCE_EXTEND_CLASS;
+import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_TASK_FILE_READ_MODE;
+import static org.apache.inlong.agent.constant.TaskConstants.FILE_READ_MODE_CHANNEL;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_FILE_META_ENV_LIST;
 import static org.apache.inlong.agent.constant.TaskConstants.OFFSET;
 import static org.apache.inlong.agent.constant.TaskConstants.TASK_CYCLE_UNIT;
+import static org.apache.inlong.agent.constant.TaskConstants.TASK_FILE_READ_MODE;
 
 /**
  * Read text files
@@ -98,8 +104,9 @@ public class LogFileSource extends AbstractSource {
     @NoArgsConstructor
     private class SourceData {
 
-        private String data;
+        private byte[] data;
         private Long offset;
+        private Long byteOffset;
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LogFileSource.class);
@@ -113,6 +120,7 @@ public class LogFileSource extends AbstractSource {
     private final Integer CORE_THREAD_PRINT_INTERVAL_MS = 1000;
     private final Integer CACHE_QUEUE_SIZE = 10 * BATCH_READ_LINE_COUNT;
     private final Integer SIZE_OF_BUFFER_TO_READ_FILE = 64 * 1024;
+    private final Integer SIZE_OF_BUFFER_TO_SKIP_LINES = 1024 * 1024;
     private final Integer EMPTY_CHECK_COUNT_AT_LEAST = 30;
     private final Long INODE_UPDATE_INTERVAL_MS = 1000L;
     private final Integer READ_WAIT_TIMEOUT_MS = 10;
@@ -124,6 +132,8 @@ public class LogFileSource extends AbstractSource {
     private String fileName;
     private File file;
     private byte[] bufferToReadFile;
+    private boolean isChannelRead = false;
+    private ChannelLineReader channelReader;
     public volatile long linePosition = 0;
     public volatile long bytePosition = 0;
     private boolean needMetadata = false;
@@ -159,13 +169,18 @@ public class LogFileSource extends AbstractSource {
             instanceId = profile.getInstanceId();
             fileName = profile.getInstanceId();
             maxPackSize = profile.getInt(PROXY_PACKAGE_MAX_SIZE, DEFAULT_PROXY_PACKAGE_MAX_SIZE);
-            bufferToReadFile = new byte[SIZE_OF_BUFFER_TO_READ_FILE];
+            isChannelRead = FILE_READ_MODE_CHANNEL.equalsIgnoreCase(
+                    profile.get(TASK_FILE_READ_MODE, DEFAULT_TASK_FILE_READ_MODE));
+            if (isChannelRead) {
+                channelReader = new ChannelLineReader(SIZE_OF_BUFFER_TO_READ_FILE, maxPackSize);
+            } else {
+                bufferToReadFile = new byte[SIZE_OF_BUFFER_TO_READ_FILE];
+            }
             isIncrement = isIncrement(profile);
             file = new File(fileName);
             inodeInfo = profile.get(TaskConstants.INODE_INFO);
             lastInodeUpdateTime = AgentUtils.getCurrentTime();
-            linePosition = getInitLineOffset(isIncrement, taskId, instanceId, inodeInfo);
-            bytePosition = getBytePositionByLine(linePosition);
+            initOffset(isIncrement, taskId, instanceId, inodeInfo);
             queue = new LinkedBlockingQueue<>(CACHE_QUEUE_SIZE);
             dataTime = DateTransUtils.timeStrConvertToMillSec(profile.getSourceDataTime(), cycleUnit);
             if (DEFAULT_FILE_SOURCE_EXTEND_CLASS.compareTo(ExtendedHandler.class.getCanonicalName()) != 0) {
@@ -188,41 +203,37 @@ public class LogFileSource extends AbstractSource {
         }
     }
 
-    private int getRealLineCount(String fileName) {
-        try (LineNumberReader lineNumberReader = new LineNumberReader(new FileReader(instanceId))) {
-            lineNumberReader.skip(Long.MAX_VALUE);
-            return lineNumberReader.getLineNumber();
-        } catch (IOException ex) {
-            LOGGER.error("getRealLineCount error {} file {}", ex.getMessage(), fileName);
-            return 0;
-        }
-    }
-
-    private long getInitLineOffset(boolean isIncrement, String taskId, String instanceId, String inodeInfo) {
+    private void initOffset(boolean isIncrement, String taskId, String instanceId, String inodeInfo)
+            throws IOException {
         OffsetProfile offsetProfile = OffsetManager.getInstance().getOffset(taskId, instanceId);
-        int fileLineCount = getRealLineCount(instanceId);
-        long offset = 0;
+        linePosition = 0;
+        bytePosition = 0;
         if (offsetProfile != null && offsetProfile.getInodeInfo().compareTo(inodeInfo) == 0) {
-            offset = offsetProfile.getOffset();
-            if (fileLineCount < offset) {
-                LOGGER.info("getInitLineOffset inode no change taskId {} file rotate, offset set to 0, file {}", taskId,
+            long lineOffset = offsetProfile.getOffset();
+            long byteOffset = offsetProfile.getByteOffset();
+            if (byteOffset < 0) {
+                // saved by line only, locate the byte position once, later offsets carry it
+                long[] skipped = skipLines(lineOffset);
+                byteOffset = skipped[0] < lineOffset ? Long.MAX_VALUE : skipped[1];
+            }
+            if (file.length() < byteOffset) {
+                LOGGER.info("initOffset inode no change taskId {} file rotate, offset set to 0, file {}", taskId,
                         fileName);
-                offset = 0;
             } else {
-                LOGGER.info("getInitLineOffset inode no change taskId {} from db {}, file {}", taskId, offset,
-                        fileName);
+                linePosition = lineOffset;
+                bytePosition = byteOffset;
+                LOGGER.info("initOffset inode no change taskId {} from db line {} byte {}, file {}", taskId,
+                        linePosition, bytePosition, fileName);
             }
+        } else if (isIncrement) {
+            long[] skipped = skipLines(Long.MAX_VALUE);
+            linePosition = skipped[0];
+            bytePosition = skipped[1];
+            LOGGER.info("initOffset taskId {} for new increment read from line {} byte {} file {}", taskId,
+                    linePosition, bytePosition, fileName);
         } else {
-            if (isIncrement) {
-                offset = getRealLineCount(instanceId);
-                LOGGER.info("getInitLineOffset taskId {} for new increment read from {} file {}", taskId,
-                        offset, fileName);
-            } else {
-                offset = 0;
-                LOGGER.info("getInitLineOffset taskId {} for new all read from 0 file {}", taskId, fileName);
-            }
+            LOGGER.info("initOffset taskId {} for new all read from 0 file {}", taskId, fileName);
         }
-        return offset;
     }
 
     public File getFile() {
@@ -255,31 +266,32 @@ public class LogFileSource extends AbstractSource {
         return false;
     }
 
-    private long getBytePositionByLine(long linePosition) throws IOException {
+    /**
+     * Skip lines from the head of the file, counting line ends only.
+     *
+     * @param lineCount The count of lines to skip
+     * @return The count of lines skipped and the byte position after them
+     * @throws IOException if an I/O error occurs.
+     */
+    private long[] skipLines(long lineCount) throws IOException {
+        long skipped = 0;
         long pos = 0;
-        long readCount = 0;
-        RandomAccessFile input = null;
-        try {
-            input = new RandomAccessFile(file, "r");
-            while (readCount < linePosition) {
-                List<String> lines = new ArrayList<>();
-                pos = readLines(input, pos, lines, Math.min((int) (linePosition - readCount), BATCH_READ_LINE_COUNT),
-                        BATCH_READ_LINE_TOTAL_LEN, true);
-                readCount += lines.size();
-                if (lines.size() == 0) {
-                    LOGGER.error("getBytePositionByLine LineNum {} larger than the real file");
-                    break;
+        byte[] buffer = new byte[SIZE_OF_BUFFER_TO_SKIP_LINES];
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            long readPos = 0;
+            int num;
+            while (skipped < lineCount && (num = input.read(buffer)) != -1) {
+                for (int i = 0; i < num && skipped < lineCount; i++) {
+                    if (buffer[i] == '\n') {
+                        skipped++;
+                        pos = readPos + i + 1;
+                    }
                 }
-            }
-        } catch (Exception e) {
-            LOGGER.error("getBytePositionByLine error: ", e);
-        } finally {
-            if (input != null) {
-                input.close();
+                readPos += num;
             }
         }
-        LOGGER.info("getBytePositionByLine {} LineNum {} position {}", fileName, linePosition, pos);
-        return pos;
+        LOGGER.info("skipLines {} lineCount {} skipped {} position {}", fileName, lineCount, skipped, pos);
+        return new long[]{skipped, pos};
     }
 
     /**
@@ -289,9 +301,8 @@ public class LogFileSource extends AbstractSource {
      * @return The new position after the lines have been read
      * @throws IOException if an I/O error occurs.
      */
-    private long readLines(RandomAccessFile reader, long pos, List<String> lines, int maxLineCount, int maxLineTotalLen,
-            boolean isCounting)
-            throws IOException {
+    private long readLines(RandomAccessFile reader, long pos, List<byte[]> lines, List<Long> lineEnds,
+            int maxLineCount, int maxLineTotalLen) throws IOException {
         if (maxLineCount == 0) {
             return pos;
         }
@@ -308,14 +319,11 @@ public class LogFileSource extends AbstractSource {
                 byte ch = bufferToReadFile[i];
                 switch (ch) {
                     case '\n':
-                        if (isCounting) {
-                            lines.add(new String(""));
-                        } else {
-                            String temp = new String(baos.toByteArray(), StandardCharsets.UTF_8);
-                            lines.add(temp);
-                            lineTotalLen += temp.length();
-                        }
+                        byte[] temp = baos.toByteArray();
+                        lines.add(temp);
+                        lineTotalLen += temp.length;
                         rePos = pos + i + 1;
+                        lineEnds.add(rePos);
                         if (overLen) {
                             LOGGER.warn("readLines over len finally string len {}",
                                     new String(baos.toByteArray()).length());
@@ -361,20 +369,24 @@ public class LogFileSource extends AbstractSource {
         if (sourceData == null) {
             return null;
         }
-        MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length());
+        MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length);
         Message finalMsg = createMessage(sourceData);
         return finalMsg;
     }
 
     private Message createMessage(SourceData sourceData) {
-        String msgWithMetaData = fillMetaData(sourceData.data);
+        byte[] body = sourceData.data;
+        if (needMetadata) {
+            body = fillMetaData(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        }
         String proxyPartitionKey = profile.get(PROXY_SEND_PARTITION_KEY, DigestUtils.md5Hex(inlongGroupId));
         Map<String, String> header = new HashMap<>();
         header.put(PROXY_KEY_DATA, proxyPartitionKey);
         header.put(OFFSET, sourceData.offset.toString());
+        header.put(BYTE_OFFSET, sourceData.byteOffset.toString());
         header.put(PROXY_KEY_STREAM_ID, inlongStreamId);
         if (extendedHandler != null) {
-            extendedHandler.dealWithHeader(header, sourceData.getData().getBytes(StandardCharsets.UTF_8));
+            extendedHandler.dealWithHeader(header, sourceData.getData());
         }
         long auditTime = 0;
         if (isRealTime) {
@@ -383,10 +395,10 @@ public class LogFileSource extends AbstractSource {
             auditTime = profile.getSinkDataTime();
         }
         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS, inlongGroupId, header.get(PROXY_KEY_STREAM_ID),
-                auditTime, 1, msgWithMetaData.length());
+                auditTime, 1, body.length);
         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS_REAL_TIME, inlongGroupId, header.get(PROXY_KEY_STREAM_ID),
-                AgentUtils.getCurrentTime(), 1, msgWithMetaData.length());
-        Message finalMsg = new DefaultMessage(msgWithMetaData.getBytes(StandardCharsets.UTF_8), header);
+                AgentUtils.getCurrentTime(), 1, body.length);
+        Message finalMsg = new DefaultMessage(body, header);
         // if the message size is greater than max pack size,should drop it.
         if (finalMsg.getBody().length > maxPackSize) {
             LOGGER.warn("message size is {}, greater than max pack size {}, drop it!",
@@ -478,7 +490,7 @@ public class LogFileSource extends AbstractSource {
                 }
                 emptyCount = 0;
                 for (int i = 0; i < lines.size(); i++) {
-                    boolean suc4Queue = waitForPermit(AGENT_GLOBAL_READER_QUEUE_PERMIT, lines.get(i).data.length());
+                    boolean suc4Queue = waitForPermit(AGENT_GLOBAL_READER_QUEUE_PERMIT, lines.get(i).data.length);
                     if (!suc4Queue) {
                         break;
                     }
@@ -500,10 +512,10 @@ public class LogFileSource extends AbstractSource {
             while (offerSuc != true) {
                 offerSuc = queue.offer(sourceData, 1, TimeUnit.SECONDS);
             }
-            LOGGER.debug("Read {} from file {}", sourceData.getData(), fileName);
+            LOGGER.debug("Read line {} from file {}", sourceData.getOffset(), fileName);
         } catch (InterruptedException e) {
             if (sourceData != null) {
-                MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length());
+                MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length);
             }
             LOGGER.error("fetchData offer failed {}", e.getMessage());
         }
@@ -526,16 +538,30 @@ public class LogFileSource extends AbstractSource {
     }
 
     private List<SourceData> readFromPos(long pos) throws IOException {
-        List<String> lines = new ArrayList<>();
+        List<byte[]> lines = new ArrayList<>();
+        List<Long> lineEnds = new ArrayList<>();
         List<SourceData> dataList = new ArrayList<>();
-        RandomAccessFile input = new RandomAccessFile(file, "r");
-        bytePosition = readLines(input, pos, lines, BATCH_READ_LINE_COUNT, BATCH_READ_LINE_TOTAL_LEN, false);
+        if (isChannelRead) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                bytePosition = channelReader.readLines(channel, pos, lines, lineEnds,
+                        BATCH_READ_LINE_COUNT, BATCH_READ_LINE_TOTAL_LEN);
+            } catch (NoSuchFileException e) {
+                throw new FileNotFoundException(e.getMessage());
+            }
+            int overLenCount = channelReader.getOverLenCount();
+            if (overLenCount > 0) {
+                AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS_REAL_TIME, inlongGroupId,
+                        inlongStreamId, AgentUtils.getCurrentTime(), overLenCount, (long) overLenCount * maxPackSize);
+            }
+        } else {
+            try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+                bytePosition = readLines(input, pos, lines, lineEnds, BATCH_READ_LINE_COUNT,
+                        BATCH_READ_LINE_TOTAL_LEN);
+            }
+        }
         for (int i = 0; i < lines.size(); i++) {
             linePosition++;
-            dataList.add(new SourceData(lines.get(i), linePosition));
-        }
-        if (input != null) {
-            input.close();
+            dataList.add(new SourceData(lines.get(i), linePosition, lineEnds.get(i)));
         }
         return dataList;
     }
@@ -563,7 +589,7 @@ public class LogFileSource extends AbstractSource {
                 LOGGER.warn("poll {} data get interrupted.", file.getPath(), e);
             }
             if (sourceData != null) {
-                MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length());
+                MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length);
             }
         }
         queue.clear();
@@ -40,7 +40,7 @@ public class MongoDBSource extends AbstractSource {
     public List<Reader> split(TaskProfile conf) {
         MongoDBReader mongoDBReader = new MongoDBReader();
         List<Reader> readerList = Collections.singletonList(mongoDBReader);
-        sourceMetric.sourceSuccessCount.incrementAndGet();
+        sourceMetric.get().sourceSuccessCount.incrementAndGet();
         return readerList;
     }
 
@@ -72,9 +72,9 @@ public class MqttSource extends AbstractSource {
         if (StringUtils.isNotEmpty(topics)) {
         }
         if (CollectionUtils.isNotEmpty(readerList)) {
-            sourceMetric.sourceSuccessCount.incrementAndGet();
+            sourceMetric.get().sourceSuccessCount.incrementAndGet();
         } else {
-            sourceMetric.sourceFailCount.incrementAndGet();
+            sourceMetric.get().sourceFailCount.incrementAndGet();
         }
         return readerList;
     }
@@ -44,7 +44,7 @@ public class OracleSource extends AbstractSource {
         Reader oracleReader = new OracleReader();
         List<Reader> readerList = new ArrayList<>();
         readerList.add(oracleReader);
-        sourceMetric.sourceSuccessCount.incrementAndGet();
+        sourceMetric.get().sourceSuccessCount.incrementAndGet();
         return readerList;
     }
 
@@ -45,7 +45,7 @@ public class PostgreSQLSource extends AbstractSource {
         PostgreSQLReader postgreSQLReader = new PostgreSQLReader();
         List<Reader> readerList = new ArrayList<>();
         readerList.add(postgreSQLReader);
-        sourceMetric.sourceSuccessCount.incrementAndGet();
+        sourceMetric.get().sourceSuccessCount.incrementAndGet();
         return readerList;
     }
 
@@ -45,7 +45,7 @@ public class RedisSource extends AbstractSource {
         RedisReader redisReader = new RedisReader();
         List<Reader> readerList = new ArrayList<>();
         readerList.add(redisReader);
-        sourceMetric.sourceSuccessCount.incrementAndGet();
+        sourceMetric.get().sourceSuccessCount.incrementAndGet();
         return readerList;
     }
 
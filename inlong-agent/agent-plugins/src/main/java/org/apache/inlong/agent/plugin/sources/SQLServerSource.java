@@ -44,7 +44,7 @@ public class SQLServerSource extends AbstractSource {
         SQLServerReader sqlServerReader = new SQLServerReader();
         List<Reader> readerList = new ArrayList<>();
         readerList.add(sqlServerReader);
-        sourceMetric.sourceSuccessCount.incrementAndGet();
+        sourceMetric.get().sourceSuccessCount.incrementAndGet();
         return readerList;
     }
 
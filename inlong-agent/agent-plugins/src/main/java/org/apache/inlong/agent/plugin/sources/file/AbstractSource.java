@@ -21,25 +21,19 @@ import org.apache.inlong.agent.conf.InstanceProfile;
 import org.apache.inlong.agent.metrics.AgentMetricItem;
 import org.apache.inlong.agent.metrics.AgentMetricItemSet;
 import org.apache.inlong.agent.plugin.file.Source;
+import org.apache.inlong.common.metric.MetricHandle;
 import org.apache.inlong.common.metric.MetricRegister;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_GROUP_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_INLONG_STREAM_ID;
-import static org.apache.inlong.agent.metrics.AgentMetricItem.KEY_PLUGIN_ID;
-
 public abstract class AbstractSource implements Source {
 
     protected String inlongGroupId;
     protected String inlongStreamId;
     // metric
     protected AgentMetricItemSet metricItemSet;
-    protected AgentMetricItem sourceMetric;
+    protected MetricHandle<AgentMetricItem> sourceMetric;
     protected String metricName;
-    protected Map<String, String> dimensions;
     protected static final AtomicLong METRIX_INDEX = new AtomicLong(0);
 
     @Override
@@ -47,15 +41,11 @@ public abstract class AbstractSource implements Source {
         inlongGroupId = profile.getInlongGroupId();
         inlongStreamId = profile.getInlongStreamId();
         // register metric
-        this.dimensions = new HashMap<>();
-        dimensions.put(KEY_PLUGIN_ID, this.getClass().getSimpleName());
-        dimensions.put(KEY_INLONG_GROUP_ID, inlongGroupId);
-        dimensions.put(KEY_INLONG_STREAM_ID, inlongStreamId);
         metricName = String.join("-", this.getClass().getSimpleName(),
                 String.valueOf(METRIX_INDEX.incrementAndGet()));
         this.metricItemSet = new AgentMetricItemSet(metricName);
         MetricRegister.register(metricItemSet);
-        sourceMetric = metricItemSet.findMetricItem(dimensions);
+        sourceMetric = metricItemSet.getPluginHandle(this.getClass().getSimpleName(), inlongGroupId, inlongStreamId);
     }
 
     public void destroy() {
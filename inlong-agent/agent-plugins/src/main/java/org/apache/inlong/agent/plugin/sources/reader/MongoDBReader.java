@@ -353,13 +353,13 @@ public class MongoDBReader extends AbstractReader {
             long dataSize = records.stream().mapToLong(c -> c.value().length()).sum();
             AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS, super.inlongGroupId, super.inlongStreamId,
                     System.currentTimeMillis(), records.size(), dataSize);
-            readerMetric.pluginReadSuccessCount.addAndGet(records.size());
-            readerMetric.pluginReadCount.addAndGet(records.size());
+            readerMetric.get().pluginReadSuccessCount.addAndGet(records.size());
+            readerMetric.get().pluginReadCount.addAndGet(records.size());
         } catch (InterruptedException e) {
             e.printStackTrace();
             LOGGER.error("parse mongo message error", e);
-            readerMetric.pluginReadFailCount.addAndGet(records.size());
-            readerMetric.pluginReadCount.addAndGet(records.size());
+            readerMetric.get().pluginReadFailCount.addAndGet(records.size());
+            readerMetric.get().pluginReadCount.addAndGet(records.size());
         }
     }
 }
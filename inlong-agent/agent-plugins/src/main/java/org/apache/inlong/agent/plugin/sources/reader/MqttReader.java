@@ -138,8 +138,8 @@ public class MqttReader extends AbstractReader {
                         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS, inlongGroupId, inlongStreamId,
                                 System.currentTimeMillis(), 1, recordValue.length);
 
-                        readerMetric.pluginReadSuccessCount.incrementAndGet();
-                        readerMetric.pluginReadCount.incrementAndGet();
+                        readerMetric.get().pluginReadSuccessCount.incrementAndGet();
+                        readerMetric.get().pluginReadCount.incrementAndGet();
                     }
 
                     @Override
@@ -160,11 +160,11 @@ public class PostgreSQLReader extends AbstractReader {
                         long dataSize = records.stream().mapToLong(c -> c.value().length()).sum();
                         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS, inlongGroupId, inlongStreamId,
                                 System.currentTimeMillis(), records.size(), dataSize);
-                        readerMetric.pluginReadSuccessCount.addAndGet(records.size());
-                        readerMetric.pluginReadCount.addAndGet(records.size());
+                        readerMetric.get().pluginReadSuccessCount.addAndGet(records.size());
+                        readerMetric.get().pluginReadCount.addAndGet(records.size());
                     } catch (Exception e) {
-                        readerMetric.pluginReadFailCount.addAndGet(records.size());
-                        readerMetric.pluginReadCount.addAndGet(records.size());
+                        readerMetric.get().pluginReadFailCount.addAndGet(records.size());
+                        readerMetric.get().pluginReadCount.addAndGet(records.size());
                         LOGGER.error("parse binlog message error", e);
                     }
                 })
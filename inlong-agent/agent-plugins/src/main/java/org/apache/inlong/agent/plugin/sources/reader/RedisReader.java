@@ -114,14 +114,14 @@ public class RedisReader extends AbstractReader {
                             redisMessageQueue.put(eventJson);
                             AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS, inlongGroupId, inlongStreamId,
                                     System.currentTimeMillis(), 1, eventJson.length());
-                            readerMetric.pluginReadCount.incrementAndGet();
+                            readerMetric.get().pluginReadCount.incrementAndGet();
                         }
                         if (event instanceof PostRdbSyncEvent) {
                             snapShot = String.valueOf(replicator.getConfiguration().getReplOffset());
                             LOGGER.info("after rdb snapShot is: {}", snapShot);
                         }
                     } catch (InterruptedException e) {
-                        readerMetric.pluginReadFailCount.incrementAndGet();
+                        readerMetric.get().pluginReadFailCount.incrementAndGet();
                         LOGGER.error("Read redis data error", e);
                     }
                 }
@@ -135,7 +135,7 @@ public class RedisReader extends AbstractReader {
                 }
             }));
         } catch (URISyntaxException | IOException e) {
-            readerMetric.pluginReadFailCount.addAndGet(1);
+            readerMetric.get().pluginReadFailCount.addAndGet(1);
             LOGGER.error("Connect to redis {}:{} failed.", hostName, port);
         }
     }
@@ -186,7 +186,7 @@ public class RedisReader extends AbstractReader {
     @Override
     public Message read() {
         if (!redisMessageQueue.isEmpty()) {
-            readerMetric.pluginReadCount.incrementAndGet();
+            readerMetric.get().pluginReadCount.incrementAndGet();
             return new DefaultMessage(redisMessageQueue.poll().getBytes());
         } else {
             return null;
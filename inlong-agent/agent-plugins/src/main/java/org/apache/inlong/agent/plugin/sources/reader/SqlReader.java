@@ -120,16 +120,16 @@ public class SqlReader extends AbstractReader {
                 long dataSize = lineColumns.stream().mapToLong(column -> column.length()).sum();
                 AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS,
                         inlongGroupId, inlongStreamId, System.currentTimeMillis(), 1, dataSize);
-                readerMetric.pluginReadSuccessCount.incrementAndGet();
-                readerMetric.pluginReadCount.incrementAndGet();
+                readerMetric.get().pluginReadSuccessCount.incrementAndGet();
+                readerMetric.get().pluginReadCount.incrementAndGet();
                 return generateMessage(lineColumns);
             } else {
                 finished = true;
             }
         } catch (Exception ex) {
             LOGGER.error("error while reading data", ex);
-            readerMetric.pluginReadFailCount.incrementAndGet();
-            readerMetric.pluginReadCount.incrementAndGet();
+            readerMetric.get().pluginReadFailCount.incrementAndGet();
+            readerMetric.get().pluginReadCount.incrementAndGet();
             throw new RuntimeException(ex);
         }
         return null;
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Read lines of a file through its channel into a reused direct buffer.
+ *
+ * The line ends are found by LineSplitter a word at a time, and each line is copied
+ * once from the buffer into its message body, without a String of the line.
+ * A trailing '\r' of the line is dropped, the line over the max length is truncated.
+ */
+public class ChannelLineReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChannelLineReader.class);
+    private final ByteBuffer buffer;
+    private final int maxLineLen;
+    // head of the line longer than the buffer
+    private byte[] longLine;
+    private int overLenCount = 0;
+
+    public ChannelLineReader(int bufferSize, int maxLineLen) {
+        this.buffer = LineSplitter.allocateReadBuffer(bufferSize);
+        this.maxLineLen = maxLineLen;
+    }
+
+    /**
+     * Read new lines.
+     *
+     * @param channel The channel of the file to read
+     * @param pos The position to read from, the head of a line
+     * @param lines The lines read
+     * @param lineEnds The position after each line read
+     * @param maxLineCount The max count of lines to read
+     * @param maxLineTotalLen The total length of lines to stop reading at
+     * @return The new position after the lines have been read
+     * @throws IOException if an I/O error occurs.
+     */
+    public long readLines(FileChannel channel, long pos, List<byte[]> lines, List<Long> lineEnds,
+            int maxLineCount, int maxLineTotalLen) throws IOException {
+        overLenCount = 0;
+        buffer.clear();
+        long bufferPos = pos; // file position of the buffer head
+        long rePos = pos; // position to re-read
+        int lineStart = 0;
+        int scanFrom = 0;
+        int longLineLen = 0;
+        boolean overLen = false;
+        int lineTotalLen = 0;
+        while (lines.size() < maxLineCount && lineTotalLen < maxLineTotalLen) {
+            int lineEnd = LineSplitter.indexOfLineEnd(buffer, scanFrom, buffer.position());
+            if (lineEnd < 0) {
+                scanFrom = buffer.position();
+                if (!buffer.hasRemaining()) {
+                    if (lineStart > 0) {
+                        buffer.flip();
+                        buffer.position(lineStart);
+                        buffer.compact();
+                        bufferPos += lineStart;
+                        scanFrom -= lineStart;
+                        lineStart = 0;
+                    } else {
+                        if (longLine == null) {
+                            longLine = new byte[maxLineLen];
+                        }
+                        int copyLen = Math.min(scanFrom, maxLineLen - longLineLen);
+                        overLen |= copyLen < scanFrom;
+                        buffer.flip();
+                        buffer.get(longLine, longLineLen, copyLen);
+                        longLineLen += copyLen;
+                        buffer.clear();
+                        bufferPos += scanFrom;
+                        scanFrom = 0;
+                    }
+                }
+                if (channel.read(buffer, bufferPos + buffer.position()) <= 0) {
+                    break;
+                }
+                continue;
+            }
+            int bodyEnd = lineEnd;
+            if (bodyEnd > lineStart && buffer.get(bodyEnd - 1) == '\r') {
+                bodyEnd--;
+            } else if (bodyEnd == lineStart && longLineLen > 0 && longLine[longLineLen - 1] == '\r') {
+                longLineLen--;
+            }
+            int copyLen = Math.min(bodyEnd - lineStart, maxLineLen - longLineLen);
+            overLen |= copyLen < bodyEnd - lineStart;
+            byte[] line = new byte[longLineLen + copyLen];
+            if (longLineLen > 0) {
+                System.arraycopy(longLine, 0, line, 0, longLineLen);
+            }
+            int readEnd = buffer.position();
+            buffer.position(lineStart);
+            buffer.get(line, longLineLen, copyLen);
+            buffer.position(readEnd);
+            if (overLen) {
+                LOGGER.warn("readLines over len finally line len {}", line.length);
+                overLenCount++;
+            }
+            lines.add(line);
+            lineTotalLen += line.length;
+            rePos = bufferPos + lineEnd + 1;
+            lineEnds.add(rePos);
+            lineStart = lineEnd + 1;
+            scanFrom = lineStart;
+            longLineLen = 0;
+            overLen = false;
+        }
+        return rePos;
+    }
+
+    /**
+     * Get the count of lines truncated by the last readLines.
+     */
+    public int getOverLenCount() {
+        return overLenCount;
+    }
+}
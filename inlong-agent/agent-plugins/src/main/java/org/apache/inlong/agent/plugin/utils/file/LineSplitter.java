@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils.file;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Find line ends in a byte buffer a word at a time.
+ *
+ * Eight bytes are loaded in one little-endian long and all of them are compared with
+ * the line end together, instead of one branch per byte.
+ */
+public class LineSplitter {
+
+    public static final byte LINE_END = '\n';
+    private static final long LINE_END_WORD = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private LineSplitter() {
+    }
+
+    /**
+     * Find the first line end of the buffer in [from, to).
+     *
+     * @param buffer The buffer, must be in little-endian order
+     * @param from The start index, inclusive
+     * @param to The end index, exclusive
+     * @return The index of the line end, -1 if not found
+     */
+    public static int indexOfLineEnd(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = buffer.getLong(i) ^ LINE_END_WORD;
+            // the lowest high bit set marks the first zero byte, borrows only move upwards
+            long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == LINE_END) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Allocate a direct buffer to read files into, in the order indexOfLineEnd needs.
+     *
+     * @param capacity The capacity of the buffer
+     * @return The buffer
+     */
+    public static ByteBuffer allocateReadBuffer(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
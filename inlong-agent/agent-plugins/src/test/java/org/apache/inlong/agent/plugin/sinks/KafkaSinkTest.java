@@ -60,7 +60,7 @@ public class KafkaSinkTest {
         for (long i = 0; i < 5; i++) {
             kafkaSink.write(new ProxyMessage(body.getBytes(StandardCharsets.UTF_8), attr));
         }
-        assertEquals(kafkaSink.sinkMetric.sinkSuccessCount.get(), count);
+        assertEquals(kafkaSink.sinkMetric.get().sinkSuccessCount.get(), count);
     }
 
 }
@@ -56,10 +56,10 @@ public class MockSink extends AbstractSink {
             BatchProxyMessage msg = new BatchProxyMessage();
             msg.setJobId(jobInstanceId);
             // increment the count of successful sinks
-            sinkMetric.sinkSuccessCount.incrementAndGet();
+            sinkMetric.get().sinkSuccessCount.incrementAndGet();
         } else {
             // increment the count of failed sinks
-            sinkMetric.sinkFailCount.incrementAndGet();
+            sinkMetric.get().sinkFailCount.incrementAndGet();
         }
     }
 
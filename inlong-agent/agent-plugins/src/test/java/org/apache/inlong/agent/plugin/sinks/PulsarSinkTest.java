@@ -60,7 +60,7 @@ public class PulsarSinkTest {
         for (long i = 0; i < 5; i++) {
             pulsarSink.write(new ProxyMessage(body.getBytes(StandardCharsets.UTF_8), attr));
         }
-        assertEquals(pulsarSink.sinkMetric.sinkSuccessCount.get(), count);
+        assertEquals(pulsarSink.sinkMetric.get().sinkSuccessCount.get(), count);
     }
 
 }
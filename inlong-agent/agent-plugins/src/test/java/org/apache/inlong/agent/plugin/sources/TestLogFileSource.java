@@ -18,6 +18,7 @@
 package org.apache.inlong.agent.plugin.sources;
 
 import org.apache.inlong.agent.conf.InstanceProfile;
+import org.apache.inlong.agent.conf.OffsetProfile;
 import org.apache.inlong.agent.conf.TaskProfile;
 import org.apache.inlong.agent.constant.AgentConstants;
 import org.apache.inlong.agent.constant.TaskConstants;
@@ -102,11 +103,14 @@ public class TestLogFileSource {
 
     @Test
     public void testLogFileSource() {
-        testFullRead();
+        testFullRead(TaskConstants.FILE_READ_MODE_STREAM);
+        testFullRead(TaskConstants.FILE_READ_MODE_CHANNEL);
         testCleanQueue();
+        testResumeFromOffset();
     }
 
-    private void testFullRead() {
+    private void testFullRead(String readMode) {
+        instanceProfile.set(TaskConstants.TASK_FILE_READ_MODE, readMode);
         int srcLen = 0;
         for (int i = 0; i < check.length; i++) {
             srcLen += check[i].getBytes(StandardCharsets.UTF_8).length;
@@ -128,6 +132,7 @@ public class TestLogFileSource {
         Assert.assertTrue(srcLen == readLen);
         int leftAfterRead = MemoryManager.getInstance().getLeft(AGENT_GLOBAL_READER_QUEUE_PERMIT);
         Assert.assertTrue(leftAfterRead == DEFAULT_AGENT_GLOBAL_READER_QUEUE_PERMIT);
+        instanceProfile.set(TaskConstants.TASK_FILE_READ_MODE, TaskConstants.DEFAULT_TASK_FILE_READ_MODE);
     }
 
     private void testCleanQueue() {
@@ -140,4 +145,33 @@ public class TestLogFileSource {
         int leftAfterRead = MemoryManager.getInstance().getLeft(AGENT_GLOBAL_READER_QUEUE_PERMIT);
         Assert.assertTrue(leftAfterRead == DEFAULT_AGENT_GLOBAL_READER_QUEUE_PERMIT);
     }
-}
\ No newline at end of file
+
+    private void testResumeFromOffset() {
+        String taskId = instanceProfile.getTaskId();
+        String instanceId = instanceProfile.getInstanceId();
+        String inodeInfo = instanceProfile.get(TaskConstants.INODE_INFO);
+        long firstLineEnd = check[0].getBytes(StandardCharsets.UTF_8).length + 1;
+        // saved with the byte position, and saved by line only before
+        OffsetProfile[] offsets = {new OffsetProfile(taskId, instanceId, 1L, firstLineEnd, inodeInfo),
+                new OffsetProfile(taskId, instanceId, 1L, inodeInfo)};
+        for (OffsetProfile offset : offsets) {
+            OffsetManager.getInstance().setOffset(offset);
+            LogFileSource source = getSource();
+            int cnt = 1;
+            long lineEnd = firstLineEnd;
+            Message msg = source.read();
+            while (msg != null) {
+                lineEnd += check[cnt].getBytes(StandardCharsets.UTF_8).length + 1;
+                Assert.assertEquals(check[cnt], new String(msg.getBody()));
+                Assert.assertEquals(String.valueOf(cnt + 1), msg.getHeader().get(TaskConstants.OFFSET));
+                Assert.assertEquals(String.valueOf(lineEnd), msg.getHeader().get(TaskConstants.BYTE_OFFSET));
+                msg = source.read();
+                cnt++;
+            }
+            await().atMost(30, TimeUnit.SECONDS).until(() -> source.sourceFinish());
+            source.destroy();
+            Assert.assertEquals(check.length, cnt);
+            OffsetManager.getInstance().deleteOffset(taskId, instanceId);
+        }
+    }
+}
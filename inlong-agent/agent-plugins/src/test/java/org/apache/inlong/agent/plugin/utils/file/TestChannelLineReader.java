@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils.file;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestChannelLineReader {
+
+    @Test
+    public void testReadLines() throws Exception {
+        String content = "hello\r\nline longer than the buffer\n\nagent line-end-symbol\nno line end";
+        File file = File.createTempFile("channel-line-reader", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        ChannelLineReader reader = new ChannelLineReader(8, 16);
+        List<String> lines = new ArrayList<>();
+        List<Long> lineEnds = new ArrayList<>();
+        int overLenCount = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long pos = 0;
+            while (true) {
+                List<byte[]> batch = new ArrayList<>();
+                pos = reader.readLines(channel, pos, batch, lineEnds, 2, 1024);
+                overLenCount += reader.getOverLenCount();
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (byte[] line : batch) {
+                    lines.add(new String(line, StandardCharsets.UTF_8));
+                }
+                Assert.assertEquals(pos, (long) lineEnds.get(lineEnds.size() - 1));
+            }
+        }
+        Assert.assertEquals(Arrays.asList("hello", "line longer than", "", "agent line-end-s"), lines);
+        Assert.assertEquals(Arrays.asList(7L, 35L, 36L, 58L), lineEnds);
+        Assert.assertEquals(2, overLenCount);
+        file.delete();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils.file;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class TestLineSplitter {
+
+    private static int indexOfLineEnd(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == LineSplitter.LINE_END) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testIndexOfLineEnd() {
+        ByteBuffer buffer = LineSplitter.allocateReadBuffer(64);
+        buffer.put("hello\nworld, agent\n\r\n".getBytes());
+        Assert.assertEquals(5, LineSplitter.indexOfLineEnd(buffer, 0, buffer.position()));
+        Assert.assertEquals(18, LineSplitter.indexOfLineEnd(buffer, 6, buffer.position()));
+        Assert.assertEquals(20, LineSplitter.indexOfLineEnd(buffer, 19, buffer.position()));
+        Assert.assertEquals(-1, LineSplitter.indexOfLineEnd(buffer, 6, 18));
+        Assert.assertEquals(-1, LineSplitter.indexOfLineEnd(buffer, 21, 21));
+    }
+
+    @Test
+    public void testIndexOfLineEndOfAllBytes() {
+        // bytes next to the line end in value, such as 0x09, 0x0B and 0x8A, must not match
+        int[] nearBytes = {0x0A, 0x0B, 0x09, 0x08, 0x8A, 0x0E, 0x00, 0xFF};
+        Random random = new Random(20231028L);
+        ByteBuffer buffer = LineSplitter.allocateReadBuffer(256);
+        for (int round = 0; round < 10000; round++) {
+            buffer.clear();
+            for (int i = 0; i < buffer.capacity(); i++) {
+                int value = random.nextBoolean() ? nearBytes[random.nextInt(nearBytes.length)] : random.nextInt(256);
+                buffer.put((byte) value);
+            }
+            int from = random.nextInt(buffer.capacity());
+            int to = from + random.nextInt(buffer.capacity() - from + 1);
+            Assert.assertEquals(indexOfLineEnd(buffer, from, to), LineSplitter.indexOfLineEnd(buffer, from, to));
+        }
+    }
+}
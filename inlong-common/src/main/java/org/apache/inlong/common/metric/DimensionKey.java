@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.metric;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DimensionKey<br>
+ * The dimension values of a metric item in the order of the dimension names,
+ * used to find the metric item without building a dimension map and key string.<br>
+ * A key can be reused as a probe by set() for the lookups, the key stored by
+ * the metric item set is a copy and never changed.
+ */
+public final class DimensionKey {
+
+    private final String[] names;
+    private final String[] values;
+
+    /**
+     * Constructor
+     *
+     * @param names the dimension names, shared by the keys of the same schema
+     */
+    public DimensionKey(String[] names) {
+        this.names = names;
+        this.values = new String[names.length];
+    }
+
+    private DimensionKey(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * set the dimension value
+     *
+     * @param index the dimension index in the names
+     * @param value the dimension value
+     * @return this key
+     */
+    public DimensionKey set(int index, String value) {
+        this.values[index] = value;
+        return this;
+    }
+
+    /**
+     * get the dimension value
+     *
+     * @param index the dimension index in the names
+     * @return the dimension value
+     */
+    public String get(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * copy the key, the copy is not changed by the following set() of this key
+     *
+     * @return the copied key
+     */
+    public DimensionKey copy() {
+        return new DimensionKey(names, Arrays.copyOf(values, values.length));
+    }
+
+    /**
+     * build the dimension map of the key, the null values are not included
+     *
+     * @return the dimension map
+     */
+    public Map<String, String> toDimensions() {
+        Map<String, String> dimensions = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] != null) {
+                dimensions.put(names[i], values[i]);
+            }
+        }
+        return dimensions;
+    }
+
+    @Override
+    public int hashCode() {
+        // the string hash codes are cached by the strings
+        int hash = names.length;
+        for (String value : values) {
+            hash = 31 * hash + (value == null ? 0 : value.hashCode());
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DimensionKey)) {
+            return false;
+        }
+        DimensionKey other = (DimensionKey) o;
+        return (names == other.names || Arrays.equals(names, other.names))
+                && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public String toString() {
+        return MetricUtils.getDimensionsKey(toDimensions());
+    }
+}
@@ -24,7 +24,10 @@ import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 /**
- * GaugeMetric
+ * GaugeMetric<br>
+ * A gauge holds an absolute value, it is reported as is and never reset by the snapshot,
+ * while a per-interval sum must be a CountMetric. The items found by DimensionKey are kept
+ * across the snapshots, a gauge added to as a sum would grow without bound.
  */
 @Retention(RUNTIME)
 @Target(FIELD)
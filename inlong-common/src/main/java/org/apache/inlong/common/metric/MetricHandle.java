@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.metric;
+
+/**
+ * MetricHandle<br>
+ * A pre-resolved metric item of a hot dimension tuple, get() returns the item
+ * without any lookup, and finds the item again after it is retired by the set.
+ */
+public class MetricHandle<T extends MetricItem> {
+
+    private final MetricItemSet<T> itemSet;
+    private final DimensionKey key;
+    private volatile T item;
+
+    /**
+     * Constructor
+     *
+     * @param itemSet the metric item set
+     * @param key the dimension key, not changed after that
+     * @param item the current metric item of the key
+     */
+    MetricHandle(MetricItemSet<T> itemSet, DimensionKey key, T item) {
+        this.itemSet = itemSet;
+        this.key = key;
+        this.item = item;
+    }
+
+    /**
+     * get the metric item
+     *
+     * @return the metric item of the dimension tuple
+     */
+    public T get() {
+        T curItem = this.item;
+        if (curItem.isRetired()) {
+            curItem = itemSet.findMetricItem(key);
+            this.item = curItem;
+        } else {
+            curItem.markActive(itemSet.getEpoch());
+        }
+        return curItem;
+    }
+
+    /**
+     * get the dimension key
+     *
+     * @return the dimension key
+     */
+    public DimensionKey getKey() {
+        return key;
+    }
+}
@@ -40,6 +40,12 @@ public abstract class MetricItem implements MetricItemMBean {
     private Map<String, String> dimensions;
     private Map<String, AtomicLong> countMetrics;
     private Map<String, AtomicLong> gaugeMetrics;
+    private Map<String, StripedCounter> countCounters;
+    private Map<String, StripedCounter> gaugeCounters;
+    // the latest snapshot epoch that the item is found in, see MetricItemSet
+    private volatile long activeEpoch;
+    // whether removed from the metric item set
+    private volatile boolean retired;
 
     /**
      * Get declare fields.
@@ -112,6 +118,51 @@ public abstract class MetricItem implements MetricItemMBean {
         this.dimensions.putAll(dimensions);
     }
 
+    /**
+     * mark the item active in the snapshot epoch
+     */
+    void markActive(long epoch) {
+        if (this.activeEpoch != epoch) {
+            this.activeEpoch = epoch;
+        }
+    }
+
+    long getActiveEpoch() {
+        return activeEpoch;
+    }
+
+    /**
+     * whether the item is removed from the metric item set, the values
+     * added to a retired item are collected by the next snapshot of the set
+     */
+    public boolean isRetired() {
+        return retired;
+    }
+
+    void setRetired() {
+        this.retired = true;
+    }
+
+    /**
+     * whether any gauge holds a value, such an item is not retired when idle
+     */
+    boolean hasGaugeValue() {
+        if (this.countMetrics == null || this.gaugeMetrics == null) {
+            this.initMetricField();
+        }
+        for (AtomicLong value : this.gaugeMetrics.values()) {
+            if (value.get() != 0) {
+                return true;
+            }
+        }
+        for (StripedCounter value : this.gaugeCounters.values()) {
+            if (value.sum() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * snapshot
      */
@@ -125,9 +176,16 @@ public abstract class MetricItem implements MetricItemMBean {
         this.countMetrics.forEach((key, value) -> {
             metrics.put(key, MetricValue.of(key, value.getAndSet(0)));
         });
+        // the gauges hold absolute values, not reset
         this.gaugeMetrics.forEach((key, value) -> {
             metrics.put(key, MetricValue.of(key, value.get()));
         });
+        this.countCounters.forEach((key, value) -> {
+            metrics.put(key, MetricValue.of(key, value.sumThenReset()));
+        });
+        this.gaugeCounters.forEach((key, value) -> {
+            metrics.put(key, MetricValue.of(key, value.sum()));
+        });
         return metrics;
     }
 
@@ -135,6 +193,8 @@ public abstract class MetricItem implements MetricItemMBean {
      * initMetricField
      */
     protected void initMetricField() {
+        this.countCounters = new HashMap<>();
+        this.gaugeCounters = new HashMap<>();
         this.countMetrics = new HashMap<>();
         this.gaugeMetrics = new HashMap<>();
 
@@ -153,6 +213,8 @@ public abstract class MetricItem implements MetricItemMBean {
                         Object fieldValue = field.get(this);
                         if (fieldValue instanceof AtomicLong) {
                             this.countMetrics.put(name, (AtomicLong) fieldValue);
+                        } else if (fieldValue instanceof StripedCounter) {
+                            this.countCounters.put(name, (StripedCounter) fieldValue);
                         }
                     } catch (Throwable t) {
                         LOGGER.error(t.getMessage(), t);
@@ -166,6 +228,8 @@ public abstract class MetricItem implements MetricItemMBean {
                         Object fieldValue = field.get(this);
                         if (fieldValue instanceof AtomicLong) {
                             this.gaugeMetrics.put(name, (AtomicLong) fieldValue);
+                        } else if (fieldValue instanceof StripedCounter) {
+                            this.gaugeCounters.put(name, (StripedCounter) fieldValue);
                         }
                     } catch (Throwable t) {
                         LOGGER.error(t.getMessage(), t);
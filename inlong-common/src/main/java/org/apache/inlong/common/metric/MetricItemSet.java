@@ -18,12 +18,21 @@
 package org.apache.inlong.common.metric;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * MetricItemSet
+ * MetricItemSet<br>
+ * The items found by the dimension maps are swapped out by each snapshot.<br>
+ * The items found by DimensionKey or MetricHandle are kept between snapshots, their
+ * counters are reset by the item snapshot, so neither increments are lost nor the
+ * snapshot waits for the writers. An item not found in a whole snapshot epoch is
+ * retired, and collected once more by the next snapshot for the late increments,
+ * unless its gauges still hold values.<br>
+ * The gauges are never reset, so they must hold absolute values, such as the running
+ * task count, and the per-interval sums must be declared by CountMetric.
  */
 public abstract class MetricItemSet<T extends MetricItem> implements MetricItemSetMBean {
 
@@ -31,6 +40,11 @@ public abstract class MetricItemSet<T extends MetricItem> implements MetricItemS
 
     protected Map<String, T> itemMap = new ConcurrentHashMap<>();
 
+    protected final Map<DimensionKey, T> keyedItemMap = new ConcurrentHashMap<>();
+    // the items retired by the latest snapshot
+    private List<T> retiredItems = new ArrayList<>();
+    private volatile long epoch = 0L;
+
     /**
      * Constructor
      */
@@ -65,16 +79,75 @@ public abstract class MetricItemSet<T extends MetricItem> implements MetricItemS
         return (oldItem == null) ? currentItem : oldItem;
     }
 
+    /**
+     * findMetricItem by the dimension key, no object is created if the item exists
+     *
+     * @param key the dimension key, may be a reused probe
+     * @return the metric item
+     */
+    public T findMetricItem(DimensionKey key) {
+        T currentItem = this.keyedItemMap.get(key);
+        if (currentItem == null) {
+            DimensionKey storeKey = key.copy();
+            currentItem = createItem();
+            currentItem.setDimensions(storeKey.toDimensions());
+            T oldItem = this.keyedItemMap.putIfAbsent(storeKey, currentItem);
+            if (oldItem != null) {
+                currentItem = oldItem;
+            }
+        }
+        currentItem.markActive(epoch);
+        return currentItem;
+    }
+
+    /**
+     * getHandle of a hot dimension tuple
+     *
+     * @param key the dimension key
+     * @return the pre-resolved metric handle
+     */
+    public MetricHandle<T> getHandle(DimensionKey key) {
+        DimensionKey handleKey = key.copy();
+        return new MetricHandle<>(this, handleKey, findMetricItem(handleKey));
+    }
+
+    /**
+     * getEpoch
+     */
+    long getEpoch() {
+        return epoch;
+    }
+
     /**
      * snapshot
      */
     @Override
-    public List<MetricItem> snapshot() {
-        Map<String, T> oldItemMap = itemMap;
-        this.itemMap = new ConcurrentHashMap<>();
-        MetricUtils.sleepOneInterval();
-        List<MetricItem> result = new ArrayList<>(oldItemMap.size());
-        result.addAll(oldItemMap.values());
+    public synchronized List<MetricItem> snapshot() {
+        List<MetricItem> result = new ArrayList<>();
+        if (!this.itemMap.isEmpty()) {
+            Map<String, T> oldItemMap = itemMap;
+            this.itemMap = new ConcurrentHashMap<>();
+            MetricUtils.sleepOneInterval();
+            result.addAll(oldItemMap.values());
+        }
+        // the items found after that are marked in the new epoch
+        long endEpoch = this.epoch;
+        this.epoch = endEpoch + 1;
+        List<T> lastRetiredItems = this.retiredItems;
+        this.retiredItems = new ArrayList<>();
+        result.addAll(lastRetiredItems);
+        Iterator<T> iterator = this.keyedItemMap.values().iterator();
+        while (iterator.hasNext()) {
+            T item = iterator.next();
+            if (item.getActiveEpoch() >= endEpoch || item.hasGaugeValue()) {
+                result.add(item);
+            } else {
+                // not found in the whole epoch, remove and collect it next time
+                iterator.remove();
+                item.setRetired();
+                this.retiredItems.add(item);
+            }
+        }
         return result;
     }
 }
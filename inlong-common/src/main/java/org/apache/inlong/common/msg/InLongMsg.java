@@ -34,9 +34,6 @@ public class InLongMsg {
     private static final int DEFAULT_CAPACITY = 4096;
     private final int capacity;
 
-    private static final int BIN_MSG_NO_ZIP = 0;
-    private static final int BIN_MSG_SNAPPY_TYPE = 1;
-
     private static final int BIN_MSG_TOTALLEN_OFFSET = 0;
     private static final int BIN_MSG_GROUPID_OFFSET = 5;
     private static final int BIN_MSG_STREAMID_OFFSET = 7;
@@ -677,12 +674,11 @@ public class InLongMsg {
             int compress = parsedInput.readByte();
             int pos = parsedInput.getPosition();
 
-            if (compress == 1) {
-                byte[] uncompressdata = new byte[Snappy.uncompressedLength(
-                        parsedInput.getData(), pos, len - 1)];
-                int msgLen = Snappy.uncompress(parsedInput.getData(), pos, len - 1,
-                        uncompressdata, 0);
-                bodyBuffer = ByteBuffer.wrap(uncompressdata, 0, msgLen);
+            MsgCompressType compressType = MsgCompressType.valueOf(compress);
+            if (compressType != null && compressType != MsgCompressType.NONE) {
+                byte[] uncompressdata = InLongMsgCodec.uncompress(compressType,
+                        parsedInput.getData(), pos, len - 1);
+                bodyBuffer = ByteBuffer.wrap(uncompressdata, 0, uncompressdata.length);
             } else {
                 bodyBuffer = ByteBuffer.wrap(parsedInput.getData(), pos, len - 1);
             }
@@ -772,24 +768,19 @@ public class InLongMsg {
         byte[] body = new byte[bodyLen + 1];
         parsedBinInput.position(BIN_MSG_BODY_OFFSET);
         parsedBinInput.get(body, 1, bodyLen);
-        int zipType = (msgtype & 0xE0) >> 5;
-        switch (zipType) {
-            case (BIN_MSG_SNAPPY_TYPE):
-                byte[] uncompressdata =
-                        new byte[Snappy.uncompressedLength(body, 1, body.length - 1) + 1];
-                // uncompress flag
-                uncompressdata[0] = 0;
-                int msgLen = Snappy.uncompress(body, 1, body.length - 1,
-                        uncompressdata, 1);
-                bodyBuffer = ByteBuffer.wrap(uncompressdata, 0, msgLen + 1);
-                break;
-
-            case (BIN_MSG_NO_ZIP):
-            default:
-                // set uncompress flag
-                body[0] = 0;
-                bodyBuffer = ByteBuffer.wrap(body, 0, body.length);
-                break;
+        MsgCompressType zipType = MsgCompressType.valueOf((msgtype & 0xE0) >> 5);
+        if (zipType != null && zipType != MsgCompressType.NONE) {
+            byte[] uncompressdata = new byte[InLongMsgCodec.uncompressedLength(
+                    zipType, body, 1, body.length - 1) + 1];
+            // uncompress flag
+            uncompressdata[0] = 0;
+            int msgLen = InLongMsgCodec.uncompress(zipType, body, 1, body.length - 1,
+                    uncompressdata, 1);
+            bodyBuffer = ByteBuffer.wrap(uncompressdata, 0, msgLen + 1);
+        } else {
+            // set uncompress flag
+            body[0] = 0;
+            bodyBuffer = ByteBuffer.wrap(body, 0, body.length);
         }
 
         // number groupId/streamId
@@ -916,6 +907,20 @@ public class InLongMsg {
         return Version.vn;
     }
 
+    /**
+     * Get the version of the message by its magic
+     *
+     * @param buffer  the message
+     * @return  the version, -1 if the magic is illegal
+     */
+    static int parseVersion(ByteBuffer buffer) {
+        if (buffer.arrayOffset() != 0) {
+            buffer = ByteBuffer.wrap(buffer.array(),
+                    buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return getMagic(buffer).intValue();
+    }
+
     public static InLongMsg parseFrom(byte[] data) {
         return parseFrom(ByteBuffer.wrap(data));
     }
@@ -988,12 +993,11 @@ public class InLongMsg {
             int rem = rawdata.remaining() - 1;
             int compress = array[pos];
 
-            if (compress == 1) {
-                byte[] uncompressdata = new byte[Snappy.uncompressedLength(
-                        array, pos + 1, rem)];
-                int len = Snappy.uncompress(array, pos + 1, rem,
-                        uncompressdata, 0);
-                input.reset(uncompressdata, len);
+            MsgCompressType compressType = MsgCompressType.valueOf(compress);
+            if (compressType != null && compressType != MsgCompressType.NONE) {
+                byte[] uncompressdata = InLongMsgCodec.uncompress(compressType,
+                        array, pos + 1, rem);
+                input.reset(uncompressdata, uncompressdata.length);
             } else {
                 input.reset(array, pos + 1, rem);
             }
@@ -1055,12 +1059,11 @@ public class InLongMsg {
             int rem = rawdata.remaining() - 1;
             int compress = array[pos];
 
-            if (compress == 1) {
-                byte[] uncompressdata = new byte[Snappy.uncompressedLength(
-                        array, pos + 1, rem)];
-                int len = Snappy.uncompress(array, pos + 1, rem,
-                        uncompressdata, 0);
-                input.reset(uncompressdata, len);
+            MsgCompressType compressType = MsgCompressType.valueOf(compress);
+            if (compressType != null && compressType != MsgCompressType.NONE) {
+                byte[] uncompressdata = InLongMsgCodec.uncompress(compressType,
+                        array, pos + 1, rem);
+                input.reset(uncompressdata, uncompressdata.length);
             } else {
                 input.reset(array, pos + 1, rem);
             }
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.msg;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Builder of an InLongMsg writing into the buffer supplied by the caller.
+ *
+ * Unlike InLongMsg.build(), the builder doesn't stage the message in a growing
+ * DataOutputBuffer and a temporary array per attribute group: the records are
+ * copied once into the buffer of their attribute group, and each group is
+ * compressed straight into the output buffer, which usually comes from a pool
+ * sized by getMaxBuildLength(). The group buffers are kept after reset(), so a
+ * pooled builder doesn't allocate once warmed up.
+ *
+ * Only the versions 1 and 2 are built, the bodies may be compressed by Snappy,
+ * LZ4 or ZSTD, the readers before LZ4 and ZSTD only decompress Snappy bodies.
+ */
+public class InLongMsgBuilder {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int INIT_GROUP_SIZE = 256;
+    // the max count of the attribute groups kept after reset
+    private static final int MAX_IDLE_GROUPS = 64;
+    private static final byte[] MAGIC1 = {(byte) 0xf, (byte) 0x1};
+    private static final byte[] MAGIC2 = {(byte) 0xf, (byte) 0x2};
+
+    private final int version;
+    private final MsgCompressType compressType;
+    private final int capacity;
+    private final LinkedHashMap<String, AttrGroup> attr2Group =
+            new LinkedHashMap<String, AttrGroup>();
+    private int groupCnt = 0;
+    private int msgCnt = 0;
+    private int dataLen = 0;
+    private byte[] directScratch;
+
+    static class AttrGroup {
+
+        // the attributes in modified UTF-8 with the length ahead
+        final byte[] attrBytes;
+        byte[] data = new byte[INIT_GROUP_SIZE];
+        int length;
+        int cnt;
+
+        AttrGroup(byte[] attrBytes) {
+            this.attrBytes = attrBytes;
+        }
+
+        void write(ByteBuffer record) {
+            int len = record.remaining();
+            int required = length + 4 + len;
+            if (required > data.length) {
+                byte[] newData = new byte[Math.max(required, data.length << 1)];
+                System.arraycopy(data, 0, newData, 0, length);
+                data = newData;
+            }
+            length = writeInt(data, length, len);
+            if (record.hasArray()) {
+                System.arraycopy(record.array(), record.arrayOffset() + record.position(),
+                        data, length, len);
+            } else {
+                record.duplicate().get(data, length, len);
+            }
+            length += len;
+            cnt++;
+        }
+    }
+
+    /**
+     * capacity: 4096
+     *
+     * @param version       the version, 1 or 2
+     * @param compressType  the compress type of the bodies
+     */
+    public InLongMsgBuilder(int version, MsgCompressType compressType) {
+        this(DEFAULT_CAPACITY, version, compressType);
+    }
+
+    /**
+     * Create a builder
+     *
+     * @param capacity      the data capacity, see isFull()
+     * @param version       the version, 1 or 2
+     * @param compressType  the compress type of the bodies
+     */
+    public InLongMsgBuilder(int capacity, int version, MsgCompressType compressType) {
+        if (version != 1 && version != 2) {
+            throw new IllegalArgumentException("Unsupported version " + version);
+        }
+        if (compressType == null) {
+            throw new IllegalArgumentException("compressType is null");
+        }
+        this.capacity = capacity;
+        this.version = version;
+        this.compressType = compressType;
+        reset();
+    }
+
+    /**
+     * Add a record, the record is copied and the input keeps its position
+     *
+     * @param attr  the attributes
+     * @param data  the record
+     * @return  false if the message is full, the record is added anyway
+     */
+    public boolean addMsg(String attr, ByteBuffer data) {
+        AttrGroup group = attr2Group.get(attr);
+        if (group == null) {
+            group = new AttrGroup(encodeUTF(attr));
+            attr2Group.put(attr, group);
+        }
+        if (group.cnt == 0) {
+            groupCnt++;
+            // attrlen + utflen + meglen + compress
+            dataLen += attr.length() + 2 + 4 + 1;
+        }
+        int len = data.remaining();
+        group.write(data);
+        dataLen += len + 4;
+        if (version == 2) {
+            dataLen += 4;
+        }
+        msgCnt++;
+        return dataLen < capacity;
+    }
+
+    public boolean addMsg(String attr, byte[] data, int offset, int len) {
+        return addMsg(attr, ByteBuffer.wrap(data, offset, len));
+    }
+
+    public boolean addMsg(String attr, byte[] data) {
+        return addMsg(attr, ByteBuffer.wrap(data));
+    }
+
+    public boolean isFull() {
+        return dataLen >= capacity;
+    }
+
+    public int getMsgCnt() {
+        return msgCnt;
+    }
+
+    public int getAttrCount() {
+        return groupCnt;
+    }
+
+    public MsgCompressType getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * Get the max length of the message built from the added records
+     *
+     * @return  the length the output buffer of build() must have at least
+     */
+    public int getMaxBuildLength() {
+        int len = 2 + 8 + 4 + 4 + 2;
+        for (AttrGroup group : attr2Group.values()) {
+            if (group.cnt == 0) {
+                continue;
+            }
+            len += group.attrBytes.length + 4 + 4 + 1
+                    + InLongMsgCodec.maxCompressedLength(compressType, group.length);
+        }
+        return len;
+    }
+
+    /**
+     * Build the message into the output buffer, from its position
+     *
+     * @param out         the output buffer, its position is moved after the message
+     * @param createtime  the create time
+     * @return  the length of the message
+     * @throws IOException  the exception while compressing
+     * @throws BufferOverflowException  if the output buffer has less than
+     *                                  getMaxBuildLength() bytes remaining
+     */
+    public int build(ByteBuffer out, long createtime) throws IOException {
+        int maxLen = getMaxBuildLength();
+        if (out.remaining() < maxLen) {
+            throw new BufferOverflowException();
+        }
+        int len;
+        if (out.hasArray()) {
+            len = write(out.array(), out.arrayOffset() + out.position(), createtime);
+            out.position(out.position() + len);
+        } else {
+            if (directScratch == null || directScratch.length < maxLen) {
+                directScratch = new byte[maxLen];
+            }
+            len = write(directScratch, 0, createtime);
+            out.put(directScratch, 0, len);
+        }
+        return len;
+    }
+
+    private int write(byte[] dst, int start, long createtime) throws IOException {
+        byte[] magic = (version == 2) ? MAGIC2 : MAGIC1;
+        int pos = start;
+        dst[pos++] = magic[0];
+        dst[pos++] = magic[1];
+        pos = writeInt(dst, pos, (int) (createtime >>> 32));
+        pos = writeInt(dst, pos, (int) createtime);
+        if (version == 2) {
+            pos = writeInt(dst, pos, msgCnt);
+        }
+        pos = writeInt(dst, pos, groupCnt);
+        for (AttrGroup group : attr2Group.values()) {
+            if (group.cnt == 0) {
+                continue;
+            }
+            System.arraycopy(group.attrBytes, 0, dst, pos, group.attrBytes.length);
+            pos += group.attrBytes.length;
+            if (version == 2) {
+                pos = writeInt(dst, pos, group.cnt);
+            }
+            int lenPos = pos;
+            pos += 4;
+            dst[pos++] = (byte) compressType.getValue();
+            int bodyLen = InLongMsgCodec.compress(compressType,
+                    group.data, 0, group.length, dst, pos);
+            writeInt(dst, lenPos, bodyLen + 1);
+            pos += bodyLen;
+        }
+        dst[pos++] = magic[0];
+        dst[pos++] = magic[1];
+        return pos - start;
+    }
+
+    /**
+     * Clear the added records, keeping the group buffers for reuse
+     */
+    public void reset() {
+        if (attr2Group.size() > MAX_IDLE_GROUPS) {
+            attr2Group.clear();
+        } else {
+            Iterator<AttrGroup> iterator = attr2Group.values().iterator();
+            while (iterator.hasNext()) {
+                AttrGroup group = iterator.next();
+                if (group.cnt == 0) {
+                    // not used since the last reset
+                    iterator.remove();
+                } else {
+                    group.length = 0;
+                    group.cnt = 0;
+                }
+            }
+        }
+        groupCnt = 0;
+        msgCnt = 0;
+        // magic + create time + msg count + attribute count
+        dataLen = 4 + 8 + 4;
+        if (version == 2) {
+            dataLen += 4;
+        }
+    }
+
+    private static byte[] encodeUTF(String str) {
+        int strLen = str.length();
+        int utfLen = 0;
+        for (int i = 0; i < strLen; i++) {
+            char c = str.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                utfLen++;
+            } else if (c > 0x07FF) {
+                utfLen += 3;
+            } else {
+                utfLen += 2;
+            }
+        }
+        if (utfLen > 65535) {
+            throw new IllegalArgumentException("attribute too long: " + utfLen + " bytes");
+        }
+        byte[] bytes = new byte[utfLen + 2];
+        int pos = 0;
+        bytes[pos++] = (byte) ((utfLen >>> 8) & 0xFF);
+        bytes[pos++] = (byte) (utfLen & 0xFF);
+        for (int i = 0; i < strLen; i++) {
+            char c = str.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                bytes[pos++] = (byte) c;
+            } else if (c > 0x07FF) {
+                bytes[pos++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                bytes[pos++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return bytes;
+    }
+
+    private static int writeInt(byte[] dst, int pos, int value) {
+        dst[pos] = (byte) ((value >> 24) & 0xFF);
+        dst[pos + 1] = (byte) ((value >> 16) & 0xFF);
+        dst[pos + 2] = (byte) ((value >> 8) & 0xFF);
+        dst[pos + 3] = (byte) (value & 0xFF);
+        return pos + 4;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.msg;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+
+/**
+ * Compress and decompress the message bodies of an InLongMsg in place.
+ *
+ * All the methods write into the array supplied by the caller, so a body is
+ * compressed straight into the message being built, and decompressed straight
+ * into the buffer being read. A Snappy block keeps its own raw length, an LZ4 or
+ * ZSTD block is laid out as: raw length 4 + compressed data.
+ *
+ * The raw length read from a compressed block is checked against the max raw length
+ * before any buffer is allocated for it, the limit can be set by setMaxRawLength().
+ */
+public class InLongMsgCodec {
+
+    private static final int RAW_LENGTH_SIZE = 4;
+    private static final int ZSTD_COMPRESS_LEVEL = 3;
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+    // the default max raw length of a compressed block, 64M
+    public static final int DEFAULT_MAX_RAW_LENGTH = 64 * 1024 * 1024;
+    private static volatile int maxRawLength = DEFAULT_MAX_RAW_LENGTH;
+
+    /**
+     * Set the max raw length of a compressed block, usually the max message size
+     *
+     * @param length  the max raw length
+     */
+    public static void setMaxRawLength(int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Illegal max raw length " + length);
+        }
+        maxRawLength = length;
+    }
+
+    public static int getMaxRawLength() {
+        return maxRawLength;
+    }
+
+    /**
+     * Get the max length of the compressed data
+     *
+     * @param compressType  the compress type
+     * @param length        the raw data length
+     * @return  the max compressed length
+     */
+    public static int maxCompressedLength(MsgCompressType compressType, int length) {
+        switch (compressType) {
+            case SNAPPY:
+                return Snappy.maxCompressedLength(length);
+            case LZ4:
+                return RAW_LENGTH_SIZE + LZ4_FACTORY.fastCompressor().maxCompressedLength(length);
+            case ZSTD:
+                return RAW_LENGTH_SIZE + (int) Zstd.compressBound(length);
+            default:
+                return length;
+        }
+    }
+
+    /**
+     * Compress the raw data into the destination array
+     *
+     * @param compressType  the compress type
+     * @param src           the raw data
+     * @param srcOffset     the start position of the raw data
+     * @param length        the raw data length
+     * @param dst           the destination array, with at least
+     *                      maxCompressedLength() bytes after dstOffset
+     * @param dstOffset     the start position in the destination array
+     * @return  the compressed length
+     * @throws IOException  the exception while compressing
+     */
+    public static int compress(MsgCompressType compressType, byte[] src, int srcOffset,
+            int length, byte[] dst, int dstOffset) throws IOException {
+        switch (compressType) {
+            case SNAPPY: {
+                return Snappy.compress(src, srcOffset, length, dst, dstOffset);
+            }
+            case LZ4: {
+                writeRawLength(dst, dstOffset, length);
+                try {
+                    return RAW_LENGTH_SIZE + LZ4_FACTORY.fastCompressor().compress(src, srcOffset,
+                            length, dst, dstOffset + RAW_LENGTH_SIZE,
+                            dst.length - dstOffset - RAW_LENGTH_SIZE);
+                } catch (LZ4Exception e) {
+                    throw new IOException("LZ4 compress failure", e);
+                }
+            }
+            case ZSTD: {
+                writeRawLength(dst, dstOffset, length);
+                long outLength = Zstd.compressByteArray(dst, dstOffset + RAW_LENGTH_SIZE,
+                        dst.length - dstOffset - RAW_LENGTH_SIZE, src, srcOffset, length,
+                        ZSTD_COMPRESS_LEVEL);
+                if (Zstd.isError(outLength)) {
+                    throw new IOException(Zstd.getErrorName(outLength));
+                }
+                return RAW_LENGTH_SIZE + (int) outLength;
+            }
+            default: {
+                System.arraycopy(src, srcOffset, dst, dstOffset, length);
+                return length;
+            }
+        }
+    }
+
+    /**
+     * Get the raw data length of the compressed data
+     *
+     * @param compressType  the compress type
+     * @param src           the compressed data
+     * @param srcOffset     the start position of the compressed data
+     * @param length        the compressed data length
+     * @return  the raw data length
+     * @throws IOException  the exception of the illegal compressed data,
+     *                      or the raw length is over the max raw length
+     */
+    public static int uncompressedLength(MsgCompressType compressType,
+            byte[] src, int srcOffset, int length) throws IOException {
+        int rawLength;
+        switch (compressType) {
+            case SNAPPY: {
+                rawLength = Snappy.uncompressedLength(src, srcOffset, length);
+                break;
+            }
+            case LZ4:
+            case ZSTD: {
+                if (length < RAW_LENGTH_SIZE) {
+                    throw new IOException("Illegal compressed length " + length);
+                }
+                rawLength = readRawLength(src, srcOffset);
+                break;
+            }
+            default: {
+                return length;
+            }
+        }
+        if (rawLength < 0 || rawLength > maxRawLength) {
+            throw new IOException("Illegal raw length " + rawLength
+                    + ", the max raw length is " + maxRawLength);
+        }
+        return rawLength;
+    }
+
+    /**
+     * Decompress the compressed data into the destination array
+     *
+     * @param compressType  the compress type
+     * @param src           the compressed data
+     * @param srcOffset     the start position of the compressed data
+     * @param length        the compressed data length
+     * @param dst           the destination array, with at least
+     *                      uncompressedLength() bytes after dstOffset
+     * @param dstOffset     the start position in the destination array
+     * @return  the raw data length
+     * @throws IOException  the exception while decompressing
+     */
+    public static int uncompress(MsgCompressType compressType, byte[] src, int srcOffset,
+            int length, byte[] dst, int dstOffset) throws IOException {
+        switch (compressType) {
+            case SNAPPY: {
+                return Snappy.uncompress(src, srcOffset, length, dst, dstOffset);
+            }
+            case LZ4: {
+                int rawLength = uncompressedLength(compressType, src, srcOffset, length);
+                try {
+                    // the safe decompressor never reads or writes out of the given ranges
+                    int outLength = LZ4_FACTORY.safeDecompressor().decompress(src,
+                            srcOffset + RAW_LENGTH_SIZE, length - RAW_LENGTH_SIZE,
+                            dst, dstOffset, rawLength);
+                    if (outLength != rawLength) {
+                        throw new IOException("LZ4 raw length mismatch");
+                    }
+                } catch (LZ4Exception | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("LZ4 decompress failure", e);
+                }
+                return rawLength;
+            }
+            case ZSTD: {
+                int rawLength = uncompressedLength(compressType, src, srcOffset, length);
+                long outLength = Zstd.decompressByteArray(dst, dstOffset, rawLength,
+                        src, srcOffset + RAW_LENGTH_SIZE, length - RAW_LENGTH_SIZE);
+                if (Zstd.isError(outLength) || outLength != rawLength) {
+                    throw new IOException("Zstd decompress failure");
+                }
+                return rawLength;
+            }
+            default: {
+                System.arraycopy(src, srcOffset, dst, dstOffset, length);
+                return length;
+            }
+        }
+    }
+
+    /**
+     * Decompress the compressed data into a new array
+     *
+     * @param compressType  the compress type
+     * @param src           the compressed data
+     * @param srcOffset     the start position of the compressed data
+     * @param length        the compressed data length
+     * @return  the raw data
+     * @throws IOException  the exception while decompressing
+     */
+    public static byte[] uncompress(MsgCompressType compressType,
+            byte[] src, int srcOffset, int length) throws IOException {
+        byte[] output = new byte[uncompressedLength(compressType, src, srcOffset, length)];
+        uncompress(compressType, src, srcOffset, length, output, 0);
+        return output;
+    }
+
+    private static void writeRawLength(byte[] dst, int offset, int length) {
+        dst[offset] = (byte) ((length >> 24) & 0xFF);
+        dst[offset + 1] = (byte) ((length >> 16) & 0xFF);
+        dst[offset + 2] = (byte) ((length >> 8) & 0xFF);
+        dst[offset + 3] = (byte) (length & 0xFF);
+    }
+
+    private static int readRawLength(byte[] src, int offset) {
+        return ((src[offset] & 0xFF) << 24) | ((src[offset + 1] & 0xFF) << 16)
+                | ((src[offset + 2] & 0xFF) << 8) | (src[offset + 3] & 0xFF);
+    }
+}
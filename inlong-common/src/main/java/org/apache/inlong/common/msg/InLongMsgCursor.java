@@ -0,0 +1,466 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.msg;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming reader of an InLongMsg.
+ *
+ * Unlike InLongMsg.parseFrom(), the cursor doesn't copy records into maps of
+ * new arrays: all the compressed attribute groups are decompressed once into a
+ * single buffer, which may be supplied by the caller from a pool, and the
+ * uncompressed groups are read straight from the input. The attributes and
+ * records are then visited in place:
+ *
+ * <pre>
+ * InLongMsgCursor cursor = InLongMsgCursor.parseFrom(buffer);
+ * while (cursor.nextAttr()) {
+ *     String attr = cursor.getAttr();
+ *     while (cursor.nextRecord()) {
+ *         ByteBuffer record = cursor.getRecord();
+ *     }
+ * }
+ * </pre>
+ *
+ * The buffer returned by getRecord() and getRecordAttr() is a reused view,
+ * it is only valid until the next call, duplicate() it to keep it.
+ */
+public class InLongMsgCursor {
+
+    private static final int INT_SIZE = 4;
+    private static final int BIN_MSG_GROUPID_OFFSET = 5;
+    private static final int BIN_MSG_STREAMID_OFFSET = 7;
+    private static final int BIN_MSG_EXTFIELD_OFFSET = 9;
+    private static final int BIN_MSG_DATATIME_OFFSET = 11;
+    private static final int BIN_MSG_COUNT_OFFSET = 15;
+    private static final int BIN_MSG_MSGTYPE_OFFSET = 4;
+    private static final int BIN_MSG_BODYLEN_OFFSET = 21;
+    private static final int BIN_MSG_BODY_OFFSET = 25;
+    private static final int BIN_MSG_ATTRLEN_SIZE = 2;
+
+    private static final Joiner.MapJoiner MAP_JOINER =
+            Joiner.on(AttributeConstants.SEPARATOR)
+                    .withKeyValueSeparator(AttributeConstants.KEY_VALUE_SEPARATOR);
+    private static final Splitter.MapSplitter MAP_SPLITTER =
+            Splitter.on(AttributeConstants.SEPARATOR)
+                    .trimResults().withKeyValueSeparator(AttributeConstants.KEY_VALUE_SEPARATOR);
+
+    private final int version;
+    private final byte[] input;
+    private long createtime = -1;
+    private int msgCnt = 0;
+    private boolean numGroupId = false;
+    // the records of each attribute group carry their own attributes
+    private boolean mixedAttr = false;
+    // the total length of the records is written before each run of them
+    private boolean chunked = false;
+
+    private int attrCnt = 0;
+    private String[] attrs;
+    private int[] attrOffsets;
+    private int[] attrLengths;
+    private byte[][] bodyArrays;
+    private int[] bodyOffsets;
+    private int[] bodyLengths;
+    private MsgCompressType[] compressTypes;
+    private byte[] uncompressed;
+    private DataInputBuffer utfInput;
+
+    private final ByteBuffer inputView;
+    private ByteBuffer uncompressedView;
+    private int attrIndex = -1;
+    private byte[] curArray;
+    private ByteBuffer curView;
+    private int curPos;
+    private int curEnd;
+    private int chunkRemain;
+    private int recordOffset;
+    private int recordLength;
+    private int recordAttrOffset;
+    private int recordAttrLength;
+
+    private InLongMsgCursor(int version, byte[] input) {
+        this.version = version;
+        this.input = input;
+        this.inputView = ByteBuffer.wrap(input);
+    }
+
+    /**
+     * Parse the message, decompressing the bodies into a new buffer
+     *
+     * @param buffer  the message
+     * @return  the cursor, null if the message is illegal
+     */
+    public static InLongMsgCursor parseFrom(ByteBuffer buffer) {
+        return parseFrom(buffer, null);
+    }
+
+    /**
+     * Parse the message, decompressing the bodies into the supplied buffer if it's big enough
+     *
+     * @param buffer   the message, the records are views over it if not compressed
+     * @param scratch  the pooled buffer to decompress into, may be null
+     * @return  the cursor, null if the message is illegal
+     */
+    public static InLongMsgCursor parseFrom(ByteBuffer buffer, ByteBuffer scratch) {
+        if (!buffer.hasArray()) {
+            ByteBuffer heapBuffer = ByteBuffer.allocate(buffer.remaining());
+            heapBuffer.put(buffer.duplicate());
+            heapBuffer.flip();
+            buffer = heapBuffer;
+        }
+        int version = InLongMsg.parseVersion(buffer);
+        if (version < 0) {
+            return null;
+        }
+        byte[] array = buffer.array();
+        int start = buffer.arrayOffset() + buffer.position();
+        int end = start + buffer.remaining();
+        InLongMsgCursor cursor = new InLongMsgCursor(version, array);
+        try {
+            if (version == 4) {
+                cursor.indexBinMsg(start + 2, end - 2);
+            } else {
+                cursor.indexDefault(start + 2, end - 2);
+            }
+            cursor.decompress(scratch);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return cursor;
+    }
+
+    private void indexDefault(int start, int end) throws IOException {
+        int pos = start;
+        if (version >= 1) {
+            createtime = readLong(input, pos);
+            pos += 8;
+        }
+        if (version >= 2) {
+            msgCnt = readInt(input, pos);
+            pos += INT_SIZE;
+        }
+        mixedAttr = (version == 3);
+        chunked = mixedAttr;
+        initGroups(readInt(input, pos));
+        pos += INT_SIZE;
+        for (int i = 0; i < attrCnt; i++) {
+            int utfLen = ((input[pos] & 0xFF) << 8) | (input[pos + 1] & 0xFF);
+            attrOffsets[i] = pos;
+            attrLengths[i] = 2 + utfLen;
+            pos += 2 + utfLen;
+            if (version == 2) {
+                pos += INT_SIZE;
+            }
+            int len = readInt(input, pos);
+            pos += INT_SIZE;
+            if (len < 1 || len > end - pos) {
+                throw new IOException("Illegal body length " + len);
+            }
+            setBody(i, input[pos], pos + 1, len - 1);
+            pos += len;
+        }
+    }
+
+    private void indexBinMsg(int start, int end) throws IOException {
+        ByteBuffer binMsg = ByteBuffer.wrap(input, start, end - start).slice();
+        int msgType = binMsg.get(BIN_MSG_MSGTYPE_OFFSET);
+        int extField = binMsg.getShort(BIN_MSG_EXTFIELD_OFFSET);
+        int bodyLen = binMsg.getInt(BIN_MSG_BODYLEN_OFFSET);
+        int attrLen = binMsg.getShort(BIN_MSG_BODY_OFFSET + bodyLen);
+        createtime = binMsg.getInt(BIN_MSG_DATATIME_OFFSET) * 1000L;
+        msgCnt = binMsg.getShort(BIN_MSG_COUNT_OFFSET);
+        numGroupId = ((extField & 0x4) == 0x0);
+        mixedAttr = ((extField & 0x1) == 0x1);
+
+        Map<String, String> commonAttrMap = new HashMap<String, String>();
+        if (attrLen != 0) {
+            commonAttrMap = new HashMap<String, String>(MAP_SPLITTER.split(new String(input,
+                    start + BIN_MSG_BODY_OFFSET + bodyLen + BIN_MSG_ATTRLEN_SIZE, attrLen)));
+        }
+        commonAttrMap.put(AttributeConstants.DATA_TIME, String.valueOf(createtime));
+        if (numGroupId) {
+            commonAttrMap.put(AttributeConstants.GROUP_ID,
+                    String.valueOf(binMsg.getShort(BIN_MSG_GROUPID_OFFSET)));
+            commonAttrMap.put(AttributeConstants.STREAM_ID,
+                    String.valueOf(binMsg.getShort(BIN_MSG_STREAMID_OFFSET)));
+        }
+        commonAttrMap.put(AttributeConstants.MESSAGE_COUNT, "1");
+
+        initGroups(1);
+        attrs[0] = MAP_JOINER.join(commonAttrMap);
+        setBody(0, (msgType & 0xE0) >> 5, start + BIN_MSG_BODY_OFFSET, bodyLen);
+    }
+
+    private void initGroups(int groupCnt) throws IOException {
+        if (groupCnt < 0) {
+            throw new IOException("Illegal attribute count " + groupCnt);
+        }
+        attrCnt = groupCnt;
+        attrs = new String[groupCnt];
+        attrOffsets = new int[groupCnt];
+        attrLengths = new int[groupCnt];
+        bodyArrays = new byte[groupCnt][];
+        bodyOffsets = new int[groupCnt];
+        bodyLengths = new int[groupCnt];
+        compressTypes = new MsgCompressType[groupCnt];
+    }
+
+    private void setBody(int index, int compressFlag, int offset, int length) throws IOException {
+        MsgCompressType compressType = MsgCompressType.valueOf(compressFlag);
+        if (compressType == null) {
+            throw new IOException("Unsupported compress type " + compressFlag);
+        }
+        compressTypes[index] = compressType;
+        bodyArrays[index] = input;
+        bodyOffsets[index] = offset;
+        bodyLengths[index] = length;
+    }
+
+    private void decompress(ByteBuffer scratch) throws IOException {
+        int totalLen = 0;
+        for (int i = 0; i < attrCnt; i++) {
+            if (compressTypes[i] != MsgCompressType.NONE) {
+                totalLen += InLongMsgCodec.uncompressedLength(compressTypes[i],
+                        input, bodyOffsets[i], bodyLengths[i]);
+                // each raw length is bounded, so the sum never overflows here
+                if (totalLen > InLongMsgCodec.getMaxRawLength()) {
+                    throw new IOException("Illegal total raw length " + totalLen
+                            + ", the max raw length is " + InLongMsgCodec.getMaxRawLength());
+                }
+            }
+        }
+        if (totalLen == 0) {
+            // only empty bodies are compressed
+            for (int i = 0; i < attrCnt; i++) {
+                if (compressTypes[i] != MsgCompressType.NONE) {
+                    bodyLengths[i] = 0;
+                }
+            }
+            return;
+        }
+        int pos = 0;
+        if (scratch != null && scratch.hasArray() && scratch.capacity() >= totalLen) {
+            uncompressed = scratch.array();
+            pos = scratch.arrayOffset();
+        } else {
+            uncompressed = new byte[totalLen];
+        }
+        uncompressedView = ByteBuffer.wrap(uncompressed);
+        for (int i = 0; i < attrCnt; i++) {
+            if (compressTypes[i] == MsgCompressType.NONE) {
+                continue;
+            }
+            int rawLen = InLongMsgCodec.uncompress(compressTypes[i], input,
+                    bodyOffsets[i], bodyLengths[i], uncompressed, pos);
+            bodyArrays[i] = uncompressed;
+            bodyOffsets[i] = pos;
+            bodyLengths[i] = rawLen;
+            pos += rawLen;
+        }
+    }
+
+    /**
+     * Move to the next attribute group
+     *
+     * @return  false if there is no more attribute group
+     */
+    public boolean nextAttr() {
+        if (attrIndex + 1 >= attrCnt) {
+            attrIndex = attrCnt;
+            curPos = curEnd = 0;
+            return false;
+        }
+        attrIndex++;
+        curArray = bodyArrays[attrIndex];
+        curView = (curArray == input) ? inputView : uncompressedView;
+        curPos = bodyOffsets[attrIndex];
+        curEnd = curPos + bodyLengths[attrIndex];
+        chunkRemain = 0;
+        recordOffset = recordLength = 0;
+        recordAttrOffset = recordAttrLength = 0;
+        return true;
+    }
+
+    /**
+     * Get the attributes of the current attribute group
+     *
+     * @return  the attributes
+     */
+    public String getAttr() {
+        String attr = attrs[attrIndex];
+        if (attr == null) {
+            if (utfInput == null) {
+                utfInput = new DataInputBuffer();
+            }
+            try {
+                utfInput.reset(input, attrOffsets[attrIndex], attrLengths[attrIndex]);
+                attr = utfInput.readUTF();
+            } catch (IOException e) {
+                attr = "";
+            }
+            attrs[attrIndex] = attr;
+        }
+        return attr;
+    }
+
+    /**
+     * Move to the next record of the current attribute group
+     *
+     * @return  false if there is no more record, or the rest of the group is illegal
+     */
+    public boolean nextRecord() {
+        if (chunked && chunkRemain <= 0) {
+            if (curEnd - curPos < INT_SIZE) {
+                return endGroup();
+            }
+            chunkRemain = readInt(curArray, curPos);
+            curPos += INT_SIZE;
+            if (chunkRemain > curEnd - curPos) {
+                return endGroup();
+            }
+        }
+        if (curEnd - curPos < INT_SIZE) {
+            return endGroup();
+        }
+        int len = readInt(curArray, curPos);
+        int limit = chunked ? chunkRemain : curEnd - curPos - INT_SIZE;
+        if (len < 0 || len > limit || (mixedAttr && len == 0)) {
+            return endGroup();
+        }
+        recordOffset = curPos + INT_SIZE;
+        recordLength = len;
+        curPos = recordOffset + len;
+        if (!mixedAttr) {
+            return true;
+        }
+        if (curEnd - curPos < INT_SIZE) {
+            return endGroup();
+        }
+        int attrLen = readInt(curArray, curPos);
+        if (attrLen <= 0 || attrLen > limit || attrLen > curEnd - curPos - INT_SIZE) {
+            return endGroup();
+        }
+        recordAttrOffset = curPos + INT_SIZE;
+        recordAttrLength = attrLen;
+        curPos = recordAttrOffset + attrLen;
+        chunkRemain -= len + attrLen + 2 * INT_SIZE;
+        return true;
+    }
+
+    private boolean endGroup() {
+        curPos = curEnd;
+        recordOffset = recordLength = 0;
+        recordAttrOffset = recordAttrLength = 0;
+        return false;
+    }
+
+    /**
+     * Get the current record
+     *
+     * @return  the reused view of the record
+     */
+    public ByteBuffer getRecord() {
+        return view(recordOffset, recordLength);
+    }
+
+    /**
+     * Get the attributes carried by the current record,
+     * they are joined to the group attributes with "&amp;"
+     *
+     * @return  the reused view of the record attributes, null if not carried
+     */
+    public ByteBuffer getRecordAttr() {
+        if (!mixedAttr) {
+            return null;
+        }
+        return view(recordAttrOffset, recordAttrLength);
+    }
+
+    private ByteBuffer view(int offset, int length) {
+        curView.clear();
+        curView.position(offset);
+        curView.limit(offset + length);
+        return curView;
+    }
+
+    /**
+     * Get the array holding the current record, for readers working on arrays
+     *
+     * @return  the array, the record is at getRecordOffset() with getRecordLength() bytes
+     */
+    public byte[] getRecordArray() {
+        return curArray;
+    }
+
+    public int getRecordOffset() {
+        return recordOffset;
+    }
+
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * Move back before the first attribute group
+     */
+    public void rewind() {
+        attrIndex = -1;
+        curPos = curEnd = 0;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public long getCreatetime() {
+        return createtime;
+    }
+
+    public int getMsgCnt() {
+        return msgCnt;
+    }
+
+    public int getAttrCount() {
+        return attrCnt;
+    }
+
+    public boolean isNumGroupId() {
+        return numGroupId;
+    }
+
+    public boolean isMixedAttr() {
+        return mixedAttr;
+    }
+
+    private static int readInt(byte[] array, int pos) {
+        return ((array[pos] & 0xFF) << 24) | ((array[pos + 1] & 0xFF) << 16)
+                | ((array[pos + 2] & 0xFF) << 8) | (array[pos + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] array, int pos) {
+        return ((long) readInt(array, pos) << 32) | (readInt(array, pos + 4) & 0xFFFFFFFFL);
+    }
+}
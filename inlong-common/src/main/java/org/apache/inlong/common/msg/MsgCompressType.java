@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.msg;
+
+/**
+ * Compress type of the message bodies in an InLongMsg.
+ *
+ * The value is written as the compress flag byte before each attribute group body,
+ * and as the zip type bits of the message type of a binary message, 1 keeps the
+ * meaning of the Snappy flag of the former versions.
+ */
+public enum MsgCompressType {
+
+    NONE(0),
+    SNAPPY(1),
+    LZ4(2),
+    ZSTD(3);
+
+    private final int value;
+
+    MsgCompressType(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Get the compress type of the value
+     *
+     * @param value  the compress flag value
+     * @return  the compress type, null if unknown
+     */
+    public static MsgCompressType valueOf(int value) {
+        for (MsgCompressType compressType : MsgCompressType.values()) {
+            if (compressType.getValue() == value) {
+                return compressType;
+            }
+        }
+        return null;
+    }
+
+    public int getValue() {
+        return value;
+    }
+}
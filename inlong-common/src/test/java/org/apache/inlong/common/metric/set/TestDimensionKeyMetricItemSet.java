@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.metric.set;
+
+import org.apache.inlong.common.metric.DimensionKey;
+import org.apache.inlong.common.metric.MetricHandle;
+import org.apache.inlong.common.metric.MetricItem;
+import org.apache.inlong.common.metric.MetricItemSet;
+import org.apache.inlong.common.metric.StripedCounter;
+import org.apache.inlong.common.metric.item.AgentMetricItem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * TestDimensionKeyMetricItemSet
+ */
+public class TestDimensionKeyMetricItemSet {
+
+    private static final String[] DIMENSIONS = {"sourceId", "inlongGroupId"};
+
+    @Test
+    public void testFindByKey() {
+        MetricItemSet<DataProxyMetricItem> itemSet = new TestItemSet();
+        DimensionKey probe = new DimensionKey(DIMENSIONS);
+        DataProxyMetricItem item1 = itemSet.findMetricItem(probe.set(0, "source").set(1, "group1"));
+        DataProxyMetricItem item2 = itemSet.findMetricItem(probe.set(0, "source").set(1, "group2"));
+        Assert.assertNotSame(item1, item2);
+        // the reused probe doesn't change the stored key
+        Assert.assertSame(item1, itemSet.findMetricItem(probe.set(0, "source").set(1, "group1")));
+        Assert.assertEquals("source", item1.getDimensions().get("sourceId"));
+        Assert.assertEquals("group1", item1.getDimensions().get("inlongGroupId"));
+    }
+
+    @Test
+    public void testSnapshotKeepsIncrements() {
+        MetricItemSet<DataProxyMetricItem> itemSet = new TestItemSet();
+        DimensionKey probe = new DimensionKey(DIMENSIONS);
+        DataProxyMetricItem item = itemSet.findMetricItem(probe.set(0, "source").set(1, "group1"));
+        item.readSuccessCount.addAndGet(10);
+        List<MetricItem> items = itemSet.snapshot();
+        Assert.assertEquals(1, items.size());
+        Assert.assertEquals(10L, items.get(0).snapshot().get("readSuccessCount").value);
+        // the item is kept, the increments after the snapshot are counted next time
+        item.readSuccessCount.addAndGet(5);
+        Assert.assertSame(item, itemSet.findMetricItem(probe));
+        item.readSuccessCount.addAndGet(1);
+        items = itemSet.snapshot();
+        Assert.assertEquals(1, items.size());
+        Assert.assertEquals(6L, items.get(0).snapshot().get("readSuccessCount").value);
+    }
+
+    @Test
+    public void testGaugeKeepsAbsoluteValue() {
+        MetricItemSet<AgentMetricItem> itemSet = new MetricItemSet<AgentMetricItem>("TestAgentItemSet") {
+
+            @Override
+            protected AgentMetricItem createItem() {
+                return new AgentMetricItem();
+            }
+        };
+        DimensionKey probe = new DimensionKey(new String[]{"module", "aspect", "tag"});
+        AgentMetricItem item = itemSet.findMetricItem(probe.set(0, "agent"));
+        item.runningTasks.addAndGet(3);
+        item.readNum.addAndGet(10);
+        Assert.assertEquals(3L, itemSet.snapshot().get(0).snapshot().get("runningTasks").value);
+        // the gauge is kept across the snapshots, the count is reset
+        item.runningTasks.decrementAndGet();
+        Assert.assertSame(item, itemSet.findMetricItem(probe));
+        MetricItem snapshotItem = itemSet.snapshot().get(0);
+        Assert.assertSame(item, snapshotItem);
+        Assert.assertEquals(2L, item.snapshot().get("runningTasks").value);
+        Assert.assertEquals(0L, item.snapshot().get("readNum").value);
+    }
+
+    @Test
+    public void testKeepIdleGaugeItem() {
+        MetricItemSet<AgentMetricItem> itemSet = new MetricItemSet<AgentMetricItem>("TestAgentItemSet") {
+
+            @Override
+            protected AgentMetricItem createItem() {
+                return new AgentMetricItem();
+            }
+        };
+        MetricHandle<AgentMetricItem> handle =
+                itemSet.getHandle(new DimensionKey(new String[]{"module"}).set(0, "agent"));
+        AgentMetricItem item = handle.get();
+        item.runningTasks.incrementAndGet();
+        itemSet.snapshot();
+        // idle in the whole epoch, but the running task is still counted
+        Assert.assertEquals(1, itemSet.snapshot().size());
+        Assert.assertFalse(item.isRetired());
+        Assert.assertSame(item, handle.get());
+        // retired once the gauge is back to zero
+        item.runningTasks.decrementAndGet();
+        itemSet.snapshot();
+        itemSet.snapshot();
+        Assert.assertTrue(item.isRetired());
+    }
+
+    @Test
+    public void testRetireIdleItem() {
+        MetricItemSet<DataProxyMetricItem> itemSet = new TestItemSet();
+        DimensionKey probe = new DimensionKey(DIMENSIONS);
+        MetricHandle<DataProxyMetricItem> handle =
+                itemSet.getHandle(probe.set(0, "source").set(1, "group1"));
+        DataProxyMetricItem item = handle.get();
+        Assert.assertEquals(1, itemSet.snapshot().size());
+        // idle in the whole epoch, retired by the snapshot
+        Assert.assertEquals(0, itemSet.snapshot().size());
+        Assert.assertTrue(item.isRetired());
+        // the late increment is collected by the next snapshot
+        item.readFailCount.incrementAndGet();
+        List<MetricItem> items = itemSet.snapshot();
+        Assert.assertEquals(1, items.size());
+        Assert.assertEquals(1L, items.get(0).snapshot().get("readFailCount").value);
+        // the handle finds a new item after the retirement
+        DataProxyMetricItem newItem = handle.get();
+        Assert.assertNotSame(item, newItem);
+        Assert.assertFalse(newItem.isRetired());
+        Assert.assertSame(newItem, handle.get());
+    }
+
+    @Test
+    public void testStripedCounter() throws Exception {
+        StripedCounter counter = new StripedCounter();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    counter.increment();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(40000L, counter.sum());
+        Assert.assertEquals(40000L, counter.sumThenReset());
+        Assert.assertEquals(0L, counter.sum());
+    }
+
+    private static class TestItemSet extends MetricItemSet<DataProxyMetricItem> {
+
+        TestItemSet() {
+            super("TestItemSet");
+        }
+
+        @Override
+        protected DataProxyMetricItem createItem() {
+            return new DataProxyMetricItem();
+        }
+    }
+}
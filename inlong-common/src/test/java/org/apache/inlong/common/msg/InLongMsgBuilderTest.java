@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.msg;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * InLongMsgBuilder unit test
+ */
+public class InLongMsgBuilderTest {
+
+    private static final String ATTR1 = "groupId=group1&streamId=stream1";
+    private static final String ATTR2 = "groupId=group1&streamId=stream2";
+
+    @Test
+    public void testBuildReadByInLongMsg() throws Exception {
+        for (MsgCompressType compressType : MsgCompressType.values()) {
+            for (int version = 1; version <= 2; version++) {
+                InLongMsgBuilder builder = new InLongMsgBuilder(version, compressType);
+                builder.addMsg(ATTR1, bytes("record-1"));
+                builder.addMsg(ATTR2, bytes("record-2"));
+                builder.addMsg(ATTR1, bytes("record-3"));
+                ByteBuffer out = ByteBuffer.allocate(builder.getMaxBuildLength() + 10);
+                out.position(10);
+                int len = builder.build(out, 123456L);
+                Assert.assertEquals(10 + len, out.position());
+
+                InLongMsg msg = InLongMsg.parseFrom(ByteBuffer.wrap(out.array(), 10, len));
+                Assert.assertNotNull(msg);
+                Assert.assertEquals(123456L, msg.getCreatetime());
+                Assert.assertEquals(2, msg.getAttrCount());
+                if (version == 2) {
+                    Assert.assertEquals(3, msg.getMsgCnt());
+                }
+                Assert.assertArrayEquals(new String[]{ATTR1, ATTR2},
+                        msg.getAttrs().toArray(new String[0]));
+                Assert.assertEquals(listOf("record-1", "record-3"), records(msg.getIterator(ATTR1)));
+                Assert.assertEquals(listOf("record-2"), records(msg.getIterator(ATTR2)));
+            }
+        }
+    }
+
+    @Test
+    public void testReuseAfterReset() throws Exception {
+        InLongMsgBuilder builder = new InLongMsgBuilder(2, MsgCompressType.SNAPPY);
+        builder.addMsg(ATTR1, bytes("record-1"));
+        builder.addMsg(ATTR2, bytes("record-2"));
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        builder.build(out, 1L);
+
+        builder.reset();
+        Assert.assertEquals(0, builder.getMsgCnt());
+        Assert.assertEquals(0, builder.getAttrCount());
+        builder.addMsg(ATTR2, bytes("record-3"));
+        out.clear();
+        int len = builder.build(out, 2L);
+
+        InLongMsgCursor cursor = InLongMsgCursor.parseFrom(ByteBuffer.wrap(out.array(), 0, len));
+        Assert.assertNotNull(cursor);
+        Assert.assertEquals(2L, cursor.getCreatetime());
+        Assert.assertEquals(1, cursor.getMsgCnt());
+        Assert.assertEquals(1, cursor.getAttrCount());
+        Assert.assertTrue(cursor.nextAttr());
+        Assert.assertEquals(ATTR2, cursor.getAttr());
+        Assert.assertTrue(cursor.nextRecord());
+        Assert.assertEquals("record-3", string(cursor.getRecord()));
+        Assert.assertFalse(cursor.nextRecord());
+        Assert.assertFalse(cursor.nextAttr());
+    }
+
+    @Test
+    public void testBuildIntoDirectBuffer() throws Exception {
+        InLongMsgBuilder builder = new InLongMsgBuilder(1, MsgCompressType.NONE);
+        ByteBuffer record = ByteBuffer.allocateDirect(8);
+        record.put(bytes("record-1"));
+        record.flip();
+        builder.addMsg(ATTR1, record);
+        Assert.assertEquals(0, record.position());
+
+        ByteBuffer out = ByteBuffer.allocateDirect(builder.getMaxBuildLength());
+        int len = builder.build(out, 1L);
+        out.flip();
+        Assert.assertEquals(len, out.remaining());
+        byte[] array = new byte[len];
+        out.get(array);
+        InLongMsg msg = InLongMsg.parseFrom(array);
+        Assert.assertNotNull(msg);
+        Assert.assertEquals(listOf("record-1"), records(msg.getIterator(ATTR1)));
+    }
+
+    @Test
+    public void testFullAndOverflow() throws Exception {
+        InLongMsgBuilder builder = new InLongMsgBuilder(100, 1, MsgCompressType.ZSTD);
+        Assert.assertTrue(builder.addMsg(ATTR1, bytes("record-1")));
+        Assert.assertFalse(builder.addMsg(ATTR1, new byte[32]));
+        Assert.assertTrue(builder.isFull());
+        Assert.assertEquals(2, builder.getMsgCnt());
+        try {
+            builder.build(ByteBuffer.allocate(builder.getMaxBuildLength() - 1), 1L);
+            Assert.fail("the output buffer is too small");
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+    }
+
+    private static byte[] bytes(String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        return new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                buffer.remaining(), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> result = new ArrayList<>();
+        for (String value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    private static List<String> records(Iterator<byte[]> iterator) {
+        List<String> result = new ArrayList<>();
+        while (iterator.hasNext()) {
+            result.add(new String(iterator.next(), StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.msg;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * InLongMsgCursor unit test
+ */
+public class InLongMsgCursorTest {
+
+    private static final String ATTR1 = "groupId=group1&streamId=stream1";
+    private static final String ATTR2 = "groupId=group1&streamId=stream2";
+
+    @Test
+    public void testReadDefaultMsg() {
+        for (int version = 1; version <= 2; version++) {
+            for (boolean compress : new boolean[]{true, false}) {
+                InLongMsg msg = InLongMsg.newInLongMsg(compress, version);
+                msg.addMsg(ATTR1, bytes("record-1"));
+                msg.addMsg(ATTR2, bytes("record-2"));
+                msg.addMsg(ATTR1, bytes("record-3"));
+                InLongMsgCursor cursor = InLongMsgCursor.parseFrom(msg.build(1000L));
+                Assert.assertNotNull(cursor);
+                Assert.assertEquals(version, cursor.getVersion());
+                Assert.assertEquals(1000L, cursor.getCreatetime());
+                Assert.assertEquals(2, cursor.getAttrCount());
+                Assert.assertFalse(cursor.isMixedAttr());
+
+                Assert.assertTrue(cursor.nextAttr());
+                Assert.assertEquals(ATTR1, cursor.getAttr());
+                Assert.assertEquals(listOf("record-1", "record-3"), records(cursor));
+                Assert.assertTrue(cursor.nextAttr());
+                Assert.assertEquals(ATTR2, cursor.getAttr());
+                Assert.assertEquals(listOf("record-2"), records(cursor));
+                Assert.assertFalse(cursor.nextAttr());
+
+                cursor.rewind();
+                Assert.assertTrue(cursor.nextAttr());
+                Assert.assertEquals(ATTR1, cursor.getAttr());
+            }
+        }
+    }
+
+    @Test
+    public void testDecompressIntoScratch() throws Exception {
+        InLongMsgBuilder builder = new InLongMsgBuilder(1, MsgCompressType.SNAPPY);
+        builder.addMsg(ATTR1, bytes("record-1"));
+        builder.addMsg(ATTR2, bytes("record-2"));
+        ByteBuffer out = ByteBuffer.allocate(builder.getMaxBuildLength());
+        builder.build(out, 1L);
+        out.flip();
+
+        ByteBuffer scratch = ByteBuffer.allocate(1024);
+        InLongMsgCursor cursor = InLongMsgCursor.parseFrom(out, scratch);
+        Assert.assertNotNull(cursor);
+        while (cursor.nextAttr()) {
+            Assert.assertTrue(cursor.nextRecord());
+            Assert.assertSame(scratch.array(), cursor.getRecordArray());
+            Assert.assertSame(scratch.array(), cursor.getRecord().array());
+            Assert.assertEquals(8, cursor.getRecordLength());
+        }
+        // the uncompressed bodies are read in place
+        builder = new InLongMsgBuilder(1, MsgCompressType.NONE);
+        builder.addMsg(ATTR1, bytes("record-1"));
+        out = ByteBuffer.allocate(builder.getMaxBuildLength());
+        builder.build(out, 1L);
+        out.flip();
+        cursor = InLongMsgCursor.parseFrom(out, scratch);
+        Assert.assertNotNull(cursor);
+        Assert.assertTrue(cursor.nextAttr());
+        Assert.assertTrue(cursor.nextRecord());
+        Assert.assertSame(out.array(), cursor.getRecordArray());
+    }
+
+    @Test
+    public void testReadMixAttrMsg() {
+        // each added body is a run of records with their own attributes
+        ByteBuffer body = ByteBuffer.allocate(64);
+        putRecord(body, "record-1", "k=1");
+        putRecord(body, "record-2", "k=2");
+        body.flip();
+
+        InLongMsg msg = InLongMsg.newInLongMsg(true, 3);
+        msg.addMsg(ATTR1, body);
+        InLongMsgCursor cursor = InLongMsgCursor.parseFrom(msg.build(1000L));
+        Assert.assertNotNull(cursor);
+        Assert.assertTrue(cursor.isMixedAttr());
+        Assert.assertTrue(cursor.nextAttr());
+        Assert.assertEquals(ATTR1, cursor.getAttr());
+        Assert.assertTrue(cursor.nextRecord());
+        Assert.assertEquals("record-1", string(cursor.getRecord()));
+        Assert.assertEquals("k=1", string(cursor.getRecordAttr()));
+        Assert.assertTrue(cursor.nextRecord());
+        Assert.assertEquals("record-2", string(cursor.getRecord()));
+        Assert.assertEquals("k=2", string(cursor.getRecordAttr()));
+        Assert.assertFalse(cursor.nextRecord());
+        Assert.assertFalse(cursor.nextAttr());
+    }
+
+    @Test
+    public void testReadBinMsg() {
+        ByteBuffer body = ByteBuffer.allocate(64);
+        body.putInt(8);
+        body.put(bytes("record-1"));
+        body.putInt(8);
+        body.put(bytes("record-2"));
+        body.flip();
+        byte[] attr = bytes("k=v");
+
+        ByteBuffer binMsg = ByteBuffer.allocate(29 + body.remaining() + attr.length);
+        binMsg.putInt(binMsg.capacity() - 4);
+        binMsg.put((byte) 7);
+        binMsg.putShort((short) 11);
+        binMsg.putShort((short) 12);
+        binMsg.putShort((short) 0);
+        binMsg.putInt(1000);
+        binMsg.putShort((short) 2);
+        binMsg.putInt(0);
+        binMsg.putInt(body.remaining());
+        binMsg.put(body);
+        binMsg.putShort((short) attr.length);
+        binMsg.put(attr);
+        binMsg.putShort((short) 0xEE01);
+        binMsg.flip();
+
+        InLongMsg msg = InLongMsg.newInLongMsg(true, 4);
+        Assert.assertTrue(msg.addMsg(binMsg));
+        ByteBuffer built = msg.build(1000L);
+        InLongMsg parsed = InLongMsg.parseFrom(built.duplicate());
+        Assert.assertNotNull(parsed);
+        String legacyAttr = parsed.getAttrs().iterator().next();
+
+        InLongMsgCursor cursor = InLongMsgCursor.parseFrom(built);
+        Assert.assertNotNull(cursor);
+        Assert.assertEquals(4, cursor.getVersion());
+        Assert.assertEquals(1000000L, cursor.getCreatetime());
+        Assert.assertEquals(2, cursor.getMsgCnt());
+        Assert.assertTrue(cursor.isNumGroupId());
+        Assert.assertTrue(cursor.nextAttr());
+        Assert.assertEquals(legacyAttr, cursor.getAttr());
+        Assert.assertEquals(listOf("record-1", "record-2"), records(cursor));
+        Assert.assertFalse(cursor.nextAttr());
+    }
+
+    @Test
+    public void testIllegalMsg() {
+        Assert.assertNull(InLongMsgCursor.parseFrom(ByteBuffer.wrap(bytes("illegal message"))));
+        InLongMsg msg = InLongMsg.newInLongMsg(true, 1);
+        msg.addMsg(ATTR1, bytes("record-1"));
+        byte[] array = msg.buildArray(1L);
+        // break the compressed body length
+        array[2 + 8 + 4 + 2 + ATTR1.length()] = 0x7f;
+        Assert.assertNull(InLongMsgCursor.parseFrom(ByteBuffer.wrap(array)));
+    }
+
+    @Test
+    public void testIllegalCompressedBody() throws Exception {
+        byte[] raw = bytes("record-1record-2record-3");
+        byte[] body = new byte[InLongMsgCodec.maxCompressedLength(MsgCompressType.LZ4, raw.length)];
+        int bodyLen = InLongMsgCodec.compress(MsgCompressType.LZ4, raw, 0, raw.length, body, 0);
+        Assert.assertArrayEquals(raw, InLongMsgCodec.uncompress(MsgCompressType.LZ4, body, 0, bodyLen));
+        // the raw length over the limit is rejected before allocating
+        body[0] = 0x7f;
+        assertUncompressFailure(body, bodyLen);
+        // the raw length not matching the data
+        body[0] = 0;
+        body[3]++;
+        assertUncompressFailure(body, bodyLen);
+        // the truncated data
+        body[3]--;
+        assertUncompressFailure(body, bodyLen - 2);
+    }
+
+    private static void assertUncompressFailure(byte[] body, int bodyLen) {
+        try {
+            InLongMsgCodec.uncompress(MsgCompressType.LZ4, body, 0, bodyLen);
+            Assert.fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static void putRecord(ByteBuffer buffer, String record, String attr) {
+        buffer.putInt(record.length());
+        buffer.put(bytes(record));
+        buffer.putInt(attr.length());
+        buffer.put(bytes(attr));
+    }
+
+    private static byte[] bytes(String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        return new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                buffer.remaining(), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> result = new ArrayList<>();
+        for (String value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    private static List<String> records(InLongMsgCursor cursor) {
+        List<String> result = new ArrayList<>();
+        while (cursor.nextRecord()) {
+            result.add(string(cursor.getRecord()));
+        }
+        return result;
+    }
+}
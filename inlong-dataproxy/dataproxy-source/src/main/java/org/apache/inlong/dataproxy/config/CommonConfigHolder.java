@@ -133,6 +133,11 @@ public class CommonConfigHolder {
     // Same as KEY_MAX_RESPONSE_TIMEOUT_MS = "maxResponseTimeoutMs";
     public static final String KEY_MAX_RAS_TIMEOUT_MS = "maxRASTimeoutMs";
     public static final long VAL_DEF_MAX_RAS_TIMEOUT_MS = 10000L;
+    // max packages waiting for the save response per connection, the connection
+    // stops reading when exceeded
+    public static final String KEY_MAX_RAS_INFLIGHT_PER_CONN = "maxRASInflightPerConn";
+    public static final int VAL_DEF_MAX_RAS_INFLIGHT_PER_CONN = 1000;
+    public static final int VAL_MIN_MAX_RAS_INFLIGHT_PER_CONN = 1;
     // max buffer queue size in Kb
     public static final String KEY_MAX_BUFFERQUEUE_SIZE_KB = "maxBufferQueueSizeKb";
     public static final int VAL_DEF_MAX_BUFFERQUEUE_SIZE_KB = 128 * 1024;
@@ -176,6 +181,7 @@ public class CommonConfigHolder {
     private long auditFormatInvlMs = VAL_DEF_AUDIT_FORMAT_INTERVAL_MS;
     private boolean responseAfterSave = VAL_DEF_RESPONSE_AFTER_SAVE;
     private long maxResAfterSaveTimeout = VAL_DEF_MAX_RAS_TIMEOUT_MS;
+    private int maxResAfterSaveInflight = VAL_DEF_MAX_RAS_INFLIGHT_PER_CONN;
     private boolean enableUnConfigTopicAccept = VAL_DEF_ENABLE_UNCONFIGURED_TOPIC_ACCEPT;
     private List<String> defaultTopics = Arrays.asList(VAL_DEFAULT_TOPIC);
     private boolean enableWhiteList = VAL_DEF_ENABLE_WHITELIST;
@@ -337,6 +343,10 @@ public class CommonConfigHolder {
         return maxResAfterSaveTimeout;
     }
 
+    public int getMaxResAfterSaveInflight() {
+        return maxResAfterSaveInflight;
+    }
+
     public int getMaxBufferQueueSizeKb() {
         return maxBufferQueueSizeKb;
     }
@@ -544,6 +554,14 @@ public class CommonConfigHolder {
         if (StringUtils.isNotEmpty(tmpValue)) {
             this.maxResAfterSaveTimeout = NumberUtils.toLong(tmpValue.trim(), VAL_DEF_MAX_RAS_TIMEOUT_MS);
         }
+        // read max in-flight response after save packages per connection
+        tmpValue = this.props.get(KEY_MAX_RAS_INFLIGHT_PER_CONN);
+        if (StringUtils.isNotEmpty(tmpValue)) {
+            int maxInflight = NumberUtils.toInt(tmpValue.trim(), VAL_DEF_MAX_RAS_INFLIGHT_PER_CONN);
+            if (maxInflight >= VAL_MIN_MAX_RAS_INFLIGHT_PER_CONN) {
+                this.maxResAfterSaveInflight = maxInflight;
+            }
+        }
         // read max bufferqueue size
         tmpValue = this.props.get(KEY_MAX_BUFFERQUEUE_SIZE_KB);
         if (StringUtils.isNotEmpty(tmpValue)) {
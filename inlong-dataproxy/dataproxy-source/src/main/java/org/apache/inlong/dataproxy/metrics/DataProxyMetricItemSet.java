@@ -17,16 +17,17 @@
 
 package org.apache.inlong.dataproxy.metrics;
 
+import org.apache.inlong.common.metric.DimensionKey;
 import org.apache.inlong.common.metric.MetricDomain;
 import org.apache.inlong.common.metric.MetricItemSet;
 import org.apache.inlong.common.msg.AttributeConstants;
 import org.apache.inlong.dataproxy.config.CommonConfigHolder;
 import org.apache.inlong.dataproxy.consts.ConfigConstants;
+import org.apache.inlong.dataproxy.metrics.audit.AuditUtils;
 
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.flume.Event;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -36,6 +37,32 @@ import java.util.Map;
 @MetricDomain(name = "DataProxy")
 public class DataProxyMetricItemSet extends MetricItemSet<DataProxyMetricItem> {
 
+    // the dimension schemas, the first 4 dimensions are shared
+    private static final int DIM_CLUSTER_ID = 0;
+    private static final int DIM_INLONG_GROUP_ID = 1;
+    private static final int DIM_INLONG_STREAM_ID = 2;
+    private static final int DIM_MESSAGE_TIME = 3;
+    private static final int DIM_MODULE_ID = 4;
+    private static final int DIM_MODULE_DATA_ID = 5;
+    private static final int DIM_SOURCE_ID = 6;
+    private static final int DIM_SOURCE_DATA_ID = 7;
+    private static final String[] SOURCE_DIMENSIONS = {
+            DataProxyMetricItem.KEY_CLUSTER_ID, DataProxyMetricItem.KEY_INLONG_GROUP_ID,
+            DataProxyMetricItem.KEY_INLONG_STREAM_ID, DataProxyMetricItem.KEY_MESSAGE_TIME,
+            DataProxyMetricItem.KEY_SOURCE_ID, DataProxyMetricItem.KEY_SOURCE_DATA_ID};
+    private static final String[] SINK_DIMENSIONS = {
+            DataProxyMetricItem.KEY_CLUSTER_ID, DataProxyMetricItem.KEY_INLONG_GROUP_ID,
+            DataProxyMetricItem.KEY_INLONG_STREAM_ID, DataProxyMetricItem.KEY_MESSAGE_TIME,
+            DataProxyMetricItem.KEY_SINK_ID, DataProxyMetricItem.KEY_SINK_DATA_ID};
+    // the sink dimensions with the source ids, used by the message queue zone sinks
+    private static final String[] ZONE_SINK_DIMENSIONS = {
+            DataProxyMetricItem.KEY_CLUSTER_ID, DataProxyMetricItem.KEY_INLONG_GROUP_ID,
+            DataProxyMetricItem.KEY_INLONG_STREAM_ID, DataProxyMetricItem.KEY_MESSAGE_TIME,
+            DataProxyMetricItem.KEY_SINK_ID, DataProxyMetricItem.KEY_SINK_DATA_ID,
+            DataProxyMetricItem.KEY_SOURCE_ID, DataProxyMetricItem.KEY_SOURCE_DATA_ID};
+    // the reused lookup keys of the threads
+    private static final ThreadLocal<DimensionProbe> PROBES =
+            ThreadLocal.withInitial(DimensionProbe::new);
     private String clusterId = null;
     private String sourceDataId = null;
 
@@ -96,6 +123,63 @@ public class DataProxyMetricItemSet extends MetricItemSet<DataProxyMetricItem> {
         fillMetricItemsByEvent(event, false, false, isSuccess, size, sentTime);
     }
 
+    /**
+     * Find the source metric item of the event, without building the dimension map
+     *
+     * @param clusterId     the cluster id
+     * @param sourceId      the source id
+     * @param sourceDataId  the source data id
+     * @param event         the event object, may be null
+     * @return the metric item
+     */
+    public DataProxyMetricItem findSourceMetricItem(String clusterId,
+            String sourceId, String sourceDataId, Event event) {
+        DimensionProbe probe = PROBES.get();
+        DimensionKey key = probe.sourceKey;
+        String inlongGroupId = null;
+        String inlongStreamId = null;
+        if (event != null) {
+            Map<String, String> headers = event.getHeaders();
+            inlongGroupId = DataProxyMetricItem.getInlongGroupId(headers);
+            inlongStreamId = DataProxyMetricItem.getInlongStreamId(headers);
+        }
+        long msgTime = AuditUtils.getLogTime(event);
+        long auditFormatTime = msgTime - msgTime % CommonConfigHolder.getInstance().getAuditFormatInvlMs();
+        key.set(DIM_CLUSTER_ID, clusterId)
+                .set(DIM_INLONG_GROUP_ID, inlongGroupId)
+                .set(DIM_INLONG_STREAM_ID, inlongStreamId)
+                .set(DIM_MESSAGE_TIME, probe.formatTime(auditFormatTime))
+                .set(DIM_MODULE_ID, sourceId)
+                .set(DIM_MODULE_DATA_ID, sourceDataId);
+        return findMetricItem(key);
+    }
+
+    /**
+     * Find the sink metric item of the message queue zone sinks, without building the dimension map
+     *
+     * @param clusterId         the cluster id
+     * @param inlongGroupId     the inlong group id
+     * @param inlongStreamId    the inlong stream id
+     * @param auditFormatTime   the message time aligned to the audit interval
+     * @param sinkId            the sink id
+     * @param sinkDataId        the sink data id
+     * @return the metric item
+     */
+    public DataProxyMetricItem findZoneSinkMetricItem(String clusterId, String inlongGroupId,
+            String inlongStreamId, long auditFormatTime, String sinkId, String sinkDataId) {
+        DimensionProbe probe = PROBES.get();
+        DimensionKey key = probe.zoneSinkKey;
+        key.set(DIM_CLUSTER_ID, clusterId)
+                .set(DIM_INLONG_GROUP_ID, inlongGroupId)
+                .set(DIM_INLONG_STREAM_ID, inlongStreamId)
+                .set(DIM_MESSAGE_TIME, probe.formatTime(auditFormatTime))
+                .set(DIM_MODULE_ID, sinkId)
+                .set(DIM_MODULE_DATA_ID, sinkDataId)
+                .set(DIM_SOURCE_ID, "-")
+                .set(DIM_SOURCE_DATA_ID, "-");
+        return findMetricItem(key);
+    }
+
     /**
      * Fill metric items by event
      *
@@ -108,28 +192,25 @@ public class DataProxyMetricItemSet extends MetricItemSet<DataProxyMetricItem> {
     private void fillMetricItemsByEvent(Event event, boolean isSource,
             boolean isReadOp, boolean isSuccess,
             long size, long sendTime) {
-        Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(DataProxyMetricItem.KEY_CLUSTER_ID, clusterId);
-        dimensions.put(DataProxyMetricItem.KEY_INLONG_GROUP_ID,
-                event.getHeaders().get(AttributeConstants.GROUP_ID));
-        dimensions.put(DataProxyMetricItem.KEY_INLONG_STREAM_ID,
-                event.getHeaders().get(AttributeConstants.STREAM_ID));
+        DimensionProbe probe = PROBES.get();
+        DimensionKey key = isSource ? probe.sourceKey : probe.sinkKey;
         long dataTime = NumberUtils.toLong(
                 event.getHeaders().get(AttributeConstants.DATA_TIME));
         long msgCount = NumberUtils.toLong(
                 event.getHeaders().get(ConfigConstants.MSG_COUNTER_KEY));
         long auditFormatTime =
                 dataTime - dataTime % CommonConfigHolder.getInstance().getAuditFormatInvlMs();
-        dimensions.put(DataProxyMetricItem.KEY_MESSAGE_TIME, String.valueOf(auditFormatTime));
+        key.set(DIM_CLUSTER_ID, clusterId)
+                .set(DIM_INLONG_GROUP_ID, event.getHeaders().get(AttributeConstants.GROUP_ID))
+                .set(DIM_INLONG_STREAM_ID, event.getHeaders().get(AttributeConstants.STREAM_ID))
+                .set(DIM_MESSAGE_TIME, probe.formatTime(auditFormatTime));
         if (isSource) {
-            dimensions.put(DataProxyMetricItem.KEY_SOURCE_ID, name);
-            dimensions.put(DataProxyMetricItem.KEY_SOURCE_DATA_ID, sourceDataId);
+            key.set(DIM_MODULE_ID, name).set(DIM_MODULE_DATA_ID, sourceDataId);
         } else {
-            dimensions.put(DataProxyMetricItem.KEY_SINK_ID, name);
-            dimensions.put(DataProxyMetricItem.KEY_SINK_DATA_ID,
-                    event.getHeaders().get(ConfigConstants.TOPIC_KEY));
+            key.set(DIM_MODULE_ID, name)
+                    .set(DIM_MODULE_DATA_ID, event.getHeaders().get(ConfigConstants.TOPIC_KEY));
         }
-        DataProxyMetricItem metricItem = findMetricItem(dimensions);
+        DataProxyMetricItem metricItem = findMetricItem(key);
         if (isReadOp) {
             if (isSuccess) {
                 metricItem.readSuccessCount.addAndGet(msgCount);
@@ -171,4 +252,25 @@ public class DataProxyMetricItemSet extends MetricItemSet<DataProxyMetricItem> {
         return new DataProxyMetricItem();
     }
 
+    /**
+     * The lookup keys of a thread
+     */
+    private static class DimensionProbe {
+
+        private final DimensionKey sourceKey = new DimensionKey(SOURCE_DIMENSIONS);
+        private final DimensionKey sinkKey = new DimensionKey(SINK_DIMENSIONS);
+        private final DimensionKey zoneSinkKey = new DimensionKey(ZONE_SINK_DIMENSIONS);
+        // the audit format time only changes once an interval, cache its string
+        private long lastFormatTime = Long.MIN_VALUE;
+        private String lastFormatTimeStr;
+
+        private String formatTime(long auditFormatTime) {
+            if (auditFormatTime != lastFormatTime) {
+                lastFormatTimeStr = String.valueOf(auditFormatTime);
+                lastFormatTime = auditFormatTime;
+            }
+            return lastFormatTimeStr;
+        }
+    }
+
 }
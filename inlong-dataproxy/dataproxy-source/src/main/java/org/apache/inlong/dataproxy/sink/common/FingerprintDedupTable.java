@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact de-duplication table of message sequence ids.
+ *
+ * The sequence ids are hashed to 128-bit fingerprints, stored in primitive
+ * open-addressing tables, so no object is kept per message. Each segment
+ * keeps a ring of time buckets, the expired fingerprints are dropped by
+ * clearing the whole oldest bucket, and the oldest bucket is also dropped
+ * when the current bucket is full. The slots of a bucket are allocated when
+ * the bucket is first used, and the removed fingerprints left as tombstones
+ * are dropped with the bucket, or by compacting the current bucket when the
+ * tombstones fill it.
+ *
+ * Only the first 64 bits are used to locate the fingerprint, a match of
+ * the first 64 bits with different last 64 bits is counted as a collision,
+ * which would have been a false positive of a 64-bit fingerprint.
+ */
+public class FingerprintDedupTable {
+
+    // the reserved first fingerprint values of the empty and the deleted slots
+    private static final long EMPTY_SLOT = 0L;
+    private static final long DELETED_SLOT = 1L;
+    private static final int SEGMENT_CNT = 16;
+    private static final int BUCKET_CNT = 4;
+    // max entries per table slots
+    private static final float MAX_LOAD_FACTOR = 0.75f;
+    private final long bucketSpanMs;
+    private final Segment[] segments = new Segment[SEGMENT_CNT];
+    // statistic items
+    private final AtomicLong lookupCnt = new AtomicLong(0);
+    private final AtomicLong dupHitCnt = new AtomicLong(0);
+    private final AtomicLong collisionCnt = new AtomicLong(0);
+    private final AtomicLong fullRotateCnt = new AtomicLong(0);
+
+    /**
+     * Constructor
+     *
+     * @param maxSurviveTimeMs  the min time that the fingerprint survives
+     * @param maxSurviveSize    the max fingerprints kept in the survive time
+     */
+    public FingerprintDedupTable(long maxSurviveTimeMs, int maxSurviveSize) {
+        // the live buckets except the current one cover the survive time
+        this.bucketSpanMs = Math.max(1L, maxSurviveTimeMs / (BUCKET_CNT - 1));
+        // reserve 1/8 more entries for the unbalanced segments
+        int maxBucketEntries = Math.max(16, (int) Math.ceil(
+                (double) maxSurviveSize * 9 / 8 / SEGMENT_CNT / (BUCKET_CNT - 1)));
+        int slotCnt = (int) Math.ceil(maxBucketEntries / MAX_LOAD_FACTOR);
+        long currTime = System.currentTimeMillis();
+        for (int i = 0; i < SEGMENT_CNT; i++) {
+            segments[i] = new Segment(slotCnt, maxBucketEntries, currTime);
+        }
+    }
+
+    /**
+     * Check whether the sequence id exists, and put it in the table.
+     *
+     * @param msgSeqId  the message sequence id
+     * @return whether the sequence id exists
+     */
+    public boolean checkAndPut(String msgSeqId) {
+        long fp1 = fingerprint1(msgSeqId);
+        long fp2 = fingerprint2(msgSeqId, fp1);
+        lookupCnt.incrementAndGet();
+        boolean isInclude = getSegment(fp1)
+                .checkAndPut(fp1, fp2, System.currentTimeMillis());
+        if (isInclude) {
+            dupHitCnt.incrementAndGet();
+        }
+        return isInclude;
+    }
+
+    /**
+     * Remove the sequence id from the table.
+     *
+     * @param msgSeqId  the message sequence id
+     */
+    public void remove(String msgSeqId) {
+        long fp1 = fingerprint1(msgSeqId);
+        getSegment(fp1).remove(fp1, fingerprint2(msgSeqId, fp1));
+    }
+
+    public long getLookupCnt() {
+        return lookupCnt.get();
+    }
+
+    public long getDupHitCnt() {
+        return dupHitCnt.get();
+    }
+
+    public long getCollisionCnt() {
+        return collisionCnt.get();
+    }
+
+    public long getFullRotateCnt() {
+        return fullRotateCnt.get();
+    }
+
+    /**
+     * Get the count of the slots probed by the lookups.
+     *
+     * @return the probed slot count
+     */
+    public long getProbeCnt() {
+        long probeCnt = 0;
+        for (Segment segment : segments) {
+            probeCnt += segment.getProbeCnt();
+        }
+        return probeCnt;
+    }
+
+    /**
+     * Get the count of the kept fingerprints.
+     *
+     * @return the fingerprint count, including the refreshed copies
+     */
+    public long getEntryCnt() {
+        long entryCnt = 0;
+        for (Segment segment : segments) {
+            entryCnt += segment.getEntryCnt();
+        }
+        return entryCnt;
+    }
+
+    /**
+     * Get the expected false positive rate of a lookup, the probability
+     * that the 128-bit fingerprint matches one of the kept fingerprints.
+     *
+     * @return the expected false positive rate
+     */
+    public double getExpectFalsePositiveRate() {
+        return getEntryCnt() / Math.pow(2, 128);
+    }
+
+    /**
+     * Get the slots memory of the table.
+     *
+     * @return the memory size in bytes
+     */
+    public long getMemorySize() {
+        long memorySize = 0;
+        for (Segment segment : segments) {
+            memorySize += segment.getMemorySize();
+        }
+        return memorySize;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(256).append("FingerprintDedupTable{lookupCnt=")
+                .append(lookupCnt.get()).append(", dupHitCnt=").append(dupHitCnt.get())
+                .append(", collisionCnt=").append(collisionCnt.get())
+                .append(", fullRotateCnt=").append(fullRotateCnt.get())
+                .append(", probeCnt=").append(getProbeCnt())
+                .append(", entryCnt=").append(getEntryCnt())
+                .append(", expectFalsePositiveRate=").append(getExpectFalsePositiveRate())
+                .append(", memorySize=").append(getMemorySize()).append("}").toString();
+    }
+
+    private Segment getSegment(long fingerprint1) {
+        return segments[(int) (fingerprint1 >>> 60) & (SEGMENT_CNT - 1)];
+    }
+
+    /**
+     * Hash the sequence id to the first 64 bits of the fingerprint,
+     * never equals to the reserved slot values.
+     */
+    static long fingerprint1(String msgSeqId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < msgSeqId.length(); i++) {
+            h = (h ^ msgSeqId.charAt(i)) * 0x100000001b3L;
+        }
+        h = fmix64(h);
+        if (h == EMPTY_SLOT || h == DELETED_SLOT) {
+            h += 2;
+        }
+        return h;
+    }
+
+    /**
+     * Hash the sequence id to the last 64 bits of the fingerprint.
+     */
+    static long fingerprint2(String msgSeqId, long fp1) {
+        long h = msgSeqId.length();
+        for (int i = 0; i < msgSeqId.length(); i++) {
+            h = h * 0x9e3779b97f4a7c15L + msgSeqId.charAt(i);
+        }
+        return fmix64(h ^ fp1);
+    }
+
+    // MurmurHash3 64-bit finalizer
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * The bucket ring of a part of the fingerprints
+     */
+    private class Segment {
+
+        private final int slotCnt;
+        private final int maxBucketEntries;
+        // the fingerprints of the buckets, 2 longs per slot, null until used
+        private final long[][] buckets = new long[BUCKET_CNT][];
+        private final int[] entryCnts = new int[BUCKET_CNT];
+        // the count of the tombstones left by the removed fingerprints
+        private final int[] deletedCnts = new int[BUCKET_CNT];
+        private int curBucket = 0;
+        private long curBucketStartTime;
+        private long probeCnt = 0;
+
+        Segment(int slotCnt, int maxBucketEntries, long currTime) {
+            this.slotCnt = slotCnt;
+            this.maxBucketEntries = maxBucketEntries;
+            this.curBucketStartTime = currTime;
+        }
+
+        synchronized boolean checkAndPut(long fp1, long fp2, long currTime) {
+            rotateIfExpired(currTime);
+            // search from the newest bucket
+            for (int i = 0; i < BUCKET_CNT; i++) {
+                int bucketIdx = (curBucket - i + BUCKET_CNT) % BUCKET_CNT;
+                if (entryCnts[bucketIdx] > 0
+                        && find(buckets[bucketIdx], fp1, fp2) >= 0) {
+                    if (i > 0) {
+                        // refresh the access time as the fingerprint is accessed again
+                        put(fp1, fp2);
+                    }
+                    return true;
+                }
+            }
+            put(fp1, fp2);
+            return false;
+        }
+
+        synchronized void remove(long fp1, long fp2) {
+            for (int i = 0; i < BUCKET_CNT; i++) {
+                if (entryCnts[i] == 0) {
+                    continue;
+                }
+                int slot = find(buckets[i], fp1, fp2);
+                if (slot >= 0) {
+                    buckets[i][slot] = DELETED_SLOT;
+                    buckets[i][slot + 1] = 0L;
+                    entryCnts[i]--;
+                    deletedCnts[i]++;
+                }
+            }
+        }
+
+        synchronized long getProbeCnt() {
+            return probeCnt;
+        }
+
+        synchronized long getMemorySize() {
+            long memorySize = 0;
+            for (long[] slots : buckets) {
+                if (slots != null) {
+                    memorySize += (long) slots.length * Long.BYTES;
+                }
+            }
+            return memorySize;
+        }
+
+        synchronized long getEntryCnt() {
+            long entryCnt = 0;
+            for (int cnt : entryCnts) {
+                entryCnt += cnt;
+            }
+            return entryCnt;
+        }
+
+        private void rotateIfExpired(long currTime) {
+            long elapsed = currTime - curBucketStartTime;
+            if (elapsed < bucketSpanMs) {
+                return;
+            }
+            long steps = Math.min(elapsed / bucketSpanMs, BUCKET_CNT);
+            for (int i = 0; i < steps; i++) {
+                rotate();
+            }
+            curBucketStartTime = currTime - (elapsed % bucketSpanMs);
+        }
+
+        private void rotate() {
+            curBucket = (curBucket + 1) % BUCKET_CNT;
+            // drop the oldest bucket as a whole, with its tombstones
+            if (entryCnts[curBucket] > 0 || deletedCnts[curBucket] > 0) {
+                Arrays.fill(buckets[curBucket], 0L);
+                entryCnts[curBucket] = 0;
+                deletedCnts[curBucket] = 0;
+            }
+        }
+
+        private void put(long fp1, long fp2) {
+            if (entryCnts[curBucket] >= maxBucketEntries) {
+                fullRotateCnt.incrementAndGet();
+                rotate();
+            } else if (entryCnts[curBucket] + deletedCnts[curBucket] >= maxBucketEntries) {
+                compact();
+            }
+            if (buckets[curBucket] == null) {
+                buckets[curBucket] = new long[slotCnt * 2];
+            }
+            insert(buckets[curBucket], fp1, fp2);
+        }
+
+        /**
+         * Insert the fingerprint into the first free slot of the current bucket.
+         */
+        private void insert(long[] slots, long fp1, long fp2) {
+            int index = startSlot(fp1);
+            while (true) {
+                long value = slots[index * 2];
+                if (value == EMPTY_SLOT || value == DELETED_SLOT) {
+                    if (value == DELETED_SLOT) {
+                        deletedCnts[curBucket]--;
+                    }
+                    slots[index * 2] = fp1;
+                    slots[index * 2 + 1] = fp2;
+                    entryCnts[curBucket]++;
+                    return;
+                }
+                index = nextSlot(index);
+            }
+        }
+
+        /**
+         * Re-insert the fingerprints of the current bucket to drop its tombstones.
+         */
+        private void compact() {
+            long[] oldSlots = buckets[curBucket];
+            buckets[curBucket] = new long[slotCnt * 2];
+            entryCnts[curBucket] = 0;
+            deletedCnts[curBucket] = 0;
+            for (int i = 0; i < oldSlots.length; i += 2) {
+                if (oldSlots[i] != EMPTY_SLOT && oldSlots[i] != DELETED_SLOT) {
+                    insert(buckets[curBucket], oldSlots[i], oldSlots[i + 1]);
+                }
+            }
+        }
+
+        /**
+         * Find the fingerprint in the bucket.
+         *
+         * @return the position of the fingerprint, -1 if not found
+         */
+        private int find(long[] slots, long fp1, long fp2) {
+            int index = startSlot(fp1);
+            for (int probe = 0; probe < slotCnt; probe++) {
+                probeCnt++;
+                long value = slots[index * 2];
+                if (value == EMPTY_SLOT) {
+                    return -1;
+                }
+                if (value == fp1) {
+                    if (slots[index * 2 + 1] == fp2) {
+                        return index * 2;
+                    }
+                    collisionCnt.incrementAndGet();
+                }
+                index = nextSlot(index);
+            }
+            return -1;
+        }
+
+        private int startSlot(long fp1) {
+            // map the low 32 bits to the slots, the slot count is not a power of 2
+            return (int) (((fp1 & 0xFFFFFFFFL) * slotCnt) >>> 32);
+        }
+
+        private int nextSlot(int index) {
+            return (index + 1 == slotCnt) ? 0 : index + 1;
+        }
+    }
+}
@@ -17,17 +17,13 @@
 
 package org.apache.inlong.dataproxy.sink.common;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
 import com.google.common.cache.CacheStats;
-import com.google.common.cache.LoadingCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-// message deduplication handler
+// message deduplication handler, the sequence ids are kept as fingerprints
 public class MsgDedupHandler {
 
     private static final Logger logger =
@@ -36,7 +32,7 @@ public class MsgDedupHandler {
     private static final int DEF_MAX_SURVIVE_TIME_MS = 30000;
     private final AtomicBoolean started = new AtomicBoolean(false);
     private volatile boolean enableDataDedup;
-    private LoadingCache<String, Long> msgSeqIdCache = null;
+    private FingerprintDedupTable msgSeqIdTable = null;
 
     public MsgDedupHandler() {
         enableDataDedup = false;
@@ -54,55 +50,71 @@ public class MsgDedupHandler {
                 if (maxSurviveSize < 0) {
                     maxSurviveSize = DEF_MAX_SURVIVE_CNT_SIZE;
                 }
-                msgSeqIdCache = CacheBuilder
-                        .newBuilder().concurrencyLevel(4 * 8).initialCapacity(5000000)
-                        .expireAfterAccess(maxSurviveTime, TimeUnit.MILLISECONDS)
-                        .maximumSize(maxSurviveSize)
-                        .build(new CacheLoader<String, Long>() {
-
-                            @Override
-                            public Long load(String key) {
-                                return System.currentTimeMillis();
-                            }
-                        });
+                msgSeqIdTable = new FingerprintDedupTable(maxSurviveTime, maxSurviveSize);
             }
             logger.info("Initial message deduplication handler, enable = "
                     + this.enableDataDedup + ", configured survived-time = "
                     + cfgMaxSurviveTime + ", valid survived-time = "
                     + maxSurviveTime + ", configured survived-size = "
                     + cfgMaxSurviveSize + ", valid survived-size = "
-                    + maxSurviveSize);
+                    + maxSurviveSize + ", table memory size = "
+                    + (this.enableDataDedup ? msgSeqIdTable.getMemorySize() : 0));
         }
     }
 
     public void invalidMsgSeqId(String msgSeqId) {
         if (enableDataDedup && msgSeqId != null) {
-            if (msgSeqIdCache.asMap().containsKey(msgSeqId)) {
-                msgSeqIdCache.invalidate(msgSeqId);
-            }
+            msgSeqIdTable.remove(msgSeqId);
         }
     }
 
     public boolean judgeDupAndPutMsgSeqId(String msgSeqId) {
         boolean isInclude = false;
         if (enableDataDedup && msgSeqId != null) {
-            isInclude = msgSeqIdCache.asMap().containsKey(msgSeqId);
-            msgSeqIdCache.put(msgSeqId, System.currentTimeMillis());
+            isInclude = msgSeqIdTable.checkAndPut(msgSeqId);
         }
         return isInclude;
     }
 
     public String getCacheStatsInfo() {
         if (enableDataDedup) {
-            return msgSeqIdCache.stats().toString();
+            return msgSeqIdTable.toString();
         }
         return "Disable for message data deduplication function";
     }
 
     public CacheStats getCacheData() {
         if (enableDataDedup) {
-            return msgSeqIdCache.stats();
+            long lookupCnt = msgSeqIdTable.getLookupCnt();
+            long dupHitCnt = msgSeqIdTable.getDupHitCnt();
+            return new CacheStats(dupHitCnt, lookupCnt - dupHitCnt,
+                    0, 0, 0, msgSeqIdTable.getFullRotateCnt());
         }
         return null;
     }
+
+    /**
+     * Get the count of the fingerprint collisions, which would have been
+     * false positives if only 64-bit fingerprints were kept.
+     *
+     * @return the collision count, 0 if disabled
+     */
+    public long getFingerprintCollisionCnt() {
+        if (enableDataDedup) {
+            return msgSeqIdTable.getCollisionCnt();
+        }
+        return 0L;
+    }
+
+    /**
+     * Get the expected false positive rate of a de-duplication check.
+     *
+     * @return the expected rate, 0 if disabled
+     */
+    public double getExpectFalsePositiveRate() {
+        if (enableDataDedup) {
+            return msgSeqIdTable.getExpectFalsePositiveRate();
+        }
+        return 0.0;
+    }
 }
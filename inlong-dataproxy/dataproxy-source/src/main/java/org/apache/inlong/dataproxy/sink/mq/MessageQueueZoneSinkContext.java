@@ -31,7 +31,6 @@ import org.apache.flume.Channel;
 import org.apache.flume.Context;
 import org.apache.flume.conf.Configurable;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -141,21 +140,16 @@ public class MessageQueueZoneSinkContext extends SinkContext {
             return;
         }
         BatchPackProfile batchProfile = (BatchPackProfile) currentRecord;
-        Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(DataProxyMetricItem.KEY_CLUSTER_ID, this.getProxyClusterId());
-        dimensions.put(DataProxyMetricItem.KEY_SOURCE_ID, "-");
-        dimensions.put(DataProxyMetricItem.KEY_SOURCE_DATA_ID, "-");
-        // metric
-        fillInlongId(batchProfile, dimensions);
-        dimensions.put(DataProxyMetricItem.KEY_SINK_ID, mqName);
-        dimensions.put(DataProxyMetricItem.KEY_SINK_DATA_ID, topic);
+        String inlongGroupId = getDimensionValue(batchProfile.getInlongGroupId());
+        String inlongStreamId = getDimensionValue(batchProfile.getInlongStreamId());
         final long currentTime = System.currentTimeMillis();
         batchProfile.getEvents().forEach(event -> {
             long msgTime = event.getMsgTime();
             long auditFormatTime =
                     msgTime - msgTime % CommonConfigHolder.getInstance().getAuditFormatInvlMs();
-            dimensions.put(DataProxyMetricItem.KEY_MESSAGE_TIME, String.valueOf(auditFormatTime));
-            DataProxyMetricItem metricItem = this.getMetricItemSet().findMetricItem(dimensions);
+            DataProxyMetricItem metricItem = this.getMetricItemSet().findZoneSinkMetricItem(
+                    this.getProxyClusterId(), inlongGroupId, inlongStreamId,
+                    auditFormatTime, mqName, topic);
             if (result) {
                 metricItem.sendSuccessCount.addAndGet(1);
                 metricItem.sendSuccessSize.addAndGet(event.getBody().length);
@@ -179,19 +173,12 @@ public class MessageQueueZoneSinkContext extends SinkContext {
      * addSendMetric
      */
     public void addSendMetric(PackProfile currentRecord, String mqName, String topic, int sendPackSize) {
-        Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(DataProxyMetricItem.KEY_CLUSTER_ID, this.getProxyClusterId());
-        dimensions.put(DataProxyMetricItem.KEY_SOURCE_ID, "-");
-        dimensions.put(DataProxyMetricItem.KEY_SOURCE_DATA_ID, "-");
-        // metric
-        fillInlongId(currentRecord, dimensions);
-        dimensions.put(DataProxyMetricItem.KEY_SINK_ID, mqName);
-        dimensions.put(DataProxyMetricItem.KEY_SINK_DATA_ID, topic);
         long msgTime = currentRecord.getDispatchTime();
         long auditFormatTime =
                 msgTime - msgTime % CommonConfigHolder.getInstance().getAuditFormatInvlMs();
-        dimensions.put(DataProxyMetricItem.KEY_MESSAGE_TIME, String.valueOf(auditFormatTime));
-        DataProxyMetricItem metricItem = this.getMetricItemSet().findMetricItem(dimensions);
+        DataProxyMetricItem metricItem = this.getMetricItemSet().findZoneSinkMetricItem(
+                this.getProxyClusterId(), getDimensionValue(currentRecord.getInlongGroupId()),
+                getDimensionValue(currentRecord.getInlongStreamId()), auditFormatTime, mqName, topic);
         long count = currentRecord.getCount();
         long size = currentRecord.getSize();
         metricItem.sendCount.addAndGet(count);
@@ -204,23 +191,22 @@ public class MessageQueueZoneSinkContext extends SinkContext {
      * addReadFailMetric
      */
     public void addSendFailMetric() {
-        Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(DataProxyMetricItem.KEY_CLUSTER_ID, this.getProxyClusterId());
-        dimensions.put(DataProxyMetricItem.KEY_SOURCE_ID, "-");
-        dimensions.put(DataProxyMetricItem.KEY_SOURCE_DATA_ID, "-");
-        dimensions.put(DataProxyMetricItem.KEY_INLONG_GROUP_ID, "-");
-        dimensions.put(DataProxyMetricItem.KEY_INLONG_STREAM_ID, "-");
-        dimensions.put(DataProxyMetricItem.KEY_SINK_ID, this.getSinkName());
-        dimensions.put(DataProxyMetricItem.KEY_SINK_DATA_ID, "-");
         long msgTime = System.currentTimeMillis();
         long auditFormatTime =
                 msgTime - msgTime % CommonConfigHolder.getInstance().getAuditFormatInvlMs();
-        dimensions.put(DataProxyMetricItem.KEY_MESSAGE_TIME, String.valueOf(auditFormatTime));
-        DataProxyMetricItem metricItem = this.getMetricItemSet().findMetricItem(dimensions);
+        DataProxyMetricItem metricItem = this.getMetricItemSet().findZoneSinkMetricItem(
+                this.getProxyClusterId(), "-", "-", auditFormatTime, this.getSinkName(), "-");
         metricItem.sendFailCount.incrementAndGet();
         metricItem.sendFailSize.incrementAndGet();
     }
 
+    /**
+     * get the dimension value, "-" if blank
+     */
+    private static String getDimensionValue(String value) {
+        return StringUtils.isBlank(value) ? "-" : value;
+    }
+
     /**
      * fillInlongId
      */
@@ -58,7 +58,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Constructor;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -460,13 +459,8 @@ public abstract class BaseSource
      * @param event
      */
     public void addMetric(boolean result, long size, Event event) {
-        Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(DataProxyMetricItem.KEY_CLUSTER_ID, CommonConfigHolder.getInstance().getClusterName());
-        dimensions.put(DataProxyMetricItem.KEY_SOURCE_ID, this.cachedSrcName);
-        dimensions.put(DataProxyMetricItem.KEY_SOURCE_DATA_ID, getStrPort());
-        DataProxyMetricItem.fillInlongId(event, dimensions);
-        DataProxyMetricItem.fillAuditFormatTime(event, dimensions);
-        DataProxyMetricItem metricItem = metricItemSet.findMetricItem(dimensions);
+        DataProxyMetricItem metricItem = metricItemSet.findSourceMetricItem(
+                CommonConfigHolder.getInstance().getClusterName(), this.cachedSrcName, getStrPort(), event);
         if (result) {
             metricItem.readSuccessCount.incrementAndGet();
             metricItem.readSuccessSize.addAndGet(size);
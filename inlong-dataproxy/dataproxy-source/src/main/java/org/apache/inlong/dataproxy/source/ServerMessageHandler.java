@@ -54,7 +54,6 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import static org.apache.inlong.dataproxy.source.ServerMessageFactory.INLONG_LENGTH_FIELD_LENGTH;
 import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_HB_ATTRLEN_SIZE;
@@ -340,7 +339,7 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
         }
         // process
         if (CommonConfigHolder.getInstance().isResponseAfterSave()) {
-            this.processAndWaitingSave(ctx, packObject, events);
+            this.processAndResponseAfterSave(ctx, packObject, events);
         } else {
             this.processAndResponse(ctx, packObject, events);
         }
@@ -376,20 +375,23 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
     }
 
     /**
-     * processAndWaitingSave
+     * processAndResponseAfterSave, the response is sent by the callback
+     * after the events saved, without blocking the event loop
      * @param ctx
      * @param packObject
      * @param events
      * @throws Exception
      */
-    private void processAndWaitingSave(ChannelHandlerContext ctx,
+    private void processAndResponseAfterSave(ChannelHandlerContext ctx,
             ProxySdk.MessagePack packObject,
             List<ProxyEvent> events) throws Exception {
         ProxySdk.MessagePackHeader header = packObject.getHeader();
-        InlongTcpSourceCallback callback = new InlongTcpSourceCallback(ctx, header);
+        InlongTcpSourceCallback callback = new InlongTcpSourceCallback(ctx, header,
+                CommonConfigHolder.getInstance().getMaxResAfterSaveInflight());
         String inlongGroupId = header.getInlongGroupId();
         String inlongStreamId = header.getInlongStreamId();
         ProxyPackEvent packEvent = new ProxyPackEvent(inlongGroupId, inlongStreamId, events, callback);
+        callback.start(CommonConfigHolder.getInstance().getMaxResAfterSaveTimeout());
         // put to channel
         try {
             source.getCachedChProcessor().processEvent(packEvent);
@@ -397,22 +399,13 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
                 source.addMetric(true, event.getBody().length, event);
                 source.fileMetricIncSumStats(StatConstants.EVENT_MSG_V1_POST_SUCCESS);
             });
-            boolean awaitResult = callback.getLatch().await(
-                    CommonConfigHolder.getInstance().getMaxResAfterSaveTimeout(), TimeUnit.MILLISECONDS);
-            if (!awaitResult) {
-                if (!callback.getHasResponsed().getAndSet(true)) {
-                    this.responsePackage(ctx, ProxySdk.ResultCode.ERR_REJECT, packObject);
-                }
-            }
         } catch (Throwable ex) {
             logger.error("Process Controller Event error can't write event to channel.", ex);
             events.forEach(event -> {
                 source.addMetric(false, event.getBody().length, event);
                 source.fileMetricIncSumStats(StatConstants.EVENT_MSG_V1_POST_DROPPED);
             });
-            if (!callback.getHasResponsed().getAndSet(true)) {
-                this.responsePackage(ctx, ProxySdk.ResultCode.ERR_REJECT, packObject);
-            }
+            callback.callback(ProxySdk.ResultCode.ERR_REJECT);
         }
     }
 
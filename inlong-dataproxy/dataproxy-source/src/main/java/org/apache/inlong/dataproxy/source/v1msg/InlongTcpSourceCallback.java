@@ -27,35 +27,78 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * InlongTcpEventCallback
+ *
+ * Writes the response from the sink's completion callback, the event loop
+ * is not blocked while the package is being saved. The package is rejected
+ * if not saved in time, and the connection stops reading while too many
+ * of its packages are waiting for the save result.
  */
 public class InlongTcpSourceCallback implements SourceCallback {
 
     private static final Logger logger = LoggerFactory.getLogger(InlongTcpSourceCallback.class);
     // log print count
     private static final LogCounter logCounter = new LogCounter(10, 100000, 30 * 1000);
+    // the packages waiting for the save result of a connection
+    private static final AttributeKey<AtomicInteger> INFLIGHT_KEY =
+            AttributeKey.valueOf("rasInflightCount");
+    // the timer of the save timeout, shared by all connections
+    private static final Timer TIMEOUT_TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("ras-timeout-timer", true),
+            10, TimeUnit.MILLISECONDS, 512);
     private final ChannelHandlerContext ctx;
     private final MessagePackHeader header;
-    private final CountDownLatch latch;
+    private final int maxInflight;
+    private final AtomicInteger inflightCount;
     private final AtomicBoolean hasResponsed = new AtomicBoolean(false);
+    private volatile Timeout timeout;
 
     /**
      * Constructor
      *
      * @param ctx the channel context
      * @param header the message pack header
+     * @param maxInflight the max packages waiting for the save result of the connection
      */
-    public InlongTcpSourceCallback(ChannelHandlerContext ctx, MessagePackHeader header) {
+    public InlongTcpSourceCallback(ChannelHandlerContext ctx,
+            MessagePackHeader header, int maxInflight) {
         this.ctx = ctx;
         this.header = header;
-        this.latch = new CountDownLatch(1);
+        this.maxInflight = maxInflight;
+        this.inflightCount = getInflightCount(ctx.channel());
+    }
+
+    /**
+     * Start waiting for the save result, must be called before the package
+     * is put to the channel processor.
+     *
+     * @param timeoutMs the max wait time, the package is rejected after that
+     */
+    public void start(long timeoutMs) {
+        if (this.inflightCount.incrementAndGet() >= this.maxInflight) {
+            // stop reading until the pending packages are responded
+            ctx.channel().config().setAutoRead(false);
+        }
+        this.timeout = TIMEOUT_TIMER.newTimeout(
+                t -> callback(ResultCode.ERR_REJECT), timeoutMs, TimeUnit.MILLISECONDS);
+        // the result may arrive before the timeout is set
+        if (this.hasResponsed.get()) {
+            this.timeout.cancel();
+        }
     }
 
     /**
@@ -70,6 +113,15 @@ public class InlongTcpSourceCallback implements SourceCallback {
         if (this.hasResponsed.getAndSet(true)) {
             return;
         }
+        Timeout curTimeout = this.timeout;
+        if (curTimeout != null) {
+            curTimeout.cancel();
+        }
+        Channel remoteChannel = ctx.channel();
+        if (this.inflightCount.decrementAndGet() <= this.maxInflight / 2
+                && !remoteChannel.config().isAutoRead()) {
+            remoteChannel.config().setAutoRead(true);
+        }
         // response
         try {
             ResponseInfo.Builder builder = ResponseInfo.newBuilder();
@@ -80,9 +132,8 @@ public class InlongTcpSourceCallback implements SourceCallback {
             byte[] responseBytes = builder.build().toByteArray();
             //
             ByteBuf buffer = Unpooled.wrappedBuffer(responseBytes);
-            Channel remoteChannel = ctx.channel();
             if (remoteChannel.isWritable()) {
-                remoteChannel.write(buffer);
+                remoteChannel.writeAndFlush(buffer);
             } else {
                 if (logCounter.shouldPrint()) {
                     logger.warn("the send buffer2 is full, so disconnect it!"
@@ -95,9 +146,6 @@ public class InlongTcpSourceCallback implements SourceCallback {
             if (logCounter.shouldPrint()) {
                 logger.error("Send response failure", e);
             }
-        } finally {
-            // notice TCP session
-            this.latch.countDown();
         }
     }
 
@@ -111,12 +159,24 @@ public class InlongTcpSourceCallback implements SourceCallback {
     }
 
     /**
-     * get latch
+     * get the packages waiting for the save result of the connection
      *
-     * @return the latch
+     * @return the in-flight count
      */
-    public CountDownLatch getLatch() {
-        return latch;
+    public int getInflightCount() {
+        return inflightCount.get();
     }
 
+    private static AtomicInteger getInflightCount(Channel channel) {
+        Attribute<AtomicInteger> attribute = channel.attr(INFLIGHT_KEY);
+        AtomicInteger count = attribute.get();
+        if (count == null) {
+            AtomicInteger tmpCount = new AtomicInteger(0);
+            count = attribute.setIfAbsent(tmpCount);
+            if (count == null) {
+                count = tmpCount;
+            }
+        }
+        return count;
+    }
 }
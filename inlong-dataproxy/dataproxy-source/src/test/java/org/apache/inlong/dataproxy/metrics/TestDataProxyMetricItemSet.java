@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * 
@@ -168,4 +169,29 @@ public class TestDataProxyMetricItemSet {
             Set<ObjectInstance> mbeans = mbs.queryMBeans(objName, null);
         }
     }
+
+    /**
+     * testZoneSinkMetricItem
+     */
+    @Test
+    public void testZoneSinkMetricItem() {
+        DataProxyMetricItemSet zoneSinkSet = new DataProxyMetricItemSet(CLUSTER_ID, "zone-sink");
+        DataProxyMetricItem item = zoneSinkSet.findZoneSinkMetricItem(CLUSTER_ID,
+                INLONG_GROUP_ID1, "-", 1000L, SINK_ID, SINK_DATA_ID);
+        item.sendCount.addAndGet(20);
+        item.sendSize.addAndGet(2000);
+        assertSame(item, zoneSinkSet.findZoneSinkMetricItem(CLUSTER_ID,
+                INLONG_GROUP_ID1, "-", 1000L, SINK_ID, SINK_DATA_ID));
+        Map<String, String> dimensions = item.getDimensions();
+        assertEquals(SINK_ID, dimensions.get(DataProxyMetricItem.KEY_SINK_ID));
+        assertEquals(SINK_DATA_ID, dimensions.get(DataProxyMetricItem.KEY_SINK_DATA_ID));
+        assertEquals("-", dimensions.get(DataProxyMetricItem.KEY_SOURCE_ID));
+        assertEquals("1000", dimensions.get(DataProxyMetricItem.KEY_MESSAGE_TIME));
+        // the keyed item is reported by the snapshot
+        List<MetricItem> items = zoneSinkSet.snapshot();
+        assertEquals(1, items.size());
+        Map<String, MetricValue> metricMap = items.get(0).snapshot();
+        assertEquals(20, metricMap.get("sendCount").value);
+        assertEquals(2000, metricMap.get("sendSize").value);
+    }
 }
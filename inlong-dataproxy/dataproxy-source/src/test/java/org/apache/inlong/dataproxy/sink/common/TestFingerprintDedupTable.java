@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link FingerprintDedupTable}
+ */
+public class TestFingerprintDedupTable {
+
+    @Test
+    public void testCheckAndPut() {
+        FingerprintDedupTable table = new FingerprintDedupTable(60000L, 30000);
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertFalse(table.checkAndPut("group#stream#" + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertTrue(table.checkAndPut("group#stream#" + i));
+        }
+        Assert.assertEquals(10000, table.getLookupCnt());
+        Assert.assertEquals(5000, table.getDupHitCnt());
+        Assert.assertEquals(5000, table.getEntryCnt());
+        Assert.assertEquals(0, table.getCollisionCnt());
+        Assert.assertEquals(0, table.getFullRotateCnt());
+    }
+
+    @Test
+    public void testRemove() {
+        FingerprintDedupTable table = new FingerprintDedupTable(60000L, 10000);
+        Assert.assertFalse(table.checkAndPut("seq-1"));
+        Assert.assertFalse(table.checkAndPut("seq-2"));
+        table.remove("seq-1");
+        Assert.assertFalse(table.checkAndPut("seq-1"));
+        Assert.assertTrue(table.checkAndPut("seq-2"));
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        FingerprintDedupTable table = new FingerprintDedupTable(30L, 10000);
+        Assert.assertFalse(table.checkAndPut("seq-1"));
+        // the fingerprint is dropped with the whole bucket after all buckets rotated
+        Thread.sleep(200L);
+        Assert.assertFalse(table.checkAndPut("seq-1"));
+        Assert.assertEquals(1, table.getEntryCnt());
+    }
+
+    @Test
+    public void testRotateRemovedBucket() throws Exception {
+        FingerprintDedupTable table = new FingerprintDedupTable(300L, 30000);
+        // the slots are allocated when a bucket is first used
+        Assert.assertEquals(0, table.getMemorySize());
+        for (int i = 0; i < 5000; i++) {
+            table.checkAndPut("seq-" + i);
+        }
+        for (int i = 0; i < 5000; i++) {
+            table.remove("seq-" + i);
+        }
+        Assert.assertEquals(0, table.getEntryCnt());
+        // rotate through all the buckets, back to the bucket of the removed ids
+        Thread.sleep(500L);
+        long probeCnt = table.getProbeCnt();
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertFalse(table.checkAndPut("new-seq-" + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertTrue(table.checkAndPut("new-seq-" + i));
+        }
+        // the tombstones are dropped with the bucket, the lookups stay short
+        Assert.assertTrue(table.toString(), table.getProbeCnt() - probeCnt < 5000 * 2 * 2);
+    }
+
+    @Test
+    public void testCompactTombstones() {
+        FingerprintDedupTable table = new FingerprintDedupTable(60000L, 30000);
+        for (int round = 0; round < 60; round++) {
+            for (int i = 0; i < 500; i++) {
+                Assert.assertFalse(table.checkAndPut("seq-" + round + "-" + i));
+            }
+            for (int i = 0; i < 500; i++) {
+                table.remove("seq-" + round + "-" + i);
+            }
+        }
+        // the tombstones of the current bucket are compacted instead of rotating it
+        Assert.assertEquals(0, table.getFullRotateCnt());
+        Assert.assertEquals(0, table.getEntryCnt());
+        long probeCnt = table.getProbeCnt();
+        Assert.assertFalse(table.checkAndPut("seq-last"));
+        Assert.assertTrue(table.checkAndPut("seq-last"));
+        Assert.assertTrue(table.toString(), table.getProbeCnt() - probeCnt < 100);
+    }
+
+    @Test
+    public void testFullRotate() {
+        FingerprintDedupTable table = new FingerprintDedupTable(60000L, 100);
+        for (int i = 0; i < 10000; i++) {
+            table.checkAndPut("seq-" + i);
+        }
+        // the oldest buckets are dropped when the current bucket is full
+        Assert.assertTrue(table.getFullRotateCnt() > 0);
+        Assert.assertTrue(table.getEntryCnt() < 10000);
+        Assert.assertTrue(table.checkAndPut("seq-9999"));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.source.v1msg;
+
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessagePackHeader;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.ResponseInfo;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.ResultCode;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link InlongTcpSourceCallback}
+ */
+public class TestInlongTcpSourceCallback {
+
+    @Test
+    public void testResponseOnce() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        InlongTcpSourceCallback callback = new InlongTcpSourceCallback(ctx, buildHeader(1L), 10);
+        callback.start(60000L);
+        Assert.assertEquals(1, callback.getInflightCount());
+        callback.callback(ResultCode.SUCCUSS);
+        callback.callback(ResultCode.ERR_REJECT);
+        Assert.assertEquals(0, callback.getInflightCount());
+        ResponseInfo response = readResponse(channel);
+        Assert.assertEquals(ResultCode.SUCCUSS, response.getResult());
+        Assert.assertEquals(1L, response.getPackId());
+        Assert.assertNull(channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testTimeoutReject() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        InlongTcpSourceCallback callback = new InlongTcpSourceCallback(ctx, buildHeader(2L), 10);
+        callback.start(50L);
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!callback.getHasResponsed().get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assert.assertTrue(callback.getHasResponsed().get());
+        // the late save result is not responded again
+        callback.callback(ResultCode.SUCCUSS);
+        channel.runPendingTasks();
+        ResponseInfo response = readResponse(channel);
+        Assert.assertEquals(ResultCode.ERR_REJECT, response.getResult());
+        Assert.assertNull(channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testInflightBackpressure() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        InlongTcpSourceCallback[] callbacks = new InlongTcpSourceCallback[4];
+        for (int i = 0; i < callbacks.length; i++) {
+            callbacks[i] = new InlongTcpSourceCallback(ctx, buildHeader(i), callbacks.length);
+            callbacks[i].start(60000L);
+        }
+        // stop reading when the in-flight packages reach the limit
+        Assert.assertFalse(channel.config().isAutoRead());
+        callbacks[0].callback(ResultCode.SUCCUSS);
+        Assert.assertFalse(channel.config().isAutoRead());
+        // resume reading when half of the limit responded
+        callbacks[1].callback(ResultCode.SUCCUSS);
+        Assert.assertTrue(channel.config().isAutoRead());
+        callbacks[2].callback(ResultCode.SUCCUSS);
+        callbacks[3].callback(ResultCode.SUCCUSS);
+        Assert.assertEquals(0, callbacks[3].getInflightCount());
+        channel.finishAndReleaseAll();
+    }
+
+    private MessagePackHeader buildHeader(long packId) {
+        return MessagePackHeader.newBuilder()
+                .setInlongGroupId("group")
+                .setInlongStreamId("stream")
+                .setPackId(packId)
+                .buildPartial();
+    }
+
+    private ResponseInfo readResponse(EmbeddedChannel channel) throws Exception {
+        ByteBuf buffer = channel.readOutbound();
+        Assert.assertNotNull(buffer);
+        try {
+            return ResponseInfo.parseFrom(new ByteBufInputStream(buffer));
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -47,6 +47,12 @@ public class ConfigConstants {
 
     public static final int PROXY_UPDATE_MAX_RETRY = 10;
 
+    /* Configure the accumulator of the asynchronously sent single messages. */
+    public static final int DEFAULT_ACCUMULATE_MAX_COUNT = 500;
+    public static final int DEFAULT_ACCUMULATE_MAX_BYTES = 256 * 1024;
+    public static final long DEFAULT_ACCUMULATE_LINGER_MS = 5L;
+    public static final long DEFAULT_ACCUMULATE_BUFFER_BYTES = 64 * 1024 * 1024L;
+
     public static final int MAX_LINE_CNT = 30;
 
     /* Default connection,connect timeout in milliseconds. */
@@ -26,6 +26,9 @@ import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
 import org.apache.inlong.sdk.dataproxy.common.SendResult;
 import org.apache.inlong.sdk.dataproxy.config.ProxyConfigEntry;
 import org.apache.inlong.sdk.dataproxy.config.ProxyConfigManager;
+import org.apache.inlong.sdk.dataproxy.network.MessageAccumulator;
+import org.apache.inlong.sdk.dataproxy.network.MessageAccumulator.Batch;
+import org.apache.inlong.sdk.dataproxy.network.MessageAccumulator.BatchKey;
 import org.apache.inlong.sdk.dataproxy.network.ProxysdkException;
 import org.apache.inlong.sdk.dataproxy.network.Sender;
 import org.apache.inlong.sdk.dataproxy.network.SequentialID;
@@ -56,6 +59,8 @@ public class DefaultMessageSender implements MessageSender {
     private static final SequentialID idGenerator = new SequentialID(Utils.getLocalIp());
     private final Sender sender;
     private final IndexCollectThread indexCol;
+    /* Accumulate the async single messages into batches if enabled, else null */
+    private final MessageAccumulator accumulator;
     /* Store index <groupId_streamId,cnt> */
     private final Map<String, Long> storeIndex = new ConcurrentHashMap<String, Long>();
     private String groupId;
@@ -74,6 +79,9 @@ public class DefaultMessageSender implements MessageSender {
         ProxyUtils.validClientConfig(configure);
         sender = new Sender(configure, selfDefineFactory);
         groupId = configure.getInlongGroupId();
+        accumulator = configure.isEnableAccumulate()
+                ? new MessageAccumulator(configure, this::sendBatch)
+                : null;
         indexCol = new IndexCollectThread(storeIndex);
         indexCol.start();
 
@@ -460,6 +468,11 @@ public class DefaultMessageSender implements MessageSender {
         if (!ProxyUtils.isBodyValid(body) || !ProxyUtils.isDtValid(dt)) {
             throw new ProxysdkException(SendResult.INVALID_ATTRIBUTES.toString());
         }
+        if (accumulator != null) {
+            accumulator.append(new BatchKey(groupId, streamId, isProxySend, null),
+                    body, dt, callback, TimeUnit.MILLISECONDS.convert(timeout, timeUnit));
+            return;
+        }
         addIndexCnt(groupId, streamId, 1);
 
         String proxySend = "";
@@ -522,6 +535,11 @@ public class DefaultMessageSender implements MessageSender {
         if (!ProxyUtils.isBodyValid(body) || !ProxyUtils.isDtValid(dt) || !ProxyUtils.isAttrKeysValid(extraAttrMap)) {
             throw new ProxysdkException(SendResult.INVALID_ATTRIBUTES.toString());
         }
+        if (accumulator != null) {
+            accumulator.append(new BatchKey(groupId, streamId, isProxySend, extraAttrMap),
+                    body, dt, callback, TimeUnit.MILLISECONDS.convert(timeout, timeUnit));
+            return;
+        }
         addIndexCnt(groupId, streamId, 1);
         if (isProxySend) {
             extraAttrMap.put(AttributeConstants.MESSAGE_PROXY_SEND, "true");
@@ -731,6 +749,35 @@ public class DefaultMessageSender implements MessageSender {
                 idGenerator.getNextId(), DEFAULT_SEND_TIMEOUT, DEFAULT_SEND_TIMEUNIT, isProxySend);
     }
 
+    /**
+     * send the accumulated batch as a batch of messages
+     *
+     * @param batch batch of messages
+     * @param callback callback of the batch
+     * @throws ProxysdkException
+     */
+    private void sendBatch(Batch batch, SendMessageCallback callback) throws ProxysdkException {
+        BatchKey key = batch.getKey();
+        Map<String, String> extraAttrMap = key.getExtraAttrMap();
+        if (extraAttrMap == null) {
+            asyncSendMessage(callback, batch.getBodies(), key.getGroupId(), key.getStreamId(), batch.getDt(),
+                    idGenerator.getNextId(), batch.getTimeoutMs(), TimeUnit.MILLISECONDS, key.isProxySend());
+        } else {
+            asyncSendMessage(callback, batch.getBodies(), key.getGroupId(), key.getStreamId(), batch.getDt(),
+                    idGenerator.getNextId(), batch.getTimeoutMs(), TimeUnit.MILLISECONDS,
+                    extraAttrMap, key.isProxySend());
+        }
+    }
+
+    /**
+     * send the accumulated messages at once, no-op if the accumulator is not enabled
+     */
+    public void flush() {
+        if (accumulator != null) {
+            accumulator.flush();
+        }
+    }
+
     private void addIndexCnt(String groupId, String streamId, long cnt) {
         try {
             String key = groupId + "|" + streamId;
@@ -856,6 +903,9 @@ public class DefaultMessageSender implements MessageSender {
         if (sender.getClusterId() != -1) {
             CACHE_SENDER.remove(sender.getClusterId());
         }
+        if (accumulator != null) {
+            accumulator.close();
+        }
         sender.close();
         shutdownInternalThreads();
     }
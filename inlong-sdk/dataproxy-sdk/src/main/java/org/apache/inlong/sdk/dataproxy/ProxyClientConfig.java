@@ -101,6 +101,18 @@ public class ProxyClientConfig {
 
     private int maxRetry;
 
+    // config for the accumulator of async single messages
+    // whether accumulate the async single messages into batches, default is false
+    private boolean enableAccumulate = false;
+    // max message count of a batch
+    private int accumulateMaxCount = ConfigConstants.DEFAULT_ACCUMULATE_MAX_COUNT;
+    // max body bytes of a batch
+    private int accumulateMaxBytes = ConfigConstants.DEFAULT_ACCUMULATE_MAX_BYTES;
+    // max wait time of the first message of a batch in milliseconds, 0 means no wait
+    private long accumulateLingerMs = ConfigConstants.DEFAULT_ACCUMULATE_LINGER_MS;
+    // max body bytes of all the batches waiting to be sent
+    private long accumulateBufferBytes = ConfigConstants.DEFAULT_ACCUMULATE_BUFFER_BYTES;
+
     /* pay attention to the last url parameter ip */
     public ProxyClientConfig(String localHost, boolean isLocalVisit, String managerIp,
             int managerPort, String inlongGroupId, String netTag, String authSecretId, String authSecretKey,
@@ -508,4 +520,44 @@ public class ProxyClientConfig {
     public void setMaxRetry(int maxRetry) {
         this.maxRetry = maxRetry;
     }
+
+    public boolean isEnableAccumulate() {
+        return enableAccumulate;
+    }
+
+    public void setEnableAccumulate(boolean enableAccumulate) {
+        this.enableAccumulate = enableAccumulate;
+    }
+
+    public int getAccumulateMaxCount() {
+        return accumulateMaxCount;
+    }
+
+    public void setAccumulateMaxCount(int accumulateMaxCount) {
+        this.accumulateMaxCount = accumulateMaxCount;
+    }
+
+    public int getAccumulateMaxBytes() {
+        return accumulateMaxBytes;
+    }
+
+    public void setAccumulateMaxBytes(int accumulateMaxBytes) {
+        this.accumulateMaxBytes = accumulateMaxBytes;
+    }
+
+    public long getAccumulateLingerMs() {
+        return accumulateLingerMs;
+    }
+
+    public void setAccumulateLingerMs(long accumulateLingerMs) {
+        this.accumulateLingerMs = accumulateLingerMs;
+    }
+
+    public long getAccumulateBufferBytes() {
+        return accumulateBufferBytes;
+    }
+
+    public void setAccumulateBufferBytes(long accumulateBufferBytes) {
+        this.accumulateBufferBytes = accumulateBufferBytes;
+    }
 }
@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.apache.inlong.sdk.dataproxy.ProxyClientConfig;
+import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulator of the asynchronously sent single messages.
+ *
+ * The messages are appended to the batch of their group, stream and attributes,
+ * a batch keeps the messages of one data time second, and a batch is sent as one message list, so one compressed frame,
+ * when it reaches the max count or bytes, or when its first message has waited for
+ * the linger time. The message bodies are kept by reference, the batches are
+ * pooled and reused once acknowledged.
+ *
+ * A batch is tracked by one callback, which acknowledges all of its messages,
+ * and times out on a timer wheel instead of waiting for the next timeout scan.
+ */
+public class MessageAccumulator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageAccumulator.class);
+    private static final int MAX_POOLED_BATCHES = 256;
+    private static final long MAX_TIMER_TICK_MS = 10L;
+
+    private final int maxBatchCount;
+    private final int maxBatchBytes;
+    private final long lingerMs;
+    private final long maxBufferedBytes;
+    private final BatchSender batchSender;
+    private final ConcurrentHashMap<BatchKey, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Batch> batchPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledCnt = new AtomicInteger(0);
+    private final AtomicLong bufferedBytes = new AtomicLong(0);
+    private final HashedWheelTimer timer;
+    private volatile boolean closed = false;
+
+    /**
+     * Sender of the accumulated batches
+     */
+    public interface BatchSender {
+
+        /**
+         * Send the batch asynchronously
+         *
+         * @param batch     the batch
+         * @param callback  the callback of the batch
+         * @throws ProxysdkException  the exception if the batch can't be sent
+         */
+        void send(Batch batch, SendMessageCallback callback) throws ProxysdkException;
+    }
+
+    public MessageAccumulator(ProxyClientConfig configure, BatchSender batchSender) {
+        this(configure.getAccumulateMaxCount(), configure.getAccumulateMaxBytes(),
+                configure.getAccumulateLingerMs(), configure.getAccumulateBufferBytes(), batchSender);
+    }
+
+    public MessageAccumulator(int maxBatchCount, int maxBatchBytes, long lingerMs,
+            long maxBufferedBytes, BatchSender batchSender) {
+        this.maxBatchCount = Math.max(1, maxBatchCount);
+        this.maxBatchBytes = Math.max(1, maxBatchBytes);
+        this.lingerMs = Math.max(0L, lingerMs);
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.batchSender = batchSender;
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("inlong-accumulator-timer", true),
+                Math.max(1L, Math.min(this.lingerMs, MAX_TIMER_TICK_MS)), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append a message to its batch
+     *
+     * @param key        the batch key of the message
+     * @param body       the message body, kept by reference until the batch is sent
+     * @param dt         the data time in milliseconds
+     * @param callback   the callback of the message, may be null
+     * @param timeoutMs  the send timeout in milliseconds
+     * @throws ProxysdkException  if closed or the buffered bytes exceed the max
+     */
+    public void append(BatchKey key, byte[] body, long dt,
+            SendMessageCallback callback, long timeoutMs) throws ProxysdkException {
+        if (closed) {
+            throw new ProxysdkException("message accumulator is closed");
+        }
+        if (bufferedBytes.addAndGet(body.length) > maxBufferedBytes) {
+            bufferedBytes.addAndGet(-body.length);
+            throw new ProxysdkException(SendResult.ASYNC_CALLBACK_BUFFER_FULL.toString());
+        }
+        Batch readyBatch = null;
+        Batch fullBatch = null;
+        while (true) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                // the caller may change its attributes afterwards
+                Bucket tmpBucket = new Bucket(key.copy());
+                bucket = buckets.putIfAbsent(key, tmpBucket);
+                if (bucket == null) {
+                    bucket = tmpBucket;
+                }
+            }
+            synchronized (bucket) {
+                if (bucket.removed) {
+                    continue;
+                }
+                Batch batch = bucket.current;
+                if (batch != null && (batch.dtSecond != dt / 1000
+                        || batch.bytes + body.length > maxBatchBytes)) {
+                    // keep the data time of a batch, and the batch below the max bytes
+                    readyBatch = batch;
+                    batch = null;
+                }
+                if (batch == null) {
+                    batch = borrowBatch(bucket.key, dt);
+                    bucket.current = batch;
+                    if (lingerMs > 0) {
+                        final int generation = batch.generation;
+                        final Batch lingerBatch = batch;
+                        final Bucket lingerBucket = bucket;
+                        batch.lingerTimeout = timer.newTimeout(
+                                t -> flushIfCurrent(lingerBucket, lingerBatch, generation),
+                                lingerMs, TimeUnit.MILLISECONDS);
+                    }
+                }
+                batch.add(body, callback, timeoutMs);
+                if (lingerMs == 0 || batch.count >= maxBatchCount || batch.bytes >= maxBatchBytes) {
+                    fullBatch = batch;
+                    bucket.current = null;
+                }
+                break;
+            }
+        }
+        if (readyBatch != null) {
+            send(readyBatch);
+        }
+        if (fullBatch != null) {
+            send(fullBatch);
+        }
+    }
+
+    /**
+     * Send all the batches
+     */
+    public void flush() {
+        for (Bucket bucket : buckets.values()) {
+            Batch batch;
+            synchronized (bucket) {
+                batch = bucket.current;
+                bucket.current = null;
+            }
+            if (batch != null) {
+                send(batch);
+            }
+        }
+    }
+
+    /**
+     * Send all the batches and stop accepting messages
+     */
+    public void close() {
+        closed = true;
+        flush();
+        timer.stop();
+    }
+
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    private void flushIfCurrent(Bucket bucket, Batch batch, int generation) {
+        synchronized (bucket) {
+            if (bucket.current != batch || batch.generation != generation) {
+                return;
+            }
+            bucket.current = null;
+            // drop the idle bucket, so the keys of rare attributes don't pile up
+            bucket.removed = true;
+            buckets.remove(bucket.key, bucket);
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        if (batch.lingerTimeout != null) {
+            batch.lingerTimeout.cancel();
+            batch.lingerTimeout = null;
+        }
+        bufferedBytes.addAndGet(-batch.bytes);
+        BatchCallback callback = new BatchCallback(batch);
+        try {
+            callback.timeout = timer.newTimeout(
+                    t -> callback.complete(SendResult.TIMEOUT, null, false),
+                    batch.timeoutMs, TimeUnit.MILLISECONDS);
+            batchSender.send(batch, callback);
+        } catch (Throwable e) {
+            LOGGER.warn("send batch of {} messages failure", batch.count, e);
+            // not written, so the batch can be reused
+            callback.complete(null, e, true);
+        }
+    }
+
+    private Batch borrowBatch(BatchKey key, long dt) {
+        Batch batch = batchPool.poll();
+        if (batch == null) {
+            batch = new Batch();
+        } else {
+            pooledCnt.decrementAndGet();
+        }
+        batch.key = key;
+        batch.dt = dt;
+        batch.dtSecond = dt / 1000;
+        return batch;
+    }
+
+    private void recycle(Batch batch) {
+        batch.reset();
+        if (pooledCnt.incrementAndGet() <= MAX_POOLED_BATCHES) {
+            batchPool.offer(batch);
+        } else {
+            pooledCnt.decrementAndGet();
+        }
+    }
+
+    private static class Bucket {
+
+        private final BatchKey key;
+        private Batch current;
+        private boolean removed = false;
+
+        private Bucket(BatchKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Callback of a sent batch, called back once by the acknowledgement, the send
+     * failure or the timeout, whichever comes first.
+     */
+    private class BatchCallback implements SendMessageCallback {
+
+        private final Batch batch;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private volatile Timeout timeout;
+
+        private BatchCallback(Batch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onMessageAck(SendResult result) {
+            // the encoder may still hold the bodies of a batch which is not acknowledged
+            complete(result, null, result == SendResult.OK);
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            complete(null, e, false);
+        }
+
+        private void complete(SendResult result, Throwable e, boolean reusable) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            Timeout tmpTimeout = timeout;
+            if (tmpTimeout != null) {
+                tmpTimeout.cancel();
+            }
+            for (int i = 0; i < batch.count; i++) {
+                SendMessageCallback callback = batch.callbacks[i];
+                if (callback == null) {
+                    continue;
+                }
+                try {
+                    if (e == null) {
+                        callback.onMessageAck(result);
+                    } else {
+                        callback.onException(e);
+                    }
+                } catch (Throwable ex) {
+                    LOGGER.error("message callback throw error", ex);
+                }
+            }
+            if (reusable) {
+                recycle(batch);
+            }
+        }
+    }
+
+    /**
+     * Key of a batch, the messages of a batch share all its fields, and the data time second
+     */
+    public static class BatchKey {
+
+        private final String groupId;
+        private final String streamId;
+        private final boolean isProxySend;
+        private final Map<String, String> extraAttrMap;
+        private final int hashCode;
+
+        public BatchKey(String groupId, String streamId,
+                boolean isProxySend, Map<String, String> extraAttrMap) {
+            this.groupId = groupId;
+            this.streamId = streamId;
+            this.isProxySend = isProxySend;
+            this.extraAttrMap = extraAttrMap;
+            this.hashCode = Objects.hash(groupId, streamId, isProxySend, extraAttrMap);
+        }
+
+        private BatchKey copy() {
+            return new BatchKey(groupId, streamId, isProxySend,
+                    extraAttrMap == null ? null : new HashMap<>(extraAttrMap));
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public String getStreamId() {
+            return streamId;
+        }
+
+        public boolean isProxySend() {
+            return isProxySend;
+        }
+
+        /**
+         * Get a copy of the extra attributes
+         *
+         * @return  the extra attributes, null if none
+         */
+        public Map<String, String> getExtraAttrMap() {
+            return extraAttrMap == null ? null : new HashMap<>(extraAttrMap);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey that = (BatchKey) o;
+            return isProxySend == that.isProxySend
+                    && Objects.equals(groupId, that.groupId)
+                    && Objects.equals(streamId, that.streamId)
+                    && Objects.equals(extraAttrMap, that.extraAttrMap);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Batch of the accumulated messages
+     */
+    public static class Batch {
+
+        private static final int INIT_CALLBACK_SIZE = 16;
+
+        private final List<byte[]> bodies = new ArrayList<>();
+        private SendMessageCallback[] callbacks = new SendMessageCallback[INIT_CALLBACK_SIZE];
+        private BatchKey key;
+        private long dt;
+        private long dtSecond;
+        private int count;
+        private int bytes;
+        private long timeoutMs;
+        private int generation;
+        private Timeout lingerTimeout;
+
+        private void add(byte[] body, SendMessageCallback callback, long msgTimeoutMs) {
+            if (count == callbacks.length) {
+                callbacks = Arrays.copyOf(callbacks, count << 1);
+            }
+            bodies.add(body);
+            callbacks[count++] = callback;
+            bytes += body.length;
+            timeoutMs = Math.max(timeoutMs, msgTimeoutMs);
+        }
+
+        private void reset() {
+            bodies.clear();
+            Arrays.fill(callbacks, 0, count, null);
+            key = null;
+            count = 0;
+            bytes = 0;
+            timeoutMs = 0;
+            lingerTimeout = null;
+            generation++;
+        }
+
+        public BatchKey getKey() {
+            return key;
+        }
+
+        public List<byte[]> getBodies() {
+            return bodies;
+        }
+
+        public long getDt() {
+            return dt;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getBytes() {
+            return bytes;
+        }
+
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy;
+
+import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+import org.apache.inlong.sdk.dataproxy.network.MessageAccumulator;
+import org.apache.inlong.sdk.dataproxy.network.MessageAccumulator.BatchKey;
+import org.apache.inlong.sdk.dataproxy.network.ProxysdkException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class MessageAccumulatorTest {
+
+    private static final BatchKey KEY1 = new BatchKey("group", "stream1", false, null);
+    private static final BatchKey KEY2 = new BatchKey("group", "stream2", false, null);
+    private static final long DT = 1700000000000L;
+
+    @Test
+    public void testSendByCount() throws Exception {
+        RecordSender batchSender = new RecordSender();
+        MessageAccumulator accumulator = new MessageAccumulator(3, 1024, 60000L, 1024, batchSender);
+        RecordCallback callback = new RecordCallback();
+        for (int i = 0; i < 3; i++) {
+            accumulator.append(KEY1, new byte[]{(byte) i}, DT, callback, 10000L);
+        }
+        Assert.assertEquals(1, batchSender.sentBodies.size());
+        Assert.assertEquals(3, batchSender.sentBodies.get(0).size());
+        Assert.assertEquals(0, accumulator.getBufferedBytes());
+
+        batchSender.callbacks.get(0).onMessageAck(SendResult.OK);
+        Assert.assertEquals(3, callback.results.size());
+        Assert.assertEquals(SendResult.OK, callback.results.get(0));
+        accumulator.close();
+    }
+
+    @Test
+    public void testSendByBytesAndDataTime() throws Exception {
+        RecordSender batchSender = new RecordSender();
+        MessageAccumulator accumulator = new MessageAccumulator(100, 10, 60000L, 1024, batchSender);
+        accumulator.append(KEY1, new byte[6], DT, null, 10000L);
+        // the batch is sent before exceeding the max bytes
+        accumulator.append(KEY1, new byte[6], DT, null, 10000L);
+        Assert.assertEquals(1, batchSender.sentBodies.size());
+        Assert.assertEquals(1, batchSender.sentBodies.get(0).size());
+        // the batch keeps the messages of one data time second
+        accumulator.append(KEY1, new byte[1], DT + 1000L, null, 10000L);
+        Assert.assertEquals(2, batchSender.sentBodies.size());
+        Assert.assertEquals(DT, batchSender.sentDts.get(1).longValue());
+        accumulator.flush();
+        Assert.assertEquals(3, batchSender.sentBodies.size());
+        Assert.assertEquals(DT + 1000L, batchSender.sentDts.get(2).longValue());
+        accumulator.close();
+    }
+
+    @Test
+    public void testSendByLinger() throws Exception {
+        RecordSender batchSender = new RecordSender();
+        MessageAccumulator accumulator = new MessageAccumulator(100, 1024, 20L, 1024, batchSender);
+        accumulator.append(KEY1, new byte[1], DT, null, 10000L);
+        accumulator.append(KEY2, new byte[1], DT, null, 10000L);
+        accumulator.append(KEY1, new byte[1], DT, null, 10000L);
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (batchSender.sentBodies.size() < 2 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        Assert.assertEquals(2, batchSender.sentBodies.size());
+        Assert.assertEquals(3, batchSender.sentBodies.get(0).size() + batchSender.sentBodies.get(1).size());
+        accumulator.close();
+    }
+
+    @Test
+    public void testSendFailureAndTimeout() throws Exception {
+        RecordSender batchSender = new RecordSender();
+        MessageAccumulator accumulator = new MessageAccumulator(1, 1024, 60000L, 1024, batchSender);
+        RecordCallback callback = new RecordCallback();
+        batchSender.failure = new ProxysdkException(SendResult.NO_CONNECTION.toString());
+        accumulator.append(KEY1, new byte[1], DT, callback, 10000L);
+        Assert.assertEquals(1, callback.exceptions.size());
+
+        batchSender.failure = null;
+        accumulator.append(KEY1, new byte[1], DT, callback, 20L);
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (callback.results.isEmpty() && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        Assert.assertEquals(Collections.singletonList(SendResult.TIMEOUT), callback.results);
+        // the late acknowledgement is ignored
+        batchSender.callbacks.get(batchSender.callbacks.size() - 1).onMessageAck(SendResult.OK);
+        Assert.assertEquals(1, callback.results.size());
+        accumulator.close();
+    }
+
+    @Test
+    public void testBufferFull() throws Exception {
+        RecordSender batchSender = new RecordSender();
+        MessageAccumulator accumulator = new MessageAccumulator(100, 1024, 60000L, 10, batchSender);
+        accumulator.append(KEY1, new byte[8], DT, null, 10000L);
+        try {
+            accumulator.append(KEY1, new byte[8], DT, null, 10000L);
+            Assert.fail("the buffer is full");
+        } catch (ProxysdkException e) {
+            Assert.assertEquals(SendResult.ASYNC_CALLBACK_BUFFER_FULL.toString(), e.getMessage());
+        }
+        accumulator.close();
+        Assert.assertEquals(1, batchSender.sentBodies.size());
+        try {
+            accumulator.append(KEY1, new byte[1], DT, null, 10000L);
+            Assert.fail("the accumulator is closed");
+        } catch (ProxysdkException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testKeyCopiesAttributes() throws Exception {
+        RecordSender batchSender = new RecordSender();
+        MessageAccumulator accumulator = new MessageAccumulator(100, 1024, 60000L, 1024, batchSender);
+        Map<String, String> attrs = new ConcurrentHashMap<>();
+        attrs.put("k", "v");
+        accumulator.append(new BatchKey("group", "stream1", false, attrs), new byte[1], DT, null, 10000L);
+        attrs.put("k", "changed");
+        accumulator.flush();
+        Assert.assertEquals("v", batchSender.sentKeys.get(0).getExtraAttrMap().get("k"));
+        accumulator.close();
+    }
+
+    private static class RecordSender implements MessageAccumulator.BatchSender {
+
+        private final List<List<byte[]>> sentBodies = new CopyOnWriteArrayList<>();
+        private final List<Long> sentDts = new CopyOnWriteArrayList<>();
+        private final List<BatchKey> sentKeys = new CopyOnWriteArrayList<>();
+        private final List<SendMessageCallback> callbacks = new CopyOnWriteArrayList<>();
+        private volatile ProxysdkException failure;
+
+        @Override
+        public void send(MessageAccumulator.Batch batch, SendMessageCallback callback) throws ProxysdkException {
+            if (failure != null) {
+                throw failure;
+            }
+            sentBodies.add(new ArrayList<>(batch.getBodies()));
+            sentDts.add(batch.getDt());
+            sentKeys.add(batch.getKey());
+            callbacks.add(callback);
+        }
+    }
+
+    private static class RecordCallback implements SendMessageCallback {
+
+        private final List<SendResult> results = new CopyOnWriteArrayList<>();
+        private final List<Throwable> exceptions = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onMessageAck(SendResult result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            exceptions.add(e);
+        }
+    }
+}
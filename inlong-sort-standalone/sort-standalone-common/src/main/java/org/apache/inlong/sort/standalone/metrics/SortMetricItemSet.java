@@ -17,6 +17,7 @@
 
 package org.apache.inlong.sort.standalone.metrics;
 
+import org.apache.inlong.common.metric.DimensionKey;
 import org.apache.inlong.common.metric.MetricDomain;
 import org.apache.inlong.common.metric.MetricItem;
 import org.apache.inlong.common.metric.MetricItemSet;
@@ -35,6 +36,28 @@ import java.util.Map;
 public class SortMetricItemSet extends MetricItemSet<SortMetricItem> {
 
     public static final Logger LOG = InlongLoggerFactory.getLogger(SortMetricItemSet.class);
+    // the message time of the items without a message, such as the fetch failures
+    public static final long UNKNOWN_MSG_TIME = -1L;
+
+    // the dimension schema, in the order of the SortMetricItem dimensions
+    private static final int DIM_CLUSTER_ID = 0;
+    private static final int DIM_TASK_NAME = 1;
+    private static final int DIM_SOURCE_ID = 2;
+    private static final int DIM_SOURCE_DATA_ID = 3;
+    private static final int DIM_INLONG_GROUP_ID = 4;
+    private static final int DIM_INLONG_STREAM_ID = 5;
+    private static final int DIM_SINK_ID = 6;
+    private static final int DIM_SINK_DATA_ID = 7;
+    private static final int DIM_MESSAGE_TIME = 8;
+    private static final String[] DIMENSIONS = {
+            SortMetricItem.KEY_CLUSTER_ID, SortMetricItem.KEY_TASK_NAME,
+            SortMetricItem.KEY_SOURCE_ID, SortMetricItem.KEY_SOURCE_DATA_ID,
+            SortMetricItem.KEY_INLONG_GROUP_ID, SortMetricItem.KEY_INLONG_STREAM_ID,
+            SortMetricItem.KEY_SINK_ID, SortMetricItem.KEY_SINK_DATA_ID,
+            SortMetricItem.KEY_MESSAGE_TIME};
+    // the reused lookup keys of the threads
+    private static final ThreadLocal<DimensionProbe> PROBES =
+            ThreadLocal.withInitial(DimensionProbe::new);
 
     /**
      * Constructor
@@ -45,6 +68,73 @@ public class SortMetricItemSet extends MetricItemSet<SortMetricItem> {
         super(name);
     }
 
+    /**
+     * Find the source metric item, without building the dimension map
+     *
+     * @param clusterId         the cluster id
+     * @param taskName          the sort task name
+     * @param sourceId          the source id
+     * @param sourceDataId      the source data id
+     * @param inlongGroupId     the inlong group id
+     * @param inlongStreamId    the inlong stream id
+     * @param auditFormatTime   the message time aligned to the audit interval, or UNKNOWN_MSG_TIME
+     * @return the metric item
+     */
+    public SortMetricItem findSourceMetricItem(String clusterId, String taskName, String sourceId,
+            String sourceDataId, String inlongGroupId, String inlongStreamId, long auditFormatTime) {
+        return findMetricItem(clusterId, taskName, sourceId, sourceDataId,
+                inlongGroupId, inlongStreamId, null, null, auditFormatTime);
+    }
+
+    /**
+     * Find the sink metric item, without building the dimension map
+     *
+     * @param clusterId         the cluster id
+     * @param taskName          the sort task name
+     * @param inlongGroupId     the inlong group id
+     * @param inlongStreamId    the inlong stream id
+     * @param sinkId            the sink id
+     * @param sinkDataId        the sink data id
+     * @param auditFormatTime   the message time aligned to the audit interval, or UNKNOWN_MSG_TIME
+     * @return the metric item
+     */
+    public SortMetricItem findSinkMetricItem(String clusterId, String taskName, String inlongGroupId,
+            String inlongStreamId, String sinkId, String sinkDataId, long auditFormatTime) {
+        return findMetricItem(clusterId, taskName, null, null,
+                inlongGroupId, inlongStreamId, sinkId, sinkDataId, auditFormatTime);
+    }
+
+    /**
+     * Find the metric item by all the dimensions, the null dimensions are not included
+     *
+     * @param clusterId         the cluster id
+     * @param taskName          the sort task name
+     * @param sourceId          the source id
+     * @param sourceDataId      the source data id
+     * @param inlongGroupId     the inlong group id
+     * @param inlongStreamId    the inlong stream id
+     * @param sinkId            the sink id
+     * @param sinkDataId        the sink data id
+     * @param auditFormatTime   the message time aligned to the audit interval, or UNKNOWN_MSG_TIME
+     * @return the metric item
+     */
+    public SortMetricItem findMetricItem(String clusterId, String taskName, String sourceId,
+            String sourceDataId, String inlongGroupId, String inlongStreamId,
+            String sinkId, String sinkDataId, long auditFormatTime) {
+        DimensionProbe probe = PROBES.get();
+        DimensionKey key = probe.key;
+        key.set(DIM_CLUSTER_ID, clusterId)
+                .set(DIM_TASK_NAME, taskName)
+                .set(DIM_SOURCE_ID, sourceId)
+                .set(DIM_SOURCE_DATA_ID, sourceDataId)
+                .set(DIM_INLONG_GROUP_ID, inlongGroupId)
+                .set(DIM_INLONG_STREAM_ID, inlongStreamId)
+                .set(DIM_SINK_ID, sinkId)
+                .set(DIM_SINK_DATA_ID, sinkDataId)
+                .set(DIM_MESSAGE_TIME, probe.formatTime(auditFormatTime));
+        return findMetricItem(key);
+    }
+
     /**
      * createItem
      * 
@@ -73,4 +163,26 @@ public class SortMetricItemSet extends MetricItemSet<SortMetricItem> {
     public Map<String, SortMetricItem> getItemMap() {
         return this.itemMap;
     }
+
+    /**
+     * The lookup key of a thread
+     */
+    private static class DimensionProbe {
+
+        private final DimensionKey key = new DimensionKey(DIMENSIONS);
+        // the audit format time only changes once an interval, cache its string
+        private long lastFormatTime = UNKNOWN_MSG_TIME;
+        private String lastFormatTimeStr = null;
+
+        private String formatTime(long auditFormatTime) {
+            if (auditFormatTime == UNKNOWN_MSG_TIME) {
+                return null;
+            }
+            if (auditFormatTime != lastFormatTime) {
+                lastFormatTimeStr = String.valueOf(auditFormatTime);
+                lastFormatTime = auditFormatTime;
+            }
+            return lastFormatTimeStr;
+        }
+    }
 }
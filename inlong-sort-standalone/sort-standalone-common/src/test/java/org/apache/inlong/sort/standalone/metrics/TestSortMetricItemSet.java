@@ -38,6 +38,8 @@ import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 /**
  * 
@@ -177,4 +179,22 @@ public class TestSortMetricItemSet {
             Set<ObjectInstance> mbeans = mbs.queryMBeans(objName, null);
         }
     }
+
+    /**
+     * testFindSinkMetricItem
+     */
+    @Test
+    public void testFindSinkMetricItem() {
+        SortMetricItem item = itemSet.findSinkMetricItem(CLUSTER_ID, CONTAINER_NAME,
+                INLONG_GROUP_ID1, INLONG_STREAM_ID, SINK_ID, SINK_DATA_ID, 1000L);
+        assertSame(item, itemSet.findSinkMetricItem(CLUSTER_ID, CONTAINER_NAME,
+                INLONG_GROUP_ID1, INLONG_STREAM_ID, SINK_ID, SINK_DATA_ID, 1000L));
+        assertEquals("1000", item.getDimensions().get(SortMetricItem.KEY_MESSAGE_TIME));
+        assertFalse(item.getDimensions().containsKey(SortMetricItem.KEY_SOURCE_ID));
+        // the unknown message time is not a dimension
+        SortMetricItem failItem = itemSet.findSinkMetricItem(CLUSTER_ID, CONTAINER_NAME,
+                null, null, SINK_ID, null, SortMetricItemSet.UNKNOWN_MSG_TIME);
+        assertFalse(failItem.getDimensions().containsKey(SortMetricItem.KEY_MESSAGE_TIME));
+        assertEquals(SINK_ID, failItem.getDimensions().get(SortMetricItem.KEY_SINK_ID));
+    }
 }
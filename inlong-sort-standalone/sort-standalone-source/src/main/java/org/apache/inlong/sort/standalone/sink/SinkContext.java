@@ -33,7 +33,6 @@ import org.apache.flume.Context;
 import org.slf4j.Logger;
 
 import java.util.Date;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -228,18 +227,53 @@ public class SinkContext {
     }
 
     /**
-     * fillInlongId
+     * findSinkMetricItem of the record, without building the dimension map
      *
-     * @param currentRecord
-     * @param dimensions
-     */
-    public static void fillInlongId(ProfileEvent currentRecord, Map<String, String> dimensions) {
-        String inlongGroupId = currentRecord.getInlongGroupId();
-        inlongGroupId = (StringUtils.isBlank(inlongGroupId)) ? "-" : inlongGroupId;
-        String inlongStreamId = currentRecord.getInlongStreamId();
-        inlongStreamId = (StringUtils.isBlank(inlongStreamId)) ? "-" : inlongStreamId;
-        dimensions.put(SortMetricItem.KEY_INLONG_GROUP_ID, inlongGroupId);
-        dimensions.put(SortMetricItem.KEY_INLONG_STREAM_ID, inlongStreamId);
+     * @param  currentRecord
+     * @param  sinkDataId
+     * @param  msgTime
+     * @return
+     */
+    public SortMetricItem findSinkMetricItem(ProfileEvent currentRecord, String sinkDataId, long msgTime) {
+        return findSinkMetricItem(currentRecord.getInlongGroupId(), currentRecord.getInlongStreamId(),
+                sinkDataId, msgTime);
+    }
+
+    /**
+     * findSinkMetricItem, the blank inlong ids are reported as "-"
+     *
+     * @param  inlongGroupId
+     * @param  inlongStreamId
+     * @param  sinkDataId
+     * @param  msgTime
+     * @return
+     */
+    public SortMetricItem findSinkMetricItem(String inlongGroupId, String inlongStreamId,
+            String sinkDataId, long msgTime) {
+        long auditFormatTime = msgTime - msgTime % CommonPropertiesHolder.getAuditFormatInterval();
+        return metricItemSet.findSinkMetricItem(clusterId, taskName, getInlongId(inlongGroupId),
+                getInlongId(inlongStreamId), sinkName, sinkDataId, auditFormatTime);
+    }
+
+    /**
+     * findSinkFailMetricItem, the item of the failures without a record
+     *
+     * @return
+     */
+    public SortMetricItem findSinkFailMetricItem() {
+        long msgTime = System.currentTimeMillis();
+        long auditFormatTime = msgTime - msgTime % CommonPropertiesHolder.getAuditFormatInterval();
+        return metricItemSet.findSinkMetricItem(clusterId, null, null, null, sinkName, null, auditFormatTime);
+    }
+
+    /**
+     * getInlongId
+     *
+     * @param  inlongId
+     * @return
+     */
+    public static String getInlongId(String inlongId) {
+        return (StringUtils.isBlank(inlongId)) ? "-" : inlongId;
     }
 
     /**
@@ -19,6 +19,7 @@ package org.apache.inlong.sort.standalone.sink.kafka;
 
 import org.apache.inlong.sort.standalone.channel.ProfileEvent;
 import org.apache.inlong.sort.standalone.metrics.SortMetricItem;
+import org.apache.inlong.sort.standalone.metrics.SortMetricItemSet;
 import org.apache.inlong.sort.standalone.utils.Constants;
 import org.apache.inlong.sort.standalone.utils.InlongLoggerFactory;
 
@@ -30,9 +31,6 @@ import org.apache.flume.Transaction;
 import org.apache.flume.lifecycle.LifecycleState;
 import org.slf4j.Logger;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 /** Worker of */
 public class KafkaFederationWorker extends Thread {
 
@@ -42,7 +40,6 @@ public class KafkaFederationWorker extends Thread {
     private final KafkaFederationSinkContext context;
 
     private final KafkaProducerFederation producerFederation;
-    private final Map<String, String> dimensions = new ConcurrentHashMap<>();
     private LifecycleState status;
 
     /**
@@ -60,9 +57,6 @@ public class KafkaFederationWorker extends Thread {
         this.producerFederation =
                 new KafkaProducerFederation(String.valueOf(workerIndex), this.context);
         this.status = LifecycleState.IDLE;
-        this.dimensions.put(SortMetricItem.KEY_CLUSTER_ID, this.context.getClusterId());
-        this.dimensions.put(SortMetricItem.KEY_TASK_NAME, this.context.getTaskName());
-        this.dimensions.put(SortMetricItem.KEY_SINK_ID, this.context.getSinkName());
     }
 
     /** Entrance of KafkaFederationWorker */
@@ -126,8 +120,9 @@ public class KafkaFederationWorker extends Thread {
                     tx.close();
                 }
                 // metric
-                SortMetricItem metricItem =
-                        this.context.getMetricItemSet().findMetricItem(dimensions);
+                SortMetricItem metricItem = this.context.getMetricItemSet().findSinkMetricItem(
+                        context.getClusterId(), context.getTaskName(), null, null,
+                        context.getSinkName(), null, SortMetricItemSet.UNKNOWN_MSG_TIME);
                 metricItem.sendFailCount.incrementAndGet();
                 sleepOneInterval();
             }
@@ -31,7 +31,6 @@ import javax.annotation.Nullable;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -82,8 +81,7 @@ public final class SortSdkSourceContext extends SourceContext {
             @Nullable final String topic,
             @NotNull(message = "Must specify fetch result") final SortSdkSourceContext.FetchResult fetchResult) {
 
-        final Map<String, String> dimensions = this.createSortSdkSourceDimensionMap(event, sortId, topic);
-        final SortMetricItem metricItem = metricItemSet.findMetricItem(dimensions);
+        final SortMetricItem metricItem = this.findSortSdkSourceMetricItem(event, sortId, topic);
         final int msgSize = event != null ? event.getBody().length : -1;
         this.reportToMetric(event, metricItem, fetchResult, msgSize);
     }
@@ -131,7 +129,7 @@ public final class SortSdkSourceContext extends SourceContext {
     }
 
     /**
-     * Generator of report dimensions.
+     * Finder of report metric item.
      *
      * <p> For the case of fetch {@link FetchResult#FAILURE}, the event may be null,
      * the {@link org.apache.inlong.sort.standalone.utils.Constants#INLONG_GROUP_ID}
@@ -141,25 +139,25 @@ public final class SortSdkSourceContext extends SourceContext {
      * @param sortId Sort id of fetched event.
      * @param topic Topic of event.
      *
-     * @return The dimensions of reported event.
+     * @return The metric item of reported event.
      */
-    private Map<String, String> createSortSdkSourceDimensionMap(
+    private SortMetricItem findSortSdkSourceMetricItem(
             final ProfileEvent event,
             final String sortId,
             final String topic) {
 
-        final Map<String, String> dimensions = new HashMap<>();
-        dimensions.put(SortMetricItem.KEY_CLUSTER_ID, this.getClusterId());
-        dimensions.put(SortMetricItem.KEY_SOURCE_ID, this.getSourceName());
-        dimensions.put(SortMetricItem.KEY_TASK_NAME, sortId);
-        dimensions.put(SortMetricItem.KEY_SOURCE_DATA_ID, topic);
+        String inlongGroupId = null;
+        String inlongStreamId = null;
+        long auditFormatTime = SortMetricItemSet.UNKNOWN_MSG_TIME;
         if (event != null) {
-            SortMetricItem.fillInlongId(event, dimensions);
+            Map<String, String> headers = event.getHeaders();
+            inlongGroupId = SortMetricItem.getInlongGroupId(headers);
+            inlongStreamId = SortMetricItem.getInlongStreamId(headers);
             long msgTime = event.getRawLogTime();
-            long auditFormatTime = msgTime - msgTime % CommonPropertiesHolder.getAuditFormatInterval();
-            dimensions.put(SortMetricItem.KEY_MESSAGE_TIME, String.valueOf(auditFormatTime));
+            auditFormatTime = msgTime - msgTime % CommonPropertiesHolder.getAuditFormatInterval();
         }
-        return dimensions;
+        return metricItemSet.findSourceMetricItem(this.getClusterId(), sortId, this.getSourceName(),
+                topic, inlongGroupId, inlongStreamId, auditFormatTime);
     }
 
 }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * The common utilities of the benchmarks, all files are created under temp directories.
+ */
+public final class BenchmarkUtils {
+
+    private BenchmarkUtils() {
+    }
+
+    /**
+     * Create a temp directory, deleted by deleteDir() after the trial.
+     *
+     * @param prefix  the directory name prefix
+     * @return the created directory
+     * @throws IOException the exception while creating
+     */
+    public static File createTempDir(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    /**
+     * Delete the directory and all files under it.
+     *
+     * @param dir  the directory to delete
+     */
+    public static void deleteDir(File dir) {
+        if (dir == null || !dir.exists()) {
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDir(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Load a broker configure storing the messages under the given directory.
+     *
+     * @param baseDir         the directory of the configure file and the stores
+     * @param enableMemStore  whether to enable the memory cache
+     * @return the broker configure
+     * @throws IOException the exception while writing the configure file
+     */
+    public static BrokerConfig loadBrokerConfig(File baseDir,
+            boolean enableMemStore) throws IOException {
+        File dataDir = new File(baseDir, "data");
+        File iniFile = new File(baseDir, "broker.ini");
+        String content = "[broker]\n"
+                + "brokerId=1\n"
+                + "hostName=127.0.0.1\n"
+                + "port=8123\n"
+                + "webPort=8081\n"
+                + "masterAddressList=127.0.0.1:8715\n"
+                + "primaryPath=" + dataDir.getAbsolutePath() + "\n"
+                + "enableMemStore=" + enableMemStore + "\n"
+                + "[zookeeper]\n"
+                + "zkNodeRoot=/tubemq\n"
+                + "zkServerAddr=127.0.0.1:2181\n";
+        Files.write(iniFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.loadFromFile(iniFile.getAbsolutePath());
+        return brokerConfig;
+    }
+
+    /**
+     * Build a stored data entry as MessageStore does.
+     *
+     * @param partitionId  the partition id
+     * @param keyCode      the filter item hash code
+     * @param msgId        the message id
+     * @param payload      the message payload
+     * @return the data entry, position at 0
+     */
+    public static ByteBuffer buildDataEntry(int partitionId,
+            int keyCode, long msgId, byte[] payload) {
+        ByteBuffer dataBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + payload.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payload.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(0);
+        dataBuffer.putInt(partitionId);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(System.currentTimeMillis());
+        dataBuffer.putInt(0);
+        dataBuffer.putInt(keyCode);
+        dataBuffer.putLong(msgId);
+        dataBuffer.putInt(0);
+        dataBuffer.put(payload);
+        dataBuffer.flip();
+        return dataBuffer;
+    }
+
+    /**
+     * Build a stored index entry as MessageStore does.
+     *
+     * @param partitionId  the partition id
+     * @param dataLength   the data entry length
+     * @param keyCode      the filter item hash code
+     * @param timeRecv     the received time
+     * @return the index entry, position at 0
+     */
+    public static ByteBuffer buildIndexEntry(int partitionId,
+            int dataLength, int keyCode, long timeRecv) {
+        ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(partitionId);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(dataLength);
+        indexBuffer.putInt(keyCode);
+        indexBuffer.putLong(timeRecv);
+        indexBuffer.flip();
+        return indexBuffer;
+    }
+
+    /**
+     * Build a payload of the given size.
+     *
+     * @param size  the payload size
+     * @return the payload
+     */
+    public static byte[] buildPayload(int size) {
+        byte[] payload = new byte[size];
+        for (int i = 0; i < size; i++) {
+            payload[i] = (byte) ('a' + (i % 26));
+        }
+        return payload;
+    }
+}
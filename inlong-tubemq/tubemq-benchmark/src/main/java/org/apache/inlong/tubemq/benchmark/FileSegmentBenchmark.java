@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.FileSegment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import io.netty.channel.FileRegion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of FileSegment random record reads, copied into a reused
+ * buffer by read() or referred as a file region by getFileRegion().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileSegmentBenchmark {
+
+    private static final int RECORD_COUNT = 20000;
+    private static final int OFFSET_COUNT = 1024;
+
+    @Param({"128", "1024"})
+    private int payloadSize;
+
+    private File baseDir;
+    private FileSegment segment;
+    private ByteBuffer readBuffer;
+    private long[] readOffsets;
+    private int recordSize;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        baseDir = BenchmarkUtils.createTempDir("tubemq-segment-bench");
+        File segFile = new File(baseDir,
+                DataStoreUtils.nameFromOffset(0L, DataStoreUtils.DATA_FILE_SUFFIX));
+        segment = new FileSegment(0L, segFile, SegmentType.DATA);
+        byte[] payload = BenchmarkUtils.buildPayload(payloadSize);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            long currTime = System.currentTimeMillis();
+            segment.append(BenchmarkUtils.buildDataEntry(0, 0, i, payload), currTime, currTime);
+        }
+        segment.flush(true);
+        recordSize = DataStoreUtils.STORE_DATA_HEADER_LEN + payloadSize;
+        readBuffer = ByteBuffer.allocate(recordSize);
+        // pre-generate the offsets, keep the random generator out of the measurement
+        Random random = new Random(RECORD_COUNT);
+        readOffsets = new long[OFFSET_COUNT];
+        for (int i = 0; i < OFFSET_COUNT; i++) {
+            readOffsets[i] = (long) random.nextInt(RECORD_COUNT) * recordSize;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        segment.close();
+        BenchmarkUtils.deleteDir(baseDir);
+    }
+
+    @Benchmark
+    public int read() throws IOException {
+        readBuffer.clear();
+        segment.read(readBuffer, nextOffset());
+        return readBuffer.getInt(0);
+    }
+
+    @Benchmark
+    public long getFileRegion() throws IOException {
+        FileRegion region = segment.getFileRegion(nextOffset(), recordSize);
+        long count = region.count();
+        region.release();
+        return count;
+    }
+
+    private long nextOffset() {
+        return readOffsets[cursor++ & (OFFSET_COUNT - 1)];
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.metadata.BrokerDefMetadata;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of MsgFileStore appendMsg() and getMessages(), the stores
+ * are created under a temp directory and deleted after the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgFileStoreBenchmark {
+
+    private static final String TOPIC_NAME = "bench";
+    private static final int PARTITION_COUNT = 10;
+    private static final int KEY_CODE_COUNT = 8;
+    private static final int READ_MSG_COUNT = 5000;
+    private static final int INDEX_READ_SIZE = 1000 * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+
+    @Param({"128", "1024"})
+    private int payloadSize;
+
+    @Param({"false", "true"})
+    private boolean filterConsume;
+
+    private final StringBuilder strBuffer = new StringBuilder(512);
+    private final Set<Integer> filterKeySet = Collections.singleton(0);
+    private File baseDir;
+    private MessageStore writeStore;
+    private MessageStore readStore;
+    private MsgFileStore writeFileStore;
+    private MsgFileStore readFileStore;
+    private ByteBuffer dataEntry;
+    private ByteBuffer indexEntry;
+    private ByteBuffer indexReadBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        baseDir = BenchmarkUtils.createTempDir("tubemq-file-bench");
+        BrokerConfig brokerConfig = BenchmarkUtils.loadBrokerConfig(baseDir, false);
+        TopicMetadata topicMetadata =
+                new TopicMetadata(new BrokerDefMetadata(), TOPIC_NAME, 2, PARTITION_COUNT);
+        writeStore = new MessageStore(null, topicMetadata, 0,
+                brokerConfig, DataStoreUtils.MAX_MSG_TRANSFER_SIZE);
+        readStore = new MessageStore(null, topicMetadata, 1,
+                brokerConfig, DataStoreUtils.MAX_MSG_TRANSFER_SIZE);
+        writeFileStore = getFileStore(writeStore);
+        readFileStore = getFileStore(readStore);
+        byte[] payload = BenchmarkUtils.buildPayload(payloadSize);
+        dataEntry = BenchmarkUtils.buildDataEntry(0, 0, 1L, payload);
+        indexEntry = BenchmarkUtils.buildIndexEntry(0,
+                dataEntry.remaining(), 0, System.currentTimeMillis());
+        indexReadBuffer = ByteBuffer.allocate(INDEX_READ_SIZE);
+        // interleave the messages of the partitions and filter items
+        for (int i = 0; i < READ_MSG_COUNT; i++) {
+            int partitionId = i % PARTITION_COUNT;
+            int keyCode = (i / PARTITION_COUNT) % KEY_CODE_COUNT;
+            long timeRecv = System.currentTimeMillis();
+            ByteBuffer dataBuffer =
+                    BenchmarkUtils.buildDataEntry(partitionId, keyCode, i, payload);
+            ByteBuffer indexBuffer = BenchmarkUtils.buildIndexEntry(partitionId,
+                    dataBuffer.remaining(), keyCode, timeRecv);
+            readFileStore.appendMsg(false, timeRecv, strBuffer, 1,
+                    indexBuffer.remaining(), indexBuffer,
+                    dataBuffer.remaining(), dataBuffer, timeRecv, timeRecv);
+            strBuffer.delete(0, strBuffer.length());
+        }
+        readStore.flushFile(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writeStore.close();
+        readStore.close();
+        BenchmarkUtils.deleteDir(baseDir);
+    }
+
+    @Benchmark
+    public long appendMsg() {
+        long currTime = System.currentTimeMillis();
+        dataEntry.rewind();
+        indexEntry.rewind();
+        writeFileStore.appendMsg(false, currTime, strBuffer, 1,
+                indexEntry.remaining(), indexEntry,
+                dataEntry.remaining(), dataEntry, currTime, currTime);
+        strBuffer.delete(0, strBuffer.length());
+        return writeFileStore.getIndexMaxOffset();
+    }
+
+    @Benchmark
+    public int getMessages() throws IOException {
+        long reqOffset = readFileStore.getIndexMinOffset();
+        Segment indexRecordView = readFileStore.indexSlice(reqOffset, INDEX_READ_SIZE);
+        if (indexRecordView == null) {
+            return 0;
+        }
+        indexReadBuffer.clear();
+        indexRecordView.read(indexReadBuffer, reqOffset);
+        indexReadBuffer.flip();
+        indexRecordView.relViewRef();
+        GetMessageResult result = readFileStore.getMessages(0, 0L, reqOffset,
+                indexReadBuffer, filterConsume, filterKeySet,
+                DataStoreUtils.MAX_MSG_TRANSFER_SIZE, 0L);
+        return result.transferedMessageList.size();
+    }
+
+    private static MsgFileStore getFileStore(MessageStore messageStore) throws Exception {
+        Field field = MessageStore.class.getDeclaredField("msgFileStore");
+        field.setAccessible(true);
+        return (MsgFileStore) field.get(messageStore);
+    }
+}
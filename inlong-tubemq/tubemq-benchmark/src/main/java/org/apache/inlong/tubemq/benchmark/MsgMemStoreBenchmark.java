@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of MsgMemStore appendMsg() and getMessages(), the reads
+ * scan the index chain of one partition with or without a filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgMemStoreBenchmark {
+
+    private static final int MAX_CACHE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_MSG_COUNT = 100000;
+    private static final int PARTITION_COUNT = 10;
+    private static final int KEY_CODE_COUNT = 8;
+    private static final int READ_MSG_COUNT = 5000;
+
+    @Param({"128", "1024"})
+    private int payloadSize;
+
+    @Param({"false", "true"})
+    private boolean filterConsume;
+
+    private final MsgStoreStatsHolder statsHolder = new MsgStoreStatsHolder();
+    private final AppendResult appendResult = new AppendResult();
+    private final Set<Integer> filterKeySet = Collections.singleton(0);
+    private MsgMemStore writeStore;
+    private MsgMemStore readStore;
+    private ByteBuffer dataEntry;
+    private ByteBuffer indexEntry;
+    private int dataLength;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] payload = BenchmarkUtils.buildPayload(payloadSize);
+        dataEntry = BenchmarkUtils.buildDataEntry(0, 0, 1L, payload);
+        dataLength = dataEntry.remaining();
+        indexEntry = BenchmarkUtils.buildIndexEntry(0, dataLength, 0, System.currentTimeMillis());
+        writeStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0L, 0L);
+        // interleave the messages of the partitions and filter items
+        readStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0L, 0L);
+        for (int i = 0; i < READ_MSG_COUNT; i++) {
+            int partitionId = i % PARTITION_COUNT;
+            int keyCode = (i / PARTITION_COUNT) % KEY_CODE_COUNT;
+            long timeRecv = System.currentTimeMillis();
+            readStore.appendMsg(statsHolder, partitionId, keyCode, timeRecv,
+                    BenchmarkUtils.buildIndexEntry(partitionId, dataLength, keyCode, timeRecv),
+                    dataLength, BenchmarkUtils.buildDataEntry(partitionId, keyCode, i, payload),
+                    appendResult);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writeStore.close();
+        readStore.close();
+    }
+
+    @Benchmark
+    public boolean appendMsg() {
+        if (!writeStore.appendMsg(statsHolder, 0, 0, System.currentTimeMillis(),
+                indexEntry, dataLength, dataEntry, appendResult)) {
+            writeStore.resetMemStoreStatus(0L, 0L);
+        }
+        return appendResult.isSuccess();
+    }
+
+    @Benchmark
+    public void getMessages(Blackhole blackhole) {
+        GetCacheMsgResult result = readStore.getMessages(0L, 0L,
+                DataStoreUtils.MAX_MSG_TRANSFER_SIZE, READ_MSG_COUNT * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                0, false, filterConsume, filterKeySet, 0L);
+        blackhole.consume(result.cacheMsgList);
+        result.release();
+    }
+}
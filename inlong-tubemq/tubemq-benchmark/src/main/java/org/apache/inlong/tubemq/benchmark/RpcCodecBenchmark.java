@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolDecoder;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolEncoder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the rpc frame encoding and decoding, the codecs are driven
+ * by embedded channels and all the produced buffers are released.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RpcCodecBenchmark {
+
+    @Param({"1", "16"})
+    private int bufferCount;
+
+    @Param({"128", "8192"})
+    private int bufferSize;
+
+    private EmbeddedChannel encChannel;
+    private EmbeddedChannel decChannel;
+    private List<ByteBuffer> dataList;
+    private ByteBuf frame;
+    private int serialNo;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        encChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        decChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        byte[] payload = BenchmarkUtils.buildPayload(bufferSize);
+        dataList = new ArrayList<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            dataList.add(ByteBuffer.wrap(payload));
+        }
+        encChannel.writeOutbound(buildDataPack());
+        frame = encChannel.readOutbound();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frame.release();
+        encChannel.finishAndReleaseAll();
+        decChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        encChannel.writeOutbound(buildDataPack());
+        ByteBuf buf = encChannel.readOutbound();
+        int length = buf.readableBytes();
+        buf.release();
+        return length;
+    }
+
+    @Benchmark
+    public int decode() {
+        decChannel.writeInbound(frame.retainedDuplicate());
+        RpcDataPack dataPack = decChannel.readInbound();
+        int serial = dataPack.getSerialNo();
+        dataPack.release();
+        return serial;
+    }
+
+    private RpcDataPack buildDataPack() {
+        RpcDataPack dataPack = new RpcDataPack();
+        dataPack.setSerialNo(++serialNo);
+        // the encoder writes duplicates of the buffers, share them between the packs
+        dataPack.setDataLst(dataList);
+        return dataPack;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficCounts;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of DataStoreUtils.getTransferMsg(), converting a stored record
+ * in a heap or direct buffer to the message replied to the consumer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferMsgBenchmark {
+
+    private static final byte[] MSG_ATTRIBUTE =
+            "k1=v1,$msgTime$=202401011200".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"128", "1024"})
+    private int payloadSize;
+
+    @Param({"false", "true"})
+    private boolean directBuffer;
+
+    @Param({"false", "true"})
+    private boolean withAttribute;
+
+    // the same message time is accumulated in place, reuse the counts
+    private final TrafficCounts trafficCounts = new TrafficCounts();
+    private ByteBuffer dataBuffer;
+    private int dataSize;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] payload = BenchmarkUtils.buildPayload(payloadSize);
+        if (withAttribute) {
+            // the attribute length and content lead the payload
+            ByteBuffer attrPayload =
+                    ByteBuffer.allocate(4 + MSG_ATTRIBUTE.length + payload.length);
+            attrPayload.putInt(MSG_ATTRIBUTE.length);
+            attrPayload.put(MSG_ATTRIBUTE);
+            attrPayload.put(payload);
+            payload = attrPayload.array();
+        }
+        ByteBuffer dataEntry = BenchmarkUtils.buildDataEntry(0, 0, 1L, payload);
+        if (withAttribute) {
+            dataEntry.putInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG, 1);
+        }
+        dataSize = dataEntry.remaining();
+        if (directBuffer) {
+            dataBuffer = ByteBuffer.allocateDirect(dataSize);
+            dataBuffer.put(dataEntry);
+            dataBuffer.flip();
+        } else {
+            dataBuffer = dataEntry;
+        }
+    }
+
+    @Benchmark
+    public ClientBroker.TransferedMessage getTransferMsg() {
+        return DataStoreUtils.getTransferMsg(dataBuffer, dataSize, trafficCounts);
+    }
+}
@@ -118,6 +118,13 @@ public class ClientStatsInfo {
         switchableSets[getIndex()].hbBrokerExcCnt.incValue();
     }
 
+    public void bookUnpackFailure(long batchCnt) {
+        if (this.statsConfig.getStatsLevel() == StatsLevel.ZERO) {
+            return;
+        }
+        switchableSets[getIndex()].unpackFailCnt.addValue(batchCnt);
+    }
+
     public void bookReturnDuration(String partitionKey, long dltTime) {
         if (this.statsConfig.getStatsLevel() == StatsLevel.ZERO) {
             return;
@@ -333,6 +340,10 @@ public class ClientStatsInfo {
                 new LongStatsCounter("reg_broker_timeout", null);
         protected final LongStatsCounter hbBrokerExcCnt =
                 new LongStatsCounter("hb_broker_exception", null);
+        // the fetched records failed to decode, a checksum mismatch
+        // or a compressed batch failed to unpack
+        protected final LongStatsCounter unpackFailCnt =
+                new LongStatsCounter("msg_unpack_fail", null);
 
         public ClientStatsItemSet() {
             resetStartTime();
@@ -515,6 +526,8 @@ public class ClientStatsInfo {
                         .append(regBrokerTimoutCnt.getAndResetValue())
                         .append(",\"").append(hbBrokerExcCnt.getFullName()).append("\":")
                         .append(hbBrokerExcCnt.getAndResetValue())
+                        .append(",\"").append(unpackFailCnt.getFullName()).append("\":")
+                        .append(unpackFailCnt.getAndResetValue())
                         .append("}");
             } else {
                 strBuff.append(regMasterCnt.getFullName()).append("\":")
@@ -533,6 +546,8 @@ public class ClientStatsInfo {
                         .append(regBrokerTimoutCnt.getValue())
                         .append(",\"").append(hbBrokerExcCnt.getFullName()).append("\":")
                         .append(hbBrokerExcCnt.getValue())
+                        .append(",\"").append(unpackFailCnt.getFullName()).append("\":")
+                        .append(unpackFailCnt.getValue())
                         .append("}");
             }
         }
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.common;
+
+/**
+ * The partition route modes of the producer.
+ */
+public enum PartitionRouteMode {
+
+    ROUND_ROBIN(0, "round_robin",
+            "Select the partitions in turn"),
+    KEY_HASH(1, "key_hash",
+            "Select the partition by the hash of the message type, for the ordered messages"),
+    LEAST_OUTSTANDING(2, "least_outstanding",
+            "Select the partition with the least latency weighted in-flight requests"),
+    POWER_OF_TWO_CHOICES(3, "power_of_two_choices",
+            "Select the less loaded of two random partitions");
+
+    PartitionRouteMode(int id, String name, String desc) {
+        this.id = id;
+        this.name = name;
+        this.desc = desc;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    public static PartitionRouteMode valueOf(int value) {
+        for (PartitionRouteMode routeMode : PartitionRouteMode.values()) {
+            if (routeMode.getId() == value) {
+                return routeMode;
+            }
+        }
+        return ROUND_ROBIN;
+    }
+
+    private final int id;
+    private final String name;
+    private final String desc;
+}
@@ -37,6 +37,10 @@ public class TClientConstants {
     public static final int MAX_CONNECTION_FAILURE_LOG_TIMES = 10;
     public static final int MAX_SUBSCRIBE_REPORT_INTERVAL_TIMES = 6;
 
+    public static final int CFG_DEFAULT_PRODUCE_BATCH_MAX_MSG_CNT = 1;
+    public static final int CFG_DEFAULT_PRODUCE_BATCH_MAX_SIZE = 256 * 1024;
+    public static final long CFG_DEFAULT_PRODUCE_BATCH_LINGER_MS = 5L;
+
     public static final long CFG_DEFAULT_META_QUERY_WAIT_PERIOD_MS = 10000L;
     public static final long CFG_MIN_META_QUERY_WAIT_PERIOD_MS = 5000L;
 }
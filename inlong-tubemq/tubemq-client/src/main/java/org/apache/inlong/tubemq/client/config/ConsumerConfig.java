@@ -60,6 +60,21 @@ public class ConsumerConfig extends TubeClientConfig {
     private long pullProtectConfirmTimeoutMs =
             TClientConstants.CFG_DEFAULT_PULL_PROTECT_CONFIRM_WAIT_PERIOD_MS;
     private boolean pullConfirmInLocal = false;
+    // whether to fetch the stored records as raw data blocks,
+    // the broker sends them from file without copying, ignored over TLS
+    private boolean rawDataFetch = false;
+    // the max time the broker holds a fetch finding no message until new messages arrive,
+    // 0 to sleep msgNotFoundWaitPeriodMs at the client side instead
+    private long fetchLongPollWaitMs = 0L;
+    // the max fetch requests in flight to a broker, sent without waiting for the responses
+    // and delivered to the listeners in a separate executor, 0 to fetch in the fetch worker threads
+    private int pushFetchInflightPerBroker = 0;
+    // the max fetched packs buffered for each partition by the async fetch engine, including
+    // the one being delivered. When larger than 1 the next packs are fetched while the buffered
+    // ones wait for delivery, and the buffered packs are confirmed to the broker before they are
+    // delivered, so a listener failure does not roll them back. 1 confirms each pack after its
+    // delivery
+    private int pushFetchBufferPerPartition = 1;
 
     public ConsumerConfig(String masterAddrInfo, String consumerGroup) {
         this(new MasterInfo(masterAddrInfo), consumerGroup);
@@ -239,6 +254,38 @@ public class ConsumerConfig extends TubeClientConfig {
         this.pullProtectConfirmTimeoutMs = pullProtectConfirmTimeoutMs;
     }
 
+    public boolean isRawDataFetch() {
+        return rawDataFetch;
+    }
+
+    public void setRawDataFetch(boolean rawDataFetch) {
+        this.rawDataFetch = rawDataFetch;
+    }
+
+    public long getFetchLongPollWaitMs() {
+        return fetchLongPollWaitMs;
+    }
+
+    public void setFetchLongPollWaitMs(long fetchLongPollWaitMs) {
+        this.fetchLongPollWaitMs = Math.max(fetchLongPollWaitMs, 0L);
+    }
+
+    public int getPushFetchInflightPerBroker() {
+        return pushFetchInflightPerBroker;
+    }
+
+    public void setPushFetchInflightPerBroker(int pushFetchInflightPerBroker) {
+        this.pushFetchInflightPerBroker = Math.max(pushFetchInflightPerBroker, 0);
+    }
+
+    public int getPushFetchBufferPerPartition() {
+        return pushFetchBufferPerPartition;
+    }
+
+    public void setPushFetchBufferPerPartition(int pushFetchBufferPerPartition) {
+        this.pushFetchBufferPerPartition = Math.max(pushFetchBufferPerPartition, 1);
+    }
+
     public int getMaxSubInfoReportIntvlTimes() {
         return maxSubInfoReportIntvlTimes;
     }
@@ -282,6 +329,10 @@ public class ConsumerConfig extends TubeClientConfig {
                 .append(",\"pullConfirmWaitPeriodMs\":").append(this.pullRebConfirmWaitPeriodMs)
                 .append(",\"pullProtectConfirmTimeoutPeriodMs\":").append(this.pullProtectConfirmTimeoutMs)
                 .append(",\"pullConfirmInLocal\":").append(this.pullConfirmInLocal)
+                .append(",\"rawDataFetch\":").append(this.rawDataFetch)
+                .append(",\"fetchLongPollWaitMs\":").append(this.fetchLongPollWaitMs)
+                .append(",\"pushFetchInflightPerBroker\":").append(this.pushFetchInflightPerBroker)
+                .append(",\"pushFetchBufferPerPartition\":").append(this.pushFetchBufferPerPartition)
                 .append(",\"maxSubInfoReportIntvlTimes\":").append(this.maxSubInfoReportIntvlTimes)
                 .append(",\"partMetaInfoCheckPeriodMs\":").append(this.partMetaInfoCheckPeriodMs)
                 .append(",\"ClientConfig\":").append(toJsonString())
@@ -17,15 +17,21 @@
 
 package org.apache.inlong.tubemq.client.config;
 
+import org.apache.inlong.tubemq.client.common.PartitionRouteMode;
 import org.apache.inlong.tubemq.client.common.StatsConfig;
 import org.apache.inlong.tubemq.client.common.StatsLevel;
 import org.apache.inlong.tubemq.client.common.TClientConstants;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.cluster.MasterInfo;
+import org.apache.inlong.tubemq.corebase.compress.CompressType;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Configuration of the Tube client.
  */
@@ -96,6 +102,19 @@ public class TubeClientConfig {
     private String usrPassWord = "";
     // TLS configuration.
     private TLSConfig tlsConfig = new TLSConfig();
+    // Max message count of a produce batch, the asynchronous sent messages are
+    // accumulated per partition and sent in batch only when it is larger than 1.
+    private int produceBatchMaxMsgCnt = TClientConstants.CFG_DEFAULT_PRODUCE_BATCH_MAX_MSG_CNT;
+    // Max data size of a produce batch.
+    private int produceBatchMaxSize = TClientConstants.CFG_DEFAULT_PRODUCE_BATCH_MAX_SIZE;
+    // Max waiting time of a produce batch before it is sent.
+    private long produceBatchLingerMs = TClientConstants.CFG_DEFAULT_PRODUCE_BATCH_LINGER_MS;
+    // Compress type of the produce batch.
+    private CompressType produceCompressType = CompressType.NONE;
+    // Topics whose produce batches are compressed.
+    private Set<String> produceCompressTopics = new HashSet<>();
+    // Partition route mode of the producer.
+    private PartitionRouteMode produceRouteMode = PartitionRouteMode.ROUND_ROBIN;
 
     public TubeClientConfig(String masterAddrInfo) {
         this(new MasterInfo(masterAddrInfo));
@@ -369,6 +388,110 @@ public class TubeClientConfig {
         this.sessionMaxAllowedDelayedMsgCount = sessionMaxAllowedDelayedMsgCount;
     }
 
+    public int getProduceBatchMaxMsgCnt() {
+        return produceBatchMaxMsgCnt;
+    }
+
+    /**
+     * Set the max message count of a produce batch. Please notice that the value
+     * should be between 1 and TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT, and
+     * the messages are sent in batch only when it is larger than 1.
+     *
+     * @param produceBatchMaxMsgCnt  the max message count of a batch
+     */
+    public void setProduceBatchMaxMsgCnt(int produceBatchMaxMsgCnt) {
+        if (produceBatchMaxMsgCnt >= TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT) {
+            this.produceBatchMaxMsgCnt = TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT;
+        } else if (produceBatchMaxMsgCnt <= 1) {
+            this.produceBatchMaxMsgCnt = 1;
+        } else {
+            this.produceBatchMaxMsgCnt = produceBatchMaxMsgCnt;
+        }
+    }
+
+    public int getProduceBatchMaxSize() {
+        return produceBatchMaxSize;
+    }
+
+    /**
+     * Set the max data size of a produce batch. Please notice that the value
+     * should not be larger than TBaseConstants.META_MAX_BATCH_DATA_SIZE.
+     *
+     * @param produceBatchMaxSize  the max data size of a batch
+     */
+    public void setProduceBatchMaxSize(int produceBatchMaxSize) {
+        if (produceBatchMaxSize >= TBaseConstants.META_MAX_BATCH_DATA_SIZE) {
+            this.produceBatchMaxSize = TBaseConstants.META_MAX_BATCH_DATA_SIZE;
+        } else if (produceBatchMaxSize <= 0) {
+            this.produceBatchMaxSize = TClientConstants.CFG_DEFAULT_PRODUCE_BATCH_MAX_SIZE;
+        } else {
+            this.produceBatchMaxSize = produceBatchMaxSize;
+        }
+    }
+
+    public long getProduceBatchLingerMs() {
+        return produceBatchLingerMs;
+    }
+
+    public void setProduceBatchLingerMs(long produceBatchLingerMs) {
+        this.produceBatchLingerMs = Math.max(0L, produceBatchLingerMs);
+    }
+
+    public CompressType getProduceCompressType() {
+        return produceCompressType;
+    }
+
+    /**
+     * Set the compress type of the produce batch. The messages are compressed
+     * only when they are sent in batch, please see setProduceBatchMaxMsgCnt(),
+     * and only for the topics set by setProduceCompressTopics().
+     *
+     * @param produceCompressType  the compress type
+     */
+    public void setProduceCompressType(CompressType produceCompressType) {
+        this.produceCompressType =
+                (produceCompressType == null) ? CompressType.NONE : produceCompressType;
+    }
+
+    public Set<String> getProduceCompressTopics() {
+        return produceCompressTopics;
+    }
+
+    /**
+     * Set the topics whose produce batches are compressed. A compressed batch can
+     * only be read by the consumers which unpack the compressed batches, so add a
+     * topic only after all of its consumers have been upgraded.
+     *
+     * @param produceCompressTopics  the topic set
+     */
+    public void setProduceCompressTopics(Set<String> produceCompressTopics) {
+        this.produceCompressTopics = (produceCompressTopics == null)
+                ? new HashSet<>()
+                : new HashSet<>(produceCompressTopics);
+    }
+
+    public boolean isProduceCompressTopic(String topicName) {
+        return produceCompressType != CompressType.NONE
+                && produceCompressTopics.contains(topicName);
+    }
+
+    public PartitionRouteMode getProduceRouteMode() {
+        return produceRouteMode;
+    }
+
+    /**
+     * Set the partition route mode of the producer. Except ROUND_ROBIN, the
+     * partitions are weighted by the latencies and the requests in flight of
+     * their brokers; KEY_HASH keeps the messages of the same message type in
+     * the same partition, please see Message.putSystemHeader().
+     *
+     * @param produceRouteMode  the partition route mode
+     */
+    public void setProduceRouteMode(PartitionRouteMode produceRouteMode) {
+        this.produceRouteMode =
+                (produceRouteMode == null) ? PartitionRouteMode.ROUND_ROBIN : produceRouteMode;
+    }
+
     /**
      * Set authenticate information
      *
@@ -566,6 +689,24 @@ public class TubeClientConfig {
         if (!this.statsConfig.equals(that.statsConfig)) {
             return false;
         }
+        if (produceBatchMaxMsgCnt != that.produceBatchMaxMsgCnt) {
+            return false;
+        }
+        if (produceBatchMaxSize != that.produceBatchMaxSize) {
+            return false;
+        }
+        if (produceBatchLingerMs != that.produceBatchLingerMs) {
+            return false;
+        }
+        if (produceCompressType != that.produceCompressType) {
+            return false;
+        }
+        if (!produceCompressTopics.equals(that.produceCompressTopics)) {
+            return false;
+        }
+        if (produceRouteMode != that.produceRouteMode) {
+            return false;
+        }
         return masterInfo.equals(that.masterInfo);
     }
 
@@ -614,6 +755,12 @@ public class TubeClientConfig {
                 .append(",\"sessionMaxAllowedDelayedMsgCount\":").append(this.sessionMaxAllowedDelayedMsgCount)
                 .append(",\"unAvailableFbdDurationMs\":").append(this.unAvailableFbdDurationMs)
                 .append(",\"enableUserAuthentic\":").append(this.enableUserAuthentic)
+                .append(",\"produceBatchMaxMsgCnt\":").append(this.produceBatchMaxMsgCnt)
+                .append(",\"produceBatchMaxSize\":").append(this.produceBatchMaxSize)
+                .append(",\"produceBatchLingerMs\":").append(this.produceBatchLingerMs)
+                .append(",\"produceCompressType\":\"").append(this.produceCompressType.getName()).append("\"")
+                .append(",\"produceCompressTopics\":\"").append(this.produceCompressTopics).append("\"")
+                .append(",\"produceRouteMode\":\"").append(this.produceRouteMode.getName()).append("\"")
                 .append(",").append(this.statsConfig.toString())
                 .append(",\"usrName\":\"").append(this.usrName)
                 .append("\",\"usrPassWord\":\"").append(this.usrPassWord)
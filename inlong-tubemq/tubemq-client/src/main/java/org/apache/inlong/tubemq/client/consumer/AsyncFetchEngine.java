@@ -0,0 +1,522 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import org.apache.inlong.tubemq.client.config.ConsumerConfig;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corerpc.client.Callback;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetch messages asynchronously, instead of the fetch worker threads.
+ *
+ * A dispatch thread selects the idle partitions and sends their fetch requests without
+ * waiting for the responses, up to the configured requests in flight to each broker; the
+ * partitions selected over the limit wait in the queue of their broker, which is bounded by
+ * the partitions of the broker. A response frees its in-flight slot once it is processed,
+ * and its pack is put into the bounded buffer of its partition. The buffered packs of a
+ * partition are delivered to the listener one by one in fetch order, in a separate executor,
+ * on virtual threads if the runtime supports them. The partition is released for the next
+ * fetch while its buffer has room, else after a buffered pack is delivered.
+ */
+class AsyncFetchEngine {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(AsyncFetchEngine.class);
+    private final ConsumerConfig consumerConfig;
+    private final MessageFetchManager fetchManager;
+    private final SimplePushMessageConsumer pushConsumer;
+    private final int maxInflightPerBroker;
+    private final int maxBufferedPerPartition;
+    private final ConcurrentHashMap<Integer, BrokerFetchQueue> brokerQueueMap =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PartitionBuffer> partBufferMap =
+            new ConcurrentHashMap<>();
+    // the fetches sent and not yet processed
+    private final AtomicInteger inflightFetchCnt = new AtomicInteger(0);
+    // the fetched packs buffered and not yet delivered
+    private final AtomicInteger bufferedPackCnt = new AtomicInteger(0);
+    private Thread dispatchThread;
+    private ExecutorService deliverExecutor;
+
+    AsyncFetchEngine(ConsumerConfig consumerConfig,
+            MessageFetchManager fetchManager,
+            SimplePushMessageConsumer pushConsumer) {
+        this.consumerConfig = consumerConfig;
+        this.fetchManager = fetchManager;
+        this.pushConsumer = pushConsumer;
+        this.maxInflightPerBroker = consumerConfig.getPushFetchInflightPerBroker();
+        this.maxBufferedPerPartition = consumerConfig.getPushFetchBufferPerPartition();
+    }
+
+    /**
+     * Start the dispatch thread and the deliver executor.
+     */
+    void start() {
+        this.deliverExecutor = createDeliverExecutor();
+        this.dispatchThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                dispatch();
+            }
+        }, "Fetch_Dispatcher_" + consumerConfig.getConsumerGroup());
+        this.dispatchThread.start();
+        logger.info("Async fetch engine started, max in-flight fetches per broker: {},"
+                + " max buffered packs per partition: {}",
+                maxInflightPerBroker, maxBufferedPerPartition);
+    }
+
+    /**
+     * Get the count of the fetches sent and not yet processed.
+     *
+     * @return the in-flight fetch count
+     */
+    int getInflightFetchCnt() {
+        return inflightFetchCnt.get();
+    }
+
+    /**
+     * Get the count of the fetched packs buffered and not yet delivered.
+     *
+     * @return the buffered pack count
+     */
+    int getBufferedPackCnt() {
+        return bufferedPackCnt.get();
+    }
+
+    /**
+     * Stop the engine, called after the fetch manager is set stopped.
+     *
+     * @param waitTimeInMills  the max time to wait for the in-flight and buffered fetches
+     * @throws InterruptedException  interrupted while waiting
+     */
+    void stop(long waitTimeInMills) throws InterruptedException {
+        long startWaitTime = System.currentTimeMillis();
+        while ((inflightFetchCnt.get() > 0 || bufferedPackCnt.get() > 0)
+                && (System.currentTimeMillis() - startWaitTime) < waitTimeInMills) {
+            Thread.sleep(150);
+        }
+        if (dispatchThread != null) {
+            dispatchThread.interrupt();
+            dispatchThread.join();
+        }
+        for (BrokerFetchQueue fetchQueue : brokerQueueMap.values()) {
+            fetchQueue.releaseAll();
+        }
+        if (deliverExecutor != null) {
+            deliverExecutor.shutdown();
+            deliverExecutor.awaitTermination(Math.max(0L,
+                    waitTimeInMills - (System.currentTimeMillis() - startWaitTime)),
+                    TimeUnit.MILLISECONDS);
+        }
+        for (PartitionBuffer partBuffer : partBufferMap.values()) {
+            partBuffer.releaseHeld();
+        }
+        logger.info("Async fetch engine stopped, in-flight fetches left: {},"
+                + " buffered packs left: {}", inflightFetchCnt.get(), bufferedPackCnt.get());
+    }
+
+    private void dispatch() {
+        StringBuilder sBuilder = new StringBuilder(256);
+        BaseMessageConsumer baseConsumer = pushConsumer.getBaseConsumer();
+        while (!fetchManager.isShutdown()) {
+            PartitionSelectResult partSelectResult = null;
+            try {
+                pushConsumer.allowConsumeWait();
+                partSelectResult = baseConsumer.pushSelectPartition();
+                if (partSelectResult == null) {
+                    continue;
+                }
+                Partition partition = partSelectResult.getPartition();
+                if (fetchManager.isShutdown()) {
+                    baseConsumer.pushReqReleasePartition(partition.getPartitionKey(),
+                            partSelectResult.getUsedToken(), partSelectResult.isLastPackConsumed());
+                    break;
+                }
+                if (pushConsumer.isConsumePaused()) {
+                    boolean result = partSelectResult.isLastPackConsumed();
+                    if (result) {
+                        result = baseConsumer.flushLastRequest(partition);
+                    }
+                    baseConsumer.pushReqReleasePartition(partition.getPartitionKey(),
+                            partSelectResult.getUsedToken(), result);
+                    continue;
+                }
+                BrokerFetchQueue fetchQueue = brokerQueueMap.get(partition.getBrokerId());
+                if (fetchQueue == null) {
+                    BrokerFetchQueue newQueue = new BrokerFetchQueue();
+                    fetchQueue = brokerQueueMap.putIfAbsent(partition.getBrokerId(), newQueue);
+                    if (fetchQueue == null) {
+                        fetchQueue = newQueue;
+                    }
+                }
+                // the queue takes over the partition
+                PartitionSelectResult submitted = partSelectResult;
+                partSelectResult = null;
+                fetchQueue.submit(submitted);
+            } catch (Throwable e) {
+                if (partSelectResult != null) {
+                    baseConsumer.pushReqReleasePartition(
+                            partSelectResult.getPartition().getPartitionKey(),
+                            partSelectResult.getUsedToken(), false);
+                }
+                if (fetchManager.isShutdown()) {
+                    break;
+                }
+                logger.warn(sBuilder.append("Fetch dispatcher ")
+                        .append(Thread.currentThread().getName())
+                        .append(" throw exception: ").append(e.toString()).toString());
+                sBuilder.delete(0, sBuilder.length());
+            }
+        }
+    }
+
+    private void sendFetch(final BrokerFetchQueue fetchQueue,
+            final PartitionSelectResult partSelectResult) {
+        final BaseMessageConsumer baseConsumer = pushConsumer.getBaseConsumer();
+        final FetchContext taskContext = new FetchContext(partSelectResult);
+        final long startTime = System.currentTimeMillis();
+        inflightFetchCnt.incrementAndGet();
+        try {
+            baseConsumer.asyncFetchMessage(partSelectResult, new Callback() {
+
+                @Override
+                public void handleResult(final Object result) {
+                    deliver(fetchQueue, partSelectResult, taskContext, startTime,
+                            (result instanceof ClientBroker.GetMessageResponseB2C)
+                                    ? (ClientBroker.GetMessageResponseB2C) result
+                                    : null,
+                            null);
+                }
+
+                @Override
+                public void handleError(Throwable error) {
+                    deliver(fetchQueue, partSelectResult, taskContext,
+                            startTime, null, error);
+                }
+            });
+        } catch (Throwable e) {
+            StringBuilder sBuilder = new StringBuilder(256);
+            baseConsumer.processFetchFailure(taskContext, e, sBuilder);
+            inflightFetchCnt.decrementAndGet();
+            fetchQueue.onFetchDone();
+        }
+    }
+
+    /**
+     * Process the response out of the network thread, then buffer it for the delivery.
+     */
+    private void deliver(final BrokerFetchQueue fetchQueue,
+            final PartitionSelectResult partSelectResult,
+            final FetchContext taskContext, final long startTime,
+            final ClientBroker.GetMessageResponseB2C msgRspB2C,
+            final Throwable error) {
+        final long dltTime = System.currentTimeMillis() - startTime;
+        Runnable processTask = new Runnable() {
+
+            @Override
+            public void run() {
+                StringBuilder sBuilder = new StringBuilder(256);
+                boolean isBuffered = false;
+                try {
+                    if (error != null) {
+                        pushConsumer.getBaseConsumer()
+                                .processFetchFailure(taskContext, error, sBuilder);
+                    } else {
+                        pushConsumer.getBaseConsumer()
+                                .processFetchResponse(taskContext, msgRspB2C, dltTime, sBuilder);
+                    }
+                    if (taskContext.isSuccess()) {
+                        bufferPack(new FetchedPack(partSelectResult, taskContext, startTime));
+                        isBuffered = true;
+                    } else {
+                        // the failed fetch has released the partition
+                        pushConsumer.processFetchResult(partSelectResult,
+                                taskContext, startTime, sBuilder);
+                    }
+                } catch (Throwable e) {
+                    logger.warn("Process fetched messages of {} throw exception: {}",
+                            partSelectResult.getPartition().getPartitionKey(), e.toString());
+                    if (taskContext.isSuccess() && !isBuffered) {
+                        pushConsumer.releaseFetchResult(taskContext, false);
+                    }
+                } finally {
+                    inflightFetchCnt.decrementAndGet();
+                    fetchQueue.onFetchDone();
+                }
+            }
+        };
+        execute(processTask);
+    }
+
+    private void bufferPack(FetchedPack fetchedPack) {
+        final String partitionKey = fetchedPack.taskContext.getPartitionKey();
+        while (true) {
+            PartitionBuffer partBuffer = partBufferMap.get(partitionKey);
+            if (partBuffer == null) {
+                PartitionBuffer newBuffer = new PartitionBuffer(partitionKey);
+                partBuffer = partBufferMap.putIfAbsent(partitionKey, newBuffer);
+                if (partBuffer == null) {
+                    partBuffer = newBuffer;
+                }
+            }
+            // a buffer drained and removed concurrently is replaced by a new one
+            if (partBuffer.offer(fetchedPack)) {
+                return;
+            }
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            deliverExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the executor is shut down, run the task in place
+            task.run();
+        }
+    }
+
+    private ExecutorService createDeliverExecutor() {
+        try {
+            // virtual threads, since Java 21
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Throwable e) {
+            final AtomicInteger threadIndex = new AtomicInteger(0);
+            return Executors.newFixedThreadPool(consumerConfig.getPushFetchThreadCnt(),
+                    new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "Fetch_Deliver_"
+                                    + consumerConfig.getConsumerGroup()
+                                    + "-" + threadIndex.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * A fetched pack waiting for the delivery.
+     */
+    private static class FetchedPack {
+
+        private final PartitionSelectResult partSelectResult;
+        private final FetchContext taskContext;
+        private final long startTime;
+
+        FetchedPack(PartitionSelectResult partSelectResult,
+                FetchContext taskContext, long startTime) {
+            this.partSelectResult = partSelectResult;
+            this.taskContext = taskContext;
+            this.startTime = startTime;
+        }
+    }
+
+    /**
+     * The bounded buffer of a partition, delivers the packs one by one in fetch order.
+     *
+     * The partition of a pack is released for the next fetch as soon as the pack is buffered,
+     * if the buffer still has room; otherwise the pack is held, and its partition is released
+     * after the next pack delivery: with the pack's consume result if it is the delivered one,
+     * as consumed otherwise. So at most one pack is held, and a buffer of one pack keeps
+     * releasing each partition after its pack is consumed.
+     */
+    private class PartitionBuffer {
+
+        private final String partitionKey;
+        private final ArrayDeque<FetchedPack> packQueue = new ArrayDeque<>();
+        // the pack whose partition is not yet released
+        private FetchedPack heldPack = null;
+        private boolean isDraining = false;
+        private boolean isRemoved = false;
+
+        PartitionBuffer(String partitionKey) {
+            this.partitionKey = partitionKey;
+        }
+
+        boolean offer(FetchedPack fetchedPack) {
+            boolean isRelease;
+            boolean isStartDrain = false;
+            synchronized (this) {
+                if (isRemoved) {
+                    return false;
+                }
+                packQueue.offer(fetchedPack);
+                bufferedPackCnt.incrementAndGet();
+                isRelease = packQueue.size() < maxBufferedPerPartition;
+                if (!isRelease) {
+                    heldPack = fetchedPack;
+                }
+                if (!isDraining) {
+                    isDraining = true;
+                    isStartDrain = true;
+                }
+            }
+            if (isRelease) {
+                // confirm the buffered pack, so the next pack is fetched while it waits
+                pushConsumer.releaseFetchResult(fetchedPack.taskContext, true);
+            }
+            if (isStartDrain) {
+                execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        drain();
+                    }
+                });
+            }
+            return true;
+        }
+
+        void releaseHeld() {
+            FetchedPack releasePack;
+            synchronized (this) {
+                releasePack = heldPack;
+                heldPack = null;
+            }
+            if (releasePack != null) {
+                // not delivered, fetch the pack again
+                pushConsumer.releaseFetchResult(releasePack.taskContext, false);
+            }
+        }
+
+        private void drain() {
+            StringBuilder sBuilder = new StringBuilder(256);
+            while (true) {
+                FetchedPack fetchedPack;
+                synchronized (this) {
+                    fetchedPack = packQueue.peek();
+                    if (fetchedPack == null) {
+                        isDraining = false;
+                        isRemoved = partBufferMap.remove(partitionKey, this);
+                        return;
+                    }
+                }
+                boolean isConsumed = false;
+                try {
+                    isConsumed = pushConsumer.deliverFetchResult(
+                            fetchedPack.taskContext, sBuilder);
+                } catch (Throwable e) {
+                    logger.warn("Deliver fetched messages of {} throw exception: {}",
+                            partitionKey, e.toString());
+                }
+                FetchedPack releasePack;
+                synchronized (this) {
+                    packQueue.poll();
+                    bufferedPackCnt.decrementAndGet();
+                    releasePack = heldPack;
+                    heldPack = null;
+                }
+                if (releasePack != null) {
+                    pushConsumer.releaseFetchResult(releasePack.taskContext,
+                            releasePack != fetchedPack || isConsumed);
+                }
+                pushConsumer.logSlowProcess(fetchedPack.partSelectResult,
+                        fetchedPack.startTime, sBuilder);
+            }
+        }
+    }
+
+    /**
+     * The fetches of a broker, sends the queued partitions as the in-flight fetches complete.
+     */
+    private class BrokerFetchQueue {
+
+        private final ArrayDeque<PartitionSelectResult> pendingQueue = new ArrayDeque<>();
+        private int inflightCnt = 0;
+
+        void submit(PartitionSelectResult partSelectResult) {
+            synchronized (this) {
+                if (inflightCnt >= maxInflightPerBroker) {
+                    pendingQueue.offer(partSelectResult);
+                    return;
+                }
+                inflightCnt++;
+            }
+            sendFetch(this, partSelectResult);
+        }
+
+        void onFetchDone() {
+            PartitionSelectResult nextSelect;
+            synchronized (this) {
+                nextSelect = pollValid();
+                if (nextSelect == null) {
+                    inflightCnt--;
+                    return;
+                }
+            }
+            if (fetchManager.isShutdown()) {
+                release(nextSelect);
+                releaseAll();
+                synchronized (this) {
+                    inflightCnt--;
+                }
+                return;
+            }
+            sendFetch(this, nextSelect);
+        }
+
+        void releaseAll() {
+            PartitionSelectResult partSelectResult;
+            while (true) {
+                synchronized (this) {
+                    partSelectResult = pollValid();
+                }
+                if (partSelectResult == null) {
+                    return;
+                }
+                release(partSelectResult);
+            }
+        }
+
+        // skip the partitions released while queued, such as by rebalance
+        private PartitionSelectResult pollValid() {
+            PartitionSelectResult partSelectResult;
+            while ((partSelectResult = pendingQueue.poll()) != null) {
+                if (pushConsumer.getBaseConsumer().isPartitionInUse(
+                        partSelectResult.getPartition().getPartitionKey(),
+                        partSelectResult.getUsedToken())) {
+                    return partSelectResult;
+                }
+            }
+            return null;
+        }
+
+        private void release(PartitionSelectResult partSelectResult) {
+            pushConsumer.getBaseConsumer().pushReqReleasePartition(
+                    partSelectResult.getPartition().getPartitionKey(),
+                    partSelectResult.getUsedToken(), partSelectResult.isLastPackConsumed());
+        }
+    }
+}
@@ -44,6 +44,7 @@ import org.apache.inlong.tubemq.corebase.utils.ThreadUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
+import org.apache.inlong.tubemq.corerpc.client.Callback;
 import org.apache.inlong.tubemq.corerpc.service.BrokerReadService;
 import org.apache.inlong.tubemq.corerpc.service.MasterService;
 
@@ -759,6 +760,17 @@ public class BaseMessageConsumer implements MessageConsumer {
         return rmtDataCache.pushSelect();
     }
 
+    /**
+     * Check whether the partition is still held by the select token.
+     *
+     * @param partitionKey   the partition key
+     * @param usedToken      the token of the partition select
+     * @return               whether the partition is in use
+     */
+    protected boolean isPartitionInUse(String partitionKey, long usedToken) {
+        return rmtDataCache.isPartitionInUse(partitionKey, usedToken);
+    }
+
     protected void pushReqReleasePartition(String partitionKey,
             long usedTime,
             boolean isLastPackConsumed) {
@@ -783,6 +795,13 @@ public class BaseMessageConsumer implements MessageConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        builder.setRawDataFetch(this.consumerConfig.isRawDataFetch()
+                && !this.consumerConfig.isTlsEnable());
+        if (this.consumerConfig.getFetchLongPollWaitMs() > 0) {
+            // leave time for the response to arrive before the rpc times out
+            builder.setMaxWaitMs((int) Math.min(this.consumerConfig.getFetchLongPollWaitMs(),
+                    this.consumerConfig.getRpcTimeoutMs() / 2));
+        }
         return builder.build();
     }
 
@@ -1197,15 +1216,12 @@ public class BaseMessageConsumer implements MessageConsumer {
         return readStatus;
     }
 
-    // #lizard forgives
     protected FetchContext fetchMessage(PartitionSelectResult partSelectResult,
             final StringBuilder strBuffer) {
         // Fetch task context based on selected partition
         FetchContext taskContext =
                 new FetchContext(partSelectResult);
         Partition partition = taskContext.getPartition();
-        String topic = partition.getTopic();
-        String partitionKey = partition.getPartitionKey();
         long startTime = System.currentTimeMillis();
         // Response from broker
         ClientBroker.GetMessageResponseB2C msgRspB2C = null;
@@ -1216,16 +1232,64 @@ public class BaseMessageConsumer implements MessageConsumer {
                                     partition, taskContext.isLastConsumed()),
                                     AddressUtils.getLocalAddress(), consumerConfig.isTlsEnable());
         } catch (Throwable ee) {
-            clientStatsInfo.bookFailRpcCall(TErrCodeConstants.UNSPECIFIED_ABNORMAL);
-            // Process the exception
-            rmtDataCache.errReqRelease(partitionKey, taskContext.getUsedToken(), false);
-            taskContext.setFailProcessResult(400, strBuffer
-                    .append("Get message error, reason is ")
-                    .append(ee.toString()).toString());
-            strBuffer.delete(0, strBuffer.length());
+            processFetchFailure(taskContext, ee, strBuffer);
             return taskContext;
         }
-        long dltTime = System.currentTimeMillis() - startTime;
+        return processFetchResponse(taskContext, msgRspB2C,
+                System.currentTimeMillis() - startTime, strBuffer);
+    }
+
+    /**
+     * Send the fetch request of the selected partition without waiting for the response.
+     *
+     * @param partSelectResult   the selected partition
+     * @param callback           the callback of the response
+     * @throws Throwable         the exception while sending the request
+     */
+    protected void asyncFetchMessage(PartitionSelectResult partSelectResult,
+            Callback callback) throws Throwable {
+        Partition partition = partSelectResult.getPartition();
+        getAsyncBrokerService(partition.getBroker())
+                .getMessagesC2B(createBrokerGetMessageRequest(
+                        partition, partSelectResult.isLastPackConsumed()),
+                        AddressUtils.getLocalAddress(), consumerConfig.isTlsEnable(), callback);
+    }
+
+    /**
+     * Process the failure of the fetch request, release the partition.
+     *
+     * @param taskContext   the fetch task context
+     * @param throwable     the failure cause
+     * @param strBuffer     the string buffer
+     */
+    protected void processFetchFailure(FetchContext taskContext,
+            Throwable throwable, final StringBuilder strBuffer) {
+        clientStatsInfo.bookFailRpcCall(TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+        // Process the exception
+        rmtDataCache.errReqRelease(taskContext.getPartition().getPartitionKey(),
+                taskContext.getUsedToken(), false);
+        taskContext.setFailProcessResult(400, strBuffer
+                .append("Get message error, reason is ")
+                .append(throwable.toString()).toString());
+        strBuffer.delete(0, strBuffer.length());
+    }
+
+    /**
+     * Process the fetch response of the broker.
+     *
+     * @param taskContext   the fetch task context
+     * @param msgRspB2C     the fetch response
+     * @param dltTime       the time cost of the fetch request
+     * @param strBuffer     the string buffer
+     * @return              the fetch task context with the process result
+     */
+    // #lizard forgives
+    protected FetchContext processFetchResponse(FetchContext taskContext,
+            ClientBroker.GetMessageResponseB2C msgRspB2C,
+            long dltTime, final StringBuilder strBuffer) {
+        Partition partition = taskContext.getPartition();
+        String topic = partition.getTopic();
+        String partitionKey = partition.getPartitionKey();
         if (msgRspB2C == null) {
             clientStatsInfo.bookFailRpcCall(TErrCodeConstants.INTERNAL_SERVER_ERROR);
             rmtDataCache.errReqRelease(partitionKey, taskContext.getUsedToken(), false);
@@ -1238,9 +1302,6 @@ public class BaseMessageConsumer implements MessageConsumer {
                 case TErrCodeConstants.SUCCESS: {
                     int msgSize = 0;
                     int msgCount = 0;
-                    // Convert the message payload data
-                    List<Message> tmpMessageList =
-                            DataConverterUtil.convertMessage(topic, msgRspB2C.getMessagesList());
                     boolean isEscLimit =
                             (msgRspB2C.hasEscFlowCtrl() && msgRspB2C.getEscFlowCtrl());
                     // Filter the message based on its content
@@ -1254,6 +1315,18 @@ public class BaseMessageConsumer implements MessageConsumer {
                             needFilter = true;
                         }
                     }
+                    // Convert the message payload data,
+                    // the compressed batches filtered out are not decompressed
+                    AtomicLong unpackFailCnt = new AtomicLong(0);
+                    List<Message> tmpMessageList = DataConverterUtil.convertMessage(topic,
+                            msgRspB2C.getMessagesList(), topicFilterSet, unpackFailCnt);
+                    if (msgRspB2C.getRawDataBlocksCount() > 0) {
+                        tmpMessageList.addAll(DataConverterUtil.convertRawMessage(topic,
+                                msgRspB2C.getRawDataBlocksList(), topicFilterSet, unpackFailCnt));
+                    }
+                    if (unpackFailCnt.get() > 0) {
+                        clientStatsInfo.bookUnpackFailure(unpackFailCnt.get());
+                    }
                     List<Message> messageList = new ArrayList<>();
                     for (Message message : tmpMessageList) {
                         if (message == null) {
@@ -1335,7 +1408,10 @@ public class BaseMessageConsumer implements MessageConsumer {
                             break;
                         }
                         case TErrCodeConstants.NOT_FOUND: {
-                            limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            // the broker has waited for new messages, fetch again at once
+                            limitDlt = (msgRspB2C.hasLongPolled() && msgRspB2C.getLongPolled())
+                                    ? 0L
+                                    : consumerConfig.getMsgNotFoundWaitPeriodMs();
                             break;
                         }
                         default: {
@@ -1422,6 +1498,17 @@ public class BaseMessageConsumer implements MessageConsumer {
         return rpcServiceFactory.getService(BrokerReadService.class, brokerInfo, rpcConfig);
     }
 
+    /**
+     * Get the broker read service for the asynchronous requests.
+     *
+     * @param brokerInfo broker information
+     * @return broker read service
+     */
+    protected BrokerReadService.AsyncService getAsyncBrokerService(BrokerInfo brokerInfo) {
+        return rpcServiceFactory.getService(
+                BrokerReadService.AsyncService.class, brokerInfo, rpcConfig);
+    }
+
     // #lizard forgives
     private class HeartTask2MasterWorker implements Runnable {
 
@@ -29,7 +29,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Fetch messages with multiple threads.
+ * Fetch messages with multiple threads, or with the async fetch engine if
+ * the in-flight fetches per broker is configured.
  */
 public class MessageFetchManager {
 
@@ -45,6 +46,7 @@ public class MessageFetchManager {
     // 1: Started
     private AtomicInteger managerStatus = new AtomicInteger(-1);
     private Thread[] fetchWorkerPool;
+    private AsyncFetchEngine asyncFetchEngine;
 
     public MessageFetchManager(final ConsumerConfig consumerConfig,
             final SimplePushMessageConsumer pushConsumer) {
@@ -66,6 +68,12 @@ public class MessageFetchManager {
         if (!managerStatus.compareAndSet(-1, 1)) {
             return;
         }
+        if (this.consumerConfig.getPushFetchInflightPerBroker() > 0) {
+            this.asyncFetchEngine =
+                    new AsyncFetchEngine(this.consumerConfig, this, this.pushConsumer);
+            this.asyncFetchEngine.start();
+            return;
+        }
         StringBuilder sBuilder = new StringBuilder(256);
         logger.info("Starting Fetch Worker Pool !");
         this.fetchWorkerPool =
@@ -115,6 +123,16 @@ public class MessageFetchManager {
         } else {
             this.managerStatus.set(0);
         }
+        if (this.asyncFetchEngine != null) {
+            if (this.pushConsumer.isConsumePaused()) {
+                this.pushConsumer.resumeConsume();
+            }
+            this.asyncFetchEngine.stop(this.consumerConfig.getPushListenerWaitPeriodMs());
+            this.pushConsumer
+                    .getBaseConsumer().notifyAllMessageListenerStopped();
+            logger.info("[STOP_FetchWorker] Async fetch engine is stopped.");
+            return;
+        }
         if (this.fetchWorkerPool == null) {
             return;
         }
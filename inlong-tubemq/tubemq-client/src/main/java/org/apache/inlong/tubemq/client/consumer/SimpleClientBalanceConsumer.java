@@ -735,9 +735,6 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                 case TErrCodeConstants.SUCCESS: {
                     int msgSize = 0;
                     int msgCount = 0;
-                    // Convert the message payload data
-                    List<Message> tmpMessageList =
-                            DataConverterUtil.convertMessage(topic, msgRspB2C.getMessagesList());
                     boolean isEscLimit =
                             (msgRspB2C.hasEscFlowCtrl() && msgRspB2C.getEscFlowCtrl());
                     // Filter the message based on its content
@@ -751,6 +748,18 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                             needFilter = true;
                         }
                     }
+                    // Convert the message payload data,
+                    // the compressed batches filtered out are not decompressed
+                    AtomicLong unpackFailCnt = new AtomicLong(0);
+                    List<Message> tmpMessageList = DataConverterUtil.convertMessage(topic,
+                            msgRspB2C.getMessagesList(), topicFilterSet, unpackFailCnt);
+                    if (msgRspB2C.getRawDataBlocksCount() > 0) {
+                        tmpMessageList.addAll(DataConverterUtil.convertRawMessage(topic,
+                                msgRspB2C.getRawDataBlocksList(), topicFilterSet, unpackFailCnt));
+                    }
+                    if (unpackFailCnt.get() > 0) {
+                        clientStatsInfo.bookUnpackFailure(unpackFailCnt.get());
+                    }
                     List<Message> messageList = new ArrayList<>();
                     for (Message message : tmpMessageList) {
                         if (message == null) {
@@ -832,7 +841,10 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                             break;
                         }
                         case TErrCodeConstants.NOT_FOUND: {
-                            limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            // the broker has waited for new messages, fetch again at once
+                            limitDlt = (msgRspB2C.hasLongPolled() && msgRspB2C.getLongPolled())
+                                    ? 0L
+                                    : consumerConfig.getMsgNotFoundWaitPeriodMs();
                             break;
                         }
                         default: {
@@ -1584,6 +1596,13 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        builder.setRawDataFetch(this.consumerConfig.isRawDataFetch()
+                && !this.consumerConfig.isTlsEnable());
+        if (this.consumerConfig.getFetchLongPollWaitMs() > 0) {
+            // leave time for the response to arrive before the rpc times out
+            builder.setMaxWaitMs((int) Math.min(this.consumerConfig.getFetchLongPollWaitMs(),
+                    this.consumerConfig.getRpcTimeoutMs() / 2));
+        }
         return builder.build();
     }
 
@@ -182,6 +182,19 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
         final long startTime = System.currentTimeMillis();
         FetchContext taskContext =
                 baseConsumer.fetchMessage(partSelectResult, sBuilder);
+        processFetchResult(partSelectResult, taskContext, startTime, sBuilder);
+    }
+
+    /**
+     * Deliver the fetched messages to the listener, then release the partition.
+     *
+     * @param partSelectResult   the selected partition
+     * @param taskContext        the fetch task context
+     * @param startTime          the time the fetch started
+     * @param sBuilder           the string buffer
+     */
+    protected void processFetchResult(PartitionSelectResult partSelectResult,
+            FetchContext taskContext, long startTime, final StringBuilder sBuilder) {
         if (!taskContext.isSuccess()) {
             if (logger.isDebugEnabled()) {
                 logger.debug(sBuilder.append("Fetch message error: partition:")
@@ -191,6 +204,19 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
             }
             return;
         }
+        boolean isConsumed = deliverFetchResult(taskContext, sBuilder);
+        releaseFetchResult(taskContext, isConsumed);
+        logSlowProcess(partSelectResult, startTime, sBuilder);
+    }
+
+    /**
+     * Deliver the fetched messages to the listener.
+     *
+     * @param taskContext   the fetch task context
+     * @param sBuilder      the string buffer
+     * @return              whether the messages are consumed
+     */
+    protected boolean deliverFetchResult(FetchContext taskContext, final StringBuilder sBuilder) {
         boolean isConsumed = false;
         if (!isShutdown()) {
             if (taskContext.getMessageList() == null
@@ -213,12 +239,31 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
                 }
             }
         }
+        return isConsumed;
+    }
+
+    /**
+     * Release the partition of the fetched messages for the next fetch.
+     *
+     * @param taskContext   the fetch task context
+     * @param isConsumed    whether the messages are consumed
+     */
+    protected void releaseFetchResult(FetchContext taskContext, boolean isConsumed) {
         baseConsumer.rmtDataCache.succRspRelease(taskContext.getPartition().getPartitionKey(),
                 taskContext.getPartition().getTopic(), taskContext.getUsedToken(),
                 isConsumed, isFilterConsume(taskContext.getPartition().getTopic()),
                 taskContext.getCurrOffset(), taskContext.getMaxOffset());
+    }
 
-        // Warning if the process time is too long
+    /**
+     * Warning if the process time is too long.
+     *
+     * @param partSelectResult   the selected partition
+     * @param startTime          the time the fetch started
+     * @param sBuilder           the string buffer
+     */
+    protected void logSlowProcess(PartitionSelectResult partSelectResult,
+            long startTime, final StringBuilder sBuilder) {
         long cost = System.currentTimeMillis() - startTime;
         if (cost > 30000) {
             logger.info(sBuilder.append("Consuming Partition; current processing thread ")
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.client.common.PartitionRouteMode;
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.client.producer.qltystats.LatencyStatsItem;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A partition router that weights the partitions by the latencies and the requests
+ * in flight of their brokers and of themselves, so a slow broker gets less messages
+ * before it is forbidden by the broker quality statistics.
+ *
+ * Three route modes are supported:
+ * LEAST_OUTSTANDING selects the partition with the least load score among all,
+ * POWER_OF_TWO_CHOICES selects the less loaded of two random partitions, and
+ * KEY_HASH keeps the messages of the same message type in the same partition
+ * while the partition is available, for the ordered messages.
+ */
+public class LatencyAwarePartitionRouter implements PartitionRouter {
+
+    private static final long STATISTIC_PERIOD_MS = 5000L;
+    private final PartitionRouteMode routeMode;
+    // the latency recorded for the failed requests
+    private final long failLatencyUs;
+    private final ConcurrentHashMap<Integer, LatencyStatsItem> brokerLatencyStats =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyStatsItem> partLatencyStats =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger steppedCounter =
+            new AtomicInteger(ThreadLocalRandom.current().nextInt());
+    private final AtomicLong lastStatisticTime =
+            new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Initial a latency aware partition router
+     *
+     * @param routeMode    the route mode, not ROUND_ROBIN
+     * @param failLatencyMs the latency recorded for the failed requests
+     */
+    public LatencyAwarePartitionRouter(PartitionRouteMode routeMode, long failLatencyMs) {
+        this.routeMode = routeMode;
+        this.failLatencyUs = Math.max(failLatencyMs, 1L) * 1000L;
+    }
+
+    public PartitionRouteMode getRouteMode() {
+        return routeMode;
+    }
+
+    @Override
+    public Partition getPartition(final Message message,
+            final List<Partition> partitions) throws TubeClientException {
+        if (partitions == null || partitions.isEmpty()) {
+            throw new TubeClientException(new StringBuilder(512)
+                    .append("No available partition for topic: ")
+                    .append(message.getTopic()).toString());
+        }
+        statisticIfExpired();
+        Partition partition = null;
+        long curTime = System.currentTimeMillis();
+        if (routeMode == PartitionRouteMode.KEY_HASH
+                && TStringUtils.isNotBlank(message.getMsgType())) {
+            partition = selectByKeyHash(message.getMsgType(), partitions, curTime);
+        } else if (routeMode == PartitionRouteMode.POWER_OF_TWO_CHOICES) {
+            partition = selectByTwoChoices(partitions, curTime);
+        } else {
+            partition = selectLeastOutstanding(partitions, curTime);
+        }
+        if (partition == null) {
+            // all partitions are delayed
+            partition = partitions.get(
+                    (steppedCounter.incrementAndGet() & Integer.MAX_VALUE) % partitions.size());
+        }
+        return partition;
+    }
+
+    /**
+     * Add the statistic of a request sent to the partition.
+     *
+     * @param partition  the partition
+     */
+    public void addSendStatistic(Partition partition) {
+        getBrokerStats(partition.getBrokerId()).incInflightNum();
+        getPartitionStats(partition.getPartitionKey()).incInflightNum();
+    }
+
+    /**
+     * Add the statistic of a response from the partition.
+     *
+     * @param partition  the partition
+     * @param dltTimeMs  the time cost of the request
+     * @param isSuccess  whether the request succeeded
+     */
+    public void addReceiveStatistic(Partition partition, long dltTimeMs, boolean isSuccess) {
+        long latencyUs = Math.max(dltTimeMs, 0L) * 1000L;
+        if (!isSuccess) {
+            latencyUs = Math.max(latencyUs, failLatencyUs);
+        }
+        LatencyStatsItem brokerStats = getBrokerStats(partition.getBrokerId());
+        brokerStats.decInflightNum();
+        brokerStats.addLatency(latencyUs);
+        LatencyStatsItem partStats = getPartitionStats(partition.getPartitionKey());
+        partStats.decInflightNum();
+        partStats.addLatency(latencyUs);
+    }
+
+    private Partition selectLeastOutstanding(List<Partition> partitions, long curTime) {
+        int partSize = partitions.size();
+        // start from a stepped index so that the partitions of the same score are used in turn
+        int startIndex = (steppedCounter.incrementAndGet() & Integer.MAX_VALUE) % partSize;
+        long minScore = Long.MAX_VALUE;
+        Partition selected = null;
+        for (int i = 0; i < partSize; i++) {
+            Partition partition = partitions.get((startIndex + i) % partSize);
+            if (partition == null || partition.getDelayTimeStamp() >= curTime) {
+                continue;
+            }
+            long score = getLoadScore(partition);
+            if (score < minScore) {
+                minScore = score;
+                selected = partition;
+            }
+        }
+        return selected;
+    }
+
+    private Partition selectByTwoChoices(List<Partition> partitions, long curTime) {
+        int partSize = partitions.size();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Partition first = null;
+        Partition second = null;
+        // a few more tries to skip the delayed partitions
+        for (int i = 0; i < 4 && second == null; i++) {
+            Partition partition = partitions.get(random.nextInt(partSize));
+            if (partition == null || partition == first
+                    || partition.getDelayTimeStamp() >= curTime) {
+                continue;
+            }
+            if (first == null) {
+                first = partition;
+            } else {
+                second = partition;
+            }
+        }
+        if (first == null) {
+            return selectLeastOutstanding(partitions, curTime);
+        }
+        if (second == null) {
+            return first;
+        }
+        return (getLoadScore(second) < getLoadScore(first)) ? second : first;
+    }
+
+    private Partition selectByKeyHash(String key, List<Partition> partitions, long curTime) {
+        // rendezvous hashing, only the keys of an unavailable partition are moved
+        long maxWeight = Long.MIN_VALUE;
+        Partition selected = null;
+        for (Partition partition : partitions) {
+            if (partition == null || partition.getDelayTimeStamp() >= curTime) {
+                continue;
+            }
+            long weight = mixHash(key.hashCode() * 31L + partition.getPartitionKey().hashCode());
+            if (selected == null || weight > maxWeight) {
+                maxWeight = weight;
+                selected = partition;
+            }
+        }
+        return selected;
+    }
+
+    private long getLoadScore(Partition partition) {
+        LatencyStatsItem brokerStats = brokerLatencyStats.get(partition.getBrokerId());
+        LatencyStatsItem partStats = partLatencyStats.get(partition.getPartitionKey());
+        return ((brokerStats == null) ? 0L : brokerStats.getLoadScore())
+                + ((partStats == null) ? 0L : partStats.getLoadScore());
+    }
+
+    private void statisticIfExpired() {
+        long lastTime = lastStatisticTime.get();
+        long curTime = System.currentTimeMillis();
+        if (curTime - lastTime < STATISTIC_PERIOD_MS
+                || !lastStatisticTime.compareAndSet(lastTime, curTime)) {
+            return;
+        }
+        for (LatencyStatsItem statsItem : brokerLatencyStats.values()) {
+            statsItem.statisticAndDecay();
+        }
+        for (LatencyStatsItem statsItem : partLatencyStats.values()) {
+            statsItem.statisticAndDecay();
+        }
+    }
+
+    private LatencyStatsItem getBrokerStats(int brokerId) {
+        LatencyStatsItem statsItem = brokerLatencyStats.get(brokerId);
+        if (statsItem == null) {
+            LatencyStatsItem newStatsItem = new LatencyStatsItem();
+            statsItem = brokerLatencyStats.putIfAbsent(brokerId, newStatsItem);
+            if (statsItem == null) {
+                statsItem = newStatsItem;
+            }
+        }
+        return statsItem;
+    }
+
+    private LatencyStatsItem getPartitionStats(String partitionKey) {
+        LatencyStatsItem statsItem = partLatencyStats.get(partitionKey);
+        if (statsItem == null) {
+            LatencyStatsItem newStatsItem = new LatencyStatsItem();
+            statsItem = partLatencyStats.putIfAbsent(partitionKey, newStatsItem);
+            if (statsItem == null) {
+                statsItem = newStatsItem;
+            }
+        }
+        return statsItem;
+    }
+
+    private static long mixHash(long value) {
+        // the finalizer of MurmurHash3
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "routeMode:" + this.routeMode.getName()
+                + ",brokerLatencyStats:" + this.brokerLatencyStats.toString();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates the asynchronous sent messages per partition, and hands them over
+ * to the sender in batch when the batch reaches the max message count or data size,
+ * or when the batch has waited for the linger time.
+ */
+public class ProduceBatchAccumulator {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(ProduceBatchAccumulator.class);
+    private final int maxMsgCnt;
+    private final int maxDataSize;
+    private final long lingerMs;
+    private final BatchSender batchSender;
+    private final ConcurrentHashMap<String, ProduceBatch> batchMap =
+            new ConcurrentHashMap<>();
+    private final ScheduledExecutorService lingerService;
+
+    public ProduceBatchAccumulator(final String producerId, int maxMsgCnt,
+            int maxDataSize, long lingerMs, BatchSender batchSender) {
+        this.maxMsgCnt = maxMsgCnt;
+        this.maxDataSize = maxDataSize;
+        this.lingerMs = lingerMs;
+        this.batchSender = batchSender;
+        this.lingerService =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, new StringBuilder(256)
+                                .append("Producer-Batch-Linger-Thread-")
+                                .append(producerId).toString());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Append a message to the batch of the partition, the batch is sent
+     * in the calling thread if it becomes full.
+     *
+     * @param partition  the partition the message sent to
+     * @param message    the message
+     * @param payload    the encoded message data
+     * @param cb         the callback of the message
+     */
+    public void append(final Partition partition, final Message message,
+            final byte[] payload, final MessageSentCallback cb) {
+        final PendingMessage pendingMsg = new PendingMessage(message, payload, cb);
+        while (true) {
+            ProduceBatch batch = getOrCreateBatch(partition);
+            List<PendingMessage> readyMsgs = null;
+            boolean appended = false;
+            synchronized (batch) {
+                if (batch.closed) {
+                    continue;
+                }
+                if (batch.canAppend(payload.length)) {
+                    batch.append(pendingMsg);
+                    appended = true;
+                    if (batch.isFull()) {
+                        readyMsgs = closeBatch(batch);
+                    }
+                } else {
+                    readyMsgs = closeBatch(batch);
+                }
+            }
+            if (readyMsgs != null) {
+                batchSender.sendBatch(batch.partition, readyMsgs);
+            }
+            if (appended) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Send all pending batches in the calling thread.
+     */
+    public void flushAll() {
+        for (Map.Entry<String, ProduceBatch> entry : batchMap.entrySet()) {
+            expireBatch(entry.getValue());
+        }
+    }
+
+    /**
+     * Send all pending batches and stop the linger timer.
+     */
+    public void shutdown() {
+        flushAll();
+        // the pending linger tasks are useless once all batches are flushed
+        lingerService.shutdownNow();
+        try {
+            lingerService.awaitTermination(1000L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // the batches appended during the timer stopping
+        flushAll();
+    }
+
+    private ProduceBatch getOrCreateBatch(final Partition partition) {
+        ProduceBatch batch = batchMap.get(partition.getPartitionKey());
+        if (batch != null) {
+            return batch;
+        }
+        ProduceBatch newBatch = new ProduceBatch(partition);
+        batch = batchMap.putIfAbsent(partition.getPartitionKey(), newBatch);
+        if (batch != null) {
+            return batch;
+        }
+        try {
+            lingerService.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    expireBatch(newBatch);
+                }
+            }, lingerMs, TimeUnit.MILLISECONDS);
+        } catch (Throwable e) {
+            // the timer has been stopped, the batch will be sent by flushAll()
+            logger.debug("[Producer] schedule batch linger failure", e);
+        }
+        return newBatch;
+    }
+
+    private void expireBatch(final ProduceBatch batch) {
+        List<PendingMessage> readyMsgs;
+        synchronized (batch) {
+            if (batch.closed) {
+                return;
+            }
+            readyMsgs = closeBatch(batch);
+        }
+        if (!readyMsgs.isEmpty()) {
+            batchSender.sendBatch(batch.partition, readyMsgs);
+        }
+    }
+
+    private List<PendingMessage> closeBatch(final ProduceBatch batch) {
+        batch.closed = true;
+        batchMap.remove(batch.partition.getPartitionKey(), batch);
+        return batch.messages;
+    }
+
+    /**
+     * The sender of the accumulated batches.
+     */
+    public interface BatchSender {
+
+        void sendBatch(Partition partition, List<PendingMessage> messages);
+    }
+
+    /**
+     * A message waiting to be sent in batch.
+     */
+    public static class PendingMessage {
+
+        private final Message message;
+        private final byte[] payload;
+        private final MessageSentCallback callback;
+
+        public PendingMessage(Message message, byte[] payload, MessageSentCallback callback) {
+            this.message = message;
+            this.payload = payload;
+            this.callback = callback;
+        }
+
+        public Message getMessage() {
+            return message;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        public MessageSentCallback getCallback() {
+            return callback;
+        }
+    }
+
+    private class ProduceBatch {
+
+        private final Partition partition;
+        private final List<PendingMessage> messages = new ArrayList<>();
+        private int dataSize = 0;
+        private boolean closed = false;
+
+        ProduceBatch(Partition partition) {
+            this.partition = partition;
+        }
+
+        boolean canAppend(int msgSize) {
+            return messages.isEmpty()
+                    || (messages.size() < maxMsgCnt && dataSize + msgSize <= maxDataSize);
+        }
+
+        void append(PendingMessage pendingMsg) {
+            messages.add(pendingMsg);
+            dataSize += pendingMsg.payload.length;
+        }
+
+        boolean isFull() {
+            return messages.size() >= maxMsgCnt || dataSize >= maxDataSize;
+        }
+    }
+}
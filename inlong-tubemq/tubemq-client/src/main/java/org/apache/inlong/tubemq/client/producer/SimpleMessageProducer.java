@@ -17,6 +17,7 @@
 
 package org.apache.inlong.tubemq.client.producer;
 
+import org.apache.inlong.tubemq.client.common.PartitionRouteMode;
 import org.apache.inlong.tubemq.client.config.TubeClientConfig;
 import org.apache.inlong.tubemq.client.exception.TubeClientException;
 import org.apache.inlong.tubemq.client.factory.InnerSessionFactory;
@@ -26,6 +27,8 @@ import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.compress.CompressType;
+import org.apache.inlong.tubemq.corebase.compress.CompressUtils;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
@@ -43,7 +46,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -64,9 +69,12 @@ public class SimpleMessageProducer implements MessageProducer {
     private final RpcServiceFactory rpcServiceFactory;
     private final ProducerManager producerManager;
     private final PartitionRouter partitionRouter;
+    // not null only if the partitions are routed by the latencies
+    private final LatencyAwarePartitionRouter latencyRouter;
     private final DefaultBrokerRcvQltyStats brokerRcvQltyStats;
     private final RpcConfig rpcConfig = new RpcConfig();
     private final AtomicBoolean isShutDown = new AtomicBoolean(false);
+    private final ProduceBatchAccumulator batchAccumulator;
 
     /**
      * Initial a producer object
@@ -88,7 +96,14 @@ public class SimpleMessageProducer implements MessageProducer {
         this.rpcServiceFactory = this.sessionFactory.getRpcServiceFactory();
         this.producerManager = this.sessionFactory.getProducerManager();
         this.brokerRcvQltyStats = sessionFactory.getBrokerRcvQltyStats();
-        this.partitionRouter = new RoundRobinPartitionRouter();
+        if (tubeClientConfig.getProduceRouteMode() == PartitionRouteMode.ROUND_ROBIN) {
+            this.latencyRouter = null;
+            this.partitionRouter = new RoundRobinPartitionRouter();
+        } else {
+            this.latencyRouter = new LatencyAwarePartitionRouter(
+                    tubeClientConfig.getProduceRouteMode(), tubeClientConfig.getRpcTimeoutMs());
+            this.partitionRouter = this.latencyRouter;
+        }
         this.rpcConfig.put(RpcConstants.CONNECT_TIMEOUT, 3000);
         this.rpcConfig.put(RpcConstants.REQUEST_TIMEOUT,
                 tubeClientConfig.getRpcTimeoutMs());
@@ -104,6 +119,23 @@ public class SimpleMessageProducer implements MessageProducer {
                 tubeClientConfig.getRpcNettyWorkMemorySize());
         this.rpcConfig.put(RpcConstants.CALLBACK_WORKER_COUNT,
                 tubeClientConfig.getRpcRspCallBackThreadCnt());
+        if (tubeClientConfig.getProduceBatchMaxMsgCnt() > 1) {
+            this.batchAccumulator = new ProduceBatchAccumulator(
+                    this.producerManager.getProducerId(),
+                    tubeClientConfig.getProduceBatchMaxMsgCnt(),
+                    tubeClientConfig.getProduceBatchMaxSize(),
+                    tubeClientConfig.getProduceBatchLingerMs(),
+                    new ProduceBatchAccumulator.BatchSender() {
+
+                        @Override
+                        public void sendBatch(Partition partition,
+                                List<ProduceBatchAccumulator.PendingMessage> messages) {
+                            sendMessageBatch(partition, messages);
+                        }
+                    });
+        } else {
+            this.batchAccumulator = null;
+        }
     }
 
     /**
@@ -200,6 +232,9 @@ public class SimpleMessageProducer implements MessageProducer {
             return;
         }
         if (this.isShutDown.compareAndSet(false, true)) {
+            if (this.batchAccumulator != null) {
+                this.batchAccumulator.shutdown();
+            }
             this.producerManager.removeTopic(publishTopicMap.keySet());
             this.publishTopicMap.clear();
             this.sessionFactory.removeClient(this);
@@ -218,13 +253,13 @@ public class SimpleMessageProducer implements MessageProducer {
         int brokerId = partition.getBrokerId();
         long startTime = System.currentTimeMillis();
         try {
-            this.brokerRcvQltyStats.addSendStatistic(brokerId);
+            addSendStatistic(partition);
             ClientBroker.SendMessageResponseB2P response =
                     getBrokerService(partition.getBroker()).sendMessageP2B(
                             createSendMessageRequest(partition, message),
                             AddressUtils.getLocalAddress(), producerConfig.isTlsEnable());
             rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
-            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, response.getSuccess());
+            addReceiveStatistic(partition, startTime, response.getSuccess());
             if (!response.getSuccess()
                     && response.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
                 rpcServiceFactory.addUnavailableBroker(brokerId);
@@ -238,7 +273,7 @@ public class SimpleMessageProducer implements MessageProducer {
             producerManager.getClientMetrics().bookFailRpcCall(
                     TErrCodeConstants.UNSPECIFIED_ABNORMAL);
             partition.increRetries(1);
-            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+            addReceiveStatistic(partition, startTime, false);
             throw new TubeClientException("Send message failed", e);
         }
     }
@@ -253,10 +288,17 @@ public class SimpleMessageProducer implements MessageProducer {
         }
         final Partition partition =
                 this.selectPartition(message, BrokerWriteService.AsyncService.class);
+        if (batchAccumulator != null) {
+            byte[] payload = encodePayload(message);
+            if (payload.length <= producerConfig.getProduceBatchMaxSize()) {
+                batchAccumulator.append(partition, message, payload, cb);
+                return;
+            }
+        }
         final int brokerId = partition.getBrokerId();
         long startTime = System.currentTimeMillis();
         try {
-            this.brokerRcvQltyStats.addSendStatistic(brokerId);
+            addSendStatistic(partition);
             getAsyncBrokerService(partition.getBroker()).sendMessageP2B(
                     createSendMessageRequest(partition, message),
                     AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
@@ -274,7 +316,7 @@ public class SimpleMessageProducer implements MessageProducer {
                                             System.currentTimeMillis() - startTime,
                                             message, partition, responseB2P);
                             partition.resetRetries();
-                            brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                            addReceiveStatistic(partition, startTime,
                                     responseB2P.getSuccess());
                             if (!responseB2P.getSuccess()
                                     && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
@@ -288,7 +330,7 @@ public class SimpleMessageProducer implements MessageProducer {
                             producerManager.getClientMetrics().bookFailRpcCall(
                                     TErrCodeConstants.UNSPECIFIED_ABNORMAL);
                             partition.increRetries(1);
-                            brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+                            addReceiveStatistic(partition, startTime, false);
                             cb.onException(error);
                         }
                     });
@@ -299,11 +341,70 @@ public class SimpleMessageProducer implements MessageProducer {
             }
             // if failed,increment the counter
             partition.increRetries(1);
-            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+            addReceiveStatistic(partition, startTime, false);
             cb.onException(e);
         }
     }
 
+    private void sendMessageBatch(final Partition partition,
+            final List<ProduceBatchAccumulator.PendingMessage> batchMsgs) {
+        final int brokerId = partition.getBrokerId();
+        final int[] itemIndexes = new int[batchMsgs.size()];
+        long startTime = System.currentTimeMillis();
+        try {
+            addSendStatistic(partition);
+            getAsyncBrokerService(partition.getBroker()).sendMessageBatchP2B(
+                    createSendMessageBatchRequest(partition, batchMsgs, itemIndexes),
+                    AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
+                    new Callback() {
+
+                        @Override
+                        public void handleResult(Object result) {
+                            if (!(result instanceof ClientBroker.SendMessageBatchResponseB2P)) {
+                                return;
+                            }
+                            final ClientBroker.SendMessageBatchResponseB2P responseB2P =
+                                    (ClientBroker.SendMessageBatchResponseB2P) result;
+                            partition.resetRetries();
+                            addReceiveStatistic(partition, startTime,
+                                    responseB2P.getSuccess());
+                            if (!responseB2P.getSuccess()
+                                    && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
+                                rpcServiceFactory.addUnavailableBroker(brokerId);
+                            }
+                            long dltTime = System.currentTimeMillis() - startTime;
+                            for (int i = 0; i < batchMsgs.size(); i++) {
+                                ProduceBatchAccumulator.PendingMessage pendingMsg = batchMsgs.get(i);
+                                pendingMsg.getCallback().onMessageSent(buildBatchMsgSentResult(
+                                        dltTime, itemIndexes[i], pendingMsg.getMessage(), partition, responseB2P));
+                            }
+                        }
+
+                        @Override
+                        public void handleError(Throwable error) {
+                            producerManager.getClientMetrics().bookFailRpcCall(
+                                    TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+                            partition.increRetries(1);
+                            addReceiveStatistic(partition, startTime, false);
+                            for (ProduceBatchAccumulator.PendingMessage pendingMsg : batchMsgs) {
+                                pendingMsg.getCallback().onException(error);
+                            }
+                        }
+                    });
+            rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+        } catch (final Throwable e) {
+            if (e instanceof LocalConnException) {
+                rpcServiceFactory.addRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            }
+            // if failed,increment the counter
+            partition.increRetries(1);
+            addReceiveStatistic(partition, startTime, false);
+            for (ProduceBatchAccumulator.PendingMessage pendingMsg : batchMsgs) {
+                pendingMsg.getCallback().onException(e);
+            }
+        }
+    }
+
     private MessageSentResult checkMessageAndStatus(final Message message) {
         if (message == null) {
             return new MessageSentResult(message, false,
@@ -371,6 +472,123 @@ public class SimpleMessageProducer implements MessageProducer {
         return builder.build();
     }
 
+    private ClientBroker.SendMessageBatchRequestP2B createSendMessageBatchRequest(
+            Partition partition, List<ProduceBatchAccumulator.PendingMessage> batchMsgs,
+            int[] itemIndexes) {
+        ClientBroker.SendMessageBatchRequestP2B.Builder builder =
+                ClientBroker.SendMessageBatchRequestP2B.newBuilder();
+        builder.setClientId(this.producerManager.getProducerId());
+        builder.setTopicName(partition.getTopic());
+        builder.setPartitionId(partition.getPartitionId());
+        builder.setSentAddr(this.producerManager.getProducerAddrId());
+        CompressType compressType = producerConfig.getProduceCompressType();
+        if (!producerConfig.isProduceCompressTopic(partition.getTopic())) {
+            for (int i = 0; i < batchMsgs.size(); i++) {
+                itemIndexes[i] = i;
+                builder.addMessages(buildBatchMessageItem(batchMsgs.get(i)));
+            }
+        } else {
+            // the broker filters messages by the msgType of the stored item,
+            // so only the messages with the same system headers are compressed together
+            Map<String, List<Integer>> msgGroups = new LinkedHashMap<>();
+            for (int i = 0; i < batchMsgs.size(); i++) {
+                Message message = batchMsgs.get(i).getMessage();
+                String groupKey = new StringBuilder(64)
+                        .append(message.getMsgType()).append("#")
+                        .append(message.getMsgTime()).toString();
+                List<Integer> msgIndexes = msgGroups.get(groupKey);
+                if (msgIndexes == null) {
+                    msgIndexes = new ArrayList<>();
+                    msgGroups.put(groupKey, msgIndexes);
+                }
+                msgIndexes.add(i);
+            }
+            for (List<Integer> msgIndexes : msgGroups.values()) {
+                addCompressedBatchItem(builder, compressType,
+                        partition.getTopic(), batchMsgs, msgIndexes, itemIndexes);
+            }
+        }
+        builder = this.producerManager.setAuthorizedTokenInfo(builder);
+        return builder.build();
+    }
+
+    private void addCompressedBatchItem(ClientBroker.SendMessageBatchRequestP2B.Builder builder,
+            CompressType compressType, String topicName,
+            List<ProduceBatchAccumulator.PendingMessage> batchMsgs,
+            List<Integer> msgIndexes, int[] itemIndexes) {
+        byte[] itemBody = null;
+        int rawSize = 0;
+        if (msgIndexes.size() > 1) {
+            int[] flags = new int[msgIndexes.size()];
+            List<byte[]> payloads = new ArrayList<>(msgIndexes.size());
+            for (int i = 0; i < msgIndexes.size(); i++) {
+                ProduceBatchAccumulator.PendingMessage pendingMsg = batchMsgs.get(msgIndexes.get(i));
+                flags[i] = MessageFlagUtils.getFlag(pendingMsg.getMessage());
+                payloads.add(pendingMsg.getPayload());
+                rawSize += pendingMsg.getPayload().length;
+            }
+            // the consumers refuse to unpack the batches over the max raw length
+            if (rawSize + 8 * msgIndexes.size() <= CompressUtils.MAX_BATCH_RAW_LENGTH) {
+                try {
+                    itemBody = CompressUtils.packBatch(compressType, flags, payloads);
+                } catch (Throwable e) {
+                    logger.warn("[Producer] compress message batch failure", e);
+                }
+            }
+        }
+        if (itemBody == null
+                || itemBody.length >= rawSize
+                || itemBody.length > producerManager.getMaxMsgSize(topicName)) {
+            // not worth compressing, send the messages as they are
+            for (Integer msgIndex : msgIndexes) {
+                itemIndexes[msgIndex] = builder.getMessagesCount();
+                builder.addMessages(buildBatchMessageItem(batchMsgs.get(msgIndex)));
+            }
+            return;
+        }
+        // the compressed item carries the system headers of its messages
+        Message firstMsg = batchMsgs.get(msgIndexes.get(0)).getMessage();
+        Message itemMsg = new Message(topicName, itemBody);
+        if (TStringUtils.isNotBlank(firstMsg.getMsgType())
+                || TStringUtils.isNotBlank(firstMsg.getMsgTime())) {
+            itemMsg.putSystemHeader(firstMsg.getMsgType(), firstMsg.getMsgTime());
+        }
+        ClientBroker.BatchMessageItem.Builder itemBuilder =
+                ClientBroker.BatchMessageItem.newBuilder();
+        itemBuilder.setData(ByteString.copyFrom(encodePayload(itemMsg)));
+        itemBuilder.setFlag(MessageFlagUtils.setCompressTypeId(
+                MessageFlagUtils.getFlag(itemMsg), compressType.getId()));
+        itemBuilder.setCheckSum(-1);
+        if (TStringUtils.isNotBlank(firstMsg.getMsgType())) {
+            itemBuilder.setMsgType(firstMsg.getMsgType());
+        }
+        if (TStringUtils.isNotBlank(firstMsg.getMsgTime())) {
+            itemBuilder.setMsgTime(firstMsg.getMsgTime());
+        }
+        itemBuilder.setMsgCount(msgIndexes.size());
+        for (Integer msgIndex : msgIndexes) {
+            itemIndexes[msgIndex] = builder.getMessagesCount();
+        }
+        builder.addMessages(itemBuilder.build());
+    }
+
+    private ClientBroker.BatchMessageItem buildBatchMessageItem(
+            ProduceBatchAccumulator.PendingMessage pendingMsg) {
+        Message message = pendingMsg.getMessage();
+        ClientBroker.BatchMessageItem.Builder itemBuilder =
+                ClientBroker.BatchMessageItem.newBuilder();
+        itemBuilder.setData(ByteString.copyFrom(pendingMsg.getPayload()));
+        itemBuilder.setFlag(MessageFlagUtils.getFlag(message));
+        itemBuilder.setCheckSum(-1);
+        if (TStringUtils.isNotBlank(message.getMsgType())) {
+            itemBuilder.setMsgType(message.getMsgType());
+        }
+        if (TStringUtils.isNotBlank(message.getMsgTime())) {
+            itemBuilder.setMsgTime(message.getMsgTime());
+        }
+        return itemBuilder.build();
+    }
+
     private byte[] encodePayload(final Message message) {
         final byte[] payload = message.getData();
         final String attribute = message.getAttribute();
@@ -410,6 +628,26 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    private MessageSentResult buildBatchMsgSentResult(final long dltTime,
+            final int index, final Message message, final Partition partition,
+            final ClientBroker.SendMessageBatchResponseB2P response) {
+        if (response.getErrCode() == TErrCodeConstants.SUCCESS
+                && index < response.getMessageIdsCount()) {
+            producerManager.getClientMetrics().bookSuccSendMsg(dltTime,
+                    message.getTopic(), partition.getPartitionKey(), message.getData().length);
+            long appendOffset = index < response.getAppendOffsetsCount()
+                    ? response.getAppendOffsets(index)
+                    : TBaseConstants.META_VALUE_UNDEFINED;
+            return new MessageSentResult(true, response.getErrCode(), "Ok!",
+                    message, response.getMessageIds(index), partition,
+                    response.getAppendTime(), appendOffset);
+        } else {
+            producerManager.getClientMetrics().bookFailRpcCall(response.getErrCode());
+            return new MessageSentResult(false, response.getErrCode(), response.getErrMsg(),
+                    message, TBaseConstants.META_VALUE_UNDEFINED, partition);
+        }
+    }
+
     private Partition selectPartition(final Message message,
             Class clazz) throws TubeClientException {
         String topic = message.getTopic();
@@ -448,6 +686,21 @@ public class SimpleMessageProducer implements MessageProducer {
         return partition;
     }
 
+    private void addSendStatistic(Partition partition) {
+        this.brokerRcvQltyStats.addSendStatistic(partition.getBrokerId());
+        if (this.latencyRouter != null) {
+            this.latencyRouter.addSendStatistic(partition);
+        }
+    }
+
+    private void addReceiveStatistic(Partition partition, long startTime, boolean isSuccess) {
+        this.brokerRcvQltyStats.addReceiveStatistic(partition.getBrokerId(), isSuccess);
+        if (this.latencyRouter != null) {
+            this.latencyRouter.addReceiveStatistic(partition,
+                    System.currentTimeMillis() - startTime, isSuccess);
+        }
+    }
+
     private BrokerWriteService getBrokerService(BrokerInfo brokerInfo) {
         return rpcServiceFactory.getService(BrokerWriteService.class, brokerInfo, rpcConfig);
     }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer.qltystats;
+
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The latency statistics of a broker or a partition: the requests in flight,
+ * the moving average latency, and a histogram of the latencies in power of
+ * two buckets of milliseconds.
+ *
+ * The histogram is decayed by half each statistic period, the tail latency
+ * is re-calculated at the same time, so the slow responses of a broker fade
+ * out after it recovers.
+ */
+public class LatencyStatsItem {
+
+    // bucket i counts the latencies in [2^(i-1), 2^i) ms, the last one counts the larger ones
+    private static final int HISTOGRAM_BUCKETS = 20;
+    private final AtomicInteger inflightNum = new AtomicInteger(0);
+    // the moving average latency in microseconds, 1/8 weight for the new sample
+    private final AtomicLong avgLatencyUs = new AtomicLong(0);
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    // the 99th percentile latency in microseconds of the last statistic period
+    private volatile long p99LatencyUs = 0L;
+
+    public int getInflightNum() {
+        return inflightNum.get();
+    }
+
+    public void incInflightNum() {
+        inflightNum.incrementAndGet();
+    }
+
+    public void decInflightNum() {
+        inflightNum.decrementAndGet();
+    }
+
+    public long getAvgLatencyUs() {
+        return avgLatencyUs.get();
+    }
+
+    public long getP99LatencyUs() {
+        return p99LatencyUs;
+    }
+
+    /**
+     * Add a response latency.
+     *
+     * @param latencyUs  the latency in microseconds
+     */
+    public void addLatency(long latencyUs) {
+        long curAvg = avgLatencyUs.get();
+        // a concurrent update may be lost, which is harmless for the average
+        avgLatencyUs.compareAndSet(curAvg,
+                (curAvg == 0L) ? latencyUs : (curAvg + ((latencyUs - curAvg) >> 3)));
+        histogram.incrementAndGet(getBucketIndex(latencyUs));
+    }
+
+    /**
+     * Get the load score, the estimated latency weighted by the requests in flight.
+     * The items without any response yet get 0 so that they are probed first.
+     *
+     * @return the load score
+     */
+    public long getLoadScore() {
+        long latencyUs = avgLatencyUs.get();
+        if (p99LatencyUs > latencyUs) {
+            latencyUs = (latencyUs + p99LatencyUs) / 2;
+        }
+        return latencyUs * (Math.max(inflightNum.get(), 0) + 1);
+    }
+
+    /**
+     * Re-calculate the tail latency, then decay the histogram by half.
+     */
+    public void statisticAndDecay() {
+        long total = 0L;
+        long[] counts = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total > 0L) {
+            long remaining = total - (total * 99 / 100);
+            for (int i = HISTOGRAM_BUCKETS - 1; i >= 0; i--) {
+                remaining -= counts[i];
+                if (remaining <= 0L) {
+                    p99LatencyUs = getBucketUpperUs(i);
+                    break;
+                }
+            }
+        } else {
+            p99LatencyUs = 0L;
+        }
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            if (counts[i] > 0L) {
+                histogram.addAndGet(i, -((counts[i] + 1) / 2));
+            }
+        }
+    }
+
+    private static int getBucketIndex(long latencyUs) {
+        long latencyMs = latencyUs / 1000L;
+        if (latencyMs <= 0L) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(latencyMs), HISTOGRAM_BUCKETS - 1);
+    }
+
+    private static long getBucketUpperUs(int index) {
+        return (1L << index) * 1000L;
+    }
+
+    @Override
+    public String toString() {
+        return "inflightNum:" + this.inflightNum.get() + TokenConstants.ATTR_SEP
+                + ",avgLatencyUs:" + this.avgLatencyUs.get() + TokenConstants.ATTR_SEP
+                + ",p99LatencyUs:" + this.p99LatencyUs;
+    }
+}
@@ -20,8 +20,13 @@ package org.apache.inlong.tubemq.client.consumer;
 import org.apache.inlong.tubemq.client.config.ConsumerConfig;
 import org.apache.inlong.tubemq.client.config.TubeClientConfig;
 import org.apache.inlong.tubemq.client.factory.TubeBaseSessionFactory;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.MasterInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
+import org.apache.inlong.tubemq.corerpc.client.Callback;
 import org.apache.inlong.tubemq.corerpc.client.ClientFactory;
 import org.apache.inlong.tubemq.corerpc.netty.NettyClientFactory;
 
@@ -33,7 +38,29 @@ import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @PowerMockIgnore("javax.management.*")
@@ -59,4 +86,265 @@ public class MessageFetchManagerTest {
         fetchManager.stopFetchWorkers(true);
         Assert.assertTrue(fetchManager.isShutdown());
     }
+
+    @Test
+    public void testAsyncFetchEngine() throws Exception {
+        TubeClientConfig clientConfig = mock(TubeClientConfig.class);
+        PowerMockito.mockStatic(AddressUtils.class);
+        PowerMockito.when(AddressUtils.getLocalAddress()).thenReturn("127.0.0.1");
+
+        when(clientConfig.getMasterInfo()).thenReturn(new MasterInfo("127.0.0.1:18080"));
+        ConsumerConfig config = new ConsumerConfig("127.0.0.1:18080", "test");
+        config.setPushFetchInflightPerBroker(-1);
+        Assert.assertEquals(0, config.getPushFetchInflightPerBroker());
+        config.setPushFetchInflightPerBroker(4);
+        ClientFactory clientFactory = new NettyClientFactory();
+        TubeBaseSessionFactory factory = new TubeBaseSessionFactory(clientFactory, clientConfig);
+        SimplePushMessageConsumer consumer = new SimplePushMessageConsumer(factory, config);
+        MessageFetchManager fetchManager = new MessageFetchManager(config, consumer);
+
+        Assert.assertFalse(fetchManager.isShutdown());
+        fetchManager.startFetchWorkers();
+        fetchManager.stopFetchWorkers(true);
+        Assert.assertTrue(fetchManager.isShutdown());
+    }
+
+    @Test
+    public void testAsyncFetchDeliverInOrder() throws Throwable {
+        final int packCnt = 50;
+        final FetchHarness harness = new FetchHarness(4, 3);
+        final ExecutorService rspExecutor = Executors.newFixedThreadPool(4);
+        final Map<String, AtomicInteger> fetchSeqs = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> unDeliveredCnts = new ConcurrentHashMap<>();
+        final Map<String, List<Long>> deliveredSeqs = new ConcurrentHashMap<>();
+        final AtomicInteger maxUnDeliveredCnt = new AtomicInteger(0);
+        final AtomicBoolean isOutOfOrder = new AtomicBoolean(false);
+        doAnswer(invocation -> {
+            PartitionSelectResult selectResult = invocation.getArgument(0);
+            final Callback callback = invocation.getArgument(1);
+            String partKey = selectResult.getPartition().getPartitionKey();
+            final long seq = fetchSeqs.get(partKey).incrementAndGet();
+            int unDeliveredCnt = unDeliveredCnts.get(partKey).incrementAndGet();
+            maxUnDeliveredCnt.accumulateAndGet(unDeliveredCnt, Math::max);
+            // the responses of the partitions arrive in any order
+            rspExecutor.execute(() -> callback.handleResult(buildResponse(seq)));
+            return null;
+        }).when(harness.baseConsumer).asyncFetchMessage(any(), any());
+        doAnswer(invocation -> {
+            FetchContext taskContext = invocation.getArgument(0);
+            List<Long> seqList = deliveredSeqs.get(taskContext.getPartitionKey());
+            if (taskContext.getCurrOffset() != seqList.size() + 1) {
+                isOutOfOrder.set(true);
+            }
+            seqList.add(taskContext.getCurrOffset());
+            unDeliveredCnts.get(taskContext.getPartitionKey()).decrementAndGet();
+            // a slow listener, the next packs are fetched while it runs
+            Thread.sleep(2);
+            return true;
+        }).when(harness.pushConsumer).deliverFetchResult(any(), any());
+        doAnswer(invocation -> {
+            FetchContext taskContext = invocation.getArgument(0);
+            if (fetchSeqs.get(taskContext.getPartitionKey()).get() < packCnt) {
+                harness.select(taskContext.getPartition());
+            }
+            return null;
+        }).when(harness.pushConsumer).releaseFetchResult(any(), anyBoolean());
+        for (int i = 0; i < 3; i++) {
+            Partition partition = harness.newPartition(1, i);
+            fetchSeqs.put(partition.getPartitionKey(), new AtomicInteger(0));
+            unDeliveredCnts.put(partition.getPartitionKey(), new AtomicInteger(0));
+            deliveredSeqs.put(partition.getPartitionKey(), new CopyOnWriteArrayList<>());
+            harness.select(partition);
+        }
+        harness.start();
+        try {
+            waitUntil(() -> {
+                for (List<Long> seqList : deliveredSeqs.values()) {
+                    if (seqList.size() < packCnt) {
+                        return false;
+                    }
+                }
+                return harness.engine.getBufferedPackCnt() == 0;
+            });
+            Assert.assertFalse(isOutOfOrder.get());
+            for (List<Long> seqList : deliveredSeqs.values()) {
+                Assert.assertEquals(packCnt, seqList.size());
+            }
+            // the packs are prefetched, up to the buffer size of each partition
+            Assert.assertTrue(maxUnDeliveredCnt.get() > 1);
+            Assert.assertTrue(maxUnDeliveredCnt.get() <= 3);
+        } finally {
+            harness.stop();
+            rspExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAsyncFetchInflightPerBroker() throws Throwable {
+        final FetchHarness harness = new FetchHarness(2, 1);
+        final LinkedBlockingQueue<Callback> broker1Callbacks = new LinkedBlockingQueue<>();
+        final AtomicInteger broker1SentCnt = new AtomicInteger(0);
+        final AtomicInteger broker1InflightCnt = new AtomicInteger(0);
+        final AtomicInteger maxBroker1InflightCnt = new AtomicInteger(0);
+        final AtomicInteger broker2SentCnt = new AtomicInteger(0);
+        doAnswer(invocation -> {
+            PartitionSelectResult selectResult = invocation.getArgument(0);
+            Callback callback = invocation.getArgument(1);
+            if (selectResult.getPartition().getBrokerId() == 1) {
+                broker1SentCnt.incrementAndGet();
+                maxBroker1InflightCnt.accumulateAndGet(
+                        broker1InflightCnt.incrementAndGet(), Math::max);
+                broker1Callbacks.offer(callback);
+            } else {
+                // the fetches of broker 2 not complete
+                broker2SentCnt.incrementAndGet();
+            }
+            return null;
+        }).when(harness.baseConsumer).asyncFetchMessage(any(), any());
+        when(harness.pushConsumer.deliverFetchResult(any(), any())).thenReturn(true);
+        for (int i = 0; i < 5; i++) {
+            harness.select(harness.newPartition(1, i));
+        }
+        harness.select(harness.newPartition(2, 0));
+        harness.start();
+        try {
+            waitUntil(() -> broker1SentCnt.get() == 2 && broker2SentCnt.get() == 1);
+            // the partitions over the limit wait in the queue of the broker
+            Thread.sleep(200);
+            Assert.assertEquals(2, broker1SentCnt.get());
+            Assert.assertEquals(3, harness.engine.getInflightFetchCnt());
+            for (int i = 0; i < 5; i++) {
+                Callback callback = broker1Callbacks.poll(5000L, TimeUnit.MILLISECONDS);
+                Assert.assertNotNull(callback);
+                broker1InflightCnt.decrementAndGet();
+                callback.handleResult(buildResponse(i + 1));
+            }
+            waitUntil(() -> harness.engine.getInflightFetchCnt() == 1);
+            Assert.assertEquals(5, broker1SentCnt.get());
+            Assert.assertEquals(2, maxBroker1InflightCnt.get());
+            verify(harness.pushConsumer, timeout(5000L).times(5))
+                    .releaseFetchResult(any(), anyBoolean());
+        } finally {
+            harness.stop();
+        }
+    }
+
+    @Test
+    public void testAsyncFetchReleaseOnFailure() throws Throwable {
+        final FetchHarness harness = new FetchHarness(1, 1);
+        doAnswer(invocation -> {
+            PartitionSelectResult selectResult = invocation.getArgument(0);
+            final Callback callback = invocation.getArgument(1);
+            switch (selectResult.getPartition().getPartitionId()) {
+                case 0: {
+                    // the rpc timed out
+                    new Thread(() -> callback.handleError(
+                            new TimeoutException("fetch timeout"))).start();
+                    break;
+                }
+                case 1: {
+                    throw new IOException("send failure");
+                }
+                default: {
+                    callback.handleResult(buildResponse(1));
+                }
+            }
+            return null;
+        }).when(harness.baseConsumer).asyncFetchMessage(any(), any());
+        when(harness.pushConsumer.deliverFetchResult(any(), any())).thenReturn(true);
+        for (int i = 0; i < 3; i++) {
+            harness.select(harness.newPartition(1, i));
+        }
+        harness.start();
+        try {
+            // each failure frees the only in-flight slot of the broker for the next partition
+            verify(harness.baseConsumer, timeout(5000L)).processFetchFailure(
+                    argThat(taskContext -> taskContext.getPartition().getPartitionId() == 0),
+                    any(TimeoutException.class), any());
+            verify(harness.baseConsumer, timeout(5000L)).processFetchFailure(
+                    argThat(taskContext -> taskContext.getPartition().getPartitionId() == 1),
+                    any(IOException.class), any());
+            verify(harness.pushConsumer, timeout(5000L)).deliverFetchResult(
+                    argThat(taskContext -> taskContext.getPartition().getPartitionId() == 2),
+                    any());
+            waitUntil(() -> harness.engine.getInflightFetchCnt() == 0
+                    && harness.engine.getBufferedPackCnt() == 0);
+        } finally {
+            harness.stop();
+        }
+    }
+
+    private static ClientBroker.GetMessageResponseB2C buildResponse(long currOffset) {
+        return ClientBroker.GetMessageResponseB2C.newBuilder()
+                .setSuccess(true).setErrCode(TErrCodeConstants.SUCCESS)
+                .setCurrOffset(currOffset).build();
+    }
+
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long endTime = System.currentTimeMillis() + 10000L;
+        while (!condition.isMet()) {
+            Assert.assertTrue(System.currentTimeMillis() < endTime);
+            Thread.sleep(10);
+        }
+    }
+
+    private interface Condition {
+
+        boolean isMet();
+    }
+
+    /**
+     * Run the async fetch engine on the mocked consumers, the partitions put
+     * into the select queue are fetched.
+     */
+    private static class FetchHarness {
+
+        private final SimplePushMessageConsumer pushConsumer =
+                mock(SimplePushMessageConsumer.class);
+        private final BaseMessageConsumer baseConsumer = mock(BaseMessageConsumer.class);
+        private final MessageFetchManager fetchManager = mock(MessageFetchManager.class);
+        private final LinkedBlockingQueue<PartitionSelectResult> selectQueue =
+                new LinkedBlockingQueue<>();
+        private final AtomicBoolean stopped = new AtomicBoolean(false);
+        private final AsyncFetchEngine engine;
+
+        FetchHarness(int inflightPerBroker, int bufferPerPartition) throws Exception {
+            PowerMockito.mockStatic(AddressUtils.class);
+            PowerMockito.when(AddressUtils.getLocalAddress()).thenReturn("127.0.0.1");
+            ConsumerConfig config = new ConsumerConfig("127.0.0.1:18080", "test");
+            config.setPushFetchInflightPerBroker(inflightPerBroker);
+            config.setPushFetchBufferPerPartition(bufferPerPartition);
+            when(pushConsumer.getBaseConsumer()).thenReturn(baseConsumer);
+            when(baseConsumer.pushSelectPartition()).thenAnswer(
+                    invocation -> selectQueue.poll(20L, TimeUnit.MILLISECONDS));
+            when(baseConsumer.isPartitionInUse(anyString(), anyLong())).thenReturn(true);
+            doAnswer(invocation -> {
+                FetchContext taskContext = invocation.getArgument(0);
+                ClientBroker.GetMessageResponseB2C msgRspB2C = invocation.getArgument(1);
+                taskContext.setSuccessProcessResult(msgRspB2C.getCurrOffset(),
+                        "", new ArrayList<>(), -1L);
+                return taskContext;
+            }).when(baseConsumer).processFetchResponse(any(), any(), anyLong(), any());
+            when(fetchManager.isShutdown()).thenAnswer(invocation -> stopped.get());
+            this.engine = new AsyncFetchEngine(config, fetchManager, pushConsumer);
+        }
+
+        Partition newPartition(int brokerId, int partitionId) {
+            return new Partition(new BrokerInfo(brokerId, "127.0.0.1", 8123),
+                    "test", partitionId);
+        }
+
+        void select(Partition partition) {
+            selectQueue.offer(new PartitionSelectResult(partition, System.nanoTime(), true));
+        }
+
+        void start() {
+            engine.start();
+        }
+
+        void stop() throws InterruptedException {
+            stopped.set(true);
+            engine.stop(1000L);
+        }
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.client.common.PartitionRouteMode;
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyAwarePartitionRouterTest {
+
+    @Test(expected = TubeClientException.class)
+    public void testGetPartitionInvalidInput() throws TubeClientException {
+        LatencyAwarePartitionRouter router =
+                new LatencyAwarePartitionRouter(PartitionRouteMode.LEAST_OUTSTANDING, 15000);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        router.getPartition(message, new ArrayList<Partition>());
+    }
+
+    @Test
+    public void testLeastOutstanding() throws TubeClientException {
+        LatencyAwarePartitionRouter router =
+                new LatencyAwarePartitionRouter(PartitionRouteMode.LEAST_OUTSTANDING, 15000);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        Partition fastPart = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Partition slowPart = new Partition(new BrokerInfo("1:127.0.0.2:18080"), "test", 0);
+        List<Partition> partitions = new ArrayList<>();
+        partitions.add(fastPart);
+        partitions.add(slowPart);
+        router.addSendStatistic(fastPart);
+        router.addReceiveStatistic(fastPart, 2, true);
+        router.addSendStatistic(slowPart);
+        router.addReceiveStatistic(slowPart, 200, true);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(fastPart, router.getPartition(message, partitions));
+        }
+        // the requests in flight weight the latency
+        for (int i = 0; i < 200; i++) {
+            router.addSendStatistic(fastPart);
+        }
+        assertEquals(slowPart, router.getPartition(message, partitions));
+        // the delayed partitions are skipped
+        slowPart.setDelayTimeStamp(System.currentTimeMillis() + 10000000);
+        assertEquals(fastPart, router.getPartition(message, partitions));
+    }
+
+    @Test
+    public void testPowerOfTwoChoices() throws TubeClientException {
+        LatencyAwarePartitionRouter router =
+                new LatencyAwarePartitionRouter(PartitionRouteMode.POWER_OF_TWO_CHOICES, 15000);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        Partition fastPart = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Partition failPart = new Partition(new BrokerInfo("1:127.0.0.2:18080"), "test", 0);
+        List<Partition> partitions = new ArrayList<>();
+        partitions.add(fastPart);
+        partitions.add(failPart);
+        router.addSendStatistic(fastPart);
+        router.addReceiveStatistic(fastPart, 2, true);
+        router.addSendStatistic(failPart);
+        router.addReceiveStatistic(failPart, 2, false);
+        int failSelected = 0;
+        for (int i = 0; i < 100; i++) {
+            if (router.getPartition(message, partitions) == failPart) {
+                failSelected++;
+            }
+        }
+        // the failed one is selected only if both choices are it
+        assertNotEquals(100, failSelected);
+        assertTrue(failSelected < 60);
+    }
+
+    @Test
+    public void testKeyHash() throws TubeClientException {
+        LatencyAwarePartitionRouter router =
+                new LatencyAwarePartitionRouter(PartitionRouteMode.KEY_HASH, 15000);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        message.putSystemHeader("stream1", null);
+        List<Partition> partitions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            partitions.add(new Partition(new BrokerInfo(i + ":127.0.0.1:18080"), "test", i));
+        }
+        Partition selected = router.getPartition(message, partitions);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(selected, router.getPartition(message, partitions));
+        }
+        // the keys move only when their partition is unavailable
+        Partition otherPart = (selected == partitions.get(0)) ? partitions.get(1) : partitions.get(0);
+        otherPart.setDelayTimeStamp(System.currentTimeMillis() + 10000000);
+        assertEquals(selected, router.getPartition(message, partitions));
+        selected.setDelayTimeStamp(System.currentTimeMillis() + 10000000);
+        Partition moved = router.getPartition(message, partitions);
+        assertNotEquals(selected, moved);
+        assertNotEquals(otherPart, moved);
+    }
+}
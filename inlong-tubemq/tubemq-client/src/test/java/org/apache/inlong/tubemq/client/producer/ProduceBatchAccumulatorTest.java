@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProduceBatchAccumulatorTest {
+
+    private final Partition partition =
+            new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+
+    @Test
+    public void testBatchByCountAndSize() {
+        final List<List<ProduceBatchAccumulator.PendingMessage>> sentBatches =
+                new CopyOnWriteArrayList<>();
+        ProduceBatchAccumulator accumulator = new ProduceBatchAccumulator(
+                "test", 3, 10, 60000L, new ProduceBatchAccumulator.BatchSender() {
+
+                    @Override
+                    public void sendBatch(Partition partition,
+                            List<ProduceBatchAccumulator.PendingMessage> messages) {
+                        sentBatches.add(messages);
+                    }
+                });
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        // full by message count
+        for (int i = 0; i < 3; i++) {
+            accumulator.append(partition, message, new byte[2], null);
+        }
+        assertEquals(1, sentBatches.size());
+        assertEquals(3, sentBatches.get(0).size());
+        // the pending batch is sent before it exceeds the data size
+        accumulator.append(partition, message, new byte[6], null);
+        accumulator.append(partition, message, new byte[6], null);
+        assertEquals(2, sentBatches.size());
+        assertEquals(1, sentBatches.get(1).size());
+        // the remained message is sent while shutdown
+        accumulator.shutdown();
+        assertEquals(3, sentBatches.size());
+        assertEquals(6, sentBatches.get(2).get(0).getPayload().length);
+    }
+
+    @Test
+    public void testBatchByLinger() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        ProduceBatchAccumulator accumulator = new ProduceBatchAccumulator(
+                "test", 100, 1024, 200L, new ProduceBatchAccumulator.BatchSender() {
+
+                    @Override
+                    public void sendBatch(Partition partition,
+                            List<ProduceBatchAccumulator.PendingMessage> messages) {
+                        if (messages.size() == 2) {
+                            latch.countDown();
+                        }
+                    }
+                });
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        accumulator.append(partition, message, message.getData(), null);
+        accumulator.append(partition, message, message.getData(), null);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        accumulator.shutdown();
+    }
+}
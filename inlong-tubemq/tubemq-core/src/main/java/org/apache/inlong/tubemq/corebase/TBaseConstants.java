@@ -77,6 +77,9 @@ public class TBaseConstants {
             META_MAX_MESSAGE_DATA_SIZE + META_MESSAGE_SIZE_ADJUST;
     public static final int META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT =
             META_MAX_ALLOWED_MESSAGE_SIZE_MB * META_MB_UNIT_SIZE;
+    // the limits of a batch produce request
+    public static final int META_MAX_BATCH_MESSAGE_COUNT = 1000;
+    public static final int META_MAX_BATCH_DATA_SIZE = META_MAX_MESSAGE_DATA_SIZE;
 
     public static final long INDEX_MSG_UNIT_SIZE = 28;
 
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.compress;
+
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Compress tools of message batch.
+ *
+ * A compressed batch is stored as one message, its payload is laid out as:
+ * raw length 4 + compressed data, and the raw data is a run of
+ * message flag 4 + payload length 4 + payload, the payload of each message
+ * keeps the same layout as an uncompressed message. The raw length is limited to
+ * the max allowed message size, the batches over it are not compressed.
+ */
+public class CompressUtils {
+
+    private static final int ZSTD_COMPRESS_LEVEL = 3;
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+    public static final int MAX_BATCH_RAW_LENGTH =
+            TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT;
+
+    /**
+     * Pack the payloads of messages into a compressed batch.
+     *
+     * @param compressType  the compress type
+     * @param flags         the flags of the messages
+     * @param payloads      the encoded payloads of the messages
+     * @return  the batch body
+     * @throws IOException  the exception while compressing,
+     *                      or the raw length is over MAX_BATCH_RAW_LENGTH
+     */
+    public static byte[] packBatch(CompressType compressType,
+            int[] flags, List<byte[]> payloads) throws IOException {
+        int rawLength = 0;
+        for (byte[] payload : payloads) {
+            rawLength += 8 + payload.length;
+            if (rawLength > MAX_BATCH_RAW_LENGTH) {
+                throw new IOException("Raw length of batch over max length " + MAX_BATCH_RAW_LENGTH);
+            }
+        }
+        ByteBuffer rawBuffer = ByteBuffer.allocate(rawLength);
+        for (int i = 0; i < payloads.size(); i++) {
+            rawBuffer.putInt(flags[i]);
+            rawBuffer.putInt(payloads.get(i).length);
+            rawBuffer.put(payloads.get(i));
+        }
+        byte[] compressed = compress(compressType, rawBuffer.array(), 0, rawLength);
+        ByteBuffer bodyBuffer = ByteBuffer.allocate(4 + compressed.length);
+        bodyBuffer.putInt(rawLength);
+        bodyBuffer.put(compressed);
+        return bodyBuffer.array();
+    }
+
+    /**
+     * Unpack the raw data of a compressed batch.
+     *
+     * @param flag     the flag of the stored message
+     * @param body     the batch body
+     * @param offset   the start position of the body
+     * @param length   the length of the body
+     * @return  the raw data, a run of flag 4 + payload length 4 + payload
+     * @throws IOException  the exception while decompressing
+     */
+    public static ByteBuffer unpackBatch(int flag, byte[] body,
+            int offset, int length) throws IOException {
+        CompressType compressType =
+                CompressType.valueOf(MessageFlagUtils.getCompressTypeId(flag));
+        if (compressType == null) {
+            throw new IOException("Unsupported compress type in flag " + flag);
+        }
+        if (length < 4) {
+            throw new IOException("Illegal compressed batch length " + length);
+        }
+        int rawLength = ByteBuffer.wrap(body, offset, 4).getInt();
+        return ByteBuffer.wrap(decompress(compressType,
+                body, offset + 4, length - 4, rawLength));
+    }
+
+    public static byte[] compress(CompressType compressType,
+            byte[] src, int offset, int length) throws IOException {
+        switch (compressType) {
+            case SNAPPY: {
+                byte[] output = new byte[Snappy.maxCompressedLength(length)];
+                int outLength = Snappy.rawCompress(src, offset, length, output, 0);
+                return copyOf(output, outLength);
+            }
+            case LZ4: {
+                return LZ4_FACTORY.fastCompressor().compress(src, offset, length);
+            }
+            case ZSTD: {
+                byte[] output = new byte[(int) Zstd.compressBound(length)];
+                long outLength = Zstd.compressByteArray(output, 0, output.length,
+                        src, offset, length, ZSTD_COMPRESS_LEVEL);
+                if (Zstd.isError(outLength)) {
+                    throw new IOException(Zstd.getErrorName(outLength));
+                }
+                return copyOf(output, (int) outLength);
+            }
+            default: {
+                return copyOf(src, offset, length);
+            }
+        }
+    }
+
+    /**
+     * Decompress the data, the raw length is checked before the output is allocated.
+     *
+     * @param compressType  the compress type
+     * @param src           the compressed data
+     * @param offset        the start position of the compressed data
+     * @param length        the compressed data length
+     * @param rawLength     the expected raw length
+     * @return  the raw data
+     * @throws IOException  the exception of the illegal data or raw length
+     */
+    public static byte[] decompress(CompressType compressType, byte[] src,
+            int offset, int length, int rawLength) throws IOException {
+        if (rawLength < 0 || rawLength > MAX_BATCH_RAW_LENGTH) {
+            throw new IOException("Illegal raw length " + rawLength);
+        }
+        switch (compressType) {
+            case SNAPPY: {
+                if (Snappy.uncompressedLength(src, offset, length) != rawLength) {
+                    throw new IOException("Snappy decompressed length mismatch");
+                }
+                byte[] output = new byte[rawLength];
+                Snappy.uncompress(src, offset, length, output, 0);
+                return output;
+            }
+            case LZ4: {
+                byte[] output = new byte[rawLength];
+                try {
+                    // the safe decompressor never reads or writes out of the given ranges
+                    if (LZ4_FACTORY.safeDecompressor().decompress(src,
+                            offset, length, output, 0, rawLength) != rawLength) {
+                        throw new IOException("LZ4 decompressed length mismatch");
+                    }
+                } catch (LZ4Exception | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("LZ4 decompress failure", e);
+                }
+                return output;
+            }
+            case ZSTD: {
+                byte[] output = new byte[rawLength];
+                long outLength = Zstd.decompressByteArray(output, 0, rawLength,
+                        src, offset, length);
+                if (Zstd.isError(outLength) || outLength != rawLength) {
+                    throw new IOException("Zstd decompress failure");
+                }
+                return output;
+            }
+            default: {
+                return copyOf(src, offset, length);
+            }
+        }
+    }
+
+    private static byte[] copyOf(byte[] src, int length) {
+        return copyOf(src, 0, length);
+    }
+
+    private static byte[] copyOf(byte[] src, int offset, int length) {
+        byte[] output = new byte[length];
+        System.arraycopy(src, offset, output, 0, length);
+        return output;
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.apache.inlong.tubemq.corebase.utils;
 
+import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 
 public class CheckSum {
@@ -30,4 +31,10 @@ public class CheckSum {
         crc32.update(array, offset, length);
         return (int) (crc32.getValue() & 0x7FFFFFFF);
     }
+
+    public static final int crc32(ByteBuffer buffer) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.duplicate());
+        return (int) (crc32.getValue() & 0x7FFFFFFF);
+    }
 }
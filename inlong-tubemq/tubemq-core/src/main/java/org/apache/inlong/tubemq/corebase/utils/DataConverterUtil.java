@@ -25,22 +25,46 @@ import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
+import org.apache.inlong.tubemq.corebase.compress.CompressUtils;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 
+import com.google.protobuf.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Tube meta info converter tools
  */
 public class DataConverterUtil {
 
+    private static final Logger logger =
+            LoggerFactory.getLogger(DataConverterUtil.class);
+
+    // stored record layout of the broker data file, the raw data blocks
+    // returned by broker are contiguous runs of these records:
+    // message length 4 + dataType 4 + checksum 4 + queueId 4
+    // + queueLogicOffset 8 + receivedTime 8 + reportAddr 4
+    // + keyCode 4 + msgId 8 + flag 4 + data 0
+    private static final int RAW_DATA_PREFIX_LEN = 48;
+    private static final int RAW_DATA_HEADER_LEN = RAW_DATA_PREFIX_LEN + 4;
+    private static final int RAW_HEADER_POS_DATATYPE = 4;
+    private static final int RAW_HEADER_POS_CHECKSUM = 8;
+    private static final int RAW_HEADER_POS_MSGID = 40;
+    private static final int RAW_HEADER_POS_MSGFLAG = 48;
+    private static final int RAW_DATA_TOKEN_BEGIN_VALUE = 0x2C998B8;
+
     /**
      * convert string info to @link SubscribeInfo
      *
@@ -207,6 +231,23 @@ public class DataConverterUtil {
      */
     public static List<Message> convertMessage(final String topicName,
             List<ClientBroker.TransferedMessage> transferedMessageList) {
+        return convertMessage(topicName, transferedMessageList, null, null);
+    }
+
+    /**
+     * convert a list of @link ClientBroker.TransferedMessage with topicName
+     * to a list of @link Message, the compressed batches are decompressed only
+     * if their msgType passes the filter
+     *
+     * @param topicName              the topic name
+     * @param transferedMessageList  the transfered messages
+     * @param filterConds            the msgType filter of the consumer, may be null
+     * @param decodeFailCnt          the counter of the records failed to decode, may be null
+     * @return the message list
+     */
+    public static List<Message> convertMessage(final String topicName,
+            List<ClientBroker.TransferedMessage> transferedMessageList,
+            Set<String> filterConds, AtomicLong decodeFailCnt) {
         if (transferedMessageList == null || transferedMessageList.isEmpty()) {
             return new ArrayList<>();
         }
@@ -220,6 +261,7 @@ public class DataConverterUtil {
             int payloadDataLen = payloadData.array().length;
             int currentChecksum = CheckSum.crc32(payloadData.array());
             if (dataCheckSum != currentChecksum) {
+                bookChecksumFailure(topicName, trsMessage.getMessageId(), decodeFailCnt);
                 continue;
             }
             int readPos = 0;
@@ -248,9 +290,192 @@ public class DataConverterUtil {
             }
             final byte[] payload = new byte[payloadDataLen];
             System.arraycopy(payloadData.array(), readPos, payload, 0, payloadDataLen);
-            messageList.add(new MessageExt(trsMessage.getMessageId(), topicName, payload, attribute, flag));
+            addMessages(messageList, topicName, trsMessage.getMessageId(),
+                    payload, attribute, flag, filterConds, decodeFailCnt);
         }
         return messageList;
     }
 
+    /**
+     * add the parsed message to the message list, the messages of a compressed
+     * batch are unpacked, each with the message id of the batch plus its index
+     *
+     * All the messages of a compressed batch have the msgType of the batch, so a
+     * batch filtered out is dropped without being decompressed.
+     *
+     * @param messageList    the message list
+     * @param topicName      the topic name
+     * @param msgId          the message id
+     * @param payload        the message data
+     * @param attribute      the message attribute
+     * @param flag           the message flag
+     * @param filterConds    the msgType filter, may be null
+     * @param decodeFailCnt  the counter of the records failed to decode, may be null
+     */
+    private static void addMessages(List<Message> messageList, String topicName,
+            long msgId, byte[] payload, String attribute, int flag,
+            Set<String> filterConds, AtomicLong decodeFailCnt) {
+        MessageExt message = new MessageExt(msgId, topicName, payload, attribute, flag);
+        if (!MessageFlagUtils.isCompressed(flag)) {
+            messageList.add(message);
+            return;
+        }
+        if (filterConds != null && !filterConds.isEmpty()
+                && (TStringUtils.isBlank(message.getMsgType())
+                        || !filterConds.contains(message.getMsgType()))) {
+            return;
+        }
+        ByteBuffer rawBuffer;
+        try {
+            rawBuffer = CompressUtils.unpackBatch(flag, payload, 0, payload.length);
+        } catch (IOException e) {
+            if (decodeFailCnt != null) {
+                decodeFailCnt.incrementAndGet();
+            }
+            logger.warn(new StringBuilder(256)
+                    .append("[Data Converter] unpack compressed batch failure, topic=")
+                    .append(topicName).append(", msgId=").append(msgId).toString(), e);
+            return;
+        }
+        for (long itemIndex = 0; rawBuffer.remaining() >= 8; itemIndex++) {
+            final int itemFlag = rawBuffer.getInt();
+            int itemDataLen = rawBuffer.getInt();
+            if (itemDataLen < 0 || itemDataLen > rawBuffer.remaining()) {
+                break;
+            }
+            final int itemEndPos = rawBuffer.position() + itemDataLen;
+            String itemAttribute = null;
+            if (MessageFlagUtils.hasAttribute(itemFlag)) {
+                if (itemDataLen < 4) {
+                    rawBuffer.position(itemEndPos);
+                    continue;
+                }
+                final int attrLen = rawBuffer.getInt();
+                itemDataLen -= 4;
+                if (attrLen < 0 || attrLen > itemDataLen) {
+                    rawBuffer.position(itemEndPos);
+                    continue;
+                }
+                if (attrLen > 0) {
+                    final byte[] attrData = new byte[attrLen];
+                    rawBuffer.get(attrData);
+                    try {
+                        itemAttribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
+                    } catch (final UnsupportedEncodingException e) {
+                        throw new RuntimeException(e);
+                    }
+                    itemDataLen -= attrLen;
+                }
+            }
+            final byte[] itemData = new byte[itemDataLen];
+            rawBuffer.get(itemData);
+            messageList.add(new MessageExt(msgId + itemIndex,
+                    topicName, itemData, itemAttribute, itemFlag));
+        }
+    }
+
+    /**
+     * convert the raw data blocks returned by broker to a list of @link Message
+     *
+     * Each block holds complete records in the broker's storage layout,
+     * the records are parsed in place and only the payload is copied out.
+     *
+     * @param topicName      the topic name
+     * @param rawDataBlocks  the raw data blocks
+     * @return the message list
+     */
+    public static List<Message> convertRawMessage(final String topicName,
+            List<ByteString> rawDataBlocks) {
+        return convertRawMessage(topicName, rawDataBlocks, null, null);
+    }
+
+    /**
+     * convert the raw data blocks returned by broker to a list of @link Message,
+     * the compressed batches are decompressed only if their msgType passes the filter
+     *
+     * @param topicName      the topic name
+     * @param rawDataBlocks  the raw data blocks
+     * @param filterConds    the msgType filter of the consumer, may be null
+     * @param decodeFailCnt  the counter of the records failed to decode, may be null
+     * @return the message list
+     */
+    public static List<Message> convertRawMessage(final String topicName,
+            List<ByteString> rawDataBlocks, Set<String> filterConds, AtomicLong decodeFailCnt) {
+        if (rawDataBlocks == null || rawDataBlocks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Message> messageList = new ArrayList<>();
+        for (ByteString rawBlock : rawDataBlocks) {
+            ByteBuffer blockBuf = rawBlock.asReadOnlyByteBuffer();
+            int recordPos = blockBuf.position();
+            final int blockLimit = blockBuf.limit();
+            while (blockLimit - recordPos >= RAW_DATA_HEADER_LEN) {
+                final int msgLen = blockBuf.getInt(recordPos);
+                final int msgToken = blockBuf.getInt(recordPos + RAW_HEADER_POS_DATATYPE);
+                final int payLoadLen = msgLen - RAW_DATA_PREFIX_LEN;
+                // the rest of block can't be located after a broken record
+                if (msgToken != RAW_DATA_TOKEN_BEGIN_VALUE
+                        || payLoadLen <= 0
+                        || payLoadLen > blockLimit - recordPos - RAW_DATA_HEADER_LEN) {
+                    break;
+                }
+                final int checkSum = blockBuf.getInt(recordPos + RAW_HEADER_POS_CHECKSUM);
+                final long msgId = blockBuf.getLong(recordPos + RAW_HEADER_POS_MSGID);
+                final int flag = blockBuf.getInt(recordPos + RAW_HEADER_POS_MSGFLAG);
+                ByteBuffer payloadData = blockBuf.duplicate();
+                payloadData.limit(recordPos + RAW_DATA_HEADER_LEN + payLoadLen);
+                payloadData.position(recordPos + RAW_DATA_HEADER_LEN);
+                recordPos += RAW_DATA_HEADER_LEN + payLoadLen;
+                if (CheckSum.crc32(payloadData) != checkSum) {
+                    bookChecksumFailure(topicName, msgId, decodeFailCnt);
+                    continue;
+                }
+                int payloadDataLen = payLoadLen;
+                String attribute = null;
+                if (MessageFlagUtils.hasAttribute(flag)) {
+                    if (payloadDataLen < 4) {
+                        continue;
+                    }
+                    final int attrLen = payloadData.getInt();
+                    payloadDataLen -= 4;
+                    if (attrLen > payloadDataLen) {
+                        continue;
+                    }
+                    if (attrLen > 0) {
+                        final byte[] attrData = new byte[attrLen];
+                        payloadData.get(attrData);
+                        try {
+                            attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
+                        } catch (final UnsupportedEncodingException e) {
+                            throw new RuntimeException(e);
+                        }
+                        payloadDataLen -= attrLen;
+                    }
+                }
+                final byte[] payload = new byte[payloadDataLen];
+                payloadData.get(payload);
+                addMessages(messageList, topicName, msgId,
+                        payload, attribute, flag, filterConds, decodeFailCnt);
+            }
+        }
+        return messageList;
+    }
+
+    /**
+     * count and log a record dropped for its data not matching the checksum
+     *
+     * @param topicName      the topic name
+     * @param msgId          the message id
+     * @param decodeFailCnt  the counter of the records failed to decode, may be null
+     */
+    private static void bookChecksumFailure(String topicName,
+            long msgId, AtomicLong decodeFailCnt) {
+        if (decodeFailCnt != null) {
+            decodeFailCnt.incrementAndGet();
+        }
+        logger.warn(new StringBuilder(256)
+                .append("[Data Converter] message checksum failure, topic=")
+                .append(topicName).append(", msgId=").append(msgId).toString());
+    }
+
 }
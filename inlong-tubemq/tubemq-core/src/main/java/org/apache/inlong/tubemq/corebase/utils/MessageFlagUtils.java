@@ -33,4 +33,20 @@ public class MessageFlagUtils {
         return (flag & 0x1) == 1;
     }
 
+    /**
+     * Get the compress type id stored in bit 4 to bit 7 of the flag,
+     * 0 means the payload is not compressed.
+     */
+    public static int getCompressTypeId(final int flag) {
+        return (flag & 0xF0) >>> 4;
+    }
+
+    public static boolean isCompressed(final int flag) {
+        return (flag & 0xF0) != 0;
+    }
+
+    public static int setCompressTypeId(final int flag, final int compressTypeId) {
+        return flag & 0xFFFFFF0F | ((compressTypeId & 0xF) << 4);
+    }
+
 }
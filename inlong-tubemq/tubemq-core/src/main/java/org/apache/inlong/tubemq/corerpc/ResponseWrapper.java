@@ -20,7 +20,10 @@ package org.apache.inlong.tubemq.corerpc;
 import org.apache.inlong.tubemq.corerpc.exception.StandbyException;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 
+import io.netty.util.ReferenceCounted;
+
 import java.io.Serializable;
+import java.util.List;
 
 /**
  *  Response message wrapper class.
@@ -38,6 +41,8 @@ public class ResponseWrapper implements Serializable {
     private Object responseData;
     private String errMsg;
     private String stackTrace;
+    // file regions or direct buffers appended to the response frame without copying
+    private transient List<ReferenceCounted> attachedRegions;
 
     /**
      *  Initial a response wrapper object
@@ -198,4 +203,12 @@ public class ResponseWrapper implements Serializable {
         this.stackTrace = stackTrace;
     }
 
+    public List<ReferenceCounted> getAttachedRegions() {
+        return attachedRegions;
+    }
+
+    public void setAttachedRegions(List<ReferenceCounted> attachedRegions) {
+        this.attachedRegions = attachedRegions;
+    }
+
 }
@@ -45,6 +45,7 @@ public final class RpcConstants {
     public static final String NETTY_TCP_SENDBUF = "rpc.netty.send.buffer";
     public static final String NETTY_TCP_RECEIVEBUF = "rpc.netty.receive.buffer";
     public static final String NETTY_TCP_ENABLEBUSYWAIT = "rpc.netty.enable.busy.wait";
+    public static final String NETTY_MAX_FRAME_ITEM_SIZE = "rpc.netty.max.frame.item.size";
 
     public static final String TCP_NODELAY = "rpc.tcp.nodelay";
     public static final String TCP_REUSEADDRESS = "rpc.tcp.reuseaddress";
@@ -69,6 +70,8 @@ public final class RpcConstants {
     public static final int MAX_FRAME_MAX_LIST_SIZE =
             (int) ((TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT
                     + TBaseConstants.META_MB_UNIT_SIZE * 8) / RPC_MAX_BUFFER_SIZE);
+    public static final int CFG_DEFAULT_MAX_FRAME_ITEM_SIZE =
+            MAX_FRAME_MAX_LIST_SIZE * RPC_MAX_BUFFER_SIZE;
 
     public static final int RPC_FLAG_MSG_TYPE_REQUEST = 0x0;
     public static final int RPC_FLAG_MSG_TYPE_RESPONSE = 0x1;
@@ -107,6 +110,8 @@ public final class RpcConstants {
     public static final int RPC_MSG_MASTER_CONSUMER_HEARTBEAT_V2 = 21;
     public static final int RPC_MSG_MASTER_CONSUMER_GET_PART_META = 22;
 
+    public static final int RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH = 23;
+
     public static final int MSG_OPTYPE_REGISTER = 31;
     public static final int MSG_OPTYPE_UNREGISTER = 32;
 
@@ -17,13 +17,43 @@
 
 package org.apache.inlong.tubemq.corerpc;
 
+import com.google.protobuf.MessageLite;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
-public class RpcDataPack {
+/**
+ * The rpc frame passed between the netty codec and the rpc handlers.
+ *
+ * A received frame carries its list items in dataLst, as views of the received buffers
+ * which are held until releaseDataBufs() is called. A frame to send carries either
+ * dataLst, or the protobuf messages in pbMsgLst which are serialized by the encoder
+ * straight into the outbound buffer as one list item, followed by the response body
+ * if set.
+ *
+ * The attached regions are owned by the frame until the encoder takes them, so they
+ * are released with the frame if it is discarded before being encoded.
+ */
+public class RpcDataPack extends AbstractReferenceCounted {
 
     private int serialNo;
     private List<ByteBuffer> dataLst;
+    // protobuf messages written in delimited format, used instead of dataLst if set
+    private List<MessageLite> pbMsgLst;
+    // the method and data of the RspResponseBody written after pbMsgLst,
+    // the data is serialized straight into the outbound buffer
+    private int rspMethodId;
+    private MessageLite rspData;
+    private boolean hasRspBody = false;
+    // file regions or direct buffers sent after dataLst, each one as a separate list item
+    private List<ReferenceCounted> regionLst;
+    // the received buffers backing dataLst
+    private List<ByteBuf> dataBufLst;
 
     public RpcDataPack() {
 
@@ -50,4 +80,103 @@ public class RpcDataPack {
         this.dataLst = dataLst;
     }
 
+    public List<MessageLite> getPbMsgLst() {
+        return pbMsgLst;
+    }
+
+    public void setPbMsgLst(List<MessageLite> pbMsgLst) {
+        this.pbMsgLst = pbMsgLst;
+    }
+
+    /**
+     * Add a received list item, the frame holds the buffer until releaseDataBufs() is called.
+     *
+     * @param dataBuf   the list item buffer, owned by the frame
+     */
+    public void addDataBuf(ByteBuf dataBuf) {
+        if (dataBufLst == null) {
+            dataBufLst = new ArrayList<>();
+        }
+        dataBufLst.add(dataBuf);
+        dataLst.add(dataBuf.nioBuffer());
+    }
+
+    /**
+     * Release the received buffers, dataLst is not readable after that.
+     */
+    public void releaseDataBufs() {
+        List<ByteBuf> dataBufs = dataBufLst;
+        if (dataBufs == null) {
+            return;
+        }
+        dataBufLst = null;
+        dataLst = null;
+        for (ByteBuf dataBuf : dataBufs) {
+            ReferenceCountUtil.safeRelease(dataBuf);
+        }
+    }
+
+    /**
+     * Set the response body written after pbMsgLst.
+     *
+     * @param methodId   the method id
+     * @param rspData    the response data, null if empty
+     */
+    public void setRspBody(int methodId, MessageLite rspData) {
+        this.rspMethodId = methodId;
+        this.rspData = rspData;
+        this.hasRspBody = true;
+    }
+
+    public boolean hasRspBody() {
+        return hasRspBody;
+    }
+
+    public int getRspMethodId() {
+        return rspMethodId;
+    }
+
+    public MessageLite getRspData() {
+        return rspData;
+    }
+
+    public List<ReferenceCounted> getRegionLst() {
+        return regionLst;
+    }
+
+    public void setRegionLst(List<ReferenceCounted> regionLst) {
+        this.regionLst = regionLst;
+    }
+
+    public int getRegionCnt() {
+        return (regionLst == null) ? 0 : regionLst.size();
+    }
+
+    /**
+     * Take out the attached regions, the caller is responsible for releasing them.
+     *
+     * @return the attached regions, null if not found
+     */
+    public List<ReferenceCounted> takeRegionLst() {
+        List<ReferenceCounted> regions = regionLst;
+        regionLst = null;
+        return regions;
+    }
+
+    @Override
+    protected void deallocate() {
+        releaseDataBufs();
+        List<ReferenceCounted> regions = takeRegionLst();
+        if (regions != null) {
+            for (ReferenceCounted region : regions) {
+                ReferenceCountUtil.safeRelease(region);
+            }
+        }
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+        return this;
+    }
+
 }
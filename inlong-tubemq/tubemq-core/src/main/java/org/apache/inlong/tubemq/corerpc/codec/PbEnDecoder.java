@@ -22,8 +22,12 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientMaster;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 
 import com.google.protobuf.AbstractMessageLite;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -54,6 +58,8 @@ public class PbEnDecoder {
         rpcMethodMap.put("getMessagesC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE);
         rpcMethodMap.put("consumerCommitC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT);
         rpcMethodMap.put("sendMessageP2B", RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE);
+        rpcMethodMap.put("sendMessageBatchP2B",
+                RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH);
         rpcMethodMap.put("consumerRegisterC2MV2",
                 RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER_V2);
         rpcMethodMap.put("consumerHeartbeatC2MV2",
@@ -65,6 +71,8 @@ public class PbEnDecoder {
                 RpcConstants.RPC_SERVICE_TYPE_MASTER_SERVICE);
         rpcServiceMap.put("org.apache.inlong.tubemq.corerpc.service.BrokerReadService",
                 RpcConstants.RPC_SERVICE_TYPE_BROKER_READ_SERVICE);
+        rpcServiceMap.put("org.apache.inlong.tubemq.corerpc.service.BrokerReadService$AsyncService",
+                RpcConstants.RPC_SERVICE_TYPE_BROKER_READ_SERVICE);
         rpcServiceMap.put("org.apache.inlong.tubemq.corerpc.service.BrokerWriteService",
                 RpcConstants.RPC_SERVICE_TYPE_BROKER_WRITE_SERVICE);
         rpcServiceMap.put("org.apache.inlong.tubemq.corerpc.service.BrokerWriteService$AsyncService",
@@ -77,6 +85,18 @@ public class PbEnDecoder {
         return rspDataMessage.toByteArray();
     }
 
+    /**
+     * Encode pb content into a ByteString, which is embedded into the rpc body without copying
+     *
+     * @param object        the message object
+     * @return              the encoded content
+     * @throws Exception    the exception while encoding message
+     */
+    public static ByteString pbEncodeToByteString(Object object) throws Exception {
+        AbstractMessageLite rspDataMessage = (AbstractMessageLite) object;
+        return rspDataMessage.toByteString();
+    }
+
     /**
      * Decode pb content
      *
@@ -86,7 +106,7 @@ public class PbEnDecoder {
      * @return              the message's object
      * @throws Exception    the exception while decoding messsage
      */
-    public static Object pbDecode(boolean isRequest, int methodId, byte[] bytes) throws Exception {
+    public static Object pbDecode(boolean isRequest, int methodId, ByteString bytes) throws Exception {
         // #lizard forgives
         // According to the method ID carried in the pb message, the corresponding class is directly used for mapping.
         if (isRequest) {
@@ -130,6 +150,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
                     return ClientBroker.SendMessageRequestP2B.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH: {
+                    return ClientBroker.SendMessageBatchRequestP2B.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
                     return ClientBroker.RegisterRequestC2B.parseFrom(bytes);
                 }
@@ -193,6 +216,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
                     return ClientBroker.SendMessageResponseB2P.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH: {
+                    return ClientBroker.SendMessageBatchResponseB2P.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
                     return ClientBroker.RegisterResponseB2C.parseFrom(bytes);
                 }
@@ -218,6 +244,35 @@ public class PbEnDecoder {
         }
     }
 
+    /**
+     * Decode response pb content with the data blocks attached behind it
+     *
+     * @param methodId      the method id
+     * @param bytes         the message content
+     * @param attachedBlocks  the data blocks attached to the response frame
+     * @return              the message's object
+     * @throws Exception    the exception while decoding messsage
+     */
+    public static Object pbDecode(int methodId, ByteString bytes,
+            List<ByteBuffer> attachedBlocks) throws Exception {
+        Object result = pbDecode(false, methodId, bytes);
+        if (attachedBlocks == null || attachedBlocks.isEmpty()) {
+            return result;
+        }
+        if (methodId != RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE) {
+            throw new Exception(new StringBuilder(256)
+                    .append("Unsupported attached blocks for method ID :")
+                    .append(methodId).toString());
+        }
+        // the blocks are wrapped directly, without copying the content
+        ClientBroker.GetMessageResponseB2C.Builder builder =
+                ((ClientBroker.GetMessageResponseB2C) result).toBuilder();
+        for (ByteBuffer block : attachedBlocks) {
+            builder.addRawDataBlocks(UnsafeByteOperations.unsafeWrap(block));
+        }
+        return builder.build();
+    }
+
     public static int getMethIdByName(String methodName) throws Exception {
         Integer methodId = rpcMethodMap.get(methodName);
         if (methodId == null) {
@@ -306,6 +361,7 @@ public class PbEnDecoder {
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE:
+                    case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_CLOSE: {
                         return true;
                     }
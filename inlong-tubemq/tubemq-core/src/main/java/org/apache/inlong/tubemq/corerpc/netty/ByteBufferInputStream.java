@@ -21,6 +21,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -97,6 +98,22 @@ public class ByteBufferInputStream extends InputStream {
         return result;
     }
 
+    /**
+     * Returns the unread buffers behind the current position without copying.
+     *
+     * @return the remaining non-empty buffers
+     */
+    public List<ByteBuffer> getRemainingBuffers() {
+        List<ByteBuffer> remaining = new ArrayList<>();
+        for (int i = current; i < buffers.size(); i++) {
+            ByteBuffer buffer = buffers.get(i);
+            if (buffer.hasRemaining()) {
+                remaining.add(buffer);
+            }
+        }
+        return remaining;
+    }
+
     /**
      * Returns the next non-empty buffer.
      *
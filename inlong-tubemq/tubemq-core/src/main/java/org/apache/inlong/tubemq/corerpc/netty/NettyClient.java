@@ -31,7 +31,7 @@ import org.apache.inlong.tubemq.corerpc.exception.ClientClosedException;
 import org.apache.inlong.tubemq.corerpc.exception.NetworkException;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.MessageLite;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -45,7 +45,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -134,13 +138,12 @@ public class NettyClient implements Client {
         rpcBodyBuilder.setMethod(request.getMethodId());
         rpcBodyBuilder.setTimeout(request.getTimeout());
         rpcBodyBuilder
-                .setRequest(ByteString.copyFrom(PbEnDecoder.pbEncode(request.getRequestData())));
+                .setRequest(PbEnDecoder.pbEncodeToByteString(request.getRequestData()));
         RPCProtos.RequestBody rpcBodyRequest = rpcBodyBuilder.build();
-        ByteBufferOutputStream bbo = new ByteBufferOutputStream();
-        connectionHeader.writeDelimitedTo(bbo);
-        rpcHeader.writeDelimitedTo(bbo);
-        rpcBodyRequest.writeDelimitedTo(bbo);
-        RpcDataPack pack = new RpcDataPack(request.getSerialNo(), bbo.getBufferList());
+        // the messages are serialized by the encoder straight into the outbound buffer
+        RpcDataPack pack = new RpcDataPack();
+        pack.setSerialNo(request.getSerialNo());
+        pack.setPbMsgLst(Arrays.<MessageLite>asList(connectionHeader, rpcHeader, rpcBodyRequest));
         CallFuture<ResponseWrapper> future = new CallFuture<ResponseWrapper>(callback);
         requests.put(request.getSerialNo(), future);
         if (callback == null) {
@@ -288,86 +291,113 @@ public class NettyClient implements Client {
         public void channelRead(ChannelHandlerContext ctx, Object e) {
             if (e instanceof RpcDataPack) {
                 RpcDataPack dataPack = (RpcDataPack) e;
-                Callback callback = requests.remove(dataPack.getSerialNo());
-                if (callback != null) {
-                    Timeout timeout = timeouts.remove(dataPack.getSerialNo());
-                    if (timeout != null) {
-                        timeout.cancel();
+                try {
+                    handleDataPack(dataPack);
+                } finally {
+                    dataPack.releaseDataBufs();
+                }
+            }
+        }
+
+        private void handleDataPack(RpcDataPack dataPack) {
+            Callback callback = requests.remove(dataPack.getSerialNo());
+            if (callback != null) {
+                Timeout timeout = timeouts.remove(dataPack.getSerialNo());
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+                ResponseWrapper responseWrapper;
+                try {
+                    ByteBufferInputStream in = new ByteBufferInputStream(dataPack.getDataLst());
+                    RPCProtos.RpcConnHeader connHeader =
+                            RPCProtos.RpcConnHeader.parseDelimitedFrom(in);
+                    if (connHeader == null) {
+                        // When the stream is closed, protobuf doesn't raise an EOFException,
+                        // instead, it returns a null message object.
+                        throw new EOFException();
                     }
-                    ResponseWrapper responseWrapper;
-                    try {
-                        ByteBufferInputStream in = new ByteBufferInputStream(dataPack.getDataLst());
-                        RPCProtos.RpcConnHeader connHeader =
-                                RPCProtos.RpcConnHeader.parseDelimitedFrom(in);
-                        if (connHeader == null) {
-                            // When the stream is closed, protobuf doesn't raise an EOFException,
-                            // instead, it returns a null message object.
-                            throw new EOFException();
-                        }
-                        RPCProtos.ResponseHeader rpcResponse =
-                                RPCProtos.ResponseHeader.parseDelimitedFrom(in);
-                        if (rpcResponse == null) {
-                            // When the stream is closed, protobuf doesn't raise an EOFException,
-                            // instead, it returns a null message object.
-                            throw new EOFException();
+                    RPCProtos.ResponseHeader rpcResponse =
+                            RPCProtos.ResponseHeader.parseDelimitedFrom(in);
+                    if (rpcResponse == null) {
+                        // When the stream is closed, protobuf doesn't raise an EOFException,
+                        // instead, it returns a null message object.
+                        throw new EOFException();
+                    }
+                    RPCProtos.ResponseHeader.Status status = rpcResponse.getStatus();
+                    if (status == RPCProtos.ResponseHeader.Status.SUCCESS) {
+                        RPCProtos.RspResponseBody pbRpcResponse =
+                                RPCProtos.RspResponseBody.parseDelimitedFrom(in);
+                        if (pbRpcResponse == null) {
+                            // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
+                            // instead, it returns a null response object.
+                            throw new NetworkException("Not found PBRpcResponse data!");
                         }
-                        RPCProtos.ResponseHeader.Status status = rpcResponse.getStatus();
-                        if (status == RPCProtos.ResponseHeader.Status.SUCCESS) {
-                            RPCProtos.RspResponseBody pbRpcResponse =
-                                    RPCProtos.RspResponseBody.parseDelimitedFrom(in);
-                            if (pbRpcResponse == null) {
-                                // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
-                                // instead, it returns a null response object.
-                                throw new NetworkException("Not found PBRpcResponse data!");
-                            }
-                            Object responseResult =
-                                    PbEnDecoder.pbDecode(false, pbRpcResponse.getMethod(),
-                                            pbRpcResponse.getData().toByteArray());
+                        Object responseResult =
+                                PbEnDecoder.pbDecode(pbRpcResponse.getMethod(),
+                                        pbRpcResponse.getData(),
+                                        copyBuffers(in.getRemainingBuffers()));
 
-                            responseWrapper =
-                                    new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
-                                            rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
-                                            pbRpcResponse.getMethod(), responseResult);
-                        } else {
-                            RPCProtos.RspExceptionBody exceptionResponse =
-                                    RPCProtos.RspExceptionBody.parseDelimitedFrom(in);
-                            if (exceptionResponse == null) {
-                                // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
-                                // instead, it returns a null response object.
-                                throw new NetworkException("Not found RpcException data!");
-                            }
-                            String exceptionName = exceptionResponse.getExceptionName();
-                            exceptionName = MixUtils.replaceClassNamePrefix(exceptionName,
-                                    false, rpcResponse.getProtocolVer());
-                            responseWrapper =
-                                    new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
-                                            rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
-                                            exceptionName, exceptionResponse.getStackTrace());
-                        }
-                        if (!responseWrapper.isSuccess()) {
-                            Throwable remote =
-                                    MixUtils.unwrapException(new StringBuilder(512)
-                                            .append(responseWrapper.getErrMsg()).append("#")
-                                            .append(responseWrapper.getStackTrace()).toString());
-                            if (IOException.class.isAssignableFrom(remote.getClass())) {
-                                NettyClient.this.close();
-                            }
+                        responseWrapper =
+                                new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
+                                        rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
+                                        pbRpcResponse.getMethod(), responseResult);
+                    } else {
+                        RPCProtos.RspExceptionBody exceptionResponse =
+                                RPCProtos.RspExceptionBody.parseDelimitedFrom(in);
+                        if (exceptionResponse == null) {
+                            // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
+                            // instead, it returns a null response object.
+                            throw new NetworkException("Not found RpcException data!");
                         }
-                        callback.handleResult(responseWrapper);
-                    } catch (Throwable ee) {
+                        String exceptionName = exceptionResponse.getExceptionName();
+                        exceptionName = MixUtils.replaceClassNamePrefix(exceptionName,
+                                false, rpcResponse.getProtocolVer());
                         responseWrapper =
-                                new ResponseWrapper(-2, dataPack.getSerialNo(), -2, -2, -2, ee);
-                        if (ee instanceof EOFException) {
+                                new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
+                                        rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
+                                        exceptionName, exceptionResponse.getStackTrace());
+                    }
+                    if (!responseWrapper.isSuccess()) {
+                        Throwable remote =
+                                MixUtils.unwrapException(new StringBuilder(512)
+                                        .append(responseWrapper.getErrMsg()).append("#")
+                                        .append(responseWrapper.getStackTrace()).toString());
+                        if (IOException.class.isAssignableFrom(remote.getClass())) {
                             NettyClient.this.close();
                         }
-                        callback.handleResult(responseWrapper);
                     }
-                } else {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Missing previous call info, maybe it has been timeout.");
+                    callback.handleResult(responseWrapper);
+                } catch (Throwable ee) {
+                    responseWrapper =
+                            new ResponseWrapper(-2, dataPack.getSerialNo(), -2, -2, -2, ee);
+                    if (ee instanceof EOFException) {
+                        NettyClient.this.close();
                     }
+                    callback.handleResult(responseWrapper);
                 }
+            } else {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Missing previous call info, maybe it has been timeout.");
+                }
+            }
+        }
+
+        /**
+         * Copy the attached blocks out of the received buffers, they are
+         * wrapped without copying and outlive the buffers of the frame.
+         *
+         * @param buffers   the remaining buffers of the frame
+         * @return          the copied buffers
+         */
+        private List<ByteBuffer> copyBuffers(List<ByteBuffer> buffers) {
+            List<ByteBuffer> result = new ArrayList<>(buffers.size());
+            for (ByteBuffer buffer : buffers) {
+                ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                copy.put(buffer.duplicate());
+                copy.flip();
+                result.add(copy);
             }
+            return result;
         }
 
         /**
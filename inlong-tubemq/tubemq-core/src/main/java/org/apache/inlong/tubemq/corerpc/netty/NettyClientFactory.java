@@ -240,7 +240,9 @@ public class NettyClientFactory implements ClientFactory {
                 // Encode the data
                 pipeline.addLast("protocolEncoder", new NettyProtocolEncoder());
                 // Decode the bytes into a Rpc Data Pack
-                pipeline.addLast("protocolDecoder", new NettyProtocolDecoder());
+                pipeline.addLast("protocolDecoder", new NettyProtocolDecoder(
+                        conf.getInt(RpcConstants.NETTY_MAX_FRAME_ITEM_SIZE,
+                                RpcConstants.CFG_DEFAULT_MAX_FRAME_ITEM_SIZE)));
                 // handle the time out requests
                 pipeline.addLast("readTimeoutHandler", new ReadTimeoutHandler(
                         conf.getLong(RpcConstants.CONNECT_READ_IDLE_DURATION,
@@ -22,15 +22,12 @@ import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 import org.apache.inlong.tubemq.corerpc.exception.UnknownProtocolException;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToMessageDecoder;
-import io.netty.util.ReferenceCountUtil;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,7 +35,15 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.inlong.tubemq.corebase.utils.AddressUtils.getRemoteAddressIP;
 
-public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
+/**
+ * Decode the rpc frames from the received bytes.
+ *
+ * The received bytes are accumulated in a composite buffer, so a partial frame is not
+ * copied again on every read; each complete list item is taken as a retained slice of
+ * the accumulated bytes, copied only if it spans several reads, and is held by the frame
+ * until released.
+ */
+public class NettyProtocolDecoder extends ByteToMessageDecoder {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyProtocolDecoder.class);
 
@@ -48,20 +53,26 @@ public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
             new ConcurrentHashMap<>();
     private static AtomicLong lastProtolTime = new AtomicLong(0);
     private static AtomicLong lastSizeTime = new AtomicLong(0);
+    private final int maxItemSize;
     private boolean packHeaderRead = false;
     private int listSize;
-    private List<RpcDataPack> rpcDataPackList = new ArrayList<>();
     private RpcDataPack dataPack;
-    private ByteBuf lastByteBuf;
+
+    public NettyProtocolDecoder() {
+        this(RpcConstants.CFG_DEFAULT_MAX_FRAME_ITEM_SIZE);
+    }
+
+    public NettyProtocolDecoder(int maxItemSize) {
+        this.maxItemSize = maxItemSize;
+        setCumulator(COMPOSITE_CUMULATOR);
+    }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
-        buffer = convertToNewBuf(buffer);
-        while (buffer.readableBytes() > 0) {
+        while (true) {
             if (!packHeaderRead) {
                 if (buffer.readableBytes() < 12) {
-                    saveRemainedByteBuf(buffer);
-                    break;
+                    return;
                 }
                 int frameToken = buffer.readInt();
                 filterIllegalPkgToken(frameToken, RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN, ctx.channel());
@@ -73,54 +84,35 @@ public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
                 this.dataPack = new RpcDataPack(serialNo, new ArrayList<>(this.listSize));
                 this.packHeaderRead = true;
             }
-            // get PackBody
-            if (buffer.readableBytes() < 4) {
-                saveRemainedByteBuf(buffer);
-                break;
-            }
-            buffer.markReaderIndex();
-            int length = buffer.readInt();
-            if (buffer.readableBytes() < length) {
-                buffer.resetReaderIndex();
-                saveRemainedByteBuf(buffer);
-                break;
+            if (dataPack.getDataLst().size() < listSize) {
+                // get PackBody
+                if (buffer.readableBytes() < 4) {
+                    return;
+                }
+                int length = buffer.getInt(buffer.readerIndex());
+                filterIllegalPackageSize(false, length, maxItemSize, ctx.channel());
+                if (buffer.readableBytes() - 4 < length) {
+                    return;
+                }
+                buffer.skipBytes(4);
+                dataPack.addDataBuf(buffer.readRetainedSlice(length));
             }
-            ByteBuffer bb = ByteBuffer.allocate(length);
-            buffer.readBytes(bb);
-            bb.flip();
-            dataPack.getDataLst().add(bb);
             if (dataPack.getDataLst().size() == listSize) {
                 packHeaderRead = false;
-                rpcDataPackList.add(dataPack);
+                out.add(dataPack);
+                dataPack = null;
             }
         }
-        if (rpcDataPackList.size() > 0) {
-            out.addAll(rpcDataPackList);
-            rpcDataPackList.clear();
-        }
     }
 
-    private void saveRemainedByteBuf(ByteBuf byteBuf) {
-        if (byteBuf != null && byteBuf.readableBytes() > 0) {
-            lastByteBuf = Unpooled.copiedBuffer(byteBuf);
-        }
-    }
-
-    private ByteBuf convertToNewBuf(ByteBuf byteBuf) {
-        ByteBuf newByteBuf = byteBuf;
-        int totalReadBytes = byteBuf.readableBytes();
-        if (lastByteBuf != null) {
-            try {
-                totalReadBytes += lastByteBuf.readableBytes();
-                newByteBuf = Unpooled.buffer(totalReadBytes);
-                newByteBuf.writeBytes(lastByteBuf);
-                newByteBuf.writeBytes(byteBuf);
-            } finally {
-                ReferenceCountUtil.release(lastByteBuf);
-            }
-            lastByteBuf = null;
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        // free the items of the partial frame
+        if (dataPack != null) {
+            dataPack.releaseDataBufs();
+            dataPack = null;
         }
-        return newByteBuf;
+        packHeaderRead = false;
     }
 
     private void filterIllegalPkgToken(int inParamValue, int allowTokenVal,
@@ -17,65 +17,149 @@
 
 package org.apache.inlong.tubemq.corerpc.netty;
 
+import org.apache.inlong.tubemq.corebase.protobuf.generated.RPCProtos;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.WireFormat;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.FileRegion;
 import io.netty.handler.codec.MessageToMessageEncoder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Encode the rpc frame into a pooled buffer: token 4 + serialNo 4 + listSize 4,
+ * then each list item as length 4 + data.
+ *
+ * The protobuf messages of the frame and the response body are serialized straight
+ * into the outbound buffer as one list item, without building an intermediate
+ * RspResponseBody, and the attached regions are transferred as-is after their
+ * length header.
+ */
 public class NettyProtocolEncoder extends MessageToMessageEncoder<RpcDataPack> {
 
-    private static final Logger logger = LoggerFactory.getLogger(NettyProtocolEncoder.class);
+    private static final int FRAME_HEADER_LEN = 12;
 
     @Override
-    protected void encode(ChannelHandlerContext chx, RpcDataPack msg, List<Object> out) {
-        RpcDataPack dataPack = msg;
-        try (ByteArrayOutputStream byteOut = new ByteArrayOutputStream()) {
-            byteOut.write(getPackHeader(dataPack).array());
-            List<ByteBuffer> origs = dataPack.getDataLst();
-            Iterator<ByteBuffer> iter = origs.iterator();
-            while (iter.hasNext()) {
-                ByteBuffer entry = iter.next();
-                byteOut.write(getLengthHeader(entry).array());
-                byteOut.write(getLengthBody(entry));
+    protected void encode(ChannelHandlerContext ctx, RpcDataPack dataPack, List<Object> out) throws Exception {
+        List<MessageLite> pbMsgLst = dataPack.getPbMsgLst();
+        List<ByteBuffer> dataLst = dataPack.getDataLst();
+        List<ReferenceCounted> regionLst = dataPack.takeRegionLst();
+        int regionCnt = (regionLst == null) ? 0 : regionLst.size();
+        int pbDataSize = 0;
+        int rspDataSize = 0;
+        int rspBodySize = 0;
+        int listSize;
+        int frameSize = FRAME_HEADER_LEN;
+        if (pbMsgLst != null) {
+            for (MessageLite pbMsg : pbMsgLst) {
+                int msgSize = pbMsg.getSerializedSize();
+                pbDataSize += CodedOutputStream.computeUInt32SizeNoTag(msgSize) + msgSize;
+            }
+            if (dataPack.hasRspBody()) {
+                // the RspResponseBody: method = 1, data = 2
+                MessageLite rspData = dataPack.getRspData();
+                rspDataSize = (rspData == null) ? 0 : rspData.getSerializedSize();
+                rspBodySize = CodedOutputStream.computeInt32Size(
+                        RPCProtos.RspResponseBody.METHOD_FIELD_NUMBER, dataPack.getRspMethodId())
+                        + CodedOutputStream.computeTagSize(RPCProtos.RspResponseBody.DATA_FIELD_NUMBER)
+                        + CodedOutputStream.computeUInt32SizeNoTag(rspDataSize) + rspDataSize;
+                pbDataSize += CodedOutputStream.computeUInt32SizeNoTag(rspBodySize) + rspBodySize;
+            }
+            listSize = 1;
+            frameSize += 4 + pbDataSize;
+        } else {
+            for (ByteBuffer entry : dataLst) {
+                frameSize += 4 + entry.remaining();
             }
-            byte[] body = byteOut.toByteArray();
-            ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(body.length);
-            buf.writeBytes(body);
+            listSize = dataLst.size();
+        }
+        if (regionCnt > 0) {
+            // the length header of the first region
+            frameSize += 4;
+        }
+        ByteBuf buf = ctx.alloc().ioBuffer(frameSize);
+        try {
+            buf.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+            buf.writeInt(dataPack.getSerialNo());
+            buf.writeInt(listSize + regionCnt);
+            if (pbMsgLst != null) {
+                buf.writeInt(pbDataSize);
+                writeDelimitedMessages(buf, dataPack, pbDataSize, rspBodySize, rspDataSize);
+            } else {
+                for (ByteBuffer entry : dataLst) {
+                    buf.writeInt(entry.remaining());
+                    buf.writeBytes(entry.duplicate());
+                }
+            }
+        } catch (Throwable e) {
+            buf.release();
+            releaseRegions(regionLst);
+            throw e;
+        }
+        if (regionCnt == 0) {
             out.add(buf);
-        } catch (IOException e) {
-            logger.error("encode has exception ", e);
+            return;
+        }
+        for (int i = 0; i < regionCnt; i++) {
+            ReferenceCounted region = regionLst.get(i);
+            if (i == 0) {
+                buf.writeInt(getRegionLength(region));
+                out.add(buf);
+            } else {
+                ByteBuf lenBuf = ctx.alloc().ioBuffer(4);
+                lenBuf.writeInt(getRegionLength(region));
+                out.add(lenBuf);
+            }
+            out.add(region);
         }
     }
 
-    private ByteBuffer getPackHeader(RpcDataPack dataPack) {
-        ByteBuffer header = ByteBuffer.allocate(12);
-        header.putInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
-        header.putInt(dataPack.getSerialNo());
-        header.putInt(dataPack.getDataLst().size());
-        header.flip();
-        return header;
+    private void writeDelimitedMessages(ByteBuf buf, RpcDataPack dataPack,
+            int pbDataSize, int rspBodySize, int rspDataSize) throws Exception {
+        int writerIndex = buf.writerIndex();
+        CodedOutputStream output =
+                CodedOutputStream.newInstance(buf.nioBuffer(writerIndex, pbDataSize));
+        for (MessageLite pbMsg : dataPack.getPbMsgLst()) {
+            output.writeUInt32NoTag(pbMsg.getSerializedSize());
+            pbMsg.writeTo(output);
+        }
+        if (dataPack.hasRspBody()) {
+            // same bytes as a delimited RspResponseBody with the data field set
+            output.writeUInt32NoTag(rspBodySize);
+            output.writeInt32(RPCProtos.RspResponseBody.METHOD_FIELD_NUMBER,
+                    dataPack.getRspMethodId());
+            output.writeTag(RPCProtos.RspResponseBody.DATA_FIELD_NUMBER,
+                    WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(rspDataSize);
+            if (dataPack.getRspData() != null) {
+                dataPack.getRspData().writeTo(output);
+            }
+        }
+        output.flush();
+        buf.writerIndex(writerIndex + pbDataSize);
     }
 
-    private ByteBuffer getLengthHeader(ByteBuffer buf) {
-        ByteBuffer header = ByteBuffer.allocate(4);
-        header.putInt(buf.limit());
-        header.flip();
-        return header;
+    private int getRegionLength(ReferenceCounted region) {
+        if (region instanceof FileRegion) {
+            return (int) ((FileRegion) region).count();
+        }
+        return ((ByteBuf) region).readableBytes();
     }
 
-    private byte[] getLengthBody(ByteBuffer buf) {
-        return Arrays.copyOf(buf.array(), buf.limit());
+    private void releaseRegions(List<ReferenceCounted> regionLst) {
+        if (regionLst == null) {
+            return;
+        }
+        for (ReferenceCounted region : regionLst) {
+            ReferenceCountUtil.safeRelease(region);
+        }
     }
 }
@@ -21,20 +21,19 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.RPCProtos;
 import org.apache.inlong.tubemq.corerpc.RequestWrapper;
 import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
-import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.server.RequestContext;
+import org.apache.inlong.tubemq.corerpc.server.RspAttachedRegions;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.MessageLite;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.SocketAddress;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 public class NettyRequestContext implements RequestContext {
@@ -77,9 +76,28 @@ public class NettyRequestContext implements RequestContext {
                         .append(System.currentTimeMillis() - receiveTime)
                         .append(",timeout:").append(request.getTimeout()).toString());
             }
+            RspAttachedRegions.release(response.getAttachedRegions());
             return;
         }
-        dataPack = new RpcDataPack(response.getSerialNo(), prepareResponse(response));
+        dataPack = new RpcDataPack();
+        dataPack.setSerialNo(response.getSerialNo());
+        dataPack.setPbMsgLst(prepareResponse(response));
+        if (response.isSuccess()) {
+            // the response data is serialized by the encoder straight into the frame
+            Object rspData = response.getResponseData();
+            if (rspData != null && !(rspData instanceof MessageLite)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(new StringBuilder(512)
+                            .append("Exception while creating response, unsupported data ")
+                            .append(rspData.getClass().getName()).toString());
+                }
+                rspData = null;
+            }
+            dataPack.setRspBody(response.getMethodId(), (MessageLite) rspData);
+            dataPack.setRegionLst(response.getAttachedRegions());
+        } else {
+            RspAttachedRegions.release(response.getAttachedRegions());
+        }
         ChannelFuture wf = ctx.channel().writeAndFlush(dataPack);
         wf.addListener(new ChannelFutureListener() {
 
@@ -109,52 +127,29 @@ public class NettyRequestContext implements RequestContext {
         });
     }
 
-    protected List<ByteBuffer> prepareResponse(ResponseWrapper response) {
-        ByteBufferOutputStream buf = new ByteBufferOutputStream();
-        DataOutputStream out = new DataOutputStream(buf);
-        try {
-            RPCProtos.RpcConnHeader.Builder connBuilder =
-                    RPCProtos.RpcConnHeader.newBuilder();
-            connBuilder.setFlag(response.getFlagId());
-            connBuilder.build().writeDelimitedTo(out);
-            RPCProtos.ResponseHeader.Builder rpcBuilder =
-                    RPCProtos.ResponseHeader.newBuilder();
-            if (response.isSuccess()) {
-                rpcBuilder.setStatus(RPCProtos.ResponseHeader.Status.SUCCESS);
-                rpcBuilder.setProtocolVer(response.getProtocolVersion());
-                rpcBuilder.build().writeDelimitedTo(out);
-                RPCProtos.RspResponseBody.Builder dataBuilder =
-                        RPCProtos.RspResponseBody.newBuilder();
-                dataBuilder.setMethod(response.getMethodId());
-                if (response.getResponseData() != null) {
-                    try {
-                        dataBuilder.setData(ByteString
-                                .copyFrom(PbEnDecoder.pbEncode(response.getResponseData())));
-                    } catch (Throwable ee) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug(new StringBuilder(512)
-                                    .append("Exception while creating response ")
-                                    .append(ee).toString());
-                        }
-                    }
-                }
-                dataBuilder.build().writeDelimitedTo(out);
-            } else {
-                rpcBuilder.setStatus(RPCProtos.ResponseHeader.Status.ERROR);
-                rpcBuilder.setProtocolVer(response.getProtocolVersion());
-                rpcBuilder.build().writeDelimitedTo(out);
-                RPCProtos.RspExceptionBody.Builder b =
-                        RPCProtos.RspExceptionBody.newBuilder();
-                b.setExceptionName(response.getErrMsg());
-                b.setStackTrace(response.getStackTrace());
-                b.build().writeDelimitedTo(out);
-            }
-        } catch (IOException e) {
-            logger.warn(new StringBuilder(512)
-                    .append("Exception while creating response ")
-                    .append(e).toString());
+    protected List<MessageLite> prepareResponse(ResponseWrapper response) {
+        List<MessageLite> pbMsgLst = new ArrayList<>(3);
+        RPCProtos.RpcConnHeader.Builder connBuilder =
+                RPCProtos.RpcConnHeader.newBuilder();
+        connBuilder.setFlag(response.getFlagId());
+        pbMsgLst.add(connBuilder.build());
+        RPCProtos.ResponseHeader.Builder rpcBuilder =
+                RPCProtos.ResponseHeader.newBuilder();
+        if (response.isSuccess()) {
+            rpcBuilder.setStatus(RPCProtos.ResponseHeader.Status.SUCCESS);
+            rpcBuilder.setProtocolVer(response.getProtocolVersion());
+            pbMsgLst.add(rpcBuilder.build());
+        } else {
+            rpcBuilder.setStatus(RPCProtos.ResponseHeader.Status.ERROR);
+            rpcBuilder.setProtocolVer(response.getProtocolVersion());
+            pbMsgLst.add(rpcBuilder.build());
+            RPCProtos.RspExceptionBody.Builder b =
+                    RPCProtos.RspExceptionBody.newBuilder();
+            b.setExceptionName(response.getErrMsg());
+            b.setStackTrace(response.getStackTrace());
+            pbMsgLst.add(b.build());
         }
-        return buf.getBufferList();
+        return pbMsgLst;
     }
 
     @Override
@@ -32,7 +32,7 @@ import org.apache.inlong.tubemq.corerpc.server.ServiceRpcServer;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 import org.apache.inlong.tubemq.corerpc.utils.TSSLEngineUtil;
 
-import com.google.protobuf.Message;
+import com.google.protobuf.MessageLite;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
@@ -49,10 +49,10 @@ import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLEngine;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -77,6 +77,7 @@ public class NettyRpcServer implements ServiceRpcServer {
     private EventLoopGroup acceptorGroup;
     private EventLoopGroup workerGroup;
     private boolean enableBusyWait;
+    private int maxFrameItemSize;
     private AtomicBoolean started = new AtomicBoolean(false);
     private int protocolType = RpcProtocol.RPC_PROTOCOL_TCP;
     private boolean isOverTLS;
@@ -117,6 +118,8 @@ public class NettyRpcServer implements ServiceRpcServer {
             }
         }
         this.enableBusyWait = conf.getBoolean(RpcConstants.NETTY_TCP_ENABLEBUSYWAIT, false);
+        this.maxFrameItemSize = conf.getInt(RpcConstants.NETTY_MAX_FRAME_ITEM_SIZE,
+                RpcConstants.CFG_DEFAULT_MAX_FRAME_ITEM_SIZE);
         int bossCount =
                 conf.getInt(RpcConstants.BOSS_COUNT,
                         RpcConstants.CFG_DEFAULT_BOSS_COUNT);
@@ -174,7 +177,8 @@ public class NettyRpcServer implements ServiceRpcServer {
                     }
                 }
                 // Encode the data handler
-                socketChannel.pipeline().addLast("protocolEncoder", new NettyProtocolDecoder());
+                socketChannel.pipeline().addLast("protocolEncoder",
+                        new NettyProtocolDecoder(maxFrameItemSize));
                 // Decode the bytes into a Rpc Data Pack
                 socketChannel.pipeline().addLast("protocolDecoder", new NettyProtocolEncoder());
                 // tube netty Server handler
@@ -282,19 +286,25 @@ public class NettyRpcServer implements ServiceRpcServer {
             int rmtVersion = RpcProtocol.RPC_PROTOCOL_VERSION;
             Channel channel = ctx.channel();
             if (channel == null) {
+                dataPack.releaseDataBufs();
                 return;
             }
             String rmtaddrIp = getRemoteAddressIP(channel);
             try {
-                if (!isServiceStarted()) {
-                    throw new ServerNotReadyException("RpcServer is not running yet");
+                try {
+                    if (!isServiceStarted()) {
+                        throw new ServerNotReadyException("RpcServer is not running yet");
+                    }
+                    List<ByteBuffer> req = dataPack.getDataLst();
+                    ByteBufferInputStream dis = new ByteBufferInputStream(req);
+                    connHeader = RPCProtos.RpcConnHeader.parseDelimitedFrom(dis);
+                    requestHeader = RPCProtos.RequestHeader.parseDelimitedFrom(dis);
+                    rmtVersion = requestHeader.getProtocolVer();
+                    rpcRequestBody = RPCProtos.RequestBody.parseDelimitedFrom(dis);
+                } finally {
+                    // the parsed messages hold their own copies of the received bytes
+                    dataPack.releaseDataBufs();
                 }
-                List<ByteBuffer> req = dataPack.getDataLst();
-                ByteBufferInputStream dis = new ByteBufferInputStream(req);
-                connHeader = RPCProtos.RpcConnHeader.parseDelimitedFrom(dis);
-                requestHeader = RPCProtos.RequestHeader.parseDelimitedFrom(dis);
-                rmtVersion = requestHeader.getProtocolVer();
-                rpcRequestBody = RPCProtos.RequestBody.parseDelimitedFrom(dis);
             } catch (Throwable e1) {
                 if (!(e1 instanceof ServerNotReadyException)) {
                     if (rmtaddrIp != null) {
@@ -319,13 +329,13 @@ public class NettyRpcServer implements ServiceRpcServer {
                         }
                     }
                 }
-                List<ByteBuffer> res =
+                List<MessageLite> res =
                         prepareResponse(null, rmtVersion, RPCProtos.ResponseHeader.Status.FATAL,
                                 e1.getClass().getName(), new StringBuilder(512)
                                         .append("IPC server unable to read call parameters:")
                                         .append(e1.getMessage()).toString());
                 if (res != null) {
-                    dataPack.setDataLst(res);
+                    dataPack.setPbMsgLst(res);
                     channel.writeAndFlush(dataPack);
                 }
                 return;
@@ -337,19 +347,19 @@ public class NettyRpcServer implements ServiceRpcServer {
                                 connHeader.getFlag(), rpcRequestBody.getTimeout());
                 requestWrapper.setMethodId(rpcRequestBody.getMethod());
                 requestWrapper.setRequestData(PbEnDecoder.pbDecode(true,
-                        rpcRequestBody.getMethod(), rpcRequestBody.getRequest().toByteArray()));
+                        rpcRequestBody.getMethod(), rpcRequestBody.getRequest()));
                 requestWrapper.setSerialNo(dataPack.getSerialNo());
                 RequestContext context =
                         new NettyRequestContext(requestWrapper, ctx, System.currentTimeMillis());
                 protocols.get(this.protocolType).handleRequest(context, rmtaddrIp);
             } catch (Throwable ee) {
-                List<ByteBuffer> res =
+                List<MessageLite> res =
                         prepareResponse(null, rmtVersion, RPCProtos.ResponseHeader.Status.FATAL,
                                 ee.getClass().getName(), new StringBuilder(512)
                                         .append("IPC server handle request error :")
                                         .append(ee.getMessage()).toString());
                 if (res != null) {
-                    dataPack.setDataLst(res);
+                    dataPack.setPbMsgLst(res);
                     ctx.channel().writeAndFlush(dataPack);
                 }
                 return;
@@ -365,38 +375,31 @@ public class NettyRpcServer implements ServiceRpcServer {
          * @param error
          * @return
          */
-        protected List<ByteBuffer> prepareResponse(Object value, int rmtVersion,
+        protected List<MessageLite> prepareResponse(Object value, int rmtVersion,
                 RPCProtos.ResponseHeader.Status status,
                 String errorClass, String error) {
-            ByteBufferOutputStream buf = new ByteBufferOutputStream();
-            DataOutputStream out = new DataOutputStream(buf);
+            List<MessageLite> pbMsgLst = new ArrayList<>(3);
             errorClass = MixUtils.replaceClassNamePrefix(errorClass, true, rmtVersion);
-            try {
-                RPCProtos.RpcConnHeader.Builder connBuilder =
-                        RPCProtos.RpcConnHeader.newBuilder();
-                connBuilder.setFlag(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE);
-                connBuilder.build().writeDelimitedTo(out);
-                RPCProtos.ResponseHeader.Builder builder =
-                        RPCProtos.ResponseHeader.newBuilder();
-                builder.setStatus(status);
-                builder.build().writeDelimitedTo(out);
-                if (error != null) {
-                    RPCProtos.RspExceptionBody.Builder b =
-                            RPCProtos.RspExceptionBody.newBuilder();
-                    b.setExceptionName(errorClass);
-                    b.setStackTrace(error);
-                    b.build().writeDelimitedTo(out);
-                } else {
-                    if (value != null) {
-                        ((Message) value).writeDelimitedTo(out);
-                    }
+            RPCProtos.RpcConnHeader.Builder connBuilder =
+                    RPCProtos.RpcConnHeader.newBuilder();
+            connBuilder.setFlag(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE);
+            pbMsgLst.add(connBuilder.build());
+            RPCProtos.ResponseHeader.Builder builder =
+                    RPCProtos.ResponseHeader.newBuilder();
+            builder.setStatus(status);
+            pbMsgLst.add(builder.build());
+            if (error != null) {
+                RPCProtos.RspExceptionBody.Builder b =
+                        RPCProtos.RspExceptionBody.newBuilder();
+                b.setExceptionName(errorClass);
+                b.setStackTrace(error);
+                pbMsgLst.add(b.build());
+            } else {
+                if (value != null) {
+                    pbMsgLst.add((MessageLite) value);
                 }
-            } catch (IOException e) {
-                logger.warn(new StringBuilder(512)
-                        .append("Exception while creating response ")
-                        .append(e).toString());
             }
-            return buf.getBufferList();
+            return pbMsgLst;
         }
     }
 }
@@ -24,7 +24,9 @@ import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.exception.ServiceStoppingException;
 import org.apache.inlong.tubemq.corerpc.exception.StandbyException;
+import org.apache.inlong.tubemq.corerpc.server.DeferredResponse;
 import org.apache.inlong.tubemq.corerpc.server.RequestContext;
+import org.apache.inlong.tubemq.corerpc.server.RspAttachedRegions;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 
 import org.slf4j.Logger;
@@ -127,6 +129,7 @@ public class RpcProtocol implements Protocol {
                     RPC_PROTOCOL_VERSION, new ServiceStoppingException("service is stopping...")));
         }
         Method method = null;
+        DeferredResponse deferred = null;
         StringBuilder sBuilder = new StringBuilder(512);
         try {
             if (!PbEnDecoder.isValidServiceTypeAndMethod(requestWrapper.getServiceType(),
@@ -147,13 +150,27 @@ public class RpcProtocol implements Protocol {
                         .append(requestWrapper.getServiceType())
                         .append(" found on the server").toString());
             }
-            Object result =
-                    method.invoke(processor, requestWrapper.getRequestData(), rmtAddress, isOverTLS);
+            RspAttachedRegions.release(RspAttachedRegions.takeAll());
+            DeferredResponse.bind(context);
+            Object result;
+            try {
+                result = method.invoke(processor,
+                        requestWrapper.getRequestData(), rmtAddress, isOverTLS);
+            } finally {
+                deferred = DeferredResponse.unbind();
+            }
+            if (deferred != null) {
+                // the service method sends the response later
+                RspAttachedRegions.release(RspAttachedRegions.takeAll());
+                return;
+            }
             responseWrapper =
                     new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
                             requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
                             RPC_PROTOCOL_VERSION, requestWrapper.getMethodId(), result);
+            responseWrapper.setAttachedRegions(RspAttachedRegions.takeAll());
         } catch (Throwable e2) {
+            RspAttachedRegions.release(RspAttachedRegions.takeAll());
             String errorClass = null;
             String errorInfo = null;
             if (e2.getCause() != null && e2.getCause() instanceof StandbyException) {
@@ -173,6 +190,7 @@ public class RpcProtocol implements Protocol {
         try {
             context.write(responseWrapper);
         } catch (Exception e) {
+            RspAttachedRegions.release(responseWrapper.getAttachedRegions());
             logger.error("Write response error!", e);
         }
     }
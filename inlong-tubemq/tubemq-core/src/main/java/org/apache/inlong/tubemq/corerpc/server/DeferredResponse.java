@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.server;
+
+import org.apache.inlong.tubemq.corerpc.RequestWrapper;
+import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.protocol.RpcProtocol;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The response of a request that a service method completes later in another thread.
+ *
+ * The rpc protocol binds the request to the calling thread before invoking the
+ * service method, the method calls {@link #defer()} to take the response over,
+ * then its return value is ignored, and the response is sent when
+ * {@link #complete(Object)} is called. The regions attached in the completing
+ * thread by {@link RspAttachedRegions} are sent with the response.
+ */
+public class DeferredResponse {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(DeferredResponse.class);
+    private static final ThreadLocal<RequestContext> boundContext =
+            new ThreadLocal<>();
+    private static final ThreadLocal<DeferredResponse> deferredResponse =
+            new ThreadLocal<>();
+    private final RequestContext context;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    private DeferredResponse(RequestContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Bind the request to the current thread, called by the rpc protocol.
+     *
+     * @param context   the request context
+     */
+    public static void bind(RequestContext context) {
+        boundContext.set(context);
+        deferredResponse.remove();
+    }
+
+    /**
+     * Unbind the request from the current thread, called by the rpc protocol.
+     *
+     * @return the deferred response, null if the response is not deferred
+     */
+    public static DeferredResponse unbind() {
+        DeferredResponse response = deferredResponse.get();
+        boundContext.remove();
+        deferredResponse.remove();
+        return response;
+    }
+
+    /**
+     * Defer the response of the request being processed in the current thread.
+     *
+     * @return the deferred response, null if the request is not deferrable
+     */
+    public static DeferredResponse defer() {
+        RequestContext context = boundContext.get();
+        if (context == null) {
+            return null;
+        }
+        DeferredResponse response = deferredResponse.get();
+        if (response == null) {
+            response = new DeferredResponse(context);
+            deferredResponse.set(response);
+        }
+        return response;
+    }
+
+    /**
+     * Get the time left of the request being processed in the current thread.
+     *
+     * @return the remaining time in milliseconds, -1 if the request is not deferrable
+     */
+    public static long getBoundRemainingTimeMs() {
+        RequestContext context = boundContext.get();
+        if (context == null) {
+            return -1L;
+        }
+        return context.getRequest().getTimeout()
+                - (System.currentTimeMillis() - context.getReceiveTime());
+    }
+
+    /**
+     * Get the time left before the request times out at the remote side.
+     *
+     * @return the remaining time in milliseconds
+     */
+    public long getRemainingTimeMs() {
+        return context.getRequest().getTimeout()
+                - (System.currentTimeMillis() - context.getReceiveTime());
+    }
+
+    /**
+     * Send the response, only the first completion takes effect.
+     *
+     * @param result   the return value of the service method
+     * @return  whether the response is sent by this call
+     */
+    public boolean complete(Object result) {
+        if (!completed.compareAndSet(false, true)) {
+            RspAttachedRegions.release(RspAttachedRegions.takeAll());
+            return false;
+        }
+        RequestWrapper request = context.getRequest();
+        ResponseWrapper response =
+                new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
+                        request.getSerialNo(), request.getServiceType(),
+                        RpcProtocol.RPC_PROTOCOL_VERSION, request.getMethodId(), result);
+        response.setAttachedRegions(RspAttachedRegions.takeAll());
+        try {
+            context.write(response);
+        } catch (Throwable e) {
+            RspAttachedRegions.release(response.getAttachedRegions());
+            logger.error("Write deferred response error!", e);
+        }
+        return true;
+    }
+
+    public boolean isCompleted() {
+        return completed.get();
+    }
+}
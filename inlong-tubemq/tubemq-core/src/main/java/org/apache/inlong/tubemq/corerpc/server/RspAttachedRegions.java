@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.server;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the file regions or direct buffers a service method attaches to its response.
+ *
+ * The service methods are invoked synchronously by the rpc protocol, so the
+ * regions attached in the calling thread are taken out right after the
+ * invocation and sent behind the protobuf response in the same frame; the
+ * remote side sees each region as an additional data block.
+ */
+public class RspAttachedRegions {
+
+    private static final ThreadLocal<List<ReferenceCounted>> attachedRegions =
+            new ThreadLocal<>();
+
+    /**
+     * Attach file regions or direct buffers to the response of the current request.
+     *
+     * @param regions   the regions to send, released after they are sent
+     */
+    public static void attach(List<? extends ReferenceCounted> regions) {
+        if (regions == null || regions.isEmpty()) {
+            return;
+        }
+        List<ReferenceCounted> curRegions = attachedRegions.get();
+        if (curRegions == null) {
+            curRegions = new ArrayList<>(regions.size());
+            attachedRegions.set(curRegions);
+        }
+        curRegions.addAll(regions);
+    }
+
+    /**
+     * Take out the regions attached in the current thread.
+     *
+     * @return the attached regions, null if not found
+     */
+    public static List<ReferenceCounted> takeAll() {
+        List<ReferenceCounted> curRegions = attachedRegions.get();
+        attachedRegions.remove();
+        return curRegions;
+    }
+
+    /**
+     * Release the attached regions, used when the response will not be sent.
+     *
+     * @param regions  the regions to release
+     */
+    public static void release(List<? extends ReferenceCounted> regions) {
+        if (regions == null) {
+            return;
+        }
+        for (ReferenceCounted region : regions) {
+            ReferenceCountUtil.safeRelease(region);
+        }
+        regions.clear();
+    }
+}
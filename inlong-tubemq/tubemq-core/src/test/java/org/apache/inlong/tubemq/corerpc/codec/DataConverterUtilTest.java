@@ -17,18 +17,29 @@
 
 package org.apache.inlong.tubemq.corerpc.codec;
 
+import org.apache.inlong.tubemq.corebase.Message;
 import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
+import org.apache.inlong.tubemq.corebase.compress.CompressType;
+import org.apache.inlong.tubemq.corebase.compress.CompressUtils;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.corebase.utils.DataConverterUtil;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 
+import com.google.protobuf.ByteString;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -76,4 +87,134 @@ public class DataConverterUtilTest {
 
     }
 
+    @Test
+    public void testRawDataConvert() {
+        // two adjacent stored records, the first with attributes
+        byte[] attr = "k1=v1".getBytes(StandardCharsets.UTF_8);
+        byte[] body1 = "first".getBytes(StandardCharsets.UTF_8);
+        byte[] body2 = "second".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload1 = ByteBuffer.allocate(4 + attr.length + body1.length);
+        payload1.putInt(attr.length).put(attr).put(body1);
+        ByteBuffer block = ByteBuffer.allocate(52 * 2 + payload1.capacity() + body2.length);
+        putRawRecord(block, 1001L, 1, payload1.array());
+        putRawRecord(block, 1002L, 0, body2);
+        block.flip();
+        List<ByteString> blocks = new ArrayList<>();
+        blocks.add(ByteString.copyFrom(block.duplicate()));
+        List<Message> messages = DataConverterUtil.convertRawMessage("tube", blocks);
+        assertEquals(2, messages.size());
+        assertEquals(1001L, messages.get(0).getIndexId());
+        assertEquals("k1=v1", messages.get(0).getAttribute());
+        assertEquals("first", new String(messages.get(0).getData(), StandardCharsets.UTF_8));
+        assertEquals(1002L, messages.get(1).getIndexId());
+        assertEquals("second", new String(messages.get(1).getData(), StandardCharsets.UTF_8));
+        // a broken record stops the parsing of the block
+        block.putInt(52 + payload1.capacity() + 4, 0);
+        blocks.clear();
+        blocks.add(ByteString.copyFrom(block.duplicate()));
+        messages = DataConverterUtil.convertRawMessage("tube", blocks);
+        assertEquals(1, messages.size());
+        // a record failed the checksum is dropped and counted
+        block.putInt(52 + payload1.capacity() + 4, 0x2C998B8);
+        block.put(52 + 4 + attr.length, (byte) 0);
+        blocks.clear();
+        blocks.add(ByteString.copyFrom(block.duplicate()));
+        AtomicLong decodeFailCnt = new AtomicLong(0);
+        messages = DataConverterUtil.convertRawMessage("tube", blocks, null, decodeFailCnt);
+        assertEquals(1, messages.size());
+        assertEquals(1002L, messages.get(0).getIndexId());
+        assertEquals(1, decodeFailCnt.get());
+    }
+
+    @Test
+    public void testCompressedDataConvert() throws Exception {
+        byte[] attr = "k1=v1".getBytes(StandardCharsets.UTF_8);
+        byte[] body1 = "first".getBytes(StandardCharsets.UTF_8);
+        byte[] body2 = "second".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload1 = ByteBuffer.allocate(4 + attr.length + body1.length);
+        payload1.putInt(attr.length).put(attr).put(body1);
+        List<byte[]> payloads = new ArrayList<>();
+        payloads.add(payload1.array());
+        payloads.add(body2);
+        for (CompressType compressType : CompressType.values()) {
+            if (compressType == CompressType.NONE) {
+                continue;
+            }
+            byte[] batchBody = CompressUtils.packBatch(compressType, new int[]{1, 0}, payloads);
+            int flag = MessageFlagUtils.setCompressTypeId(0, compressType.getId());
+            List<ClientBroker.TransferedMessage> trsMessages = new ArrayList<>();
+            trsMessages.add(ClientBroker.TransferedMessage.newBuilder()
+                    .setMessageId(1001L).setCheckSum(CheckSum.crc32(batchBody))
+                    .setFlag(flag).setPayLoadData(ByteString.copyFrom(batchBody)).build());
+            List<Message> messages = DataConverterUtil.convertMessage("tube", trsMessages);
+            assertEquals(compressType.getName(), 2, messages.size());
+            assertEquals(1001L, messages.get(0).getIndexId());
+            assertEquals("k1=v1", messages.get(0).getAttribute());
+            assertEquals("first", new String(messages.get(0).getData(), StandardCharsets.UTF_8));
+            // each message of the batch has its own id
+            assertEquals(1002L, messages.get(1).getIndexId());
+            assertEquals("second", new String(messages.get(1).getData(), StandardCharsets.UTF_8));
+            // the raw fetch mode unpacks the batch too
+            ByteBuffer block = ByteBuffer.allocate(52 + batchBody.length);
+            putRawRecord(block, 1002L, flag, batchBody);
+            block.flip();
+            List<ByteString> blocks = new ArrayList<>();
+            blocks.add(ByteString.copyFrom(block));
+            messages = DataConverterUtil.convertRawMessage("tube", blocks);
+            assertEquals(compressType.getName(), 2, messages.size());
+            assertEquals(1002L, messages.get(0).getIndexId());
+            assertEquals(1003L, messages.get(1).getIndexId());
+            assertEquals("second", new String(messages.get(1).getData(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testIllegalCompressedData() throws Exception {
+        List<byte[]> payloads = new ArrayList<>();
+        payloads.add("first".getBytes(StandardCharsets.UTF_8));
+        payloads.add("second".getBytes(StandardCharsets.UTF_8));
+        byte[] batchBody = CompressUtils.packBatch(CompressType.LZ4, new int[]{0, 0}, payloads);
+        int flag = MessageFlagUtils.setCompressTypeId(0, CompressType.LZ4.getId());
+        // break the raw length of the batch
+        batchBody[3]++;
+        List<ClientBroker.TransferedMessage> trsMessages = new ArrayList<>();
+        trsMessages.add(ClientBroker.TransferedMessage.newBuilder()
+                .setMessageId(1001L).setCheckSum(CheckSum.crc32(batchBody))
+                .setFlag(flag).setPayLoadData(ByteString.copyFrom(batchBody)).build());
+        AtomicLong unpackFailCnt = new AtomicLong(0);
+        List<Message> messages =
+                DataConverterUtil.convertMessage("tube", trsMessages, null, unpackFailCnt);
+        assertEquals(0, messages.size());
+        assertEquals(1, unpackFailCnt.get());
+        // the batch filtered out is not decompressed
+        messages = DataConverterUtil.convertMessage("tube", trsMessages,
+                Collections.singleton("type1"), unpackFailCnt);
+        assertEquals(0, messages.size());
+        assertEquals(1, unpackFailCnt.get());
+        // the raw length over the limit is refused before allocating
+        ByteBuffer.wrap(batchBody).putInt(0, Integer.MAX_VALUE);
+        ByteBuffer block = ByteBuffer.allocate(52 + batchBody.length);
+        putRawRecord(block, 1002L, flag, batchBody);
+        block.flip();
+        List<ByteString> blocks = new ArrayList<>();
+        blocks.add(ByteString.copyFrom(block));
+        messages = DataConverterUtil.convertRawMessage("tube", blocks, null, unpackFailCnt);
+        assertEquals(0, messages.size());
+        assertEquals(2, unpackFailCnt.get());
+    }
+
+    private static void putRawRecord(ByteBuffer block, long msgId, int flag, byte[] payload) {
+        block.putInt(48 + payload.length);
+        block.putInt(0x2C998B8);
+        block.putInt(CheckSum.crc32(payload));
+        block.putInt(0);
+        block.putLong(0L);
+        block.putLong(System.currentTimeMillis());
+        block.putInt(0);
+        block.putInt(0);
+        block.putLong(msgId);
+        block.putInt(flag);
+        block.put(payload);
+    }
+
 }
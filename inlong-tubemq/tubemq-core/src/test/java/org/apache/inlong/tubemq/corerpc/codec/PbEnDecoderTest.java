@@ -20,6 +20,7 @@ package org.apache.inlong.tubemq.corerpc.codec;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientMaster;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 
+import com.google.protobuf.ByteString;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -39,7 +40,7 @@ public class PbEnDecoderTest {
 
         // decode bytes
         ClientMaster.RegisterRequestP2M decodeObject = (ClientMaster.RegisterRequestP2M) PbEnDecoder.pbDecode(true,
-                RpcConstants.RPC_MSG_MASTER_PRODUCER_REGISTER, data);
+                RpcConstants.RPC_MSG_MASTER_PRODUCER_REGISTER, ByteString.copyFrom(data));
 
         assertEquals(decodeObject.getClientId(), object.getClientId());
         assertEquals(decodeObject.getBrokerCheckSum(), object.getBrokerCheckSum());
@@ -17,14 +17,22 @@
 
 package org.apache.inlong.tubemq.corerpc.netty;
 
+import org.apache.inlong.tubemq.corebase.protobuf.generated.RPCProtos;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 
+import com.google.protobuf.MessageLite;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -35,7 +43,7 @@ public class NettyProtocolEncoderTest {
 
     @Test
     public void encode() {
-        NettyProtocolEncoder nettyProtocolEncoder = new NettyProtocolEncoder();
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyProtocolEncoder());
         // build RpcDataPack
         RpcDataPack obj = new RpcDataPack();
         // set serial number
@@ -45,17 +53,99 @@ public class NettyProtocolEncoderTest {
         dataList.add(ByteBuffer.wrap("def".getBytes()));
         // append data list.
         obj.setDataLst(dataList);
-        List<Object> out = new ArrayList<>();
+        Assert.assertTrue(channel.writeOutbound(obj));
+        ByteBuf buf = channel.readOutbound();
+        // read data.
+        Assert.assertEquals(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN, buf.readInt());
+        Assert.assertEquals(123, buf.readInt());
+        Assert.assertEquals(2, buf.readInt());
+        Assert.assertEquals(3, buf.readInt());
+        buf.skipBytes(3);
+        Assert.assertEquals(3, buf.readInt());
+        buf.skipBytes(3);
+        Assert.assertFalse(buf.isReadable());
+        buf.release();
+        channel.finish();
+    }
+
+    @Test
+    public void encodeAndDecode() throws Exception {
+        EmbeddedChannel encChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        RPCProtos.RpcConnHeader connHeader = RPCProtos.RpcConnHeader.newBuilder()
+                .setFlag(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE).build();
+        RPCProtos.ResponseHeader rspHeader = RPCProtos.ResponseHeader.newBuilder()
+                .setStatus(RPCProtos.ResponseHeader.Status.SUCCESS).build();
+        RpcDataPack obj = new RpcDataPack();
+        obj.setSerialNo(456);
+        obj.setPbMsgLst(Arrays.<MessageLite>asList(connHeader, rspHeader));
+        Assert.assertTrue(encChannel.writeOutbound(obj));
+        ByteBuf frame = encChannel.readOutbound();
+        // feed the frame to the decoder byte by byte
+        EmbeddedChannel decChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        while (frame.isReadable()) {
+            decChannel.writeInbound(frame.readRetainedSlice(1));
+        }
+        frame.release();
+        RpcDataPack result = decChannel.readInbound();
+        Assert.assertNotNull(result);
+        Assert.assertEquals(456, result.getSerialNo());
+        Assert.assertEquals(1, result.getDataLst().size());
+        InputStream in = new ByteBufferInputStream(result.getDataLst());
+        Assert.assertEquals(connHeader, RPCProtos.RpcConnHeader.parseDelimitedFrom(in));
+        Assert.assertEquals(rspHeader, RPCProtos.ResponseHeader.parseDelimitedFrom(in));
+        Assert.assertNull(decChannel.readInbound());
+        result.releaseDataBufs();
+        Assert.assertNull(result.getDataLst());
+        encChannel.finish();
+        decChannel.finish();
+    }
+
+    @Test
+    public void encodeResponseBody() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyProtocolEncoder());
+        RPCProtos.RpcConnHeader connHeader = RPCProtos.RpcConnHeader.newBuilder()
+                .setFlag(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE).build();
+        RPCProtos.ResponseHeader rspHeader = RPCProtos.ResponseHeader.newBuilder()
+                .setStatus(RPCProtos.ResponseHeader.Status.SUCCESS).build();
+        RpcDataPack obj = new RpcDataPack();
+        obj.setSerialNo(789);
+        obj.setPbMsgLst(Arrays.<MessageLite>asList(connHeader, rspHeader));
+        obj.setRspBody(RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT, rspHeader);
+        Assert.assertTrue(channel.writeOutbound(obj));
+        ByteBuf buf = channel.readOutbound();
+        Assert.assertEquals(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN, buf.readInt());
+        Assert.assertEquals(789, buf.readInt());
+        Assert.assertEquals(1, buf.readInt());
+        byte[] content = new byte[buf.readInt()];
+        buf.readBytes(content);
+        Assert.assertFalse(buf.isReadable());
+        buf.release();
+        // the same bytes as the delimited messages with a built RspResponseBody
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        connHeader.writeDelimitedTo(expected);
+        rspHeader.writeDelimitedTo(expected);
+        RPCProtos.RspResponseBody.newBuilder()
+                .setMethod(RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT)
+                .setData(rspHeader.toByteString()).build().writeDelimitedTo(expected);
+        Assert.assertArrayEquals(expected.toByteArray(), content);
+        channel.finish();
+    }
+
+    @Test
+    public void rejectOversizedItem() {
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyProtocolDecoder(8));
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+        frame.writeInt(1);
+        frame.writeInt(1);
+        frame.writeInt(9);
+        frame.writeBytes(new byte[9]);
         try {
-            // encode data
-            nettyProtocolEncoder.encode(null, obj, out);
-            ByteBuf buf = (ByteBuf) out.get(0);
-            // read data.
-            int i = buf.readInt();
-            i = buf.readInt();
-            Assert.assertEquals(123, i);
-        } catch (Exception e) {
-            e.printStackTrace();
+            channel.writeInbound(frame);
+            Assert.fail("the oversized list item should be rejected");
+        } catch (DecoderException e) {
+            Assert.assertNotNull(e.getCause());
         }
+        Assert.assertNull(channel.readInbound());
     }
 }
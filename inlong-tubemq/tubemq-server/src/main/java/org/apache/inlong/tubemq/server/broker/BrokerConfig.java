@@ -18,6 +18,7 @@
 package org.apache.inlong.tubemq.server.broker;
 
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MixedUtils;
@@ -36,6 +37,10 @@ import org.ini4j.Profile.Section;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 import static java.lang.Math.abs;
 
 /**
@@ -129,6 +134,36 @@ public class BrokerConfig extends AbstractFileConfig {
             TServerConstants.CFG_DEFAULT_GROUP_OFFSET_SCAN_DUR;
     // whether to enable the memory cache storage, the default is true, open the memory cache
     private boolean enableMemStore = true;
+    // whether to allow the consumer to fetch the file records as raw data blocks, the default is false
+    private boolean enableRawDataFetch = false;
+    // the flush thread count of each device holding the store data.
+    // The topic's unflushThreshold, unflushDataHold and unflushInterval limits no longer
+    // sync the files in the append path, crossing them queues an asynchronous flush on
+    // the device's flush threads, so an appended message may not be on disk until the
+    // queued flush finishes, the lag is reported by admin_get_flush_lag_info
+    private int flushThreadsPerDisk = TServerConstants.CFG_DEFAULT_FLUSH_THREADS_PER_DISK;
+    // the max time a fetch finding no message waits for new messages, 0 to disable
+    private int maxFetchWaitMs = TServerConstants.CFG_DEFAULT_MAX_FETCH_WAIT_MS;
+    // the thread count to retry the waiting fetches
+    private int fetchWakeThreads = TServerConstants.CFG_DEFAULT_FETCH_WAKE_THREADS;
+    // the additional data directories besides the primary path, separated by commas
+    private String dataPaths = "";
+    // the disk usage difference in percent between the data paths that triggers moving segments,
+    // 0 to disable the moving
+    private int dirBalanceUsageDiff = TServerConstants.CFG_DEFAULT_DIR_BALANCE_USAGE_DIFF;
+    // the directory of the secondary segment tier, empty to keep all segments in the primary path
+    private String tierStorePath = "";
+    // the time a sealed segment stays in the primary path after its last write
+    private long tierHotRetainMs = TServerConstants.CFG_DEFAULT_TIER_HOT_RETAIN_MS;
+    // the consumer offset storage type, zookeeper or file
+    private String offsetStorageType = TServerConstants.OFFSET_STORAGE_TYPE_ZK;
+    // the directory of the file offset storage, default under the primary path
+    private String offsetStoragePath = "";
+    // the offset log size that triggers a snapshot of the file offset storage
+    private long offsetSnapshotLogSize =
+            TServerConstants.CFG_DEFAULT_OFFSET_SNAPSHOT_LOG_SIZE;
+    // whether the file offset storage loads the offsets not found locally from ZooKeeper
+    private boolean offsetMigrateFromZk = true;
 
     public BrokerConfig() {
         super();
@@ -138,6 +173,75 @@ public class BrokerConfig extends AbstractFileConfig {
         return enableMemStore;
     }
 
+    public boolean isEnableRawDataFetch() {
+        return enableRawDataFetch;
+    }
+
+    public int getFlushThreadsPerDisk() {
+        return flushThreadsPerDisk;
+    }
+
+    public int getMaxFetchWaitMs() {
+        return maxFetchWaitMs;
+    }
+
+    public int getFetchWakeThreads() {
+        return fetchWakeThreads;
+    }
+
+    /**
+     * Get all data directories, the primary path is the first one.
+     *
+     * @return the data directories
+     */
+    public List<String> getDataPaths() {
+        List<String> paths = new ArrayList<>();
+        paths.add(this.primaryPath);
+        for (String path : this.dataPaths.split(TokenConstants.ARRAY_SEP)) {
+            String tmpPath = path.trim();
+            if (TStringUtils.isNotBlank(tmpPath) && !paths.contains(tmpPath)) {
+                paths.add(tmpPath);
+            }
+        }
+        return paths;
+    }
+
+    public int getDirBalanceUsageDiff() {
+        return dirBalanceUsageDiff;
+    }
+
+    public boolean isTieredStorageEnabled() {
+        return TStringUtils.isNotBlank(tierStorePath);
+    }
+
+    public String getTierStorePath() {
+        return tierStorePath;
+    }
+
+    public long getTierHotRetainMs() {
+        return tierHotRetainMs;
+    }
+
+    public boolean isFileOffsetStorage() {
+        return TServerConstants.OFFSET_STORAGE_TYPE_FILE.equals(offsetStorageType);
+    }
+
+    public String getOffsetStorageType() {
+        return offsetStorageType;
+    }
+
+    public String getOffsetStoragePath() {
+        return offsetStoragePath;
+    }
+
+    public long getOffsetSnapshotLogSize() {
+        return offsetSnapshotLogSize;
+    }
+
+    public boolean isOffsetMigrateFromZk() {
+        return offsetMigrateFromZk;
+    }
+
     public boolean isUpdateConsumerOffsets() {
         return this.updateConsumerOffsets;
     }
@@ -403,6 +507,65 @@ public class BrokerConfig extends AbstractFileConfig {
         if (TStringUtils.isNotBlank(brokerSect.get("enableMemStore"))) {
             this.enableMemStore = this.getBoolean(brokerSect, "enableMemStore");
         }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableRawDataFetch"))) {
+            this.enableRawDataFetch = this.getBoolean(brokerSect, "enableRawDataFetch");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("flushThreadsPerDisk"))) {
+            this.flushThreadsPerDisk =
+                    MixedUtils.mid(getInt(brokerSect, "flushThreadsPerDisk"),
+                            1, TServerConstants.CFG_MAX_FLUSH_THREADS_PER_DISK);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("maxFetchWaitMs"))) {
+            this.maxFetchWaitMs =
+                    MixedUtils.mid(getInt(brokerSect, "maxFetchWaitMs"),
+                            0, TServerConstants.CFG_MAX_MAX_FETCH_WAIT_MS);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("fetchWakeThreads"))) {
+            this.fetchWakeThreads =
+                    MixedUtils.mid(getInt(brokerSect, "fetchWakeThreads"),
+                            1, TServerConstants.CFG_MAX_FETCH_WAKE_THREADS);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("dataPaths"))) {
+            this.dataPaths = brokerSect.get("dataPaths").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("dirBalanceUsageDiff"))) {
+            this.dirBalanceUsageDiff =
+                    MixedUtils.mid(getInt(brokerSect, "dirBalanceUsageDiff"), 0, 100);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tierStorePath"))) {
+            this.tierStorePath = brokerSect.get("tierStorePath").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tierHotRetainMs"))) {
+            this.tierHotRetainMs = Math.max(getLong(brokerSect, "tierHotRetainMs"),
+                    TServerConstants.CFG_MIN_TIER_HOT_RETAIN_MS);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetStorageType"))) {
+            String tmpStorageType = brokerSect.get("offsetStorageType").trim().toLowerCase();
+            if (!TServerConstants.OFFSET_STORAGE_TYPE_ZK.equals(tmpStorageType)
+                    && !TServerConstants.OFFSET_STORAGE_TYPE_FILE.equals(tmpStorageType)) {
+                throw new IllegalArgumentException(new StringBuilder(256)
+                        .append("offsetStorageType must be ")
+                        .append(TServerConstants.OFFSET_STORAGE_TYPE_ZK).append(" or ")
+                        .append(TServerConstants.OFFSET_STORAGE_TYPE_FILE).append(" in ")
+                        .append(SECT_TOKEN_BROKER).append(" section!").toString());
+            }
+            this.offsetStorageType = tmpStorageType;
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetStoragePath"))) {
+            this.offsetStoragePath = brokerSect.get("offsetStoragePath").trim();
+        } else {
+            this.offsetStoragePath = new StringBuilder(256).append(this.primaryPath)
+                    .append(File.separator)
+                    .append(TServerConstants.CFG_DEFAULT_OFFSET_STORAGE_DIR).toString();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetSnapshotLogSize"))) {
+            this.offsetSnapshotLogSize =
+                    Math.max(getLong(brokerSect, "offsetSnapshotLogSize"),
+                            TServerConstants.CFG_MIN_OFFSET_SNAPSHOT_LOG_SIZE);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetMigrateFromZk"))) {
+            this.offsetMigrateFromZk = this.getBoolean(brokerSect, "offsetMigrateFromZk");
+        }
     }
 
     public long getLogClearupDurationMs() {
@@ -23,6 +23,7 @@ import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.BatchMessageItem;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageRequestC2B;
@@ -31,6 +32,8 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBe
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBeatResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageBatchRequestP2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageBatchResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageRequestP2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
@@ -43,11 +46,14 @@ import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.server.DeferredResponse;
+import org.apache.inlong.tubemq.corerpc.server.RspAttachedRegions;
 import org.apache.inlong.tubemq.corerpc.service.BrokerReadService;
 import org.apache.inlong.tubemq.corerpc.service.BrokerWriteService;
 import org.apache.inlong.tubemq.server.Server;
 import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.FetchWaitManager;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
@@ -56,6 +62,7 @@ import org.apache.inlong.tubemq.server.broker.offset.OffsetHistoryInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetService;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficSlot;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficStatsService;
 import org.apache.inlong.tubemq.server.broker.stats.audit.AuditUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
@@ -93,6 +100,10 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
 
     private static final Logger logger =
             LoggerFactory.getLogger(BrokerServiceServer.class);
+    // the time reserved to send the response of a waiting fetch before it times out
+    private static final long FETCH_WAIT_RESERVED_MS = 500L;
+    // the min wait time worth parking a fetch
+    private static final long FETCH_WAIT_MIN_MS = 10L;
     private final TubeBroker tubeBroker;
     private final BrokerConfig tubeConfig;
     // registered consumers. format : consumer group - topic - partition id --> consumer info
@@ -374,16 +385,24 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         try {
             dataStore = this.storeManager.getOrCreateMessageStore(topicName, partitionId);
             isGetStore = true;
+            // the file regions can't be sent through the TLS handler
+            boolean isRawDataFetch = !overtls
+                    && this.tubeConfig.isEnableRawDataFetch()
+                    && request.hasRawDataFetch() && request.getRawDataFetch();
+            // taken before the query, a message appended after it wakes up the waiting fetch
+            final long lastMaxOffset = dataStore.getIndexMaxOffset();
             GetMessageResult msgResult =
                     getMessages(dataStore, consumerNodeInfo, groupName, topicName, partitionId,
                             request.getLastPackConsumed(), request.getManualCommitOffset(),
-                            clientId, this.tubeConfig.getHostName(), rmtAddrInfo, isEscFlowCtrl, strBuffer);
+                            isEscFlowCtrl, isRawDataFetch, strBuffer);
             if (msgResult.isSuccess) {
                 long endTime = System.currentTimeMillis();
                 consumerNodeInfo.setLastProcInfo(endTime,
                         msgResult.lastRdDataOffset, msgResult.totalMsgSize);
-                getCounterGroup.add(msgResult.tmpCounters);
-                AuditUtils.addConsumeRecord(msgResult.tmpCounters);
+                getCounterGroup.add(getConsumeStatsSlot(consumerNodeInfo, groupName,
+                        topicName, partitionId, clientId, rmtAddrInfo, strBuffer),
+                        msgResult.trafficCounts);
+                AuditUtils.addConsumeRecord(topicName, groupName, msgResult.trafficCounts);
                 builder.setEscFlowCtrl(false);
                 builder.setRequireSlow(msgResult.isSlowFreq);
                 builder.setSuccess(true);
@@ -393,12 +412,20 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 builder.setErrMsg("OK!");
                 builder.addAllMessages(msgResult.transferedMessageList);
                 builder.setMaxOffset(msgResult.getMaxOffset());
+                RspAttachedRegions.attach(msgResult.rawDataRegions);
                 BrokerSrvStatsHolder.updGetMsgLatency(endTime - startTime);
                 return builder.build();
             } else {
+                RspAttachedRegions.release(msgResult.rawDataRegions);
                 builder.setErrCode(msgResult.getRetCode());
                 builder.setErrMsg(msgResult.getErrInfo());
                 builder.setMinLimitTime((int) msgResult.waitTime);
+                if (msgResult.getRetCode() == TErrCodeConstants.NOT_FOUND
+                        && parkGetMessage(request, rmtAddress, overtls,
+                                dataStore, topicName, partitionId, lastMaxOffset)) {
+                    // the response is sent when new messages arrive or the wait time is up
+                    return null;
+                }
                 return builder.build();
             }
         } catch (Throwable ee) {
@@ -421,6 +448,124 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /**
+     * Park the fetch request that found no message if the consumer asks to wait.
+     *
+     * @param request         the fetch request
+     * @param rmtAddress      the remote node address
+     * @param overtls         whether over TLS
+     * @param dataStore       the message store of the partition
+     * @param topicName       the topic name
+     * @param partitionId     the partition id
+     * @param lastMaxOffset   the max index offset before the query
+     * @return    whether the request is parked
+     */
+    private boolean parkGetMessage(GetMessageRequestC2B request,
+            String rmtAddress, boolean overtls, MessageStore dataStore,
+            String topicName, int partitionId, long lastMaxOffset) {
+        if (!request.hasMaxWaitMs()
+                || request.getMaxWaitMs() <= 0
+                || tubeConfig.getMaxFetchWaitMs() <= 0) {
+            return false;
+        }
+        long waitMs = Math.min(Math.min(request.getMaxWaitMs(), tubeConfig.getMaxFetchWaitMs()),
+                DeferredResponse.getBoundRemainingTimeMs() - FETCH_WAIT_RESERVED_MS);
+        if (waitMs < FETCH_WAIT_MIN_MS) {
+            return false;
+        }
+        DeferredResponse deferred = DeferredResponse.defer();
+        if (deferred == null) {
+            return false;
+        }
+        awaitNewMessages(deferred, request, rmtAddress, overtls, dataStore,
+                topicName, partitionId, lastMaxOffset, System.currentTimeMillis() + waitMs);
+        return true;
+    }
+
+    private void awaitNewMessages(final DeferredResponse deferred,
+            final GetMessageRequestC2B request, final String rmtAddress,
+            final boolean overtls, final MessageStore dataStore,
+            final String topicName, final int partitionId,
+            long lastMaxOffset, final long deadline) {
+        FetchWaitManager fetchWaitManager = storeManager.getFetchWaitManager();
+        boolean isParked = fetchWaitManager.await(topicName, partitionId,
+                deadline - System.currentTimeMillis(), new FetchWaitManager.WakeupCallback() {
+
+                    @Override
+                    public void onWakeup(boolean timeout) {
+                        retryGetMessage(deferred, request, rmtAddress, overtls,
+                                dataStore, topicName, partitionId, timeout, deadline);
+                    }
+                });
+        if (!isParked) {
+            retryGetMessage(deferred, request, rmtAddress, overtls,
+                    dataStore, topicName, partitionId, true, deadline);
+        } else if (dataStore.getIndexMaxOffset() != lastMaxOffset) {
+            // the messages appended before the fetch parked
+            fetchWaitManager.notifyDataArrived(topicName, partitionId);
+        }
+    }
+
+    private void retryGetMessage(DeferredResponse deferred,
+            GetMessageRequestC2B request, String rmtAddress,
+            boolean overtls, MessageStore dataStore, String topicName,
+            int partitionId, boolean timeout, long deadline) {
+        GetMessageResponseB2C response;
+        long lastMaxOffset = dataStore.getIndexMaxOffset();
+        try {
+            // not bound to a request in this thread, so the retry is not parked
+            response = getMessagesC2B(request, rmtAddress, overtls);
+        } catch (Throwable e) {
+            logger.error("[GetMessage] Retry the waiting fetch failure!", e);
+            response = GetMessageResponseB2C.newBuilder()
+                    .setSuccess(false).setCurrOffset(-1)
+                    .setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR)
+                    .setErrMsg("Retry the waiting fetch failure!").build();
+        }
+        if (!response.getSuccess()
+                && response.getErrCode() == TErrCodeConstants.NOT_FOUND) {
+            if (!timeout && deadline - System.currentTimeMillis() >= FETCH_WAIT_MIN_MS) {
+                // woken up by the messages not visible to the consumer, wait again
+                awaitNewMessages(deferred, request, rmtAddress, overtls,
+                        dataStore, topicName, partitionId, lastMaxOffset, deadline);
+                return;
+            }
+            response = response.toBuilder().setLongPolled(true).build();
+        }
+        deferred.complete(response);
+    }
+
+    /**
+     * Get the consume statistics slot of the consumer node, the statistics key
+     * is built and registered on the first read of the consumer.
+     *
+     * @param consumerNodeInfo   the consumer node instance
+     * @param group              the consume group name
+     * @param topic              the topic name
+     * @param partitionId        the partition id
+     * @param sentAddr           the consumer id
+     * @param rmtAddrInfo        the remote address
+     * @param sb                 the string buffer
+     * @return    the statistics slot
+     */
+    private TrafficSlot getConsumeStatsSlot(ConsumerNodeInfo consumerNodeInfo,
+            String group, String topic, int partitionId,
+            String sentAddr, String rmtAddrInfo, StringBuilder sb) {
+        TrafficSlot statsSlot = consumerNodeInfo.getStatsSlot();
+        if (statsSlot == null) {
+            statsSlot = getCounterGroup.getStatsSlot(sb.append(topic)
+                    .append("#").append(tubeConfig.getHostName())
+                    .append("#").append(sentAddr).append("#").append(rmtAddrInfo)
+                    .append("#").append(group).append("#").append(partitionId).toString());
+            sb.delete(0, sb.length());
+            consumerNodeInfo.setStatsSlot(statsSlot);
+        } else if (statsSlot.isReleased()) {
+            statsSlot = getCounterGroup.getStatsSlot(statsSlot.getStatsKey());
+            consumerNodeInfo.setStatsSlot(statsSlot);
+        }
+        return statsSlot;
+    }
+
     /**
      * Query offset, then read data.
      *
@@ -431,9 +576,6 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
      * @param partitionId             the partition id
      * @param lastConsumed            whether the last messages has been consumed
      * @param isManualCommitOffset    whether manual commit offset
-     * @param sentAddr                the remote ip
-     * @param brokerAddr              the broker ip
-     * @param rmtAddrInfo             the remote address
      * @param isEscFlowCtrl           whether escape flow control
      * @param sb                      the string buffer
      * @return    the query result
@@ -443,9 +585,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             final ConsumerNodeInfo consumerNodeInfo,
             final String group, final String topic,
             final int partitionId, final boolean lastConsumed,
-            final boolean isManualCommitOffset, final String sentAddr,
-            final String brokerAddr, final String rmtAddrInfo,
-            boolean isEscFlowCtrl, final StringBuilder sb) throws IOException {
+            final boolean isManualCommitOffset, boolean isEscFlowCtrl, boolean isRawDataFetch,
+            final StringBuilder sb) throws IOException {
         long requestOffset =
                 offsetManager.getOffset(msgStore, group, topic,
                         partitionId, isManualCommitOffset, lastConsumed, sb);
@@ -467,20 +608,20 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                         requestOffset, 0, "RpcServer consume speed limit!");
             }
         }
+        GetMessageResult msgQueryResult = null;
         try {
-            String baseKey = sb.append(topic).append("#").append(brokerAddr)
-                    .append("#").append(sentAddr).append("#").append(rmtAddrInfo)
-                    .append("#").append(group).append("#").append(partitionId).toString();
-            sb.delete(0, sb.length());
-            GetMessageResult msgQueryResult =
-                    msgStore.getMessages(reqSwitch, requestOffset,
-                            partitionId, consumerNodeInfo, baseKey, msgDataSizeLimit, 0);
+            msgQueryResult =
+                    msgStore.getMessages(reqSwitch, requestOffset, partitionId,
+                            consumerNodeInfo, msgDataSizeLimit, 0, isRawDataFetch);
             offsetManager.bookOffset(group, topic, partitionId,
                     msgQueryResult.lastReadOffset, isManualCommitOffset,
-                    msgQueryResult.transferedMessageList.isEmpty(), sb);
+                    msgQueryResult.isEmptyResult(), sb);
             msgQueryResult.setWaitTime(maxDataOffset - msgQueryResult.lastRdDataOffset);
             return msgQueryResult;
         } catch (Throwable e1) {
+            if (msgQueryResult != null) {
+                RspAttachedRegions.release(msgQueryResult.rawDataRegions);
+            }
             sb.delete(0, sb.length());
             logger.warn(sb.append("[Store Manager] get message failure, requestOffset=")
                     .append(requestOffset).append(",group=").append(group).append(",topic=").append(topic)
@@ -668,12 +809,12 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             final AppendResult appendResult = new AppendResult();
             if (store.appendMsg(appendResult, dataLength, checkSum, msgData,
                     msgTypeCode, request.getFlag(), partitionId, request.getSentAddr())) {
-                String baseKey = strBuffer.append(topicName)
+                TrafficSlot statsSlot = putCounterGroup.getStatsSlot(strBuffer.append(topicName)
                         .append("#").append(AddressUtils.intToIp(request.getSentAddr()))
                         .append("#").append(tubeConfig.getHostName())
-                        .append("#").append(request.getPartitionId())
-                        .append("#").append(request.getMsgTime()).toString();
-                putCounterGroup.add(baseKey, 1L, dataLength);
+                        .append("#").append(request.getPartitionId()).toString());
+                strBuffer.delete(0, strBuffer.length());
+                putCounterGroup.add(statsSlot, request.getMsgTime(), 1L, dataLength);
                 AuditUtils.addProduceRecord(topicName,
                         request.getMsgType(), request.getMsgTime(), 1, dataLength);
                 builder.setSuccess(true);
@@ -706,6 +847,168 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /**
+     * Handle producer's batch sendMessage request.
+     *
+     * The messages in the request belong to the same partition, they are
+     * validated together and appended to the store as a whole.
+     *
+     * @param request       the request
+     * @param rmtAddress    the remote ip
+     * @param overtls       whether transfer over TLS
+     * @return              the response
+     * @throws Throwable    the exception during processing
+     */
+    @Override
+    public SendMessageBatchResponseB2P sendMessageBatchP2B(SendMessageBatchRequestP2B request,
+            final String rmtAddress,
+            boolean overtls) throws Throwable {
+        ProcessResult result = new ProcessResult();
+        final long startTime = System.currentTimeMillis();
+        final StringBuilder strBuffer = new StringBuilder(512);
+        SendMessageBatchResponseB2P.Builder builder = SendMessageBatchResponseB2P.newBuilder();
+        builder.setSuccess(false);
+        if (!this.started.get()
+                || ServiceStatusHolder.isWriteServiceStop()) {
+            builder.setErrCode(TErrCodeConstants.SERVICE_UNAVAILABLE);
+            builder.setErrMsg("Write StoreService temporary unavailable!");
+            return builder.build();
+        }
+        if (!serverAuthHandler.identityValidUserInfo(request.getAuthInfo(), true, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final CertifiedInfo certifiedInfo = (CertifiedInfo) result.getRetData();
+        // get and check clientId field
+        if (!PBParameterUtils.checkClientId(request.getClientId(), strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        // get and check topicName and partitionId field
+        final int partitionId = request.getPartitionId();
+        if (!PBParameterUtils.getTopicNamePartIdInfo(true, request.getTopicName(),
+                partitionId, this.metadataManager, strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final TopicMetadata topicMetadata = (TopicMetadata) result.getRetData();
+        final String topicName = topicMetadata.getTopic();
+        final int msgCount = request.getMessagesCount();
+        if (msgCount <= 0 || msgCount > TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT) {
+            builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+            builder.setErrMsg(strBuffer.append("message count in batch over range, allowed range is [1, ")
+                    .append(TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT)
+                    .append("], message count is ").append(msgCount).toString());
+            return builder.build();
+        }
+        // check each message in the batch
+        int totalDataLength = 0;
+        final List<byte[]> dataList = new ArrayList<>(msgCount);
+        final int[] checkSums = new int[msgCount];
+        final int[] msgTypeCodes = new int[msgCount];
+        final int[] msgFlags = new int[msgCount];
+        final Set<String> checkedMsgTypes = new HashSet<>();
+        for (int i = 0; i < msgCount; i++) {
+            BatchMessageItem msgItem = request.getMessages(i);
+            String msgType = null;
+            msgTypeCodes[i] = -1;
+            if (TStringUtils.isNotBlank(msgItem.getMsgType())) {
+                msgType = msgItem.getMsgType().trim();
+                msgTypeCodes[i] = msgType.hashCode();
+            }
+            final byte[] msgData = msgItem.getData().toByteArray();
+            if (msgData.length <= 0) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg("data length is zero!");
+                return builder.build();
+            }
+            if (msgData.length > topicMetadata.getMaxMsgSize()) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("data length over max length, allowed max length is ")
+                        .append(topicMetadata.getMaxMsgSize())
+                        .append(", data length is ").append(msgData.length).toString());
+                return builder.build();
+            }
+            totalDataLength += msgData.length;
+            if (totalDataLength > TBaseConstants.META_MAX_BATCH_DATA_SIZE) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("batch data length over max length, allowed max length is ")
+                        .append(TBaseConstants.META_MAX_BATCH_DATA_SIZE).toString());
+                return builder.build();
+            }
+            checkSums[i] = CheckSum.crc32(msgData);
+            if (msgItem.getCheckSum() != -1 && checkSums[i] != msgItem.getCheckSum()) {
+                builder.setErrCode(TErrCodeConstants.FORBIDDEN);
+                builder.setErrMsg(strBuffer.append("Checksum msg data failure: ")
+                        .append(msgItem.getCheckSum()).append(" of ").append(topicName)
+                        .append(" not equal to the data's checksum of ")
+                        .append(checkSums[i]).toString());
+                return builder.build();
+            }
+            if (checkedMsgTypes.add(String.valueOf(msgType))
+                    && !serverAuthHandler.validProduceAuthorizeInfo(
+                            certifiedInfo.getUserName(), topicName, msgType, rmtAddress, result)) {
+                builder.setErrCode(result.getErrCode());
+                builder.setErrMsg(result.getErrMsg());
+                return builder.build();
+            }
+            msgFlags[i] = msgItem.getFlag();
+            dataList.add(msgData);
+        }
+        try {
+            final MessageStore store =
+                    this.storeManager.getOrCreateMessageStore(topicName, partitionId);
+            final AppendResult[] appendResults = new AppendResult[msgCount];
+            for (int i = 0; i < msgCount; i++) {
+                appendResults[i] = new AppendResult();
+            }
+            if (store.appendMsgBatch(appendResults, dataList, checkSums,
+                    msgTypeCodes, msgFlags, partitionId, request.getSentAddr())) {
+                // the items share the statistics slot, only the message time differs
+                TrafficSlot statsSlot = putCounterGroup.getStatsSlot(strBuffer.append(topicName)
+                        .append("#").append(AddressUtils.intToIp(request.getSentAddr()))
+                        .append("#").append(tubeConfig.getHostName())
+                        .append("#").append(partitionId).toString());
+                strBuffer.delete(0, strBuffer.length());
+                for (int i = 0; i < msgCount; i++) {
+                    BatchMessageItem msgItem = request.getMessages(i);
+                    int itemMsgCnt = msgItem.hasMsgCount() ? msgItem.getMsgCount() : 1;
+                    putCounterGroup.add(statsSlot, msgItem.getMsgTime(),
+                            itemMsgCnt, dataList.get(i).length);
+                    AuditUtils.addProduceRecord(topicName, msgItem.getMsgType(),
+                            msgItem.getMsgTime(), itemMsgCnt, dataList.get(i).length);
+                    builder.addMessageIds(appendResults[i].getMsgId());
+                    builder.addAppendOffsets(appendResults[i].getAppendIndexOffset());
+                }
+                builder.setSuccess(true);
+                builder.setRequireAuth(certifiedInfo.isReAuth());
+                builder.setErrCode(TErrCodeConstants.SUCCESS);
+                builder.setErrMsg("Ok");
+                builder.setAppendTime(appendResults[0].getAppendTime());
+                BrokerSrvStatsHolder.updSendMsgLatency(System.currentTimeMillis() - startTime);
+                return builder.build();
+            } else {
+                builder.setErrCode(TErrCodeConstants.SERVER_RECEIVE_OVERFLOW);
+                builder.setErrMsg(strBuffer.append("Put message batch failed from ")
+                        .append(tubeConfig.getHostName())
+                        .append(", server receive message overflow!").toString());
+                return builder.build();
+            }
+        } catch (final Throwable ex) {
+            logger.error("Put message batch failed ", ex);
+            strBuffer.delete(0, strBuffer.length());
+            builder.setSuccess(false);
+            builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
+            builder.setErrMsg(strBuffer.append("Put message batch failed from ")
+                    .append(tubeConfig.getHostName()).append(" ")
+                    .append((ex.getMessage() != null ? ex.getMessage() : " ")).toString());
+            return builder.build();
+        }
+    }
+
     /**
      * append group current offset to storage
      *
@@ -731,7 +1034,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         byte[] msgData;
         int msgLength;
         int msgFlag = 1;
-        String baseKey;
+        TrafficSlot statsSlot;
         MessageStore msgStore;
         AppendResult appendResult = new AppendResult();
         // get store time
@@ -774,15 +1077,15 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 if (msgStore.appendMsg2(appendResult, msgLength, checkSum, msgData,
                         msgTypeCode, msgFlag, partitionId, brokerAddrId, storeTime,
                         retryCnt, waitRetryMs)) {
-                    baseKey = strBuff.append(TServerConstants.OFFSET_HISTORY_NAME)
-                            .append("#").append(tubeConfig.getHostName())
-                            .append("#").append(tubeConfig.getHostName())
-                            .append("#").append(partitionId)
-                            .append("#").append(sendTime).toString();
-                    putCounterGroup.add(baseKey, 1L, msgLength);
+                    statsSlot = putCounterGroup.getStatsSlot(
+                            strBuff.append(TServerConstants.OFFSET_HISTORY_NAME)
+                                    .append("#").append(tubeConfig.getHostName())
+                                    .append("#").append(tubeConfig.getHostName())
+                                    .append("#").append(partitionId).toString());
+                    strBuff.delete(0, strBuff.length());
+                    putCounterGroup.add(statsSlot, sendTime, 1L, msgLength);
                     AuditUtils.addProduceRecord(TServerConstants.OFFSET_HISTORY_NAME,
                             entry.getKey(), sendTime, 1, msgLength);
-                    strBuff.delete(0, strBuff.length());
                 } else {
                     logger.warn("Put history offset overflow !");
                 }
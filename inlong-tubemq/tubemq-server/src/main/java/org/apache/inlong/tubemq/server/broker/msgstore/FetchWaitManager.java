@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The waiting list of the fetch requests that found no message.
+ *
+ * A fetch request reached the max offset of its partition is parked here instead of
+ * being answered with NOT_FOUND at once, it is woken up when messages are appended to
+ * the partition or the wait time is up, then the waiter retries the fetch in the wake
+ * worker threads.
+ */
+public class FetchWaitManager {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(FetchWaitManager.class);
+    // topic-partitionId -> waiting fetches
+    private final ConcurrentHashMap<String, ConcurrentLinkedQueue<FetchWaiter>> waitingFetches =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger waitingCnt = new AtomicInteger(0);
+    private final ScheduledThreadPoolExecutor timeoutTimer;
+    private final ExecutorService wakeWorkers;
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    public FetchWaitManager(int wakeThreadCnt) {
+        final AtomicInteger threadIndex = new AtomicInteger(0);
+        this.timeoutTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Broker Fetch Wait Timer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.timeoutTimer.setRemoveOnCancelPolicy(true);
+        this.wakeWorkers = new ThreadPoolExecutor(wakeThreadCnt, wakeThreadCnt,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, new StringBuilder(64)
+                                .append("Broker Fetch Wake Thread-")
+                                .append(threadIndex.incrementAndGet()).toString());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Park a fetch request until messages arrive at the partition or the wait time is up.
+     *
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     * @param waitMs        the max wait time in milliseconds
+     * @param callback      the callback to retry the fetch, called once
+     * @return              whether the fetch is parked
+     */
+    public boolean await(String topic, int partitionId,
+            long waitMs, final WakeupCallback callback) {
+        if (stopped.get() || waitMs <= 0) {
+            return false;
+        }
+        final String waitKey = getWaitKey(topic, partitionId);
+        ConcurrentLinkedQueue<FetchWaiter> waiters = waitingFetches.get(waitKey);
+        if (waiters == null) {
+            ConcurrentLinkedQueue<FetchWaiter> newWaiters = new ConcurrentLinkedQueue<>();
+            waiters = waitingFetches.putIfAbsent(waitKey, newWaiters);
+            if (waiters == null) {
+                waiters = newWaiters;
+            }
+        }
+        final FetchWaiter waiter = new FetchWaiter(waiters, callback);
+        waitingCnt.incrementAndGet();
+        waiters.add(waiter);
+        try {
+            waiter.timeoutFuture = timeoutTimer.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    fire(waiter, true);
+                }
+            }, waitMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            fire(waiter, true);
+        }
+        // the waiter may be added to a queue removed by a concurrent notification
+        if (waitingFetches.get(waitKey) != waiters) {
+            fire(waiter, false);
+        }
+        return true;
+    }
+
+    /**
+     * Wake up the fetches waiting for the partition.
+     *
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     */
+    public void notifyDataArrived(String topic, int partitionId) {
+        if (waitingCnt.get() <= 0) {
+            return;
+        }
+        ConcurrentLinkedQueue<FetchWaiter> waiters =
+                waitingFetches.remove(getWaitKey(topic, partitionId));
+        if (waiters == null) {
+            return;
+        }
+        FetchWaiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            fire(waiter, false);
+        }
+    }
+
+    public int getWaitingCount() {
+        return waitingCnt.get();
+    }
+
+    public void close() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        for (String waitKey : waitingFetches.keySet()) {
+            ConcurrentLinkedQueue<FetchWaiter> waiters = waitingFetches.remove(waitKey);
+            if (waiters == null) {
+                continue;
+            }
+            FetchWaiter waiter;
+            while ((waiter = waiters.poll()) != null) {
+                fire(waiter, true);
+            }
+        }
+        timeoutTimer.shutdownNow();
+        wakeWorkers.shutdown();
+        try {
+            wakeWorkers.awaitTermination(3000L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fire(final FetchWaiter waiter, final boolean timeout) {
+        if (!waiter.fired.compareAndSet(false, true)) {
+            return;
+        }
+        waitingCnt.decrementAndGet();
+        if (timeout) {
+            waiter.waiters.remove(waiter);
+        } else if (waiter.timeoutFuture != null) {
+            waiter.timeoutFuture.cancel(false);
+        }
+        try {
+            wakeWorkers.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    runCallback(waiter, timeout);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runCallback(waiter, timeout);
+        }
+    }
+
+    private void runCallback(FetchWaiter waiter, boolean timeout) {
+        try {
+            waiter.callback.onWakeup(timeout);
+        } catch (Throwable e) {
+            logger.error("[Fetch Wait] Retry the waiting fetch failure!", e);
+        }
+    }
+
+    private String getWaitKey(String topic, int partitionId) {
+        return new StringBuilder(topic.length() + 12)
+                .append(topic).append("-").append(partitionId).toString();
+    }
+
+    /**
+     * The callback of a parked fetch.
+     */
+    public interface WakeupCallback {
+
+        /**
+         * Called once when the fetch is woken up.
+         *
+         * @param timeout   whether the wait time is up
+         */
+        void onWakeup(boolean timeout);
+    }
+
+    private static class FetchWaiter {
+
+        private final ConcurrentLinkedQueue<FetchWaiter> waiters;
+        private final WakeupCallback callback;
+        private final AtomicBoolean fired = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> timeoutFuture;
+
+        FetchWaiter(ConcurrentLinkedQueue<FetchWaiter> waiters, WakeupCallback callback) {
+            this.waiters = waiters;
+            this.callback = callback;
+        }
+    }
+}
@@ -28,15 +28,18 @@ import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentTierManager;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.CacheMsgRawBuf;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
-import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficCounts;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
 import org.apache.inlong.tubemq.server.common.utils.IdWorker;
 
+import io.netty.util.ReferenceCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,7 +47,8 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -65,6 +69,8 @@ public class MessageStore implements Closeable {
     private static final Logger logger = LoggerFactory.getLogger(MessageStore.class);
     private static final long FLUSH_CONDITION_WAIT_DLT_NS =
             TimeUnit.MILLISECONDS.toNanos(100);
+    // the max count of swapped out caches kept for reuse
+    private static final int MAX_RETIRED_MEM_STORE_CNT = 2;
     private final ReentrantLock flushMutex = new ReentrantLock();
     private final AtomicBoolean hasFlushBeenTriggered = new AtomicBoolean(false);
     private final TopicMetadata topicMetadata;
@@ -105,6 +111,9 @@ public class MessageStore implements Closeable {
             new AtomicInteger(this.fileLowReqMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
     private MsgMemStore msgMemStore;
     private MsgMemStore msgMemStoreBeingFlush;
+    // the swapped out caches still referred by readers, reused after the readers released,
+    // guarded by the write lock of writeCacheMutex
+    private final LinkedList<MsgMemStore> retiredMemStores = new LinkedList<>();
 
     /**
      * MessageStore, initial message store block
@@ -143,7 +152,9 @@ public class MessageStore implements Closeable {
         this.maxAllowRdSize = (int) (maxMsgRDSize * 0.5);
         this.storeKey = topicMetadata.getTopic() + "-" + this.storeId;
         this.idWorker = new IdWorker(0);
-        this.primStorePath = this.tubeConfig.getPrimaryPath();
+        this.primStorePath = messageStoreManager == null
+                ? this.tubeConfig.getPrimaryPath()
+                : messageStoreManager.getStoreDirManager().getStorePath(this.storeKey);
         this.partitionNum = topicMetadata.getNumPartitions();
         this.unflushInterval.set(topicMetadata.getUnflushInterval());
         this.maxFileValidDurMs.set(parseDeletePolicy(topicMetadata.getDeletePolicy()));
@@ -179,7 +190,6 @@ public class MessageStore implements Closeable {
      * @param requestOffset        the request offset to read
      * @param partitionId          the partitionId for reading messages
      * @param consumerNodeInfo     the consumer object
-     * @param statsKeyBase        the statistical key prefix
      * @param msgSizeLimit         the max read size
      * @param reqRcvTime           the timestamp of the record to be checked
      * @return                     read result
@@ -187,8 +197,29 @@ public class MessageStore implements Closeable {
      */
     public GetMessageResult getMessages(int reqSwitch, long requestOffset,
             int partitionId, ConsumerNodeInfo consumerNodeInfo,
-            String statsKeyBase, int msgSizeLimit,
+            int msgSizeLimit,
             long reqRcvTime) throws IOException {
+        return getMessages(reqSwitch, requestOffset, partitionId,
+                consumerNodeInfo, msgSizeLimit, reqRcvTime, false);
+    }
+
+    /**
+     * Get message from message store. Support the given offset, filter.
+     *
+     * @param reqSwitch            read message from where
+     * @param requestOffset        the request offset to read
+     * @param partitionId          the partitionId for reading messages
+     * @param consumerNodeInfo     the consumer object
+     * @param msgSizeLimit         the max read size
+     * @param reqRcvTime           the timestamp of the record to be checked
+     * @param rawDataFetch         whether to return the file records as file regions
+     * @return                     read result
+     * @throws IOException         the exception during processing
+     */
+    public GetMessageResult getMessages(int reqSwitch, long requestOffset,
+            int partitionId, ConsumerNodeInfo consumerNodeInfo,
+            int msgSizeLimit,
+            long reqRcvTime, boolean rawDataFetch) throws IOException {
         // #lizard forgives
         if (this.closed.get()) {
             throw new IllegalStateException(new StringBuilder(512)
@@ -242,26 +273,39 @@ public class MessageStore implements Closeable {
                 if (inMemCache) {
                     // return not found when data is under memory sink operation.
                     if (memMsgRlt.isSuccess) {
-                        HashMap<String, TrafficInfo> countMap =
-                                new HashMap<>();
+                        TrafficCounts trafficCounts = new TrafficCounts();
                         List<ClientBroker.TransferedMessage> transferedMessageList =
                                 new ArrayList<>();
+                        List<ReferenceCounted> rawDataRegions = new ArrayList<>();
                         if (!memMsgRlt.cacheMsgList.isEmpty()) {
-                            final StringBuilder strBuffer = new StringBuilder(512);
-                            for (ByteBuffer dataBuffer : memMsgRlt.cacheMsgList) {
-                                ClientBroker.TransferedMessage transferedMessage =
-                                        DataStoreUtils.getTransferMsg(dataBuffer,
-                                                dataBuffer.array().length,
-                                                countMap, statsKeyBase, strBuffer);
-                                if (transferedMessage != null) {
-                                    transferedMessageList.add(transferedMessage);
+                            if (rawDataFetch) {
+                                // the slices are sent as they are, the cache is
+                                // held until the response has been sent.
+                                for (ByteBuffer dataBuffer : memMsgRlt.cacheMsgList) {
+                                    DataStoreUtils.addRawTransferStats(trafficCounts,
+                                            dataBuffer.capacity());
+                                }
+                                rawDataRegions.add(new CacheMsgRawBuf(memMsgRlt));
+                            } else {
+                                try {
+                                    for (ByteBuffer dataBuffer : memMsgRlt.cacheMsgList) {
+                                        ClientBroker.TransferedMessage transferedMessage =
+                                                DataStoreUtils.getTransferMsg(dataBuffer,
+                                                        dataBuffer.capacity(), trafficCounts);
+                                        if (transferedMessage != null) {
+                                            transferedMessageList.add(transferedMessage);
+                                        }
+                                    }
+                                } finally {
+                                    memMsgRlt.release();
                                 }
                             }
                         }
                         GetMessageResult getResult =
                                 new GetMessageResult(true, 0, memMsgRlt.errInfo, requestOffset,
                                         memMsgRlt.dltOffset, memMsgRlt.lastRdDataOff,
-                                        memMsgRlt.totalMsgSize, countMap, transferedMessageList);
+                                        memMsgRlt.totalMsgSize, trafficCounts, transferedMessageList);
+                        getResult.setRawDataRegions(rawDataRegions);
                         getResult.setMaxOffset(maxIndexOffset);
                         return getResult;
                     } else {
@@ -277,12 +321,24 @@ public class MessageStore implements Closeable {
             return new GetMessageResult(false, TErrCodeConstants.NOT_FOUND,
                     reqNewOffset, 0, "current offset is exceed max file offset");
         }
+        // skip the index pages without the partition's or filter items' message
+        int skipReadSize = 0;
+        long skipOffset = this.msgFileStore.getNextReadOffset(partitionId,
+                consumerNodeInfo.isFilterConsume() ? consumerNodeInfo.getFilterCondCodeSet() : null,
+                reqNewOffset);
+        if (skipOffset > reqNewOffset && skipOffset - reqNewOffset < Integer.MAX_VALUE) {
+            skipReadSize = (int) (skipOffset - reqNewOffset);
+            if (skipOffset >= getFileIndexMaxOffset()) {
+                return new GetMessageResult(false, TErrCodeConstants.NOT_FOUND,
+                        reqNewOffset, skipReadSize, "current offset is exceed max file offset");
+            }
+        }
         maxIndexReadLength = consumerNodeInfo.isFilterConsume()
                 ? fileMaxFilterIndexReadSize.get()
                 : fileMaxIndexReadSize.get();
         final ByteBuffer indexBuffer = ByteBuffer.allocate(maxIndexReadLength);
         Segment indexRecordView =
-                this.msgFileStore.indexSlice(reqNewOffset, maxIndexReadLength);
+                this.msgFileStore.indexSlice(reqNewOffset + skipReadSize, maxIndexReadLength);
         if (indexRecordView == null) {
             if (reqNewOffset < this.msgFileStore.getIndexMinOffset()) {
                 return new GetMessageResult(false, TErrCodeConstants.MOVED,
@@ -292,9 +348,12 @@ public class MessageStore implements Closeable {
                         reqNewOffset, 0, "current offset is exceed max offset!");
             }
         }
-        indexRecordView.read(indexBuffer, reqNewOffset);
+        try {
+            indexRecordView.read(indexBuffer, reqNewOffset + skipReadSize);
+        } finally {
+            indexRecordView.relViewRef();
+        }
         indexBuffer.flip();
-        indexRecordView.relViewRef();
         if ((msgFileStore.getDataHighMaxOffset() - consumerNodeInfo.getLastDataRdOffset() >= this.tubeConfig
                 .getDoubleDefaultDeduceReadSize())
                 && msgSizeLimit > this.maxAllowRdSize) {
@@ -302,10 +361,14 @@ public class MessageStore implements Closeable {
         }
         GetMessageResult retResult =
                 msgFileStore.getMessages(partitionId,
-                        consumerNodeInfo.getLastDataRdOffset(), reqNewOffset,
+                        consumerNodeInfo.getLastDataRdOffset(), reqNewOffset + skipReadSize,
                         indexBuffer, consumerNodeInfo.isFilterConsume(),
                         consumerNodeInfo.getFilterCondCodeSet(),
-                        statsKeyBase, msgSizeLimit, reqRcvTime);
+                        msgSizeLimit, reqRcvTime, rawDataFetch);
+        if (skipReadSize > 0) {
+            retResult.setReqOffset(reqNewOffset);
+            retResult.setLastReadOffset(retResult.getLastReadOffset() + skipReadSize);
+        }
         if (reqSwitch <= 1) {
             retResult.setMaxOffset(getFileIndexMaxOffset());
         } else {
@@ -370,9 +433,13 @@ public class MessageStore implements Closeable {
             int dataCheckSum, byte[] data,
             int msgTypeCode, int msgFlag,
             int partitionId, int sentAddr) throws IOException {
-        return appendMsg2(appendResult, dataLength, dataCheckSum, data,
+        if (appendMsg2(appendResult, dataLength, dataCheckSum, data,
                 msgTypeCode, msgFlag, partitionId, sentAddr,
-                System.currentTimeMillis(), 3, 1);
+                System.currentTimeMillis(), 3, 1)) {
+            notifyFetchWaiters(partitionId);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -405,30 +472,11 @@ public class MessageStore implements Closeable {
                     .append(this.storeKey).toString());
         }
         long messageId = this.idWorker.nextId();
-        // build data buffer
         int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength;
-        final ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
-        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + dataLength);
-        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
-        dataBuffer.putInt(dataCheckSum);
-        dataBuffer.putInt(partitionId);
-        dataBuffer.putLong(-1L);
-        dataBuffer.putLong(receivedTime);
-        dataBuffer.putInt(sentAddr);
-        dataBuffer.putInt(msgTypeCode);
-        dataBuffer.putLong(messageId);
-        dataBuffer.putInt(msgFlag);
-        dataBuffer.put(data);
-        dataBuffer.flip();
-        // build index buffer
+        final ByteBuffer dataBuffer = buildDataEntry(dataLength, dataCheckSum, data,
+                msgTypeCode, msgFlag, partitionId, sentAddr, receivedTime, messageId);
         final ByteBuffer indexBuffer =
-                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-        indexBuffer.putInt(partitionId);
-        indexBuffer.putLong(-1L);
-        indexBuffer.putInt(msgBufLen);
-        indexBuffer.putInt(msgTypeCode);
-        indexBuffer.putLong(receivedTime);
-        indexBuffer.flip();
+                buildIndexEntry(msgBufLen, msgTypeCode, partitionId, receivedTime);
         appendResult.putReceivedInfo(messageId, receivedTime);
         boolean appendSuss = true;
         long startTime = System.currentTimeMillis();
@@ -475,6 +523,199 @@ public class MessageStore implements Closeable {
         }
     }
 
+    /**
+     * Append a batch of messages of the same partition to store.
+     *
+     * When memory cache enabled, the whole batch is appended to the cache under one
+     * lock acquisition, else or if the batch exceeds the cache capacity, the whole batch
+     * is appended to the file store in one call. Either way the batch is stored all or
+     * nothing, so a failed batch can be retried without duplicates.
+     *
+     * @param appendResults   the append result of each message
+     * @param dataList        the message data list
+     * @param checkSums       the check sum of each message data
+     * @param msgTypeCodes    the filter item hash code of each message
+     * @param msgFlags        the flag of each message
+     * @param partitionId     the partitionId for append messages
+     * @param sentAddr        the address to send the message to
+     *
+     * @return                the process result
+     * @throws IOException    the exception during processing
+     */
+    public boolean appendMsgBatch(AppendResult[] appendResults, List<byte[]> dataList,
+            int[] checkSums, int[] msgTypeCodes, int[] msgFlags,
+            int partitionId, int sentAddr) throws IOException {
+        if (this.closed.get()) {
+            throw new IllegalStateException(new StringBuilder(512)
+                    .append("[Data Store] Closed MessageStore for storeKey ")
+                    .append(this.storeKey).toString());
+        }
+        int msgCount = dataList.size();
+        long receivedTime = System.currentTimeMillis();
+        int totalDataLength = 0;
+        for (byte[] data : dataList) {
+            totalDataLength += DataStoreUtils.STORE_DATA_HEADER_LEN + data.length;
+        }
+        final ByteBuffer[] dataEntries = new ByteBuffer[msgCount];
+        final ByteBuffer[] indexEntries = new ByteBuffer[msgCount];
+        for (int i = 0; i < msgCount; i++) {
+            byte[] data = dataList.get(i);
+            long messageId = this.idWorker.nextId();
+            dataEntries[i] = buildDataEntry(data.length, checkSums[i], data,
+                    msgTypeCodes[i], msgFlags[i], partitionId, sentAddr, receivedTime, messageId);
+            indexEntries[i] = buildIndexEntry(dataEntries[i].limit(),
+                    msgTypeCodes[i], partitionId, receivedTime);
+            appendResults[i].putReceivedInfo(messageId, receivedTime);
+        }
+        if (!this.tubeConfig.isEnableMemStore()
+                || totalDataLength > this.writeCacheMaxSize
+                || msgCount > this.writeCacheMaxCnt) {
+            if (appendMsgBatchToFile(receivedTime, indexEntries,
+                    dataEntries, totalDataLength, appendResults)) {
+                notifyFetchWaiters(partitionId);
+                return true;
+            }
+            return false;
+        }
+        int count = 3;
+        boolean appendSuss;
+        long startTime = System.currentTimeMillis();
+        do {
+            this.writeCacheMutex.readLock().lock();
+            try {
+                appendSuss = this.msgMemStore.appendMsgBatch(msgStoreStatsHolder,
+                        partitionId, msgTypeCodes, receivedTime, indexEntries,
+                        dataEntries, totalDataLength, appendResults);
+            } finally {
+                this.writeCacheMutex.readLock().unlock();
+            }
+            if (!appendSuss) {
+                appendSuss = triggerFlushAndAddMsgBatch(partitionId, msgTypeCodes,
+                        receivedTime, indexEntries, dataEntries, totalDataLength, appendResults);
+            }
+            if (appendSuss) {
+                long dltTime = System.currentTimeMillis() - startTime;
+                for (ByteBuffer dataEntry : dataEntries) {
+                    msgStoreStatsHolder.addMsgWriteSuccess(dataEntry.limit(), dltTime);
+                }
+                notifyFetchWaiters(partitionId);
+                return true;
+            }
+            ThreadUtils.sleep(1);
+        } while (count-- >= 0);
+        msgStoreStatsHolder.addMsgWriteFailure();
+        return false;
+    }
+
+    private void notifyFetchWaiters(int partitionId) {
+        if (msgStoreMgr != null) {
+            msgStoreMgr.getFetchWaitManager().notifyDataArrived(getTopic(), partitionId);
+        }
+    }
+
+    private ByteBuffer buildDataEntry(int dataLength, int dataCheckSum, byte[] data,
+            int msgTypeCode, int msgFlag, int partitionId, int sentAddr,
+            long receivedTime, long messageId) {
+        final ByteBuffer dataBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + dataLength);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(dataCheckSum);
+        dataBuffer.putInt(partitionId);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(receivedTime);
+        dataBuffer.putInt(sentAddr);
+        dataBuffer.putInt(msgTypeCode);
+        dataBuffer.putLong(messageId);
+        dataBuffer.putInt(msgFlag);
+        dataBuffer.put(data);
+        dataBuffer.flip();
+        return dataBuffer;
+    }
+
+    /**
+     * Append a message batch to the file store in one call.
+     *
+     * When memory cache enabled, the write cache is flushed first while the writers
+     * are blocked, so the batch is stored after the cached messages.
+     *
+     * @param receivedTime      the received time of messages
+     * @param indexEntries      the stored index entries
+     * @param dataEntries       the stored data entries
+     * @param totalDataLength   the total length of data entries
+     * @param appendResults     the append results
+     *
+     * @return                  the append result
+     * @throws IOException      the exception during processing
+     */
+    private boolean appendMsgBatchToFile(long receivedTime, ByteBuffer[] indexEntries,
+            ByteBuffer[] dataEntries, int totalDataLength,
+            AppendResult[] appendResults) throws IOException {
+        int msgCount = dataEntries.length;
+        int totalIndexLength = msgCount * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        final ByteBuffer indexBuffer = ByteBuffer.allocate(totalIndexLength);
+        final ByteBuffer dataBuffer = ByteBuffer.allocate(totalDataLength);
+        for (int i = 0; i < msgCount; i++) {
+            indexBuffer.put(indexEntries[i]);
+            dataBuffer.put(dataEntries[i]);
+        }
+        indexBuffer.flip();
+        dataBuffer.flip();
+        StringBuilder strBuffer =
+                new StringBuilder(TBaseConstants.BUILDER_DEFAULT_SIZE);
+        long startTime = System.currentTimeMillis();
+        Tuple3<Boolean, Long, Long> appendRet;
+        if (this.tubeConfig.isEnableMemStore()) {
+            flushMutex.lock();
+            try {
+                writeCacheMutex.writeLock().lock();
+                try {
+                    flush(strBuffer);
+                    appendRet = this.msgFileStore.appendMsg(false, startTime, strBuffer,
+                            msgCount, totalIndexLength, indexBuffer, totalDataLength,
+                            dataBuffer, receivedTime, receivedTime);
+                    // the emptied cache continues after the batch
+                    msgMemStore.resetMemStoreStatus(this.msgFileStore.getDataMaxOffset(),
+                            this.msgFileStore.getIndexMaxOffset());
+                } finally {
+                    writeCacheMutex.writeLock().unlock();
+                }
+            } finally {
+                flushMutex.unlock();
+            }
+        } else {
+            appendRet = this.msgFileStore.appendMsg(false, startTime, strBuffer,
+                    msgCount, totalIndexLength, indexBuffer, totalDataLength,
+                    dataBuffer, receivedTime, receivedTime);
+        }
+        if (!appendRet.getF0()) {
+            msgStoreStatsHolder.addMsgWriteFailure();
+            return false;
+        }
+        long dltTime = System.currentTimeMillis() - startTime;
+        long dataOffset = appendRet.getF2();
+        for (int i = 0; i < msgCount; i++) {
+            appendResults[i].putAppendResult(
+                    appendRet.getF1() + (long) i * DataStoreUtils.STORE_INDEX_HEAD_LEN, dataOffset);
+            dataOffset += dataEntries[i].limit();
+            msgStoreStatsHolder.addMsgWriteSuccess(dataEntries[i].limit(), dltTime);
+        }
+        return true;
+    }
+
+    private ByteBuffer buildIndexEntry(int msgBufLen, int msgTypeCode,
+            int partitionId, long receivedTime) {
+        final ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(partitionId);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(msgBufLen);
+        indexBuffer.putInt(msgTypeCode);
+        indexBuffer.putLong(receivedTime);
+        indexBuffer.flip();
+        return indexBuffer;
+    }
+
     public void getMsgStoreStatsInfo(boolean needRefresh, StringBuilder strBuff) {
         msgStoreStatsHolder.getMsgStoreStatsInfo(needRefresh, strBuff);
     }
@@ -499,6 +740,39 @@ public class MessageStore implements Closeable {
         return msgFileStore.runClearupPolicy(onlyCheck);
     }
 
+    /**
+     * Move the cold segments to the segment tier, and delete the replaced segment files.
+     */
+    public void runTierPolicy() {
+        if (this.closed.get()) {
+            return;
+        }
+        msgFileStore.runTierPolicy();
+    }
+
+    public SegmentTierManager getTierManager() {
+        return msgStoreMgr == null ? null : msgStoreMgr.getTierManager();
+    }
+
+    /**
+     * Move the sealed segments in the data path to another data path.
+     *
+     * @param fromPath   the data path to move the segments from
+     * @param toPath     the data path to move the segments to
+     * @param maxBytes   the maximum bytes to move
+     * @return           the moved bytes
+     */
+    public long moveSealedSegments(String fromPath, String toPath, long maxBytes) {
+        if (this.closed.get()) {
+            return 0L;
+        }
+        return msgFileStore.moveSealedSegments(fromPath, toPath, maxBytes);
+    }
+
+    public StoreDirManager getStoreDirManager() {
+        return msgStoreMgr == null ? null : msgStoreMgr.getStoreDirManager();
+    }
+
     /**
      * Refresh unflush threshold
      *
@@ -538,15 +812,31 @@ public class MessageStore implements Closeable {
     /**
      * Flush file store to disk.
      *
+     * @param forced   whether to flush without checking the flush interval
+     * @return         whether the data was synced to disk
      * @throws IOException the exception during processing
      */
-    public void flushFile() throws IOException {
+    public boolean flushFile(boolean forced) throws IOException {
         if (this.closed.get()) {
             throw new IllegalStateException(new StringBuilder(512)
                     .append("[Data Store] Closed MessageStore for storeKey ")
                     .append(this.storeKey).toString());
         }
-        msgFileStore.flushDiskFile();
+        return msgFileStore.flushDiskFile(forced);
+    }
+
+    /**
+     * Request an asynchronous flush of the file store, the requests
+     * are coalesced by the flush scheduler of the store's device.
+     *
+     * @throws IOException the exception during processing
+     */
+    public void requestFlushFile() throws IOException {
+        if (msgStoreMgr == null) {
+            flushFile(true);
+        } else {
+            msgStoreMgr.getFlushScheduler().submitDiskFlush(this, true);
+        }
     }
 
     /**
@@ -580,6 +870,15 @@ public class MessageStore implements Closeable {
                 flush(strBuffer);
                 this.msgMemStore.close();
                 this.msgMemStoreBeingFlush.close();
+                writeCacheMutex.writeLock().lock();
+                try {
+                    for (MsgMemStore retiredStore : retiredMemStores) {
+                        retiredStore.close();
+                    }
+                    retiredMemStores.clear();
+                } finally {
+                    writeCacheMutex.writeLock().unlock();
+                }
                 this.executor.shutdown();
             }
             this.msgFileStore.close();
@@ -785,8 +1084,56 @@ public class MessageStore implements Closeable {
             long receivedTime, ByteBuffer indexEntry,
             int dataLength, ByteBuffer dataEntry,
             AppendResult appendResult) throws IOException {
-        long startTime;
         writeCacheMutex.writeLock().lock();
+        try {
+            triggerFlushAndWait(isTimeTrigger);
+            if (needAdd) {
+                return msgMemStore.appendMsg(msgStoreStatsHolder, partitionId, keyCode,
+                        receivedTime, indexEntry, dataLength, dataEntry, appendResult);
+            }
+        } finally {
+            writeCacheMutex.writeLock().unlock();
+        }
+        return false;
+    }
+
+    /**
+     * Append a message batch after triggering flush operation.
+     *
+     * @param partitionId       the partitionId for append messages
+     * @param keyCodes          the filter item hash code of each message
+     * @param receivedTime      the received time of messages
+     * @param indexEntries      the stored index entries
+     * @param dataEntries       the stored data entries
+     * @param totalDataLength   the total length of data entries
+     * @param appendResults     the append results
+     *
+     * @return                  the append result
+     * @throws IOException      the exception during processing
+     */
+    private boolean triggerFlushAndAddMsgBatch(int partitionId, int[] keyCodes,
+            long receivedTime, ByteBuffer[] indexEntries,
+            ByteBuffer[] dataEntries, int totalDataLength,
+            AppendResult[] appendResults) throws IOException {
+        writeCacheMutex.writeLock().lock();
+        try {
+            triggerFlushAndWait(false);
+            return msgMemStore.appendMsgBatch(msgStoreStatsHolder, partitionId, keyCodes,
+                    receivedTime, indexEntries, dataEntries, totalDataLength, appendResults);
+        } finally {
+            writeCacheMutex.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Trigger flush operation and wait the write cache swapped,
+     * the caller should hold the write lock of the write cache.
+     *
+     * @param isTimeTrigger     whether is timer trigger
+     * @throws IOException      the exception during processing
+     */
+    private void triggerFlushAndWait(boolean isTimeTrigger) throws IOException {
+        long startTime;
         try {
             if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
                 this.executor.execute(new Runnable() {
@@ -819,20 +1166,13 @@ public class MessageStore implements Closeable {
                     break;
                 }
             }
-            if (needAdd) {
-                return msgMemStore.appendMsg(msgStoreStatsHolder, partitionId, keyCode,
-                        receivedTime, indexEntry, dataLength, dataEntry, appendResult);
-            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException(new StringBuilder(512)
                     .append("[Data Store] StoreKey=").append(storeKey)
                     .append(" Interrupted when triggerFlushAndAddMsg process for storekey ")
                     .append(storeKey).toString());
-        } finally {
-            writeCacheMutex.writeLock().unlock();
         }
-        return false;
     }
 
     private void flush(StringBuilder strBuffer) throws IOException {
@@ -873,36 +1213,96 @@ public class MessageStore implements Closeable {
         long lastIndexPos;
         MsgMemStore tmpStore = null;
         boolean isRealloc = false;
+        boolean isReferred = false;
+        boolean isResized = false;
+        List<MsgMemStore> discardStores = new ArrayList<>();
         writeCacheMutex.writeLock().lock();
         try {
             lastDataPos = msgMemStore.getDataLastWritePos();
             lastIndexPos = msgMemStore.getIndexLastWritePos();
             tmpStore = msgMemStoreBeingFlush;
             msgMemStoreBeingFlush = msgMemStore;
-            if (tmpStore.getMaxAllowedMsgCount() == writeCacheMaxCnt
-                    && tmpStore.getMaxDataCacheSize() == writeCacheMaxSize) {
+            // the cache still referred by read results can't be overwritten,
+            // it is kept and reused after the last reader released.
+            isReferred = tmpStore.hasReaderRef();
+            isResized = !isCacheCapacityMatched(tmpStore);
+            if (!isResized && !isReferred) {
                 msgMemStore = tmpStore;
                 msgMemStore.resetMemStoreStatus(lastDataPos, lastIndexPos);
             } else {
-                isRealloc = true;
-                msgMemStore = new MsgMemStore(writeCacheMaxSize,
-                        writeCacheMaxCnt, lastDataPos, lastIndexPos);
+                if (isResized) {
+                    discardStores.add(tmpStore);
+                } else {
+                    retiredMemStores.addLast(tmpStore);
+                }
+                msgMemStore = pollReleasedMemStore(discardStores);
+                if (msgMemStore == null) {
+                    isRealloc = true;
+                    msgMemStore = new MsgMemStore(writeCacheMaxSize,
+                            writeCacheMaxCnt, lastDataPos, lastIndexPos);
+                } else {
+                    msgMemStore.resetMemStoreStatus(lastDataPos, lastIndexPos);
+                }
+                while (retiredMemStores.size() > MAX_RETIRED_MEM_STORE_CNT) {
+                    discardStores.add(retiredMemStores.removeFirst());
+                }
             }
             hasFlushBeenTriggered.set(false);
             flushWriteCacheCondition.signalAll();
         } finally {
             isFlushOngoing.set(true);
             writeCacheMutex.writeLock().unlock();
+            // the direct memory is freed after the last reader released
+            for (MsgMemStore discardStore : discardStores) {
+                discardStore.close();
+            }
             if (isRealloc) {
-                tmpStore.close();
                 msgStoreStatsHolder.addCacheReAlloc();
-                logger.info(strBuffer.append("[Data Store] Found ").append(getStoreKey())
-                        .append(" Cache capacity change, new MemSize=")
-                        .append(writeCacheMaxSize).append(", new CacheCnt=")
-                        .append(writeCacheMaxCnt).toString());
-                strBuffer.delete(0, strBuffer.length());
+                if (isResized) {
+                    logger.info(strBuffer.append("[Data Store] Found ").append(getStoreKey())
+                            .append(" Cache capacity change, new MemSize=")
+                            .append(writeCacheMaxSize).append(", new CacheCnt=")
+                            .append(writeCacheMaxCnt).toString());
+                    strBuffer.delete(0, strBuffer.length());
+                } else {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(strBuffer.append("[Data Store] Found ").append(getStoreKey())
+                                .append(" Cache still referred by readers, allocate a new one")
+                                .toString());
+                        strBuffer.delete(0, strBuffer.length());
+                    }
+                }
             }
         }
         msgMemStoreBeingFlush.batchFlush(msgFileStore, strBuffer);
     }
+
+    private boolean isCacheCapacityMatched(MsgMemStore memStore) {
+        return memStore.getMaxAllowedMsgCount() == writeCacheMaxCnt
+                && memStore.getMaxDataCacheSize() == writeCacheMaxSize;
+    }
+
+    /**
+     * Take a retired cache whose readers all released, the retired caches
+     * not matching the current capacity are moved to the discard list.
+     *
+     * @param discardStores   the caches to be closed
+     * @return                the reusable cache, null if not found
+     */
+    private MsgMemStore pollReleasedMemStore(List<MsgMemStore> discardStores) {
+        MsgMemStore result = null;
+        Iterator<MsgMemStore> iterator = retiredMemStores.iterator();
+        while (iterator.hasNext()) {
+            MsgMemStore retiredStore = iterator.next();
+            if (!isCacheCapacityMatched(retiredStore)) {
+                iterator.remove();
+                discardStores.add(retiredStore);
+            } else if (result == null && !retiredStore.hasReaderRef()) {
+                // no new reader can refer a retired cache, the released one stays released
+                iterator.remove();
+                result = retiredStore;
+            }
+        }
+        return result;
+    }
 }
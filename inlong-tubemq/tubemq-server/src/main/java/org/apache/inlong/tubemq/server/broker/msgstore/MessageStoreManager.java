@@ -27,11 +27,14 @@ import org.apache.inlong.tubemq.server.broker.exception.StartupException;
 import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.LocalDirTierStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentTierManager;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetCsmRecord;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetHistoryInfo;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.broker.utils.TopicPubStoreInfo;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.TStatusConstants;
 
 import org.slf4j.Logger;
@@ -78,10 +81,18 @@ public class MessageStoreManager implements StoreService {
     private final AtomicBoolean stopped = new AtomicBoolean(false);
     // data expire operation scheduler.
     private final ScheduledExecutorService logClearScheduler;
-    // flush operation scheduler.
+    // flush operation scheduler, dispatches the flushes to the device flush workers.
     private final ScheduledExecutorService unFlushDiskScheduler;
     // message on memory sink to disk operation scheduler.
     private final ScheduledExecutorService unFlushMemScheduler;
+    // the flush workers of each device
+    private final StoreFlushScheduler flushScheduler;
+    // the fetches waiting for new messages
+    private final FetchWaitManager fetchWaitManager;
+    // the secondary segment tier, null if not configured
+    private final SegmentTierManager tierManager;
+    // the placement of the stores among the data directories
+    private final StoreDirManager storeDirManager;
     // max transfer size.
     private final int maxMsgTransferSize;
     // the status that is deleting topic.
@@ -137,7 +148,21 @@ public class MessageStoreManager implements StoreService {
                         return new Thread(r, "Broker Log Mem Flush Thread");
                     }
                 });
-
+        this.flushScheduler =
+                new StoreFlushScheduler(tubeConfig.getFlushThreadsPerDisk());
+        this.fetchWaitManager =
+                new FetchWaitManager(tubeConfig.getFetchWakeThreads());
+        if (tubeConfig.isTieredStorageEnabled()) {
+            this.tierManager = new SegmentTierManager(
+                    new LocalDirTierStore(tubeConfig.getTierStorePath()),
+                    tubeConfig.getTierHotRetainMs(),
+                    TServerConstants.CFG_TIER_SEGMENT_IDLE_CLOSE_MS,
+                    TServerConstants.CFG_TIER_PREFETCH_THREADS);
+        } else {
+            this.tierManager = null;
+        }
+        this.storeDirManager = new StoreDirManager(
+                tubeConfig.getDataPaths(), tubeConfig.getDirBalanceUsageDiff());
     }
 
     @Override
@@ -154,6 +179,16 @@ public class MessageStoreManager implements StoreService {
                 tubeConfig.getLogClearupDurationMs(),
                 tubeConfig.getLogClearupDurationMs(),
                 TimeUnit.MILLISECONDS);
+        this.logClearScheduler.scheduleWithFixedDelay(new TierMoveRunner(),
+                tubeConfig.getLogClearupDurationMs(),
+                tubeConfig.getLogClearupDurationMs(),
+                TimeUnit.MILLISECONDS);
+        if (this.storeDirManager.getDataPaths().size() > 1) {
+            this.logClearScheduler.scheduleWithFixedDelay(new DirBalanceRunner(),
+                    tubeConfig.getLogClearupDurationMs(),
+                    tubeConfig.getLogClearupDurationMs(),
+                    TimeUnit.MILLISECONDS);
+        }
 
         this.unFlushDiskScheduler.scheduleWithFixedDelay(new DiskUnFlushRunner(),
                 tubeConfig.getLogFlushDiskDurMs(),
@@ -177,6 +212,8 @@ public class MessageStoreManager implements StoreService {
             this.logClearScheduler.shutdownNow();
             this.unFlushDiskScheduler.shutdownNow();
             this.unFlushMemScheduler.shutdownNow();
+            this.flushScheduler.close();
+            this.fetchWaitManager.close();
             for (Map.Entry<String, ConcurrentHashMap<Integer, MessageStore>> entry : this.dataStores.entrySet()) {
                 if (entry.getValue() != null) {
                     ConcurrentHashMap<Integer, MessageStore> subMap = entry.getValue();
@@ -194,6 +231,9 @@ public class MessageStoreManager implements StoreService {
                 }
             }
             this.dataStores.clear();
+            if (this.tierManager != null) {
+                this.tierManager.close();
+            }
             logger.info("[Store Manager] Store Manager stopped!");
         }
     }
@@ -235,6 +275,7 @@ public class MessageStoreManager implements StoreService {
                     for (Integer storeId : storeIds) {
                         try {
                             MessageStore tmpStore = topicStores.remove(storeId);
+                            this.flushScheduler.removeStore(tmpStore.getStoreKey());
                             tmpStore.close();
                             if (topicStores.isEmpty()) {
                                 this.dataStores.remove(tmpTopic);
@@ -250,15 +291,28 @@ public class MessageStoreManager implements StoreService {
                 if (tmpTopicConf != null) {
                     StringBuilder sBuilder = new StringBuilder(512);
                     for (int storeId = 0; storeId < tmpTopicConf.getNumTopicStores(); storeId++) {
-                        String storeDir = sBuilder.append(tubeConfig.getPrimaryPath())
-                                .append(File.separator).append(tmpTopic).append("-")
+                        String storeKey = sBuilder.append(tmpTopic).append("-")
                                 .append(storeId).toString();
                         sBuilder.delete(0, sBuilder.length());
-                        logger.info("[Remove Topic] remove topic files : {}", storeDir);
-                        try {
-                            delTopicFiles(storeDir);
-                        } catch (Throwable e) {
-                            logger.error("[Remove Topic] remove topic files error : ", e);
+                        for (String dataPath : this.storeDirManager.getDataPaths()) {
+                            String storeDir = sBuilder.append(dataPath)
+                                    .append(File.separator).append(storeKey).toString();
+                            sBuilder.delete(0, sBuilder.length());
+                            String movedDir = sBuilder.append(dataPath)
+                                    .append(File.separator).append(DataStoreUtils.MOVED_SEGMENTS_DIR)
+                                    .append(File.separator).append(storeKey).toString();
+                            sBuilder.delete(0, sBuilder.length());
+                            logger.info("[Remove Topic] remove topic files : {}", storeDir);
+                            try {
+                                delTopicFiles(storeDir);
+                                delTopicFiles(movedDir);
+                            } catch (Throwable e) {
+                                logger.error("[Remove Topic] remove topic files error : ", e);
+                            }
+                        }
+                        this.storeDirManager.removeStore(storeKey);
+                        if (this.tierManager != null) {
+                            this.tierManager.getTierStore().deleteStore(storeKey);
                         }
                         ThreadUtils.sleep(50);
                     }
@@ -382,7 +436,7 @@ public class MessageStoreManager implements StoreService {
             }
             requestOffset = maxOffset - maxIndexReadSize < 0 ? 0L : maxOffset - maxIndexReadSize;
             return msgStore.getMessages(303, requestOffset, partitionId,
-                    consumerNodeInfo, topic, this.maxMsgTransferSize, 0);
+                    consumerNodeInfo, this.maxMsgTransferSize, 0);
         } catch (Throwable e1) {
             return new GetMessageResult(false, TErrCodeConstants.INTERNAL_SERVER_ERROR,
                     requestOffset, 0, "Get message failure, errMsg=" + e1.getMessage());
@@ -393,6 +447,22 @@ public class MessageStoreManager implements StoreService {
         return tubeBroker.getMetadataManager();
     }
 
+    public StoreFlushScheduler getFlushScheduler() {
+        return flushScheduler;
+    }
+
+    public FetchWaitManager getFetchWaitManager() {
+        return fetchWaitManager;
+    }
+
+    public SegmentTierManager getTierManager() {
+        return tierManager;
+    }
+
+    public StoreDirManager getStoreDirManager() {
+        return storeDirManager;
+    }
+
     public int getMaxMsgTransferSize() {
         return maxMsgTransferSize;
     }
@@ -504,7 +574,7 @@ public class MessageStoreManager implements StoreService {
     private Set<File> getLogDirSet(final BrokerConfig tubeConfig) throws IOException {
         TopicMetadata topicMetadata = null;
         final Set<String> paths = new HashSet<>();
-        paths.add(tubeConfig.getPrimaryPath());
+        paths.addAll(tubeConfig.getDataPaths());
         for (final String topic : metadataManager.getTopics()) {
             topicMetadata = metadataManager.getTopicMetadata(topic);
             if (topicMetadata != null
@@ -559,7 +629,8 @@ public class MessageStoreManager implements StoreService {
                 if (subDir == null) {
                     continue;
                 }
-                if (!subDir.isDirectory()) {
+                // the hidden directories, such as the file offset storage, are not stores
+                if (!subDir.isDirectory() || subDir.isHidden()) {
                     continue;
                 }
                 final String name = subDir.getName();
@@ -787,6 +858,54 @@ public class MessageStoreManager implements StoreService {
         }
     }
 
+    private class TierMoveRunner implements Runnable {
+
+        @Override
+        public void run() {
+            for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
+                if (storeMap == null || storeMap.isEmpty()) {
+                    continue;
+                }
+                for (MessageStore msgStore : storeMap.values()) {
+                    if (msgStore == null) {
+                        continue;
+                    }
+                    try {
+                        msgStore.runTierPolicy();
+                    } catch (Throwable e) {
+                        logger.error(new StringBuilder(256)
+                                .append("[Store Manager] Try to run tier policy with ")
+                                .append(msgStore.getStoreKey())
+                                .append("'s log file failed").toString(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private class DirBalanceRunner implements Runnable {
+
+        @Override
+        public void run() {
+            List<MessageStore> msgStores = new ArrayList<>();
+            for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
+                if (storeMap == null || storeMap.isEmpty()) {
+                    continue;
+                }
+                for (MessageStore msgStore : storeMap.values()) {
+                    if (msgStore != null) {
+                        msgStores.add(msgStore);
+                    }
+                }
+            }
+            try {
+                storeDirManager.rebalance(msgStores);
+            } catch (Throwable e) {
+                logger.error("[Store Manager] Try to rebalance the data directories failed", e);
+            }
+        }
+    }
+
     private class DiskUnFlushRunner implements Runnable {
 
         public DiskUnFlushRunner() {
@@ -795,7 +914,6 @@ public class MessageStoreManager implements StoreService {
 
         @Override
         public void run() {
-            StringBuilder sBuilder = new StringBuilder(256);
             for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
                 if (storeMap == null || storeMap.isEmpty()) {
                     continue;
@@ -804,14 +922,7 @@ public class MessageStoreManager implements StoreService {
                     if (msgStore == null) {
                         continue;
                     }
-                    try {
-                        msgStore.flushFile();
-                    } catch (final Throwable e) {
-                        logger.error(sBuilder.append("[Store Manager] Try to flush ")
-                                .append(msgStore.getStoreKey())
-                                .append("'s file-store failed : ").toString(), e);
-                        sBuilder.delete(0, sBuilder.length());
-                    }
+                    flushScheduler.submitDiskFlush(msgStore, false);
                 }
             }
         }
@@ -825,7 +936,6 @@ public class MessageStoreManager implements StoreService {
 
         @Override
         public void run() {
-            StringBuilder sBuilder = new StringBuilder(256);
             for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
                 if (storeMap == null || storeMap.isEmpty()) {
                     continue;
@@ -834,14 +944,7 @@ public class MessageStoreManager implements StoreService {
                     if (msgStore == null) {
                         continue;
                     }
-                    try {
-                        msgStore.flushMemCacheData();
-                    } catch (final Throwable e) {
-                        logger.error(sBuilder.append("[Store Manager] Try to flush ")
-                                .append(msgStore.getStoreKey())
-                                .append("'s mem-store failed : ").toString(), e);
-                        sBuilder.delete(0, sBuilder.length());
-                    }
+                    flushScheduler.submitMemFlush(msgStore);
                 }
             }
         }
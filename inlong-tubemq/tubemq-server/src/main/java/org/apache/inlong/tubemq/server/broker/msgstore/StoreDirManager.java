@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The placement of the message stores among the broker's data directories.
+ *
+ * A new store is placed in the directory with the most free space, the directories whose
+ * usage is close to the least used one are treated as equal and the one with the least
+ * recent write bytes is selected. The sealed segments are moved from the fullest directory
+ * to the emptiest one when their usage differs over the configured percentage, the moved
+ * segments are kept in the hidden segment directory of the target, and the store's mutable
+ * segments stay in its home directory.
+ */
+public class StoreDirManager {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(StoreDirManager.class);
+    // the data directories, the primary path first
+    private final List<StoreDir> storeDirs = new ArrayList<>();
+    // the usage difference in percent to rebalance the directories, 0 if disabled
+    private final int balanceUsageDiff;
+    // store key -> home directory
+    private final ConcurrentHashMap<String, StoreDir> storeHomes =
+            new ConcurrentHashMap<>();
+    // store key -> written bytes at the last sampling
+    private final Map<String, Long> lastWrittenBytes = new HashMap<>();
+
+    public StoreDirManager(List<String> dataPaths, int balanceUsageDiff) {
+        for (String dataPath : dataPaths) {
+            storeDirs.add(new StoreDir(dataPath));
+        }
+        this.balanceUsageDiff = balanceUsageDiff;
+    }
+
+    public List<String> getDataPaths() {
+        List<String> dataPaths = new ArrayList<>(storeDirs.size());
+        for (StoreDir storeDir : storeDirs) {
+            dataPaths.add(storeDir.path);
+        }
+        return dataPaths;
+    }
+
+    /**
+     * Get the home directory of the store, select one if the store is new.
+     *
+     * @param storeKey   the store key
+     * @return           the data path holding the store's directory
+     */
+    public synchronized String getStorePath(String storeKey) {
+        StoreDir home = storeHomes.get(storeKey);
+        if (home != null) {
+            return home.path;
+        }
+        for (StoreDir storeDir : storeDirs) {
+            if (new File(storeDir.path, storeKey).isDirectory()) {
+                home = storeDir;
+                break;
+            }
+        }
+        if (home == null) {
+            home = selectStoreDir();
+            logger.info("[Store Dir] Placed new store {} in {}", storeKey, home.path);
+        }
+        storeHomes.put(storeKey, home);
+        home.storeCnt++;
+        return home.path;
+    }
+
+    /**
+     * Release the placement of a removed store.
+     *
+     * @param storeKey   the store key
+     */
+    public synchronized void removeStore(String storeKey) {
+        StoreDir home = storeHomes.remove(storeKey);
+        if (home != null) {
+            home.storeCnt--;
+        }
+        lastWrittenBytes.remove(storeKey);
+    }
+
+    /**
+     * Get the directory keeping the store's segments moved into the data path.
+     *
+     * @param dataPath   the data path
+     * @param storeKey   the store key
+     * @param segType    the segment type
+     * @return           the moved segment directory
+     */
+    public static File getMovedSegmentDir(String dataPath, String storeKey, SegmentType segType) {
+        File storeDir = new File(new File(dataPath, DataStoreUtils.MOVED_SEGMENTS_DIR), storeKey);
+        return segType == SegmentType.INDEX ? new File(storeDir, "index") : storeDir;
+    }
+
+    /**
+     * Get the existing directories keeping the store's moved segments.
+     *
+     * @param storeKey   the store key
+     * @param segType    the segment type
+     * @return           the moved segment directories
+     */
+    public List<File> getMovedSegmentDirs(String storeKey, SegmentType segType) {
+        List<File> segDirs = new ArrayList<>();
+        for (StoreDir storeDir : storeDirs) {
+            File segDir = getMovedSegmentDir(storeDir.path, storeKey, segType);
+            if (segDir.isDirectory()) {
+                segDirs.add(segDir);
+            }
+        }
+        return segDirs;
+    }
+
+    /**
+     * Sample the write bytes of each directory, and move the sealed segments from the
+     * fullest directory to the emptiest one if their usage differs too much.
+     *
+     * @param msgStores   the message stores
+     * @return            the moved bytes
+     */
+    public synchronized long rebalance(Collection<MessageStore> msgStores) {
+        refreshStats(msgStores);
+        if (balanceUsageDiff <= 0 || storeDirs.size() < 2) {
+            return 0L;
+        }
+        StoreDir fromDir = null;
+        StoreDir toDir = null;
+        for (StoreDir storeDir : storeDirs) {
+            if (fromDir == null || storeDir.usagePercent > fromDir.usagePercent) {
+                fromDir = storeDir;
+            }
+        }
+        for (StoreDir storeDir : storeDirs) {
+            // the directories on the same device share the space
+            if (storeDir.deviceName.equals(fromDir.deviceName)) {
+                continue;
+            }
+            if (toDir == null || storeDir.usagePercent < toDir.usagePercent) {
+                toDir = storeDir;
+            }
+        }
+        if (toDir == null
+                || fromDir.usagePercent - toDir.usagePercent < balanceUsageDiff) {
+            return 0L;
+        }
+        long movedBytes = 0L;
+        for (MessageStore msgStore : msgStores) {
+            long maxBytes = TServerConstants.CFG_DIR_BALANCE_MAX_MOVE_BYTES - movedBytes;
+            if (maxBytes <= 0) {
+                break;
+            }
+            try {
+                movedBytes += msgStore.moveSealedSegments(fromDir.path, toDir.path, maxBytes);
+            } catch (Throwable e) {
+                logger.error(new StringBuilder(256)
+                        .append("[Store Dir] Move segments of ").append(msgStore.getStoreKey())
+                        .append(" from ").append(fromDir.path).append(" to ")
+                        .append(toDir.path).append(" failure").toString(), e);
+            }
+        }
+        if (movedBytes > 0) {
+            fromDir.movedOutBytes.addAndGet(movedBytes);
+            toDir.movedInBytes.addAndGet(movedBytes);
+            logger.info(new StringBuilder(256).append("[Store Dir] Moved ")
+                    .append(movedBytes).append(" bytes from ").append(fromDir.path)
+                    .append("(").append(fromDir.usagePercent).append("%) to ")
+                    .append(toDir.path).append("(").append(toDir.usagePercent)
+                    .append("%)").toString());
+        }
+        return movedBytes;
+    }
+
+    /**
+     * Get the placement information of each data directory.
+     *
+     * @param sBuilder   the string buffer to append the json records
+     * @return           the directory count
+     */
+    public int getDirStatsInfo(StringBuilder sBuilder) {
+        int count = 0;
+        for (StoreDir storeDir : storeDirs) {
+            if (count++ > 0) {
+                sBuilder.append(",");
+            }
+            File dir = new File(storeDir.path);
+            sBuilder.append("{\"path\":\"").append(storeDir.path)
+                    .append("\",\"device\":\"").append(storeDir.deviceName)
+                    .append("\",\"storeCnt\":").append(storeDir.storeCnt)
+                    .append(",\"totalSpace\":").append(dir.getTotalSpace())
+                    .append(",\"usableSpace\":").append(dir.getUsableSpace())
+                    .append(",\"recentWriteBytes\":").append(storeDir.recentWriteBytes)
+                    .append(",\"movedInBytes\":").append(storeDir.movedInBytes.get())
+                    .append(",\"movedOutBytes\":").append(storeDir.movedOutBytes.get())
+                    .append("}");
+        }
+        return count;
+    }
+
+    /**
+     * Refresh the space usage and the write bytes since the last sampling of each directory.
+     *
+     * @param msgStores   the message stores
+     */
+    synchronized void refreshStats(Collection<MessageStore> msgStores) {
+        Map<StoreDir, Long> writeBytes = new HashMap<>();
+        for (MessageStore msgStore : msgStores) {
+            StoreDir home = storeHomes.get(msgStore.getStoreKey());
+            if (home == null) {
+                continue;
+            }
+            long curBytes = msgStore.getMsgStoreStatsHolder().getFileWrittenBytes();
+            Long lastBytes = lastWrittenBytes.put(msgStore.getStoreKey(), curBytes);
+            long dltBytes = (lastBytes == null || lastBytes > curBytes) ? 0L : curBytes - lastBytes;
+            Long dirBytes = writeBytes.get(home);
+            writeBytes.put(home, dirBytes == null ? dltBytes : dirBytes + dltBytes);
+        }
+        for (StoreDir storeDir : storeDirs) {
+            Long dirBytes = writeBytes.get(storeDir);
+            storeDir.recentWriteBytes = dirBytes == null ? 0L : dirBytes;
+            storeDir.refreshUsage();
+        }
+    }
+
+    private StoreDir selectStoreDir() {
+        List<StoreDir> candidates = new ArrayList<>();
+        for (StoreDir storeDir : storeDirs) {
+            storeDir.refreshUsage();
+            if (100 - storeDir.usagePercent >= TServerConstants.CFG_DIR_MIN_USABLE_PERCENT) {
+                candidates.add(storeDir);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates.addAll(storeDirs);
+        }
+        int minUsage = 100;
+        for (StoreDir storeDir : candidates) {
+            minUsage = Math.min(minUsage, storeDir.usagePercent);
+        }
+        int usageTolerance = balanceUsageDiff > 0
+                ? balanceUsageDiff
+                : TServerConstants.CFG_DEFAULT_DIR_BALANCE_USAGE_DIFF;
+        StoreDir selected = null;
+        for (StoreDir storeDir : candidates) {
+            if (storeDir.usagePercent - minUsage >= usageTolerance) {
+                continue;
+            }
+            if (selected == null
+                    || storeDir.recentWriteBytes < selected.recentWriteBytes
+                    || (storeDir.recentWriteBytes == selected.recentWriteBytes
+                            && storeDir.storeCnt < selected.storeCnt)) {
+                selected = storeDir;
+            }
+        }
+        return selected;
+    }
+
+    private static class StoreDir {
+
+        private final String path;
+        private final String deviceName;
+        private int storeCnt = 0;
+        private int usagePercent = 0;
+        private long recentWriteBytes = 0L;
+        private final AtomicLong movedInBytes = new AtomicLong(0L);
+        private final AtomicLong movedOutBytes = new AtomicLong(0L);
+
+        StoreDir(String path) {
+            this.path = path;
+            File dir = new File(path);
+            if (!dir.exists() && !dir.mkdirs()) {
+                logger.warn("[Store Dir] Could not make data directory {}", path);
+            }
+            String device;
+            try {
+                device = Files.getFileStore(dir.toPath()).name();
+            } catch (Throwable e) {
+                device = path;
+            }
+            this.deviceName = device;
+            refreshUsage();
+        }
+
+        void refreshUsage() {
+            File dir = new File(path);
+            long totalSpace = dir.getTotalSpace();
+            if (totalSpace <= 0) {
+                usagePercent = 100;
+                return;
+            }
+            usagePercent = (int) ((totalSpace - dir.getUsableSpace()) * 100 / totalSpace);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The flush scheduler of message stores.
+ *
+ * Each device holding store data has its own flush worker pool, so a slow disk sync on
+ * one device does not delay the stores on the other devices. The flush requests of a
+ * store are coalesced: a store is queued at most once for each flush type, the requests
+ * made while it is queued are served by the same flush.
+ */
+public class StoreFlushScheduler {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(StoreFlushScheduler.class);
+    private static final long MAX_CLOSE_WAIT_MS = 30000L;
+    private final int threadsPerDevice;
+    // device name -> flush worker
+    private final ConcurrentHashMap<String, DeviceFlushWorker> deviceWorkers =
+            new ConcurrentHashMap<>();
+    // store path -> device name
+    private final ConcurrentHashMap<String, String> deviceNames =
+            new ConcurrentHashMap<>();
+    // store key -> flush state
+    private final ConcurrentHashMap<String, StoreFlushState> storeStates =
+            new ConcurrentHashMap<>();
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    public StoreFlushScheduler(int threadsPerDevice) {
+        this.threadsPerDevice = threadsPerDevice;
+    }
+
+    /**
+     * Queue a disk flush of the store's file data.
+     *
+     * @param msgStore   the message store
+     * @param forced     whether to flush without checking the flush interval
+     */
+    public void submitDiskFlush(final MessageStore msgStore, boolean forced) {
+        if (stopped.get()) {
+            return;
+        }
+        final StoreFlushState state = getOrCreateState(msgStore);
+        if (forced) {
+            state.diskForced.set(true);
+        }
+        if (!state.diskQueuedTime.compareAndSet(0L, System.currentTimeMillis())) {
+            return;
+        }
+        final DeviceFlushWorker worker = getOrCreateWorker(state.deviceName);
+        try {
+            worker.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    runDiskFlush(state, worker);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            state.diskQueuedTime.set(0L);
+        }
+    }
+
+    /**
+     * Queue a flush of the store's memory cache to file.
+     *
+     * @param msgStore   the message store
+     */
+    public void submitMemFlush(final MessageStore msgStore) {
+        if (stopped.get()) {
+            return;
+        }
+        final StoreFlushState state = getOrCreateState(msgStore);
+        if (!state.memQueuedTime.compareAndSet(0L, System.currentTimeMillis())) {
+            return;
+        }
+        final DeviceFlushWorker worker = getOrCreateWorker(state.deviceName);
+        try {
+            worker.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    runMemFlush(state);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            state.memQueuedTime.set(0L);
+        }
+    }
+
+    public void removeStore(String storeKey) {
+        storeStates.remove(storeKey);
+    }
+
+    /**
+     * Stop accepting flush requests, and wait for the queued flushes to finish,
+     * so the data appended before the close is synced to disk.
+     */
+    public void close() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        // not interrupt the running flushes, an interrupted file channel is closed
+        for (DeviceFlushWorker worker : deviceWorkers.values()) {
+            worker.executor.shutdown();
+        }
+        for (DeviceFlushWorker worker : deviceWorkers.values()) {
+            try {
+                if (!worker.executor.awaitTermination(
+                        MAX_CLOSE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    logger.warn(new StringBuilder(256)
+                            .append("[Store Manager] Wait the queued flushes of device ")
+                            .append(worker.deviceName).append(" timeout, ")
+                            .append(worker.executor.getQueue().size())
+                            .append(" flushes left").toString());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Get the flush lag information of each device.
+     *
+     * @param sBuilder   the string buffer to append the json records
+     * @return           the device count
+     */
+    public int getFlushLagInfo(StringBuilder sBuilder) {
+        long currTime = System.currentTimeMillis();
+        Map<String, Long> oldestQueuedTimes = new HashMap<>();
+        for (StoreFlushState state : storeStates.values()) {
+            long queuedTime = state.diskQueuedTime.get();
+            if (queuedTime == 0L) {
+                continue;
+            }
+            Long oldest = oldestQueuedTimes.get(state.deviceName);
+            if (oldest == null || queuedTime < oldest) {
+                oldestQueuedTimes.put(state.deviceName, queuedTime);
+            }
+        }
+        int count = 0;
+        for (DeviceFlushWorker worker : deviceWorkers.values()) {
+            if (count++ > 0) {
+                sBuilder.append(",");
+            }
+            Long oldest = oldestQueuedTimes.get(worker.deviceName);
+            sBuilder.append("{\"device\":\"").append(worker.deviceName)
+                    .append("\",\"threadCnt\":").append(threadsPerDevice)
+                    .append(",\"activeCnt\":").append(worker.executor.getActiveCount())
+                    .append(",\"queuedCnt\":").append(worker.executor.getQueue().size())
+                    .append(",\"flushCnt\":").append(worker.flushCnt.get())
+                    .append(",\"lastFlushLagMs\":").append(worker.lastFlushLag.get())
+                    .append(",\"maxFlushLagMs\":").append(worker.maxFlushLag.get())
+                    .append(",\"curFlushLagMs\":")
+                    .append(oldest == null ? 0L : currTime - oldest)
+                    .append("}");
+        }
+        return count;
+    }
+
+    private void runDiskFlush(StoreFlushState state, DeviceFlushWorker worker) {
+        long queuedTime = state.diskQueuedTime.get();
+        boolean forced = state.diskForced.getAndSet(false);
+        // the requests since now need a new flush, as their data may not be covered
+        state.diskQueuedTime.set(0L);
+        try {
+            // only count the flushes that synced data to disk
+            if (state.msgStore.flushFile(forced)) {
+                long flushLag = System.currentTimeMillis() - queuedTime;
+                worker.updFlushLag(flushLag);
+                BrokerSrvStatsHolder.updDiskFlushLagDlt(flushLag);
+            }
+        } catch (Throwable e) {
+            logger.error(new StringBuilder(256).append("[Store Manager] Try to flush ")
+                    .append(state.msgStore.getStoreKey())
+                    .append("'s file-store failed : ").toString(), e);
+        }
+    }
+
+    private void runMemFlush(StoreFlushState state) {
+        state.memQueuedTime.set(0L);
+        try {
+            state.msgStore.flushMemCacheData();
+        } catch (Throwable e) {
+            logger.error(new StringBuilder(256).append("[Store Manager] Try to flush ")
+                    .append(state.msgStore.getStoreKey())
+                    .append("'s mem-store failed : ").toString(), e);
+        }
+    }
+
+    private StoreFlushState getOrCreateState(MessageStore msgStore) {
+        StoreFlushState state = storeStates.get(msgStore.getStoreKey());
+        if (state == null || state.msgStore != msgStore) {
+            StoreFlushState newState =
+                    new StoreFlushState(msgStore, getDeviceName(msgStore.getPrimStorePath()));
+            if (state == null) {
+                state = storeStates.putIfAbsent(msgStore.getStoreKey(), newState);
+                if (state == null) {
+                    state = newState;
+                }
+            } else {
+                // the store is re-created after a topic deletion
+                storeStates.put(msgStore.getStoreKey(), newState);
+                state = newState;
+            }
+        }
+        return state;
+    }
+
+    private String getDeviceName(String storePath) {
+        String deviceName = deviceNames.get(storePath);
+        if (deviceName != null) {
+            return deviceName;
+        }
+        try {
+            deviceName = getFileStoreName(storePath);
+        } catch (Throwable e) {
+            logger.warn("[Store Manager] Get the device of " + storePath
+                    + " failure, flush it in a separate worker", e);
+            deviceName = storePath;
+        }
+        deviceNames.putIfAbsent(storePath, deviceName);
+        return deviceName;
+    }
+
+    /**
+     * Get the name of the file store holding the path.
+     *
+     * @param storePath   the store path
+     * @return            the file store name
+     * @throws IOException the exception while getting the file store
+     */
+    String getFileStoreName(String storePath) throws IOException {
+        FileStore fileStore = Files.getFileStore(new File(storePath).toPath());
+        return fileStore.name();
+    }
+
+    private DeviceFlushWorker getOrCreateWorker(String deviceName) {
+        DeviceFlushWorker worker = deviceWorkers.get(deviceName);
+        if (worker == null) {
+            DeviceFlushWorker newWorker = new DeviceFlushWorker(deviceName, threadsPerDevice);
+            worker = deviceWorkers.putIfAbsent(deviceName, newWorker);
+            if (worker == null) {
+                worker = newWorker;
+                logger.info(new StringBuilder(256)
+                        .append("[Store Manager] Created flush worker for device ")
+                        .append(deviceName).append(", thread count is ")
+                        .append(threadsPerDevice).toString());
+            } else {
+                newWorker.executor.shutdown();
+            }
+        }
+        return worker;
+    }
+
+    private static class StoreFlushState {
+
+        private final MessageStore msgStore;
+        private final String deviceName;
+        // the time the queued disk flush requested, 0 if not queued
+        private final AtomicLong diskQueuedTime = new AtomicLong(0L);
+        private final AtomicBoolean diskForced = new AtomicBoolean(false);
+        // the time the queued memory flush requested, 0 if not queued
+        private final AtomicLong memQueuedTime = new AtomicLong(0L);
+
+        StoreFlushState(MessageStore msgStore, String deviceName) {
+            this.msgStore = msgStore;
+            this.deviceName = deviceName;
+        }
+    }
+
+    private static class DeviceFlushWorker {
+
+        private final String deviceName;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong flushCnt = new AtomicLong(0L);
+        private final AtomicLong lastFlushLag = new AtomicLong(0L);
+        private final AtomicLong maxFlushLag = new AtomicLong(0L);
+
+        DeviceFlushWorker(final String deviceName, int threadCnt) {
+            this.deviceName = deviceName;
+            final AtomicInteger threadIndex = new AtomicInteger(0);
+            this.executor = new ThreadPoolExecutor(threadCnt, threadCnt,
+                    0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, new StringBuilder(256)
+                                    .append("Broker Log Flush Thread-").append(deviceName)
+                                    .append("-").append(threadIndex.incrementAndGet())
+                                    .toString());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+
+        void updFlushLag(long flushLag) {
+            flushCnt.incrementAndGet();
+            lastFlushLag.set(flushLag);
+            long curMax = maxFlushLag.get();
+            while (flushLag > curMax) {
+                if (maxFlushLag.compareAndSet(curMax, flushLag)) {
+                    break;
+                }
+                curMax = maxFlushLag.get();
+            }
+        }
+    }
+}
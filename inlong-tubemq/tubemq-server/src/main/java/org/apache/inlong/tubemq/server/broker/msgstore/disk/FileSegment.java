@@ -23,6 +23,7 @@ import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 
+import io.netty.channel.FileRegion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +33,7 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -48,11 +50,16 @@ public class FileSegment implements Segment {
     private final FileChannel channel;
     private final AtomicLong cachedSize;
     private final AtomicLong flushedSize;
+    // serializes the disk syncs, the callers waiting on it share the finished sync
+    private final Object flushLock = new Object();
     private final SegmentType segmentType;
     private volatile boolean mutable = false;
     private long expiredTime = 0;
     private final AtomicBoolean expired = new AtomicBoolean(false);
     private final AtomicBoolean closed = new AtomicBoolean(false);
+    // the view references, the file is closed after the last one is released
+    private final AtomicInteger viewRefCnt = new AtomicInteger(0);
+    private final AtomicBoolean fileClosed = new AtomicBoolean(false);
     // the first record append time
     private final AtomicLong leftAppendTime =
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
@@ -83,7 +90,8 @@ public class FileSegment implements Segment {
         this.mutable = mutable;
         this.cachedSize = new AtomicLong(0);
         this.flushedSize = new AtomicLong(0);
-        this.randFile = new RandomAccessFile(this.file, "rw");
+        // the sealed segments are only read, and may be on a read-only tier
+        this.randFile = new RandomAccessFile(this.file, mutable ? "rw" : "r");
         this.channel = this.randFile.getChannel();
         if (mutable) {
             final long startMs = System.currentTimeMillis();
@@ -147,47 +155,35 @@ public class FileSegment implements Segment {
         }
     }
 
+    /**
+     * Close the segment, the file is closed at once if no view references it,
+     * otherwise it is closed when the last view reference is released.
+     */
     @Override
     public void close() {
         if (this.closed.compareAndSet(false, true)) {
             try {
-                if (this.channel.isOpen()) {
-                    if (this.mutable) {
-                        flush(true);
-                    }
-                    this.channel.close();
+                if (this.channel.isOpen() && this.mutable) {
+                    flush(true);
                 }
-                this.randFile.close();
             } catch (Throwable ee) {
                 if (ee instanceof IOException) {
                     ServiceStatusHolder.addReadIOErrCnt();
                     BrokerSrvStatsHolder.incDiskIOExcCnt();
                 }
-                logger.error(new StringBuilder(512).append("[File Store] Close ")
+                logger.error(new StringBuilder(512).append("[File Store] Flush ")
                         .append(this.file.getAbsoluteFile().toString())
                         .append("'s ").append(segmentType).append(" file failure").toString(), ee);
             }
+            if (this.viewRefCnt.get() == 0) {
+                closeFile();
+            }
         }
     }
 
     @Override
     public void deleteFile() {
-        this.closed.set(true);
-        try {
-            if (this.channel.isOpen()) {
-                if (this.mutable) {
-                    flush(true);
-                }
-                this.channel.close();
-            }
-            this.randFile.close();
-        } catch (Throwable e1) {
-            if (e1 instanceof IOException) {
-                ServiceStatusHolder.addReadIOErrCnt();
-                BrokerSrvStatsHolder.incDiskIOExcCnt();
-            }
-            logger.error("[File Store] failure to close channel ", e1);
-        }
+        close();
         try {
             logger.info(new StringBuilder(512)
                     .append("[File Store] delete file ")
@@ -250,9 +246,18 @@ public class FileSegment implements Segment {
      */
     @Override
     public long flush(boolean force) throws IOException {
-        this.channel.force(force);
-        this.flushedSize.set(this.cachedSize.get());
-        return this.start + this.flushedSize.get();
+        // the data appended before this call is required to be synced
+        final long requiredSize = this.cachedSize.get();
+        synchronized (this.flushLock) {
+            // the data has been synced by a concurrent caller, share its sync
+            if (!force && this.flushedSize.get() >= requiredSize) {
+                return this.start + this.flushedSize.get();
+            }
+            final long syncSize = this.cachedSize.get();
+            this.channel.force(force);
+            this.flushedSize.set(syncSize);
+            return this.start + syncSize;
+        }
     }
 
     @Override
@@ -279,13 +284,34 @@ public class FileSegment implements Segment {
                         && offset <= this.start + this.getCachedSize() - 1);
     }
 
+    /**
+     * Add a view reference to this FileSegment, the file is kept open
+     * until the reference is released.
+     *
+     * @throws IOException the segment is closed
+     */
+    @Override
+    public void addViewRef() throws IOException {
+        this.viewRefCnt.incrementAndGet();
+        if (this.closed.get()) {
+            relViewRef();
+            throw new IOException("[File Store] Segment is closed!");
+        }
+    }
+
     /**
      * Release reference to this FileSegment.
      * File's channel will be closed when the reference decreased to 0.
      */
     @Override
     public void relViewRef() {
+        if (this.viewRefCnt.decrementAndGet() == 0 && this.closed.get()) {
+            closeFile();
+        }
+    }
 
+    public int getViewRefCnt() {
+        return this.viewRefCnt.get();
     }
 
     @Override
@@ -393,6 +419,42 @@ public class FileSegment implements Segment {
         }
     }
 
+    /**
+     * Get a region view of the committed data, the region holds a view reference
+     * of this segment, released when the region is deallocated after being sent.
+     */
+    @Override
+    public FileRegion getFileRegion(long absOffset, long count) throws IOException {
+        addViewRef();
+        try {
+            return newFileRegion(absOffset, count, this);
+        } catch (IOException e) {
+            relViewRef();
+            throw e;
+        }
+    }
+
+    /**
+     * Build a region of the committed data, the view reference of the owner
+     * must have been added, and is released when the region is deallocated.
+     *
+     * @param absOffset   absolute read position
+     * @param count       the region length
+     * @param owner       the segment whose view reference is held by the region
+     * @return            the file region
+     * @throws IOException the region is out of the committed range
+     */
+    SegmentFileRegion newFileRegion(long absOffset, long count, Segment owner) throws IOException {
+        long startPos = absOffset - start;
+        if (startPos < 0 || startPos + count > this.flushedSize.get()) {
+            throw new IOException(new StringBuilder(256)
+                    .append("[File Store] Region out of committed range, start=")
+                    .append(startPos).append(", count=").append(count)
+                    .append(", committed=").append(this.flushedSize.get()).toString());
+        }
+        return new SegmentFileRegion(owner, this.channel, startPos, count);
+    }
+
     /**
      * read index record's append time.
      * @param reqOffset request offset.
@@ -567,6 +629,24 @@ public class FileSegment implements Segment {
         return new RecoverResult(totalBytes - validBytes, false);
     }
 
+    private void closeFile() {
+        if (!this.fileClosed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.channel.close();
+            this.randFile.close();
+        } catch (Throwable ee) {
+            if (ee instanceof IOException) {
+                ServiceStatusHolder.addReadIOErrCnt();
+                BrokerSrvStatsHolder.incDiskIOExcCnt();
+            }
+            logger.error(new StringBuilder(512).append("[File Store] Close ")
+                    .append(this.file.getAbsoluteFile().toString())
+                    .append("'s ").append(segmentType).append(" file failure").toString(), ee);
+        }
+    }
+
     private static class RecoverResult {
 
         private final long truncated;
@@ -59,7 +59,8 @@ public class FileSegmentList implements SegmentList {
     }
 
     /**
-     * Return segment by the given offset.
+     * Return segment by the given offset, with a view reference added,
+     * the caller releases it by relViewRef() after reading.
      *
      * @param offset     the position to search
      * @return           the segment included the position
@@ -68,9 +69,10 @@ public class FileSegmentList implements SegmentList {
     @Override
     public Segment getRecordSeg(final long offset) throws IOException {
         Segment tmpSeg = this.findSegment(offset);
-        if (tmpSeg != null && tmpSeg.isExpired()) {
+        if (tmpSeg == null || tmpSeg.isExpired()) {
             return null;
         }
+        tmpSeg.addViewRef();
         return tmpSeg;
     }
 
@@ -154,6 +156,35 @@ public class FileSegmentList implements SegmentList {
         }
     }
 
+    /**
+     * Replace a segment with another one of the same range.
+     *
+     * @param oldSegment   the segment to be replaced
+     * @param newSegment   the replacing segment
+     * @return             whether the old segment is found and replaced
+     */
+    @Override
+    public boolean replace(final Segment oldSegment, final Segment newSegment) {
+        while (true) {
+            int index = -1;
+            final Segment[] curViews = segmentList.get();
+            for (int i = 0; i < curViews.length; i++) {
+                if (curViews[i] == oldSegment) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index == -1) {
+                return false;
+            }
+            final Segment[] update = curViews.clone();
+            update[index] = newSegment;
+            if (this.segmentList.compareAndSet(curViews, update)) {
+                return true;
+            }
+        }
+    }
+
     @Override
     public void flushLast(boolean force) throws IOException {
         final Segment[] curViews = segmentList.get();
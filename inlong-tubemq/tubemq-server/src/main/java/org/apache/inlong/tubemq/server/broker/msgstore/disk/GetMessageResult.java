@@ -19,10 +19,11 @@ package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
-import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficCounts;
+
+import io.netty.util.ReferenceCounted;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -40,29 +41,31 @@ public class GetMessageResult {
     public long waitTime = -1;
     public boolean isSlowFreq = false;
     public boolean isFromSsdFile = false;
-    public HashMap<String, TrafficInfo> tmpCounters = new HashMap<>();
+    public TrafficCounts trafficCounts = new TrafficCounts();
     public List<TransferedMessage> transferedMessageList = new ArrayList<>();
+    // stored records read in raw data fetch mode, sent without copying
+    public List<ReferenceCounted> rawDataRegions = new ArrayList<>();
     public long maxOffset = TBaseConstants.META_VALUE_UNDEFINED;
 
     public GetMessageResult(boolean isSuccess, int retCode, final String errInfo,
             final long reqOffset, final int lastReadOffset,
             final long lastRdDataOffset, final int totalSize,
-            HashMap<String, TrafficInfo> tmpCounters,
+            TrafficCounts trafficCounts,
             List<TransferedMessage> transferedMessageList) {
         this(isSuccess, retCode, errInfo, reqOffset, lastReadOffset,
-                lastRdDataOffset, totalSize, tmpCounters, transferedMessageList, false);
+                lastRdDataOffset, totalSize, trafficCounts, transferedMessageList, false);
     }
 
     public GetMessageResult(boolean isSuccess, int retCode, final String errInfo,
             final long reqOffset, final int lastReadOffset,
             final long lastRdDataOffset, final int totalSize,
-            HashMap<String, TrafficInfo> tmpCounters,
+            TrafficCounts trafficCounts,
             List<TransferedMessage> transferedMessageList,
             boolean isFromSsdFile) {
         this.isSuccess = isSuccess;
         this.errInfo = errInfo;
         this.retCode = retCode;
-        this.tmpCounters = tmpCounters;
+        this.trafficCounts = trafficCounts;
         this.reqOffset = reqOffset;
         this.lastReadOffset = lastReadOffset;
         this.lastRdDataOffset = lastRdDataOffset;
@@ -110,12 +113,12 @@ public class GetMessageResult {
         this.waitTime = waitTime;
     }
 
-    public HashMap<String, TrafficInfo> getTmpCounters() {
-        return tmpCounters;
+    public TrafficCounts getTrafficCounts() {
+        return trafficCounts;
     }
 
-    public void setTmpCounters(HashMap<String, TrafficInfo> tmpCounters) {
-        this.tmpCounters = tmpCounters;
+    public void setTrafficCounts(TrafficCounts trafficCounts) {
+        this.trafficCounts = trafficCounts;
     }
 
     public List<TransferedMessage> getTransferedMessageList() {
@@ -126,6 +129,24 @@ public class GetMessageResult {
         this.transferedMessageList = transferedMessageList;
     }
 
+    public List<ReferenceCounted> getRawDataRegions() {
+        return rawDataRegions;
+    }
+
+    public void setRawDataRegions(List<ReferenceCounted> rawDataRegions) {
+        this.rawDataRegions = rawDataRegions;
+    }
+
+    /**
+     * Whether any message has been read, in either transfer format.
+     *
+     * @return true if no message read
+     */
+    public boolean isEmptyResult() {
+        return (transferedMessageList == null || transferedMessageList.isEmpty())
+                && (rawDataRegions == null || rawDataRegions.isEmpty());
+    }
+
     public boolean isFromSsdFile() {
         return isFromSsdFile;
     }
@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Partition and filter item summary of the index file pages, used to skip the index pages
+ * that contain no message to read.
+ *
+ * Each index segment is divided into pages of PAGE_ENTRY_CNT records, and for each page
+ * a small bitmap of the partitions and a bloom filter of the filter item key codes are kept.
+ * Both are hashed, so a set bit means the page may contain the item, while a clear bit means
+ * it surely does not. The summary of a segment is stored in a file next to the index file
+ * when the segment is rolled or the store closed, and loaded with the segments; the records
+ * not covered by a summary are never skipped.
+ *
+ * The summaries missing or incomplete on load are rebuilt from the index files, the one of
+ * the last segment at once as it is appended to, the sealed ones by a background thread.
+ */
+public class IndexPageSummary {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(IndexPageSummary.class);
+    public static final int PAGE_ENTRY_CNT = 2048;
+    private static final long PAGE_SIZE =
+            (long) PAGE_ENTRY_CNT * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    private static final int PART_BITMAP_WORDS = 2;
+    private static final int PART_BITMAP_BITS = PART_BITMAP_WORDS * Long.SIZE;
+    private static final int KEY_BLOOM_WORDS = 8;
+    private static final int KEY_BLOOM_BITS_MASK = KEY_BLOOM_WORDS * Long.SIZE - 1;
+    private static final int PAGE_WORDS = PART_BITMAP_WORDS + KEY_BLOOM_WORDS;
+    private static final int INIT_PAGE_CNT = 64;
+    private static final int SUMMARY_FILE_MAGIC = 0x54495053;
+    private static final int SUMMARY_FILE_VERSION = 1;
+    private static final int REBUILD_READ_PAGE_CNT = 8;
+    // the thread shared by the stores to rebuild the summaries of the sealed segments
+    private static final ExecutorService rebuildExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Broker Index Summary Rebuild Thread");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    private final File indexDir;
+    // index segment start offset to the page summary of the segment
+    private final TreeMap<Long, SegmentPages> segPagesMap = new TreeMap<>();
+    // the summaries below the offset have been trimmed
+    private long trimOffset = Long.MIN_VALUE;
+
+    public IndexPageSummary(final File indexDir) {
+        this.indexDir = indexDir;
+    }
+
+    /**
+     * Load the stored summaries of the index segments, the summary files
+     * without index segment or mismatched with the segment are removed.
+     * The missing or incomplete summaries are rebuilt from the index segments.
+     *
+     * @param segments   the loaded index segments
+     */
+    public void load(Segment[] segments) {
+        List<Segment> rebuildSegments = new ArrayList<>();
+        synchronized (this) {
+            Set<String> validFiles = new HashSet<>();
+            for (Segment segment : segments) {
+                File summaryFile = getSummaryFile(segment.getStart());
+                SegmentPages pages = null;
+                if (summaryFile.exists()) {
+                    pages = readSummaryFile(summaryFile);
+                }
+                if (pages == null
+                        || pages.segStart != segment.getStart()
+                        || pages.coveredEnd > segment.getLast()) {
+                    rebuildSegments.add(segment);
+                    continue;
+                }
+                this.segPagesMap.put(pages.segStart, pages);
+                validFiles.add(summaryFile.getName());
+                if (pages.coveredStart != pages.segStart
+                        || pages.coveredEnd != segment.getCommitLast()) {
+                    rebuildSegments.add(segment);
+                }
+            }
+            final File[] ls = this.indexDir.listFiles();
+            if (ls != null) {
+                for (final File file : ls) {
+                    if (file != null
+                            && file.getName().endsWith(DataStoreUtils.INDEX_SUMMARY_FILE_SUFFIX)
+                            && !validFiles.contains(file.getName())) {
+                        if (!file.delete()) {
+                            logger.warn("[File Store] Remove invalid index summary {} failure", file);
+                        }
+                    }
+                }
+            }
+        }
+        for (final Segment segment : rebuildSegments) {
+            if (segment.isMutable()) {
+                // the last segment is appended to, rebuild it before any append
+                rebuild(segment, false);
+            } else {
+                rebuildExecutor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        rebuild(segment, true);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Rebuild the summary of the index segment from the index records.
+     *
+     * @param segment   the index segment
+     * @param isStore   whether store the rebuilt summary
+     * @return          whether the summary is rebuilt
+     */
+    boolean rebuild(Segment segment, boolean isStore) {
+        SegmentPages expected;
+        synchronized (this) {
+            expected = this.segPagesMap.get(segment.getStart());
+        }
+        SegmentPages pages = new SegmentPages(segment.getStart());
+        try {
+            segment.addViewRef();
+        } catch (IOException e) {
+            return false;
+        }
+        try {
+            long endOffset = segment.getCommitLast();
+            ByteBuffer readBuffer = ByteBuffer.allocate((int) (PAGE_SIZE * REBUILD_READ_PAGE_CNT));
+            for (long offset = segment.getStart(); offset < endOffset;) {
+                readBuffer.clear();
+                if (endOffset - offset < readBuffer.capacity()) {
+                    readBuffer.limit((int) (endOffset - offset));
+                }
+                segment.read(readBuffer, offset);
+                int readSize = readBuffer.position()
+                        - readBuffer.position() % DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                if (readSize == 0) {
+                    break;
+                }
+                pages.append(offset, readBuffer, readSize);
+                offset += readSize;
+            }
+        } catch (Throwable e) {
+            logger.warn("[File Store] Rebuild index summary of " + segment.getFile() + " failure", e);
+            return false;
+        } finally {
+            segment.relViewRef();
+        }
+        if (pages.coveredEnd == pages.segStart) {
+            return false;
+        }
+        synchronized (this) {
+            // skip if the segment is trimmed or appended to meanwhile
+            if (pages.segStart < this.trimOffset
+                    || this.segPagesMap.get(pages.segStart) != expected) {
+                return false;
+            }
+            this.segPagesMap.put(pages.segStart, pages);
+            if (isStore) {
+                store(pages.segStart);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add the partitions and key codes of the appended index records.
+     *
+     * @param segStart      the start offset of the index segment appended to
+     * @param startOffset   the index offset of the first record
+     * @param indexBuffer   the appended index records, start at position 0
+     * @param indexSize     the length of the appended records
+     */
+    public synchronized void append(long segStart, long startOffset,
+            ByteBuffer indexBuffer, int indexSize) {
+        SegmentPages pages = this.segPagesMap.get(segStart);
+        if (pages == null) {
+            pages = new SegmentPages(segStart);
+            this.segPagesMap.put(segStart, pages);
+        }
+        pages.append(startOffset, indexBuffer, indexSize);
+    }
+
+    /**
+     * Store the summary of the index segment in the file next to it.
+     *
+     * @param segStart   the start offset of the index segment
+     */
+    public synchronized void store(long segStart) {
+        SegmentPages pages = this.segPagesMap.get(segStart);
+        if (pages == null) {
+            return;
+        }
+        File summaryFile = getSummaryFile(segStart);
+        File tmpFile = new File(this.indexDir, summaryFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(SUMMARY_FILE_MAGIC);
+            out.writeInt(SUMMARY_FILE_VERSION);
+            out.writeLong(pages.segStart);
+            out.writeLong(pages.coveredStart);
+            out.writeLong(pages.coveredEnd);
+            out.writeInt(pages.pageCnt);
+            for (int i = 0; i < pages.pageCnt * PAGE_WORDS; i++) {
+                out.writeLong(pages.pageWords[i]);
+            }
+        } catch (IOException e) {
+            logger.warn("[File Store] Store index summary " + summaryFile + " failure", e);
+            return;
+        }
+        if (!tmpFile.renameTo(summaryFile)) {
+            logger.warn("[File Store] Rename index summary {} failure", summaryFile);
+        }
+    }
+
+    /**
+     * Drop the summaries of the index segments below the min offset.
+     *
+     * @param minOffset   the min offset of the index
+     */
+    public synchronized void trim(long minOffset) {
+        this.trimOffset = Math.max(this.trimOffset, minOffset);
+        Iterator<Map.Entry<Long, SegmentPages>> it =
+                this.segPagesMap.headMap(minOffset, false).entrySet().iterator();
+        while (it.hasNext()) {
+            File summaryFile = getSummaryFile(it.next().getKey());
+            it.remove();
+            if (summaryFile.exists() && !summaryFile.delete()) {
+                logger.warn("[File Store] Remove index summary {} failure", summaryFile);
+            }
+        }
+    }
+
+    /**
+     * Get the first index offset that may contain the message to read.
+     *
+     * @param partitionId   the partition to read
+     * @param keyCodes      the filter item key codes, null if not filter consume
+     * @param offset        the request index offset
+     * @return              the offset to read from, not lower than the request offset
+     */
+    public synchronized long getNextReadOffset(int partitionId,
+            Set<Integer> keyCodes, long offset) {
+        int[] keyBits = null;
+        if (keyCodes != null) {
+            int index = 0;
+            keyBits = new int[keyCodes.size() * 2];
+            for (Integer keyCode : keyCodes) {
+                if (keyCode != null) {
+                    int hash = keyCode * 0x9E3779B9;
+                    keyBits[index++] = (hash >>> 16) & KEY_BLOOM_BITS_MASK;
+                    keyBits[index++] = hash & KEY_BLOOM_BITS_MASK;
+                }
+            }
+            if (index < keyBits.length) {
+                keyBits = Arrays.copyOf(keyBits, index);
+            }
+        }
+        int partBit = getPartitionBit(partitionId);
+        long readOffset = offset;
+        Map.Entry<Long, SegmentPages> entry = this.segPagesMap.floorEntry(readOffset);
+        SegmentPages pages = (entry == null) ? null : entry.getValue();
+        while (pages != null
+                && readOffset >= pages.coveredStart
+                && readOffset < pages.coveredEnd) {
+            readOffset = pages.getNextReadOffset(partBit, keyBits, readOffset);
+            if (readOffset < pages.coveredEnd) {
+                break;
+            }
+            // nothing to read in the rest of the segment, go on with the next segment
+            pages = this.segPagesMap.get(readOffset);
+        }
+        return readOffset;
+    }
+
+    private File getSummaryFile(long segStart) {
+        return new File(this.indexDir, DataStoreUtils.nameFromOffset(segStart,
+                DataStoreUtils.INDEX_SUMMARY_FILE_SUFFIX));
+    }
+
+    private SegmentPages readSummaryFile(File summaryFile) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(summaryFile)))) {
+            if (in.readInt() != SUMMARY_FILE_MAGIC
+                    || in.readInt() != SUMMARY_FILE_VERSION) {
+                return null;
+            }
+            SegmentPages pages = new SegmentPages(in.readLong());
+            pages.coveredStart = in.readLong();
+            pages.coveredEnd = in.readLong();
+            int pageCnt = in.readInt();
+            if (pages.coveredStart < pages.segStart
+                    || pages.coveredEnd <= pages.coveredStart
+                    || pageCnt != pages.getPageIndex(pages.coveredEnd - 1) + 1) {
+                return null;
+            }
+            pages.ensurePage(pageCnt - 1);
+            for (int i = 0; i < pageCnt * PAGE_WORDS; i++) {
+                pages.pageWords[i] = in.readLong();
+            }
+            return pages;
+        } catch (IOException e) {
+            logger.warn("[File Store] Load index summary " + summaryFile + " failure", e);
+            return null;
+        }
+    }
+
+    private static int getPartitionBit(int partitionId) {
+        return (partitionId & Integer.MAX_VALUE) % PART_BITMAP_BITS;
+    }
+
+    private static boolean isBitSet(long[] words, int wordBase, int bit) {
+        return (words[wordBase + (bit >>> 6)] & (1L << (bit & 63))) != 0;
+    }
+
+    private static void setBit(long[] words, int wordBase, int bit) {
+        words[wordBase + (bit >>> 6)] |= (1L << (bit & 63));
+    }
+
+    private static class SegmentPages {
+
+        private final long segStart;
+        // the covered index range of the segment
+        private long coveredStart;
+        private long coveredEnd;
+        private int pageCnt = 0;
+        private long[] pageWords = new long[INIT_PAGE_CNT * PAGE_WORDS];
+
+        SegmentPages(long segStart) {
+            this.segStart = segStart;
+            this.coveredStart = segStart;
+            this.coveredEnd = segStart;
+        }
+
+        void append(long startOffset, ByteBuffer indexBuffer, int indexSize) {
+            if (startOffset != this.coveredEnd) {
+                // the records before are unknown, restart the covered range
+                this.coveredStart = startOffset;
+                this.pageCnt = 0;
+                Arrays.fill(this.pageWords, 0L);
+                if ((startOffset - this.segStart) % PAGE_SIZE != 0) {
+                    int pageIdx = ensurePage(getPageIndex(startOffset));
+                    Arrays.fill(this.pageWords, pageIdx * PAGE_WORDS,
+                            (pageIdx + 1) * PAGE_WORDS, -1L);
+                }
+            }
+            for (int pos = 0; pos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= indexSize; pos +=
+                    DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+                int wordBase = ensurePage(getPageIndex(startOffset + pos)) * PAGE_WORDS;
+                setBit(this.pageWords, wordBase, getPartitionBit(
+                        indexBuffer.getInt(pos + DataStoreUtils.INDEX_POS_PARTITIONID)));
+                int hash = indexBuffer.getInt(pos + DataStoreUtils.INDEX_POS_KEY_CODE) * 0x9E3779B9;
+                setBit(this.pageWords, wordBase + PART_BITMAP_WORDS, (hash >>> 16) & KEY_BLOOM_BITS_MASK);
+                setBit(this.pageWords, wordBase + PART_BITMAP_WORDS, hash & KEY_BLOOM_BITS_MASK);
+            }
+            this.coveredEnd = startOffset + indexSize;
+        }
+
+        long getNextReadOffset(int partBit, int[] keyBits, long offset) {
+            int startPage = getPageIndex(offset);
+            for (int pageIdx = startPage; pageIdx < this.pageCnt; pageIdx++) {
+                if (isPageMatched(pageIdx, partBit, keyBits)) {
+                    return (pageIdx == startPage)
+                            ? offset
+                            : Math.min(this.coveredEnd, this.segStart + pageIdx * PAGE_SIZE);
+                }
+            }
+            return this.coveredEnd;
+        }
+
+        private boolean isPageMatched(int pageIdx, int partBit, int[] keyBits) {
+            int wordBase = pageIdx * PAGE_WORDS;
+            if (!isBitSet(this.pageWords, wordBase, partBit)) {
+                return false;
+            }
+            if (keyBits == null) {
+                return true;
+            }
+            for (int i = 0; i + 1 < keyBits.length; i += 2) {
+                if (isBitSet(this.pageWords, wordBase + PART_BITMAP_WORDS, keyBits[i])
+                        && isBitSet(this.pageWords, wordBase + PART_BITMAP_WORDS, keyBits[i + 1])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int getPageIndex(long offset) {
+            return (int) ((offset - this.segStart) / PAGE_SIZE);
+        }
+
+        private int ensurePage(int pageIdx) {
+            if (pageIdx >= this.pageCnt) {
+                int needSize = (pageIdx + 1) * PAGE_WORDS;
+                if (needSize > this.pageWords.length) {
+                    this.pageWords = Arrays.copyOf(this.pageWords,
+                            Math.max(needSize, this.pageWords.length << 1));
+                }
+                this.pageCnt = pageIdx + 1;
+            }
+            return pageIdx;
+        }
+    }
+}
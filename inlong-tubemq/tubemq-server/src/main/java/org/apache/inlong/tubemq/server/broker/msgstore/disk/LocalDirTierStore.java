@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The segment tier kept in a local directory, usually on a cheaper mount.
+ *
+ * The files are laid out as in the primary path, and read in place.
+ */
+public class LocalDirTierStore implements SegmentTierStore {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(LocalDirTierStore.class);
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+    private final File tierDir;
+
+    public LocalDirTierStore(String tierPath) {
+        this.tierDir = new File(tierPath);
+        FileUtil.checkDir(this.tierDir);
+    }
+
+    @Override
+    public void put(String storeKey, SegmentType segType, File segFile) throws IOException {
+        File segDir = getSegmentDir(storeKey, segType);
+        FileUtil.checkDir(segDir);
+        File targetFile = new File(segDir, segFile.getName());
+        File tmpFile = new File(segDir, segFile.getName() + TMP_FILE_SUFFIX);
+        Files.copy(segFile.toPath(), tmpFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        try (FileChannel channel =
+                FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmpFile.toPath(), targetFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public File fetch(String storeKey, SegmentType segType, String fileName) throws IOException {
+        File segFile = new File(getSegmentDir(storeKey, segType), fileName);
+        if (!segFile.isFile()) {
+            throw new FileNotFoundException(new StringBuilder(512)
+                    .append("[Tier Store] Not found segment file ")
+                    .append(segFile.getAbsolutePath()).toString());
+        }
+        return segFile;
+    }
+
+    @Override
+    public void release(String storeKey, SegmentType segType, File fetchedFile) {
+        // read in place, nothing to release
+    }
+
+    @Override
+    public void delete(String storeKey, SegmentType segType, String fileName) {
+        File segFile = new File(getSegmentDir(storeKey, segType), fileName);
+        if (segFile.exists() && !segFile.delete()) {
+            logger.warn("[Tier Store] Delete segment file {} failure", segFile);
+        }
+    }
+
+    @Override
+    public void deleteStore(String storeKey) {
+        File storeDir = new File(this.tierDir, storeKey);
+        if (!storeDir.exists()) {
+            return;
+        }
+        try {
+            FileUtil.fullyDelete(storeDir);
+        } catch (Throwable e) {
+            logger.error("[Tier Store] Delete store directory " + storeDir + " failure", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+
+    private File getSegmentDir(String storeKey, SegmentType segType) {
+        File storeDir = new File(this.tierDir, storeKey);
+        return segType == SegmentType.INDEX ? new File(storeDir, "index") : storeDir;
+    }
+}
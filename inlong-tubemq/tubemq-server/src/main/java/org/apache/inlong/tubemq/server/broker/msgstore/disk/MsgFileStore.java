@@ -23,14 +23,16 @@ import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.StoreDirManager;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
-import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficCounts;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.broker.utils.DiskSamplePrint;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.utils.FileUtil;
 
+import io.netty.util.ReferenceCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,11 +40,17 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -55,6 +63,8 @@ public class MsgFileStore implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(MsgFileStore.class);
     private static final int MAX_META_REFRESH_DUR = 1000 * 60 * 60;
+    // the delay to delete the file of a replaced segment, for the reads in progress
+    private static final long REPLACED_DELETE_DELAY_MS = 120000L;
     private static final DiskSamplePrint samplePrintCtrl =
             new DiskSamplePrint(logger);
     // storage ID
@@ -71,6 +81,8 @@ public class MsgFileStore implements Closeable {
     private final AtomicLong lastFlushTime = new AtomicLong(System.currentTimeMillis());
     // time of meta's last flush operation
     private final AtomicLong lastMetaFlushTime = new AtomicLong(0);
+    // whether a disk flush is requested and not started yet
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
     private final BrokerConfig tubeConfig;
     // file store stats holder
     private final MsgStoreStatsHolder msgStoreStatsHolder;
@@ -84,6 +96,15 @@ public class MsgFileStore implements Closeable {
     private SegmentList dataSegments;
     // index file segment list
     private SegmentList indexSegments;
+    // partition and key summary of the index pages, used to skip the unrelated pages
+    private final IndexPageSummary indexPageSummary;
+    // sampled receive times of the index records, used to look up the offsets by timestamp
+    private final SparseTimeIndex timeIndex = new SparseTimeIndex();
+    // the segment tier manager, null if the tiered storage is disabled
+    private final SegmentTierManager tierManager;
+    // the segments replaced by the tiered or moved segments -> the replaced time
+    private final ConcurrentHashMap<Segment, Long> replacedSegments =
+            new ConcurrentHashMap<>();
     // close status
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -104,6 +125,7 @@ public class MsgFileStore implements Closeable {
         this.messageStore = messageStore;
         this.msgStoreStatsHolder = messageStore.getMsgStoreStatsHolder();
         this.storeKey = messageStore.getStoreKey();
+        this.tierManager = messageStore.getTierManager();
         this.dataDir = new File(sBuilder.append(baseStorePath)
                 .append(File.separator).append(this.storeKey).toString());
         sBuilder.delete(0, sBuilder.length());
@@ -113,15 +135,20 @@ public class MsgFileStore implements Closeable {
         sBuilder.delete(0, sBuilder.length());
         FileUtil.checkDir(this.dataDir);
         FileUtil.checkDir(this.indexDir);
+        this.indexPageSummary = new IndexPageSummary(this.indexDir);
         loadSegments(SegmentType.DATA, offsetIfCreate, sBuilder);
         loadSegments(SegmentType.INDEX, offsetIfCreate, sBuilder);
+        this.indexPageSummary.load(this.indexSegments.getView());
+        this.timeIndex.load(this.indexSegments.getView());
         this.lastFlushTime.set(System.currentTimeMillis());
     }
 
     /**
      * Append message to file segment
      *
-     * @param fromMem        whether data from memory directly
+     * @param fromMem        whether data from memory directly, if not, the offsets
+     *                       of the records are filled in here, so a batch of records
+     *                       laid out in order can be appended in one call
      * @param currTime       the current time
      * @param sb             string buffer
      * @param msgCnt         the record count to append
@@ -131,7 +158,7 @@ public class MsgFileStore implements Closeable {
      * @param dataBuffer     the data buffer to append
      * @param leftTime       the first record timestamp
      * @param rightTime      the latest record timestamp
-     * @return      file storage status, the index and data offsets of the added message
+     * @return      file storage status, the index and data offsets of the first added record
      */
     public Tuple3<Boolean, Long, Long> appendMsg(boolean fromMem, long currTime,
             StringBuilder sb, int msgCnt,
@@ -151,6 +178,7 @@ public class MsgFileStore implements Closeable {
         boolean pendingMsgSizeExceed = false;
         boolean pendingMsgTimeExceed = false;
         boolean isForceMetadata = false;
+        boolean isFlushRequired = false;
         // flushed message count and data size info
         long flushedMsgCnt = 0;
         long flushedDataSize = 0;
@@ -161,6 +189,7 @@ public class MsgFileStore implements Closeable {
         long inDataOffset;
         Segment curIndexSeg;
         long indexOffset = -1;
+        long rolledIndexSegStart = -1;
         // new file paths of creating
         String newDataFilePath = null;
         String newIndexFilePath = null;
@@ -177,8 +206,16 @@ public class MsgFileStore implements Closeable {
             } else {
                 inIndexOffset = curIndexSeg.getLast();
                 inDataOffset = curDataSeg.getLast();
-                indexBuffer.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, inDataOffset);
-                dataBuffer.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, inIndexOffset);
+                int indexPos = 0;
+                int dataPos = 0;
+                for (int i = 0; i < msgCnt; i++) {
+                    indexBuffer.putLong(indexPos + DataStoreUtils.INDEX_POS_DATAOFFSET,
+                            inDataOffset + dataPos);
+                    dataBuffer.putLong(dataPos + DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF,
+                            inIndexOffset + indexPos);
+                    dataPos += indexBuffer.getInt(indexPos + DataStoreUtils.INDEX_POS_MSG_SIZE);
+                    indexPos += DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                }
             }
             // filling data segment.
             this.curUnflushSize.addAndGet(dataSize);
@@ -196,9 +233,14 @@ public class MsgFileStore implements Closeable {
             }
             // filling index data.
             indexOffset = curIndexSeg.append(indexBuffer, leftTime, rightTime);
+            this.indexPageSummary.append(curIndexSeg.getStart(),
+                    indexOffset, indexBuffer, indexSize);
+            this.timeIndex.append(curIndexSeg.getStart(),
+                    indexOffset, indexBuffer, indexSize);
             // judge whether we need to create a new index segment.
             if (curIndexSeg.getCachedSize() >= this.tubeConfig.getMaxIndexSegmentSize()) {
                 isIndexSegFlushed = true;
+                rolledIndexSegStart = curIndexSeg.getStart();
                 long newIndexOffset = curIndexSeg.flush(true);
                 curIndexSeg.setMutable(false);
                 File newIndexFile =
@@ -215,21 +257,28 @@ public class MsgFileStore implements Closeable {
                     (this.curUnflushed.addAndGet(msgCnt) >= messageStore.getUnflushThreshold());
             pendingMsgTimeExceed =
                     (currTime - this.lastFlushTime.get() >= messageStore.getUnflushInterval());
-            if (pendingMsgCntExceed || pendingMsgTimeExceed
-                    || pendingMsgSizeExceed || isDataSegFlushed || isIndexSegFlushed) {
-                isForceMetadata = (isDataSegFlushed || isIndexSegFlushed
-                        || (currTime - this.lastMetaFlushTime.get() > MAX_META_REFRESH_DUR));
+            if (isDataSegFlushed || isIndexSegFlushed) {
+                // the rolled segment is synced already, sync the other one in place
+                isForceMetadata = true;
                 if (!isDataSegFlushed) {
-                    curDataSeg.flush(isForceMetadata);
+                    curDataSeg.flush(true);
                 }
                 if (!isIndexSegFlushed) {
-                    curIndexSeg.flush(isForceMetadata);
+                    curIndexSeg.flush(true);
                 }
                 flushedMsgCnt = this.curUnflushed.getAndSet(0);
                 flushedDataSize = this.curUnflushSize.getAndSet(0);
                 this.lastFlushTime.set(currTime);
-                if (isForceMetadata) {
-                    this.lastMetaFlushTime.set(this.lastFlushTime.get());
+                this.lastMetaFlushTime.set(currTime);
+            } else if (pendingMsgCntExceed || pendingMsgTimeExceed || pendingMsgSizeExceed) {
+                // hand the disk sync over to the flush scheduler, the appends are
+                // not blocked by it, and the requests before it runs are coalesced
+                if (this.flushRequested.compareAndSet(false, true)) {
+                    isFlushRequired = true;
+                } else {
+                    pendingMsgCntExceed = false;
+                    pendingMsgTimeExceed = false;
+                    pendingMsgSizeExceed = false;
                 }
             }
             // print abnormal information
@@ -256,6 +305,14 @@ public class MsgFileStore implements Closeable {
             samplePrintCtrl.printExceptionCaught(e);
         } finally {
             this.writeLock.unlock();
+            if (isFlushRequired) {
+                try {
+                    messageStore.requestFlushFile();
+                } catch (Throwable e) {
+                    this.flushRequested.set(false);
+                    samplePrintCtrl.printExceptionCaught(e);
+                }
+            }
             // add statistics.
             if (fileStoreOK) {
                 msgStoreStatsHolder.addFileFlushStatsInfo(msgCnt, indexSize, dataSize,
@@ -268,6 +325,7 @@ public class MsgFileStore implements Closeable {
                     sb.delete(0, sb.length());
                 }
                 if (isIndexSegFlushed) {
+                    this.indexPageSummary.store(rolledIndexSegStart);
                     logger.info(sb.append("[File Store] Created index segment ")
                             .append(newIndexFilePath).toString());
                     sb.delete(0, sb.length());
@@ -286,7 +344,6 @@ public class MsgFileStore implements Closeable {
      * @param indexBuffer           the index read buffer
      * @param isFilterConsume       whether to filter consumption
      * @param filterKeySet          filter item set
-     * @param statsKeyBase         the statistical key prefix
      * @param maxMsgTransferSize    the max read message size
      * @param reqRcvTime            the timestamp of the record to be checked
      *
@@ -296,9 +353,39 @@ public class MsgFileStore implements Closeable {
             long reqOffset, ByteBuffer indexBuffer,
             boolean isFilterConsume,
             Set<Integer> filterKeySet,
-            String statsKeyBase,
             int maxMsgTransferSize,
             long reqRcvTime) {
+        return getMessages(partitionId, lastRdOffset, reqOffset, indexBuffer,
+                isFilterConsume, filterKeySet, maxMsgTransferSize,
+                reqRcvTime, false);
+    }
+
+    /**
+     * Get message from index and data files.
+     *
+     * In raw data fetch mode, the data file is not read: the adjacent records
+     * of the same data segment are merged into file regions, and sent to
+     * the client as they are stored.
+     *
+     * @param partitionId           the partitionId for reading messages
+     * @param lastRdOffset          the recent data offset read before
+     * @param reqOffset             the request index offset
+     * @param indexBuffer           the index read buffer
+     * @param isFilterConsume       whether to filter consumption
+     * @param filterKeySet          filter item set
+     * @param maxMsgTransferSize    the max read message size
+     * @param reqRcvTime            the timestamp of the record to be checked
+     * @param rawDataFetch          whether to return the stored records as file regions
+     *
+     * @return                      read result
+     */
+    public GetMessageResult getMessages(int partitionId, long lastRdOffset,
+            long reqOffset, ByteBuffer indexBuffer,
+            boolean isFilterConsume,
+            Set<Integer> filterKeySet,
+            int maxMsgTransferSize,
+            long reqRcvTime,
+            boolean rawDataFetch) {
         // #lizard forgives
         // Orderly read from index file, then random read from data file.
         int retCode = 0;
@@ -316,14 +403,18 @@ public class MsgFileStore implements Closeable {
         long recvTimeInMillsec = 0L;
         long maxDataLimitOffset = 0L;
         long lastRdDataOffset = 0L;
-        final StringBuilder sBuilder = new StringBuilder(512);
         final long curDataMaxOffset = getDataMaxOffset();
         final long curDataMinOffset = getDataMinOffset();
-        HashMap<String, TrafficInfo> countMap = new HashMap<>();
+        TrafficCounts trafficCounts = new TrafficCounts();
         ByteBuffer dataBuffer =
                 ByteBuffer.allocate(TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT);
         List<ClientBroker.TransferedMessage> transferedMessageList =
                 new ArrayList<>();
+        // the pending region in raw data fetch mode
+        Segment regionSeg = null;
+        long regionStart = 0L;
+        long regionEnd = 0L;
+        List<ReferenceCounted> rawDataRegions = new ArrayList<>();
         // read data file by index.
         for (curIndexOffset = 0; curIndexOffset < indexBuffer.remaining(); curIndexOffset +=
                 DataStoreUtils.STORE_INDEX_HEAD_LEN) {
@@ -375,6 +466,29 @@ public class MsgFileStore implements Closeable {
                         throw new Exception("Read Service has closed!");
                     }
                 }
+                if (rawDataFetch) {
+                    if (regionSeg == recordSeg && regionEnd == curIndexDataOffset) {
+                        regionEnd = maxDataLimitOffset;
+                    } else {
+                        if (regionSeg != null) {
+                            if (rawDataRegions.size() >= DataStoreUtils.MAX_RAW_TRANSFER_REGION_CNT - 1) {
+                                break;
+                            }
+                            rawDataRegions.add(regionSeg.getFileRegion(regionStart, regionEnd - regionStart));
+                        }
+                        regionSeg = recordSeg;
+                        regionStart = curIndexDataOffset;
+                        regionEnd = maxDataLimitOffset;
+                    }
+                    readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                    lastRdDataOffset = maxDataLimitOffset;
+                    DataStoreUtils.addRawTransferStats(trafficCounts, curIndexDataSize);
+                    totalSize += curIndexDataSize;
+                    if (totalSize >= maxMsgTransferSize) {
+                        break;
+                    }
+                    continue;
+                }
                 if (dataBuffer.capacity() < curIndexDataSize) {
                     dataBuffer = ByteBuffer.allocate(curIndexDataSize);
                 }
@@ -396,10 +510,8 @@ public class MsgFileStore implements Closeable {
                 samplePrintCtrl.printExceptionCaught(e2,
                         messageStore.getStoreKey(), String.valueOf(partitionId));
                 retCode = TErrCodeConstants.INTERNAL_SERVER_ERROR;
-                sBuilder.delete(0, sBuilder.length());
-                errInfo = sBuilder.append("Get message from file failure : ")
+                errInfo = new StringBuilder(512).append("Get message from file failure : ")
                         .append(e2.getCause()).toString();
-                sBuilder.delete(0, sBuilder.length());
                 result = false;
                 break;
             }
@@ -408,7 +520,7 @@ public class MsgFileStore implements Closeable {
             lastRdDataOffset = maxDataLimitOffset;
             ClientBroker.TransferedMessage transferedMessage =
                     DataStoreUtils.getTransferMsg(dataBuffer,
-                            curIndexDataSize, countMap, statsKeyBase, sBuilder);
+                            curIndexDataSize, trafficCounts);
             if (transferedMessage == null) {
                 continue;
             }
@@ -419,6 +531,22 @@ public class MsgFileStore implements Closeable {
                 break;
             }
         }
+        // close the pending region
+        if (regionSeg != null) {
+            try {
+                rawDataRegions.add(regionSeg.getFileRegion(regionStart, regionEnd - regionStart));
+            } catch (Throwable e3) {
+                if (e3 instanceof IOException) {
+                    ServiceStatusHolder.addReadIOErrCnt();
+                    BrokerSrvStatsHolder.incDiskIOExcCnt();
+                }
+                samplePrintCtrl.printExceptionCaught(e3,
+                        messageStore.getStoreKey(), String.valueOf(partitionId));
+                retCode = TErrCodeConstants.INTERNAL_SERVER_ERROR;
+                errInfo = "Get message region from file failure!";
+                result = false;
+            }
+        }
         // release resource
         if (recordSeg != null) {
             recordSeg.relViewRef();
@@ -433,9 +561,11 @@ public class MsgFileStore implements Closeable {
             lastRdDataOffset = lastRdOffset;
         }
         // return result.
-        return new GetMessageResult(result, retCode, errInfo,
+        GetMessageResult getResult = new GetMessageResult(result, retCode, errInfo,
                 reqOffset, readedOffset, lastRdDataOffset,
-                totalSize, countMap, transferedMessageList);
+                totalSize, trafficCounts, transferedMessageList);
+        getResult.setRawDataRegions(rawDataRegions);
+        return getResult;
     }
 
     /**
@@ -450,6 +580,15 @@ public class MsgFileStore implements Closeable {
         if (recordSeg == null || this.closed.get()) {
             return -1;
         }
+        try {
+            long offset = this.timeIndex.getOffsetByTimeStamp(recordSeg, timestamp, getDataMinOffset());
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (Throwable ex) {
+            samplePrintCtrl.printExceptionCaught(ex);
+        }
+        // search the segment record by record, if not sampled yet
         long endPos = (recordSeg.getCommitLast() - recordSeg.getStart())
                 / DataStoreUtils.STORE_INDEX_HEAD_LEN - 1;
         final long curDataMinOffset = getDataMinOffset();
@@ -502,14 +641,194 @@ public class MsgFileStore implements Closeable {
         if (this.closed.compareAndSet(false, true)) {
             this.writeLock.lock();
             try {
+                this.indexPageSummary.store(this.indexSegments.last().getStart());
                 this.indexSegments.close();
                 this.dataSegments.close();
+                this.timeIndex.clear();
+                for (Segment segment : this.replacedSegments.keySet()) {
+                    segment.deleteFile();
+                }
+                this.replacedSegments.clear();
             } finally {
                 this.writeLock.unlock();
             }
         }
     }
 
+    /**
+     * Move the sealed segments not written for the hot retain time to the segment tier,
+     * and close the tiered segment files not read for the idle time.
+     *
+     * The file of a replaced segment is deleted after a delay, as the reads
+     * in progress may still refer to it.
+     */
+    public void runTierPolicy() {
+        if (this.closed.get()) {
+            return;
+        }
+        final long checkTime = System.currentTimeMillis();
+        for (Map.Entry<Segment, Long> entry : this.replacedSegments.entrySet()) {
+            if (checkTime - entry.getValue() >= REPLACED_DELETE_DELAY_MS) {
+                this.replacedSegments.remove(entry.getKey());
+                entry.getKey().deleteFile();
+            }
+        }
+        if (this.tierManager == null) {
+            return;
+        }
+        final StringBuilder sBuilder = new StringBuilder(512);
+        moveSegmentsToTier(this.dataSegments, SegmentType.DATA, checkTime, sBuilder);
+        moveSegmentsToTier(this.indexSegments, SegmentType.INDEX, checkTime, sBuilder);
+        closeIdleTieredSegments(this.dataSegments, checkTime);
+        closeIdleTieredSegments(this.indexSegments, checkTime);
+    }
+
+    private void moveSegmentsToTier(SegmentList segList, SegmentType segType,
+            long checkTime, StringBuilder sBuilder) {
+        for (Segment segment : segList.getView()) {
+            if (segment == null || segment instanceof TieredSegment) {
+                continue;
+            }
+            // only the sealed segments at the head of the list are moved
+            if (this.closed.get()
+                    || segment.isMutable()
+                    || segment.isExpired()
+                    || segment.isClosed()
+                    || checkTime - segment.getFile().lastModified() < tierManager.getHotRetainMs()) {
+                return;
+            }
+            try {
+                tierManager.getTierStore().put(this.storeKey, segType, segment.getFile());
+                TieredSegment tieredSeg =
+                        TieredSegment.create(tierManager, this.storeKey, segment, segType);
+                tieredSeg.setSegmentList(segList);
+                if (segList.replace(segment, tieredSeg)) {
+                    this.replacedSegments.put(segment, checkTime);
+                    logger.info(sBuilder.append("[File Store] Moved ").append(segType)
+                            .append(" segment ").append(segment.getFile().getAbsolutePath())
+                            .append(" to the segment tier").toString());
+                    sBuilder.delete(0, sBuilder.length());
+                } else {
+                    // removed by the expire policy
+                    tieredSeg.deleteFile();
+                }
+            } catch (Throwable e) {
+                if (e instanceof IOException) {
+                    ServiceStatusHolder.addWriteIOErrCnt();
+                    BrokerSrvStatsHolder.incDiskIOExcCnt();
+                }
+                logger.error(sBuilder.append("[File Store] Move ").append(segType)
+                        .append(" segment ").append(segment.getFile().getAbsolutePath())
+                        .append(" to the segment tier failure").toString(), e);
+                sBuilder.delete(0, sBuilder.length());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Move the sealed segments in the data path to another data path.
+     *
+     * The segments moved out of the store's home path are kept in the hidden segment
+     * directory of the target path, the moved segments are copied back to the store
+     * directory if the target is the home path.
+     *
+     * @param fromPath   the data path to move the segments from
+     * @param toPath     the data path to move the segments to
+     * @param maxBytes   the maximum bytes to move
+     * @return           the moved bytes
+     */
+    public long moveSealedSegments(String fromPath, String toPath, long maxBytes) {
+        if (this.closed.get()) {
+            return 0L;
+        }
+        final StringBuilder sBuilder = new StringBuilder(512);
+        final long checkTime = System.currentTimeMillis();
+        long movedBytes = moveSealedSegments(this.dataSegments,
+                SegmentType.DATA, fromPath, toPath, maxBytes, checkTime, sBuilder);
+        movedBytes += moveSealedSegments(this.indexSegments,
+                SegmentType.INDEX, fromPath, toPath, maxBytes - movedBytes, checkTime, sBuilder);
+        return movedBytes;
+    }
+
+    private long moveSealedSegments(SegmentList segList, SegmentType segType,
+            String fromPath, String toPath, long maxBytes,
+            long checkTime, StringBuilder sBuilder) {
+        long movedBytes = 0L;
+        final String fromPrefix = new File(fromPath).getAbsolutePath() + File.separator;
+        File targetDir = null;
+        for (Segment segment : segList.getView()) {
+            if (movedBytes >= maxBytes || this.closed.get()) {
+                break;
+            }
+            if (segment == null
+                    || segment instanceof TieredSegment
+                    || segment.isMutable()
+                    || segment.isExpired()
+                    || segment.isClosed()
+                    || !segment.getFile().getAbsolutePath().startsWith(fromPrefix)) {
+                continue;
+            }
+            if (targetDir == null) {
+                if (new File(toPath).getAbsolutePath().equals(
+                        new File(this.messageStore.getPrimStorePath()).getAbsolutePath())) {
+                    targetDir = segType == SegmentType.INDEX ? this.indexDir : this.dataDir;
+                } else {
+                    targetDir = StoreDirManager.getMovedSegmentDir(toPath, this.storeKey, segType);
+                }
+                FileUtil.checkDir(targetDir);
+            }
+            File targetFile = new File(targetDir, segment.getFile().getName());
+            File tmpFile = new File(targetDir, segment.getFile().getName() + ".tmp");
+            try {
+                Files.copy(segment.getFile().toPath(), tmpFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                try (FileChannel channel =
+                        FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                Files.move(tmpFile.toPath(), targetFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                FileSegment movedSeg =
+                        new FileSegment(segment.getStart(), targetFile, false, segType);
+                if (segList.replace(segment, movedSeg)) {
+                    this.replacedSegments.put(segment, checkTime);
+                    movedBytes += segment.getCachedSize();
+                    logger.info(sBuilder.append("[File Store] Moved ").append(segType)
+                            .append(" segment ").append(segment.getFile().getAbsolutePath())
+                            .append(" to ").append(targetFile.getAbsolutePath()).toString());
+                    sBuilder.delete(0, sBuilder.length());
+                } else {
+                    // removed by the expire policy
+                    movedSeg.deleteFile();
+                }
+            } catch (Throwable e) {
+                if (e instanceof IOException) {
+                    ServiceStatusHolder.addWriteIOErrCnt();
+                    BrokerSrvStatsHolder.incDiskIOExcCnt();
+                }
+                if (tmpFile.exists() && !tmpFile.delete()) {
+                    logger.warn("[File Store] Remove temporary file {} failure", tmpFile);
+                }
+                logger.error(sBuilder.append("[File Store] Move ").append(segType)
+                        .append(" segment ").append(segment.getFile().getAbsolutePath())
+                        .append(" to ").append(targetDir.getAbsolutePath())
+                        .append(" failure").toString(), e);
+                sBuilder.delete(0, sBuilder.length());
+                break;
+            }
+        }
+        return movedBytes;
+    }
+
+    private void closeIdleTieredSegments(SegmentList segList, long checkTime) {
+        for (Segment segment : segList.getView()) {
+            if (segment instanceof TieredSegment) {
+                ((TieredSegment) segment).closeIfIdle(checkTime, tierManager.getIdleCloseMs());
+            }
+        }
+    }
+
     /**
      * Clean expired data files and index files.
      *
@@ -531,31 +850,42 @@ public class MsgFileStore implements Closeable {
         }
         if (hasExpiredIndexSegs) {
             indexSegments.delExpiredSegments(sBuilder);
+            indexPageSummary.trim(getIndexMinOffset());
+            timeIndex.trim(getIndexMinOffset());
         }
         return (hasExpiredDataSegs || hasExpiredIndexSegs);
     }
 
     /**
-     * Flush data to disk at interval.
+     * Flush data to disk at interval, or as requested.
+     *
+     * The counters are taken under the write lock, while the disk sync is
+     * done out of it, so the appends are not blocked by a slow disk.
      *
+     * @param forced   whether to flush without checking the flush interval
+     * @return         whether the data was synced to disk
      * @throws IOException the exception during processing
      */
-    public void flushDiskFile() throws IOException {
+    public boolean flushDiskFile(boolean forced) throws IOException {
+        boolean isSynced = false;
         long checkTimestamp = System.currentTimeMillis();
         if ((curUnflushed.get() > 0)
-                && (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
+                && (forced || checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
             long flushedMsgCnt = 0L;
             long flushedDataSize = 0L;
             boolean forceMetadata = false;
+            Segment dataSeg = null;
+            Segment indexSeg = null;
             this.writeLock.lock();
             try {
+                this.flushRequested.set(false);
                 checkTimestamp = System.currentTimeMillis();
-                if ((curUnflushed.get() >= 0)
-                        && (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
+                if ((curUnflushed.get() > 0)
+                        && (forced || checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
                     forceMetadata =
                             (checkTimestamp - lastMetaFlushTime.get()) > MAX_META_REFRESH_DUR;
-                    dataSegments.flushLast(forceMetadata);
-                    indexSegments.flushLast(forceMetadata);
+                    dataSeg = dataSegments.last();
+                    indexSeg = indexSegments.last();
                     if (forceMetadata) {
                         this.lastMetaFlushTime.set(checkTimestamp);
                     }
@@ -565,11 +895,29 @@ public class MsgFileStore implements Closeable {
                 }
             } finally {
                 this.writeLock.unlock();
-                msgStoreStatsHolder.addFileTimeoutFlushStats(flushedMsgCnt,
-                        flushedDataSize, forceMetadata);
             }
+            if (dataSeg != null && indexSeg != null) {
+                try {
+                    dataSeg.flush(forceMetadata);
+                    indexSeg.flush(forceMetadata);
+                    isSynced = true;
+                } catch (IOException e) {
+                    // count the data as unflushed again, it is retried in the next flush
+                    curUnflushed.addAndGet((int) flushedMsgCnt);
+                    curUnflushSize.addAndGet(flushedDataSize);
+                    flushedMsgCnt = 0L;
+                    flushedDataSize = 0L;
+                    throw e;
+                } finally {
+                    msgStoreStatsHolder.addFileTimeoutFlushStats(flushedMsgCnt,
+                            flushedDataSize, forceMetadata);
+                }
+            }
+        } else if (forced) {
+            this.flushRequested.set(false);
         }
         msgStoreStatsHolder.chkStatsExpired(checkTimestamp);
+        return isSynced;
     }
 
     public long getDataSizeInBytes() {
@@ -608,6 +956,19 @@ public class MsgFileStore implements Closeable {
         return this.indexSegments.getMinOffset();
     }
 
+    /**
+     * Get the first index offset that may contain the message to read,
+     * the index pages without the partition or the filter items are skipped.
+     *
+     * @param partitionId   the partition to read
+     * @param keyCodes      the filter item key codes, null if not filter consume
+     * @param offset        the request index offset
+     * @return              the offset to read from
+     */
+    public long getNextReadOffset(int partitionId, Set<Integer> keyCodes, long offset) {
+        return this.indexPageSummary.getNextReadOffset(partitionId, keyCodes, offset);
+    }
+
     public Segment indexSlice(final long offset, final int maxSize) throws IOException {
         return indexSegments.getRecordSeg(offset);
     }
@@ -627,25 +988,67 @@ public class MsgFileStore implements Closeable {
                 .append(segListDir.getAbsolutePath()).toString());
         sBuilder.delete(0, sBuilder.length());
         final List<Segment> accum = new ArrayList<>();
-        final File[] ls = segListDir.listFiles();
-        if (ls != null) {
+        final List<File> stubFiles = new ArrayList<>();
+        // the segment files found in the home directory and in the moved segment directories
+        final Map<String, File> segFiles = new HashMap<>();
+        final List<File> segListDirs = new ArrayList<>();
+        segListDirs.add(segListDir);
+        StoreDirManager storeDirManager = messageStore.getStoreDirManager();
+        if (storeDirManager != null) {
+            segListDirs.addAll(storeDirManager.getMovedSegmentDirs(this.storeKey, segType));
+        }
+        for (File curDir : segListDirs) {
+            final File[] ls = curDir.listFiles();
+            if (ls == null) {
+                continue;
+            }
             for (final File file : ls) {
                 if (file == null) {
                     continue;
                 }
-                if (file.isFile() && file.toString().endsWith(fileSuffix)) {
+                if (curDir == segListDir && file.isFile()
+                        && file.toString().endsWith(fileSuffix + DataStoreUtils.TIERED_FILE_SUFFIX)) {
+                    stubFiles.add(file);
+                } else if (file.isFile() && file.toString().endsWith(fileSuffix)) {
                     if (!file.canRead()) {
                         throw new IOException(new StringBuilder(512)
                                 .append("Could not read ").append(segTypeStr)
                                 .append(" file ").append(file).toString());
                     }
-                    final String filename = file.getName();
-                    final long start =
-                            Long.parseLong(filename.substring(0, filename.length() - fileSuffix.length()));
-                    accum.add(new FileSegment(start, file, false, segType));
+                    if (segFiles.containsKey(file.getName())) {
+                        // the source file left by an interrupted move, keep the first found one
+                        logger.warn("[File Store] Remove duplicated segment file {}", file);
+                        if (!file.delete()) {
+                            logger.warn("[File Store] Remove segment file {} failure", file);
+                        }
+                        continue;
+                    }
+                    segFiles.put(file.getName(), file);
                 }
             }
         }
+        for (File file : segFiles.values()) {
+            final String filename = file.getName();
+            final long start =
+                    Long.parseLong(filename.substring(0, filename.length() - fileSuffix.length()));
+            accum.add(new FileSegment(start, file, false, segType));
+        }
+        for (File stubFile : stubFiles) {
+            if (segFiles.containsKey(TieredSegment.getSegmentFileName(stubFile.getName()))) {
+                // the local file is not deleted after moved, keep using it
+                if (!stubFile.delete()) {
+                    logger.warn("[File Store] Remove stub file {} failure", stubFile);
+                }
+                continue;
+            }
+            if (this.tierManager == null) {
+                throw new IOException(new StringBuilder(512)
+                        .append("Found tiered ").append(segTypeStr).append(" segment ")
+                        .append(stubFile).append(", but the segment tier is not configured")
+                        .toString());
+            }
+            accum.add(TieredSegment.load(this.tierManager, this.storeKey, segType, stubFile));
+        }
         if (accum.size() == 0) {
             final File newFile =
                     new File(segListDir,
@@ -665,9 +1068,11 @@ public class MsgFileStore implements Closeable {
             });
             validateSegments(segTypeStr, accum);
             Segment last = accum.get(accum.size() - 1);
-            if ((last.getCachedSize() > 0)
-                    && (System.currentTimeMillis()
-                            - last.getFile().lastModified() >= DataStoreUtils.MAX_FILE_NO_WRITE_DURATION)) {
+            if ((last instanceof TieredSegment)
+                    || !segListDir.equals(last.getFile().getParentFile())
+                    || (last.getCachedSize() > 0)
+                            && (System.currentTimeMillis()
+                                    - last.getFile().lastModified() >= DataStoreUtils.MAX_FILE_NO_WRITE_DURATION)) {
                 // If the last segment is not written for a long time, it will be aged at startup
                 final long newOffset = last.getCommitLast();
                 final File newFile =
@@ -690,10 +1095,16 @@ public class MsgFileStore implements Closeable {
                 accum.add(mutable);
             }
         }
+        SegmentList segList = new FileSegmentList(accum.toArray(new Segment[accum.size()]));
+        for (Segment segment : accum) {
+            if (segment instanceof TieredSegment) {
+                ((TieredSegment) segment).setSegmentList(segList);
+            }
+        }
         if (segType == SegmentType.DATA) {
-            this.dataSegments = new FileSegmentList(accum.toArray(new Segment[accum.size()]));
+            this.dataSegments = segList;
         } else {
-            this.indexSegments = new FileSegmentList(accum.toArray(new Segment[accum.size()]));
+            this.indexSegments = segList;
         }
         logger.info(sBuilder.append("[File Store] Loaded ")
                 .append(segTypeStr).append(" ").append(accum.size()).append(" segments from ")
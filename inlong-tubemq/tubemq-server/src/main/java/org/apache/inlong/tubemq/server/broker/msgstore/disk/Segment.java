@@ -17,6 +17,8 @@
 
 package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 
+import io.netty.channel.FileRegion;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -70,6 +72,14 @@ public interface Segment {
 
     void setMutable(boolean mutable);
 
+    /**
+     * Add a view reference, the segment file is kept open until the
+     * reference is released by relViewRef().
+     *
+     * @throws IOException  the segment is closed
+     */
+    void addViewRef() throws IOException;
+
     void relViewRef();
 
     /**
@@ -88,6 +98,16 @@ public interface Segment {
      */
     void relRead(ByteBuffer bf, long relOffset) throws IOException;
 
+    /**
+     * Get a region view of data from absolute position, the data
+     * can be sent to socket without copying into user space.
+     *
+     * @param absOffset   absolute read position
+     * @param count       the region length
+     * @return            the file region
+     */
+    FileRegion getFileRegion(long absOffset, long count) throws IOException;
+
     long getLeftAppendTime();
 
     long getRightAppendTime();
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A read-only view of a segment file range, transferred to socket by FileChannel.transferTo().
+ *
+ * Unlike the DefaultFileRegion of netty, the file channel is owned by the FileSegment,
+ * the region holds a view reference of the segment to keep the channel open while
+ * being sent, and releases the reference instead of closing the channel.
+ */
+public class SegmentFileRegion extends AbstractReferenceCounted implements FileRegion {
+
+    private final Segment owner;
+    private final FileChannel channel;
+    private final long position;
+    private final long count;
+    private long transferred;
+
+    public SegmentFileRegion(Segment owner, FileChannel channel, long position, long count) {
+        this.owner = owner;
+        this.channel = channel;
+        this.position = position;
+        this.count = count;
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Deprecated
+    @Override
+    public long transfered() {
+        return transferred;
+    }
+
+    @Override
+    public long transferred() {
+        return transferred;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long pos) throws IOException {
+        long remaining = count - pos;
+        if (remaining < 0 || pos < 0) {
+            throw new IllegalArgumentException(new StringBuilder(256)
+                    .append("position out of range: ").append(pos)
+                    .append(" (expected: 0 - ").append(count - 1).append(')').toString());
+        }
+        if (remaining == 0) {
+            return 0L;
+        }
+        long written = channel.transferTo(position + pos, remaining, target);
+        if (written > 0) {
+            transferred += written;
+        } else if (written == 0) {
+            // the file was truncated while transferring
+            if (channel.size() < position + count) {
+                throw new IOException(new StringBuilder(256)
+                        .append("Underlying file size ").append(channel.size())
+                        .append(" smaller than requested count ").append(position + count)
+                        .toString());
+            }
+        }
+        return written;
+    }
+
+    @Override
+    protected void deallocate() {
+        // the channel is closed by the owner segment after the last view reference
+        owner.relViewRef();
+    }
+
+    @Override
+    public FileRegion retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public FileRegion retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public FileRegion touch() {
+        return this;
+    }
+
+    @Override
+    public FileRegion touch(Object hint) {
+        return this;
+    }
+}
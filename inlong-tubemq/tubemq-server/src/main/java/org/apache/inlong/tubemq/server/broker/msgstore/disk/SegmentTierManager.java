@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The manager of the segment tier shared by the message stores.
+ *
+ * The sealed segments not written for the hot retain time are moved to the tier store,
+ * the segment files opened from the tier are closed after the idle time.
+ */
+public class SegmentTierManager {
+
+    private final SegmentTierStore tierStore;
+    private final long hotRetainMs;
+    private final long idleCloseMs;
+    private final ThreadPoolExecutor prefetchExecutor;
+
+    public SegmentTierManager(SegmentTierStore tierStore,
+            long hotRetainMs, long idleCloseMs, int prefetchThreadCnt) {
+        this.tierStore = tierStore;
+        this.hotRetainMs = hotRetainMs;
+        this.idleCloseMs = idleCloseMs;
+        final AtomicInteger threadIndex = new AtomicInteger(0);
+        this.prefetchExecutor = new ThreadPoolExecutor(prefetchThreadCnt, prefetchThreadCnt,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, new StringBuilder(64)
+                                .append("Broker Tier Prefetch Thread-")
+                                .append(threadIndex.incrementAndGet()).toString());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    public SegmentTierStore getTierStore() {
+        return tierStore;
+    }
+
+    public long getHotRetainMs() {
+        return hotRetainMs;
+    }
+
+    public long getIdleCloseMs() {
+        return idleCloseMs;
+    }
+
+    /**
+     * Open the tiered segment in the background if it is not opened.
+     *
+     * @param segment   the tiered segment to be read soon
+     */
+    public void prefetch(final TieredSegment segment) {
+        if (!segment.markPrefetching()) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    segment.prefetch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the manager is closed, the segment is opened on read
+        }
+    }
+
+    public void close() {
+        prefetchExecutor.shutdown();
+        prefetchExecutor.getQueue().clear();
+        tierStore.close();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The secondary storage tier of the sealed segment files.
+ *
+ * A tier may be a slower local mount, or a remote object store whose
+ * segment files are downloaded to a local cache before being read.
+ */
+public interface SegmentTierStore {
+
+    /**
+     * Store a sealed segment file in the tier, replacing the existing one.
+     *
+     * @param storeKey   the message store key
+     * @param segType    the segment type
+     * @param segFile    the local segment file
+     * @throws IOException  the exception while storing
+     */
+    void put(String storeKey, SegmentType segType, File segFile) throws IOException;
+
+    /**
+     * Get a local readable copy of a segment file stored in the tier.
+     *
+     * @param storeKey   the message store key
+     * @param segType    the segment type
+     * @param fileName   the segment file name
+     * @return           the local file
+     * @throws IOException  the exception while fetching
+     */
+    File fetch(String storeKey, SegmentType segType, String fileName) throws IOException;
+
+    /**
+     * Release the local copy got by fetch after the segment is closed.
+     *
+     * @param storeKey      the message store key
+     * @param segType       the segment type
+     * @param fetchedFile   the local file got by fetch
+     */
+    void release(String storeKey, SegmentType segType, File fetchedFile);
+
+    void delete(String storeKey, SegmentType segType, String fileName);
+
+    void deleteStore(String storeKey);
+
+    void close();
+}
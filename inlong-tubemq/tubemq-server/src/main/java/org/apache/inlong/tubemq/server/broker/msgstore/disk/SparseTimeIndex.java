@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Sparse time index of the index segments, used to position the timestamp lookups.
+ *
+ * The receive time of every SAMPLE_ENTRY_CNT-th record of an index segment is kept in
+ * memory, a lookup searches the samples and reads a single block of records, instead of
+ * probing the index file record by record. The samples of the segment being written are
+ * added on append. The segments loaded at startup are sampled by a sequential scan, the
+ * last one at once as it is appended to, the sealed ones by a background thread; a segment
+ * not sampled yet is left to the record by record search of the caller.
+ */
+public class SparseTimeIndex {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(SparseTimeIndex.class);
+    public static final int SAMPLE_ENTRY_CNT = 64;
+    private static final int SAMPLE_SIZE =
+            SAMPLE_ENTRY_CNT * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    private static final int SCAN_BLOCK_SIZE = SAMPLE_SIZE * 256;
+    private static final int INIT_SAMPLE_CNT = 256;
+    // the thread shared by the stores to sample the sealed segments
+    private static final ExecutorService sampleExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Broker Time Index Sample Thread");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    // index segment start offset to the samples of the segment
+    private final ConcurrentHashMap<Long, SegmentSamples> segSamplesMap =
+            new ConcurrentHashMap<>();
+    // the samples below the offset have been trimmed
+    private long trimOffset = Long.MIN_VALUE;
+
+    /**
+     * Sample the loaded index segments, the last segment at once before it is
+     * appended to, the sealed segments by the background thread.
+     *
+     * @param segments   the loaded index segments
+     */
+    public void load(Segment[] segments) {
+        for (final Segment segment : segments) {
+            if (segment.isMutable()) {
+                sample(segment);
+            } else {
+                sampleExecutor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        sample(segment);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Sample the index segment by a sequential scan of its records.
+     *
+     * @param segment   the index segment
+     * @return          whether the samples are added
+     */
+    boolean sample(Segment segment) {
+        SegmentSamples samples = new SegmentSamples(segment.getStart());
+        try {
+            segment.addViewRef();
+        } catch (IOException e) {
+            return false;
+        }
+        try {
+            long endOffset = segment.getLast();
+            ByteBuffer readBuffer = null;
+            for (long offset = segment.getStart();
+                    offset + DataStoreUtils.STORE_INDEX_HEAD_LEN <= endOffset;) {
+                if (readBuffer == null) {
+                    readBuffer = ByteBuffer.allocate(
+                            (int) Math.min(SCAN_BLOCK_SIZE, endOffset - offset));
+                }
+                readBuffer.clear();
+                readBuffer.limit((int) Math.min(readBuffer.capacity(), endOffset - offset));
+                segment.relRead(readBuffer, offset - segment.getStart());
+                int readSize = readBuffer.position()
+                        - readBuffer.position() % DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                if (readSize == 0) {
+                    break;
+                }
+                samples.append(offset, readBuffer, 0, readSize);
+                offset += readSize;
+            }
+        } catch (Throwable e) {
+            logger.warn("[File Store] Sample time index of " + segment.getFile() + " failure", e);
+            return false;
+        } finally {
+            segment.relViewRef();
+        }
+        if (samples.coveredEnd == samples.segStart) {
+            return false;
+        }
+        synchronized (this) {
+            // skip if the segment is trimmed meanwhile
+            if (samples.segStart < this.trimOffset) {
+                return false;
+            }
+            return this.segSamplesMap.putIfAbsent(samples.segStart, samples) == null;
+        }
+    }
+
+    /**
+     * Add the receive times of the appended index records.
+     *
+     * @param segStart      the start offset of the index segment appended to
+     * @param startOffset   the index offset of the first record
+     * @param indexBuffer   the appended index records, start at position 0
+     * @param indexSize     the length of the appended records
+     */
+    public void append(long segStart, long startOffset,
+            ByteBuffer indexBuffer, int indexSize) {
+        SegmentSamples samples = segSamplesMap.get(segStart);
+        if (samples == null) {
+            if (startOffset != segStart) {
+                // the records before are not sampled, leave the segment to the caller
+                return;
+            }
+            samples = new SegmentSamples(segStart);
+            SegmentSamples oldSamples = segSamplesMap.putIfAbsent(segStart, samples);
+            if (oldSamples != null) {
+                samples = oldSamples;
+            }
+        }
+        samples.append(startOffset, indexBuffer, 0, indexSize);
+    }
+
+    /**
+     * Get the index offset of the first record received at the timestamp in the segment,
+     * or of the last record received before it if not found.
+     *
+     * @param segment            the index segment containing the timestamp
+     * @param timestamp          the timestamp to look up
+     * @param curDataMinOffset   the current min offset of the data, the records
+     *                           referring to the data below it are skipped
+     * @return                   the index offset found, or -1 if the segment is not sampled
+     * @throws IOException       the exception while reading the segment
+     */
+    public long getOffsetByTimeStamp(Segment segment, long timestamp,
+            long curDataMinOffset) throws IOException {
+        final long segStart = segment.getStart();
+        final long commitLast = segment.getCommitLast();
+        if (commitLast - segStart <= DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            return segStart;
+        }
+        SegmentSamples samples = segSamplesMap.get(segStart);
+        if (samples == null || samples.coveredEnd < commitLast) {
+            return -1L;
+        }
+        // read the count before the array, the array read after it holds the counted samples
+        int sampleCnt = samples.sampleCnt;
+        long[] sampleTimes = samples.sampleTimes;
+        // only the samples of the committed records are searched
+        sampleCnt = (int) Math.min(Math.min(sampleCnt, sampleTimes.length),
+                (commitLast - segStart - DataStoreUtils.STORE_INDEX_HEAD_LEN) / SAMPLE_SIZE + 1);
+        // find the last sample received before the timestamp
+        int low = 0;
+        int high = sampleCnt - 1;
+        int lastLowIdx = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sampleTimes[mid] < timestamp) {
+                lastLowIdx = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (lastLowIdx < 0) {
+            return segStart;
+        }
+        // the first record received at the timestamp is before the next sample
+        final long blockStart = segStart + (long) lastLowIdx * SAMPLE_SIZE;
+        final int blockSize = (int) Math.min(SAMPLE_SIZE + DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                commitLast - blockStart);
+        final ByteBuffer readBuffer = ByteBuffer.allocate(blockSize);
+        segment.relRead(readBuffer, blockStart - segStart);
+        readBuffer.flip();
+        long lastLowOffset = blockStart;
+        for (int pos = 0; pos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= readBuffer.limit(); pos +=
+                DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            long recvTime = getRecvTime(readBuffer, pos, curDataMinOffset);
+            if (recvTime < timestamp) {
+                lastLowOffset = blockStart + pos;
+            } else if (recvTime == timestamp) {
+                return blockStart + pos;
+            } else {
+                break;
+            }
+        }
+        return lastLowOffset;
+    }
+
+    /**
+     * Drop the samples of the index segments below the min offset.
+     *
+     * @param minOffset   the min offset of the index
+     */
+    public synchronized void trim(long minOffset) {
+        this.trimOffset = Math.max(this.trimOffset, minOffset);
+        Iterator<Long> it = segSamplesMap.keySet().iterator();
+        while (it.hasNext()) {
+            SegmentSamples samples = segSamplesMap.get(it.next());
+            if (samples != null && samples.coveredEnd <= minOffset) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        this.trimOffset = Long.MAX_VALUE;
+        segSamplesMap.clear();
+    }
+
+    /**
+     * Get the sampled receive times of the index segment.
+     *
+     * @param segStart   the start offset of the index segment
+     * @return           the sampled receive times, or null if not sampled
+     */
+    long[] getSampleTimes(long segStart) {
+        SegmentSamples samples = segSamplesMap.get(segStart);
+        if (samples == null) {
+            return null;
+        }
+        int sampleCnt = samples.sampleCnt;
+        long[] sampleTimes = samples.sampleTimes;
+        return Arrays.copyOf(sampleTimes, Math.min(sampleCnt, sampleTimes.length));
+    }
+
+    private static long getRecvTime(ByteBuffer indexBuffer, int pos, long curDataMinOffset) {
+        long dataOffset = indexBuffer.getLong(pos + DataStoreUtils.INDEX_POS_DATAOFFSET);
+        int dataSize = indexBuffer.getInt(pos + DataStoreUtils.INDEX_POS_MSG_SIZE);
+        if (dataOffset < 0
+                || dataSize <= 0
+                || dataSize > DataStoreUtils.STORE_MAX_MESSAGE_STORE_LEN
+                || dataOffset < curDataMinOffset) {
+            return -1L;
+        }
+        return indexBuffer.getLong(pos + DataStoreUtils.INDEX_POS_TIME_RECV);
+    }
+
+    private static class SegmentSamples {
+
+        private final long segStart;
+        // the end offset of the records sampled
+        private volatile long coveredEnd;
+        // the array is replaced before the count is increased over its length
+        private volatile long[] sampleTimes = new long[INIT_SAMPLE_CNT];
+        private volatile int sampleCnt = 0;
+
+        SegmentSamples(long segStart) {
+            this.segStart = segStart;
+            this.coveredEnd = segStart;
+        }
+
+        synchronized void append(long startOffset,
+                ByteBuffer indexBuffer, int bufStart, int size) {
+            if (startOffset != this.coveredEnd) {
+                // not continuous with the sampled records
+                return;
+            }
+            long relOffset = startOffset - this.segStart;
+            int pos = (int) ((SAMPLE_SIZE - relOffset % SAMPLE_SIZE) % SAMPLE_SIZE);
+            for (; pos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= size; pos += SAMPLE_SIZE) {
+                int sampleIdx = (int) ((relOffset + pos) / SAMPLE_SIZE);
+                long[] curTimes = this.sampleTimes;
+                if (sampleIdx >= curTimes.length) {
+                    curTimes = Arrays.copyOf(curTimes, curTimes.length << 1);
+                    this.sampleTimes = curTimes;
+                }
+                curTimes[sampleIdx] = indexBuffer.getLong(
+                        bufStart + pos + DataStoreUtils.INDEX_POS_TIME_RECV);
+                this.sampleCnt = sampleIdx + 1;
+            }
+            this.coveredEnd = startOffset
+                    + size / DataStoreUtils.STORE_INDEX_HEAD_LEN * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        }
+    }
+}
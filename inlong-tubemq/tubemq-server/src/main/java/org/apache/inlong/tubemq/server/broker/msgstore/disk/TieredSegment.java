@@ -0,0 +1,474 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import io.netty.channel.FileRegion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A sealed segment whose file has been moved to the secondary tier.
+ *
+ * A stub file named after the segment file is kept in the segment directory, it
+ * records the segment range and times, so the segment can be listed without touching
+ * the tier. The segment file is opened from the tier on the first read, the next tiered
+ * segment is prefetched at the same time, and it is closed after being idle for a while.
+ * The view references, including the ones held by the file regions in sending, pin the
+ * opened file, it is not closed until the last one is released.
+ */
+public class TieredSegment implements Segment {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(TieredSegment.class);
+    private static final int STUB_MAGIC = 0x54534731;
+    private final SegmentTierManager tierManager;
+    private final String storeKey;
+    private final SegmentType segmentType;
+    private final String fileName;
+    private final File stubFile;
+    private final long start;
+    private final long size;
+    private final long lastModified;
+    private final long leftAppendTime;
+    private final long rightAppendTime;
+    // guards the opened segment, the reads hold the read lock
+    private final ReentrantReadWriteLock openLock = new ReentrantReadWriteLock();
+    private final AtomicLong lastAccessTime = new AtomicLong(0L);
+    private final AtomicInteger viewRefCnt = new AtomicInteger(0);
+    private final AtomicBoolean prefetching = new AtomicBoolean(false);
+    private final AtomicBoolean expired = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private long expiredTime = 0;
+    private volatile SegmentList segmentList;
+    private FileSegment openedSegment;
+    private File fetchedFile;
+
+    private TieredSegment(SegmentTierManager tierManager, String storeKey,
+            SegmentType segmentType, File stubFile, long start, long size,
+            long lastModified, long leftAppendTime, long rightAppendTime) {
+        this.tierManager = tierManager;
+        this.storeKey = storeKey;
+        this.segmentType = segmentType;
+        this.stubFile = stubFile;
+        this.fileName = getSegmentFileName(stubFile.getName());
+        this.start = start;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.leftAppendTime = leftAppendTime;
+        this.rightAppendTime = rightAppendTime;
+    }
+
+    /**
+     * Build the tiered segment of a segment whose file has been stored in the tier,
+     * the stub file is written before the segment file can be removed.
+     *
+     * @param tierManager   the tier manager
+     * @param storeKey      the message store key
+     * @param segment       the sealed segment
+     * @param segType       the segment type
+     * @return              the tiered segment
+     * @throws IOException  the exception while writing the stub file
+     */
+    public static TieredSegment create(SegmentTierManager tierManager, String storeKey,
+            Segment segment, SegmentType segType) throws IOException {
+        File segFile = segment.getFile();
+        File stubFile = new File(segFile.getParentFile(),
+                segFile.getName() + DataStoreUtils.TIERED_FILE_SUFFIX);
+        TieredSegment tieredSeg = new TieredSegment(tierManager, storeKey, segType,
+                stubFile, segment.getStart(), segment.getCachedSize(), segFile.lastModified(),
+                segment.getLeftAppendTime(), segment.getRightAppendTime());
+        tieredSeg.storeStub();
+        return tieredSeg;
+    }
+
+    /**
+     * Load the tiered segment from its stub file.
+     *
+     * @param tierManager   the tier manager
+     * @param storeKey      the message store key
+     * @param segType       the segment type
+     * @param stubFile      the stub file
+     * @return              the tiered segment
+     * @throws IOException  the exception while reading the stub file
+     */
+    public static TieredSegment load(SegmentTierManager tierManager, String storeKey,
+            SegmentType segType, File stubFile) throws IOException {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(stubFile))) {
+            if (input.readInt() != STUB_MAGIC) {
+                throw new IOException(new StringBuilder(256)
+                        .append("[File Store] Invalid tiered segment stub ")
+                        .append(stubFile.getAbsolutePath()).toString());
+            }
+            return new TieredSegment(tierManager, storeKey, segType, stubFile,
+                    input.readLong(), input.readLong(), input.readLong(),
+                    input.readLong(), input.readLong());
+        }
+    }
+
+    public static String getSegmentFileName(String stubFileName) {
+        return stubFileName.substring(0,
+                stubFileName.length() - DataStoreUtils.TIERED_FILE_SUFFIX.length());
+    }
+
+    void setSegmentList(SegmentList segmentList) {
+        this.segmentList = segmentList;
+    }
+
+    @Override
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            closeOpened();
+        }
+    }
+
+    @Override
+    public long append(ByteBuffer buf, long leftTime, long rightTime) throws IOException {
+        throw new UnsupportedOperationException("[File Store] Tiered Segment is immutable!");
+    }
+
+    @Override
+    public long flush(boolean force) throws IOException {
+        return this.start + this.size;
+    }
+
+    @Override
+    public int checkAndSetExpired(long checkTimestamp, long maxValidTimeMs) {
+        if (expired.get()) {
+            return -1;
+        }
+        if (closed.get()) {
+            return 0;
+        }
+        if (checkTimestamp - lastModified > maxValidTimeMs) {
+            if (expired.compareAndSet(false, true)) {
+                expiredTime = System.currentTimeMillis();
+            }
+            return 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public boolean needDelete() {
+        return (expired.get() && (System.currentTimeMillis() - expiredTime > 120000));
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public long getLast() {
+        return start + size;
+    }
+
+    @Override
+    public long getCommitLast() {
+        return start + size;
+    }
+
+    @Override
+    public File getFile() {
+        return stubFile;
+    }
+
+    @Override
+    public void deleteFile() {
+        close();
+        logger.info(new StringBuilder(512)
+                .append("[File Store] delete tiered file ").append(storeKey)
+                .append(File.separator).append(fileName).toString());
+        tierManager.getTierStore().delete(storeKey, segmentType, fileName);
+        if (!stubFile.delete()) {
+            logger.warn("[File Store] failure to delete stub file {}", stubFile);
+        }
+    }
+
+    @Override
+    public long getCachedSize() {
+        return size;
+    }
+
+    @Override
+    public long getCommitSize() {
+        return size;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return expired.get();
+    }
+
+    @Override
+    public boolean contains(long offset) {
+        return (this.size == 0 && offset == this.start
+                || this.size > 0
+                        && offset >= this.start
+                        && offset <= this.start + this.size - 1);
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public void setMutable(boolean mutable) {
+        // always immutable
+    }
+
+    @Override
+    public void addViewRef() throws IOException {
+        viewRefCnt.incrementAndGet();
+        if (closed.get()) {
+            relViewRef();
+            throw new IOException("[File Store] Segment is closed!");
+        }
+    }
+
+    @Override
+    public void relViewRef() {
+        lastAccessTime.set(System.currentTimeMillis());
+        if (viewRefCnt.decrementAndGet() == 0 && closed.get()) {
+            closeOpened();
+        }
+    }
+
+    public int getViewRefCnt() {
+        return viewRefCnt.get();
+    }
+
+    @Override
+    public void read(ByteBuffer bf, long absOffset) throws IOException {
+        FileSegment segment = acquireOpened();
+        try {
+            segment.read(bf, absOffset);
+        } finally {
+            openLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void relRead(ByteBuffer bf, long relOffset) throws IOException {
+        FileSegment segment = acquireOpened();
+        try {
+            segment.relRead(bf, relOffset);
+        } finally {
+            openLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get a region view of the opened tier file, the region holds a view reference
+     * which keeps the file opened until the region is released.
+     */
+    @Override
+    public FileRegion getFileRegion(long absOffset, long count) throws IOException {
+        addViewRef();
+        try {
+            FileSegment segment = acquireOpened();
+            try {
+                return segment.newFileRegion(absOffset, count, this);
+            } finally {
+                openLock.readLock().unlock();
+            }
+        } catch (IOException e) {
+            relViewRef();
+            throw e;
+        }
+    }
+
+    @Override
+    public long getLeftAppendTime() {
+        return leftAppendTime;
+    }
+
+    @Override
+    public long getRightAppendTime() {
+        return rightAppendTime;
+    }
+
+    @Override
+    public boolean containTime(long timestamp) {
+        if (this.size == 0) {
+            return false;
+        }
+        return timestamp >= this.leftAppendTime && timestamp <= this.rightAppendTime;
+    }
+
+    @Override
+    public long getRecordTime(long reqOffset) throws IOException {
+        FileSegment segment = acquireOpened();
+        try {
+            return segment.getRecordTime(reqOffset);
+        } finally {
+            openLock.readLock().unlock();
+        }
+    }
+
+    public boolean isOpened() {
+        openLock.readLock().lock();
+        try {
+            return openedSegment != null;
+        } finally {
+            openLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Open the segment file ahead of the reads, called by the prefetch thread.
+     */
+    void prefetch() {
+        try {
+            acquireOpened();
+            openLock.readLock().unlock();
+        } catch (Throwable e) {
+            logger.warn(new StringBuilder(512)
+                    .append("[File Store] Prefetch tiered segment ").append(storeKey)
+                    .append(File.separator).append(fileName).append(" failure").toString(), e);
+        } finally {
+            prefetching.set(false);
+        }
+    }
+
+    boolean markPrefetching() {
+        return !isOpened() && prefetching.compareAndSet(false, true);
+    }
+
+    /**
+     * Close the segment file if it has not been read for the idle time,
+     * the file still referenced by the views is kept opened.
+     *
+     * @param checkTime    the check timestamp
+     * @param idleTimeMs   the max idle time in milliseconds
+     */
+    public void closeIfIdle(long checkTime, long idleTimeMs) {
+        if (viewRefCnt.get() > 0
+                || checkTime - lastAccessTime.get() < idleTimeMs
+                || !isOpened()) {
+            return;
+        }
+        closeOpened();
+    }
+
+    private FileSegment acquireOpened() throws IOException {
+        lastAccessTime.set(System.currentTimeMillis());
+        openLock.readLock().lock();
+        if (openedSegment != null) {
+            return openedSegment;
+        }
+        openLock.readLock().unlock();
+        boolean isOpened = false;
+        openLock.writeLock().lock();
+        try {
+            if (closed.get()) {
+                throw new IOException("[File Store] Segment is closed!");
+            }
+            if (openedSegment == null) {
+                File segFile = tierManager.getTierStore().fetch(storeKey, segmentType, fileName);
+                try {
+                    openedSegment = new FileSegment(start, segFile, false, segmentType);
+                } catch (IOException e) {
+                    tierManager.getTierStore().release(storeKey, segmentType, segFile);
+                    throw e;
+                }
+                fetchedFile = segFile;
+                isOpened = true;
+            }
+            // downgrade to the read lock
+            openLock.readLock().lock();
+        } catch (IOException e) {
+            ServiceStatusHolder.addReadIOErrCnt();
+            BrokerSrvStatsHolder.incDiskIOExcCnt();
+            throw e;
+        } finally {
+            openLock.writeLock().unlock();
+        }
+        if (isOpened) {
+            prefetchNext();
+        }
+        return openedSegment;
+    }
+
+    private void prefetchNext() {
+        SegmentList curList = this.segmentList;
+        if (curList == null) {
+            return;
+        }
+        Segment nextSeg = curList.findSegment(this.start + this.size);
+        if (nextSeg instanceof TieredSegment) {
+            tierManager.prefetch((TieredSegment) nextSeg);
+        }
+    }
+
+    private void closeOpened() {
+        openLock.writeLock().lock();
+        try {
+            if (openedSegment == null || viewRefCnt.get() > 0) {
+                return;
+            }
+            openedSegment.close();
+            tierManager.getTierStore().release(storeKey, segmentType, fetchedFile);
+            openedSegment = null;
+            fetchedFile = null;
+        } finally {
+            openLock.writeLock().unlock();
+        }
+    }
+
+    private void storeStub() throws IOException {
+        File tmpFile = new File(stubFile.getParentFile(), stubFile.getName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile);
+                DataOutputStream output = new DataOutputStream(fileOut)) {
+            output.writeInt(STUB_MAGIC);
+            output.writeLong(start);
+            output.writeLong(size);
+            output.writeLong(lastModified);
+            output.writeLong(leftAppendTime);
+            output.writeLong(rightAppendTime);
+            output.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), stubFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
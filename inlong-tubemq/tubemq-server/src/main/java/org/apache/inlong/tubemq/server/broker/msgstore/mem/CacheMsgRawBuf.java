@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.mem;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The stored records read from memory cache in raw data fetch mode.
+ *
+ * The buffer is composed of the cache slices without copying, and releases
+ * the reader reference of the cache after it has been sent and released.
+ */
+public class CacheMsgRawBuf extends CompositeByteBuf {
+
+    private final GetCacheMsgResult cacheMsgResult;
+
+    public CacheMsgRawBuf(GetCacheMsgResult cacheMsgResult) {
+        super(UnpooledByteBufAllocator.DEFAULT, true,
+                Math.max(2, cacheMsgResult.cacheMsgList.size()),
+                wrapSlices(cacheMsgResult.cacheMsgList));
+        this.cacheMsgResult = cacheMsgResult;
+    }
+
+    @Override
+    protected void deallocate() {
+        super.deallocate();
+        cacheMsgResult.release();
+    }
+
+    private static List<ByteBuf> wrapSlices(List<ByteBuffer> cacheMsgList) {
+        List<ByteBuf> components = new ArrayList<>(cacheMsgList.size());
+        for (ByteBuffer slice : cacheMsgList) {
+            components.add(Unpooled.wrappedBuffer(slice));
+        }
+        return components;
+    }
+}
@@ -32,7 +32,9 @@ public class GetCacheMsgResult {
     public int dltOffset;
     public long lastRdDataOff = -2;
     public int totalMsgSize;
+    // read-only slices of the cached data, valid until the result released
     public List<ByteBuffer> cacheMsgList;
+    private MsgMemStore holdStore = null;
 
     public GetCacheMsgResult(boolean isSuccess, int retCode, long readOffset, String errInfo) {
         this.isSuccess = isSuccess;
@@ -55,4 +57,18 @@ public class GetCacheMsgResult {
         this.cacheMsgList = cacheMsgList;
     }
 
+    public void setHoldStore(MsgMemStore holdStore) {
+        this.holdStore = holdStore;
+    }
+
+    /**
+     * Release the reader reference of the memory store held by the result.
+     */
+    public void release() {
+        if (this.holdStore != null) {
+            this.holdStore.releaseReader();
+            this.holdStore = null;
+        }
+    }
+
 }
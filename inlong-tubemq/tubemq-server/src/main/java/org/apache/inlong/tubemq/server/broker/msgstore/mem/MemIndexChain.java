@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.mem;
+
+import java.util.Arrays;
+
+/**
+ * The cache index positions of the messages of one partition, or of one filter item
+ * in a partition, kept in ascending order.
+ *
+ * The chain is appended under the write lock of the memory store. A reader takes the
+ * position array and the size under the same lock, the positions below the size are
+ * never changed afterwards, even if the array is grown by later appends.
+ */
+class MemIndexChain {
+
+    private static final int INIT_CHAIN_SIZE = 16;
+    private int[] positions = new int[INIT_CHAIN_SIZE];
+    private int size = 0;
+
+    void append(int indexPos) {
+        if (this.size == this.positions.length) {
+            this.positions = Arrays.copyOf(this.positions, this.size << 1);
+        }
+        this.positions[this.size++] = indexPos;
+    }
+
+    int[] getPositions() {
+        return positions;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getLastPos() {
+        return this.size == 0 ? -1 : this.positions[this.size - 1];
+    }
+
+    /**
+     * Find the first item not lower than the given position.
+     *
+     * @param positions   the position array
+     * @param size        the item count of the array
+     * @param indexPos    the position to search
+     * @return            the item index, or size if all items are lower
+     */
+    static int lowerBound(int[] positions, int size, int indexPos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] < indexPos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -38,12 +38,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Message's memory storage. It use direct memory store messages that received but not have been flushed to disk.
+ *
+ * The read results refer to the cached data through read-only slices, each result with slices
+ * holds a reader reference of the store until it is released, and the store can be reset
+ * or freed only when no reader reference is held.
  */
 public class MsgMemStore implements Closeable {
 
@@ -53,11 +58,11 @@ public class MsgMemStore implements Closeable {
     private final AtomicInteger cacheIndexOffset = new AtomicInteger(0);
     private final AtomicInteger curMessageCount = new AtomicInteger(0);
     private final ReentrantLock writeLock = new ReentrantLock();
-    // partitionId to index position, accelerate query
-    private final Map<Integer, Integer> queuesMap =
+    // partitionId to the index positions of the partition, accelerate query
+    private final Map<Integer, MemIndexChain> queuesMap =
             new HashMap<>(20);
-    // key to index position, used for filter consume
-    private final Map<Integer, Integer> keysMap =
+    // partitionId and key to the index positions, used for filter consume
+    private final Map<Long, MemIndexChain> keysMap =
             new HashMap<>(100);
     // where messages in memory will sink to disk
     private final int maxDataCacheSize;
@@ -71,6 +76,11 @@ public class MsgMemStore implements Closeable {
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
     private final AtomicLong rightAppendTime =
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
+    // the count of read results still referring to the cached data
+    private final AtomicInteger readerRefCnt = new AtomicInteger(0);
+    // free the direct memory when the last reader reference released
+    private final AtomicBoolean closePending = new AtomicBoolean(false);
+    private final AtomicBoolean memReleased = new AtomicBoolean(false);
 
     /**
      * MsgMemStore, initial message memory cache store block
@@ -160,8 +170,7 @@ public class MsgMemStore implements Closeable {
             this.cachedIndexSegment.put(indexEntry.array());
             this.cacheDataOffset.getAndAdd(dataEntryLength);
             indexSizePos = cacheIndexOffset.getAndAdd(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-            this.queuesMap.put(partitionId, indexSizePos);
-            this.keysMap.put(keyCode, indexSizePos);
+            appendIndexPos(partitionId, keyCode, indexSizePos);
             this.curMessageCount.getAndIncrement();
             this.rightAppendTime.set(timeRecv);
             if (indexSizePos == 0) {
@@ -177,6 +186,74 @@ public class MsgMemStore implements Closeable {
         return true;
     }
 
+    /**
+     * Append a batch of messages of the same partition to memory cache,
+     * all of them are appended under one lock acquisition, or none of them
+     * if the left cache space is not enough.
+     *
+     * @param memStatsHolder    statistical information object
+     * @param partitionId       the partitionId for append messages
+     * @param keyCodes          the filter item hash code of each message
+     * @param timeRecv          the received timestamp
+     * @param indexEntries      the stored index entry of each message
+     * @param dataEntries       the stored data entry of each message
+     * @param totalDataLength   the total length of the data entries
+     * @param appendResults     the append result of each message
+     *
+     * @return    the process result
+     */
+    public boolean appendMsgBatch(MsgStoreStatsHolder memStatsHolder,
+            int partitionId, int[] keyCodes, long timeRecv,
+            ByteBuffer[] indexEntries, ByteBuffer[] dataEntries,
+            int totalDataLength, AppendResult[] appendResults) {
+        int msgCount = dataEntries.length;
+        int totalIndexLength = msgCount * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        long dataOffset;
+        long indexOffset;
+        int indexSizePos = 0;
+        boolean isAppended = true;
+        boolean fullDataSize = false;
+        boolean fullIndexSize = false;
+        boolean fullCount = false;
+        this.writeLock.lock();
+        try {
+            // judge whether the whole batch can write to memory or not.
+            fullDataSize =
+                    (this.cacheDataOffset.get() + totalDataLength > this.maxDataCacheSize);
+            fullCount =
+                    (this.curMessageCount.get() + msgCount > maxAllowedMsgCount);
+            fullIndexSize =
+                    (this.cacheIndexOffset.get() + totalIndexLength > this.maxIndexCacheSize);
+            if (fullDataSize || fullCount || fullIndexSize) {
+                isAppended = false;
+                return false;
+            }
+            for (int i = 0; i < msgCount; i++) {
+                indexOffset = this.writeIndexStartPos + this.cacheIndexOffset.get();
+                dataOffset = this.writeDataStartPos + this.cacheDataOffset.get();
+                indexEntries[i].putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
+                dataEntries[i].putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+                this.cacheDataSegment.put(dataEntries[i].array());
+                this.cachedIndexSegment.put(indexEntries[i].array());
+                this.cacheDataOffset.getAndAdd(dataEntries[i].limit());
+                indexSizePos = cacheIndexOffset.getAndAdd(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                appendIndexPos(partitionId, keyCodes[i], indexSizePos);
+                appendResults[i].putAppendResult(indexOffset, dataOffset);
+            }
+            this.curMessageCount.getAndAdd(msgCount);
+            this.rightAppendTime.set(timeRecv);
+            if (indexSizePos == totalIndexLength - DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+                this.leftAppendTime.set(timeRecv);
+            }
+        } finally {
+            this.writeLock.unlock();
+            if (!isAppended) {
+                memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
+            }
+        }
+        return true;
+    }
+
     /**
      * Read from memory, read index, then data.
      *
@@ -198,7 +275,6 @@ public class MsgMemStore implements Closeable {
             boolean isFilterConsume, Set<Integer> filterKeySet,
             long reqRcvTime) {
         // #lizard forgives
-        Integer lastWritePos = 0;
         boolean hasMsg = false;
         // judge memory contains the given offset or not.
         List<ByteBuffer> cacheMsgList = new ArrayList<>();
@@ -215,26 +291,39 @@ public class MsgMemStore implements Closeable {
         int currDataOffset;
         long lastDataRdOff = lstRdDataOffset;
         int startReadOff = (int) (lstRdIndexOffset - this.writeIndexStartPos);
+        // the index position chains to read, only the chains of the partition
+        // or of the filter items in the partition are visited
+        int chainCnt = 0;
+        int[][] chainPositions;
+        int[] chainSizes;
         this.writeLock.lock();
         try {
             if (isFilterConsume) {
                 // filter conduct. accelerate by keysMap.
+                chainPositions = new int[filterKeySet.size()][];
+                chainSizes = new int[filterKeySet.size()];
                 for (Integer keyCode : filterKeySet) {
-                    if (keyCode != null) {
-                        lastWritePos = this.keysMap.get(keyCode);
-                        if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                            hasMsg = true;
-                            break;
-                        }
+                    if (keyCode == null) {
+                        continue;
+                    }
+                    MemIndexChain chain =
+                            this.keysMap.get(getPartKeyId(partitionId, keyCode));
+                    if (chain != null && chain.getLastPos() >= startReadOff) {
+                        chainPositions[chainCnt] = chain.getPositions();
+                        chainSizes[chainCnt++] = chain.getSize();
                     }
                 }
             } else {
                 // orderly consume by partition id.
-                lastWritePos = this.queuesMap.get(partitionId);
-                if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                    hasMsg = true;
+                chainPositions = new int[1][];
+                chainSizes = new int[1];
+                MemIndexChain chain = this.queuesMap.get(partitionId);
+                if (chain != null && chain.getLastPos() >= startReadOff) {
+                    chainPositions[chainCnt] = chain.getPositions();
+                    chainSizes[chainCnt++] = chain.getSize();
                 }
             }
+            hasMsg = (chainCnt > 0);
             currDataOffset = this.cacheDataOffset.get();
             currIndexOffset = this.cacheIndexOffset.get();
             lastDataRdOff = this.writeDataStartPos + currDataOffset;
@@ -253,30 +342,49 @@ public class MsgMemStore implements Closeable {
                         limitReadSize, lastDataRdOff, totalReadSize, cacheMsgList);
             }
         }
+        // hold the cached data until the read result is released
+        if (!retainReader()) {
+            return new GetCacheMsgResult(false, TErrCodeConstants.NOT_FOUND,
+                    lstRdIndexOffset, "Cache has been closed");
+        }
+        // position each chain at the request offset.
+        int[] chainCursors = new int[chainCnt];
+        for (int i = 0; i < chainCnt; i++) {
+            chainCursors[i] = MemIndexChain.lowerBound(
+                    chainPositions[i], chainSizes[i], startReadOff);
+        }
         // fetch data by index.
-        int readedSize = 0;
-        int cPartitionId = 0;
+        int readEndOff = startReadOff;
+        int curChain;
+        int curIndexPos;
         long cDataPos = 0L;
         int cDataSize = 0;
-        int cKeyCode = 0;
         long cTimeRecv = 0L;
         int cDataOffset = 0;
         ByteBuffer tmpIndexRdBuf = this.cachedIndexSegment.asReadOnlyBuffer();
         ByteBuffer tmpDataRdBuf = this.cacheDataSegment.asReadOnlyBuffer();
-        // loop read by index
-        for (int count = 0; count < maxReadCount; count++, startReadOff += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
-            // cannot find matched message, return
-            if ((startReadOff >= currIndexOffset)
-                    || (startReadOff + DataStoreUtils.STORE_INDEX_HEAD_LEN > currIndexOffset)) {
+        // loop read by index chains, in the order of index position
+        for (int count = 0; count < maxReadCount; count++) {
+            curChain = -1;
+            curIndexPos = currIndexOffset;
+            for (int i = 0; i < chainCnt; i++) {
+                if (chainCursors[i] < chainSizes[i]
+                        && chainPositions[i][chainCursors[i]] < curIndexPos) {
+                    curIndexPos = chainPositions[i][chainCursors[i]];
+                    curChain = i;
+                }
+            }
+            // all matched messages are read, skip to the end of cache
+            if (curChain < 0) {
+                readEndOff = currIndexOffset;
                 break;
             }
+            chainCursors[curChain]++;
+            readEndOff = curIndexPos + DataStoreUtils.STORE_INDEX_HEAD_LEN;
             // read index content.
-            tmpIndexRdBuf.position(startReadOff);
-            cPartitionId = tmpIndexRdBuf.getInt();
-            cDataPos = tmpIndexRdBuf.getLong();
-            cDataSize = tmpIndexRdBuf.getInt();
-            cKeyCode = tmpIndexRdBuf.getInt();
-            cTimeRecv = tmpIndexRdBuf.getLong();
+            cDataPos = tmpIndexRdBuf.getLong(curIndexPos + DataStoreUtils.INDEX_POS_DATAOFFSET);
+            cDataSize = tmpIndexRdBuf.getInt(curIndexPos + DataStoreUtils.INDEX_POS_MSG_SIZE);
+            cTimeRecv = tmpIndexRdBuf.getLong(curIndexPos + DataStoreUtils.INDEX_POS_TIME_RECV);
             cDataOffset = (int) (cDataPos - this.writeDataStartPos);
             // skip when mismatch condition
             if ((cDataOffset < 0)
@@ -284,26 +392,17 @@ public class MsgMemStore implements Closeable {
                     || (cDataOffset >= currDataOffset)
                     || (cDataSize > ClusterConfigHolder.getMaxMsgSize())
                     || (cDataOffset + cDataSize > currDataOffset)) {
-                readedSize += DataStoreUtils.STORE_INDEX_HEAD_LEN;
-                continue;
-            }
-            if ((cPartitionId != partitionId)
-                    || (isFilterConsume && (!filterKeySet.contains(cKeyCode)))) {
-                readedSize += DataStoreUtils.STORE_INDEX_HEAD_LEN;
                 continue;
             }
             if (reqRcvTime != 0 && cTimeRecv < reqRcvTime) {
                 continue;
             }
-            // read data file.
-            byte[] tmpArray = new byte[cDataSize];
-            final ByteBuffer buffer = ByteBuffer.wrap(tmpArray);
+            // slice data without copying.
+            tmpDataRdBuf.limit(cDataOffset + cDataSize);
             tmpDataRdBuf.position(cDataOffset);
-            tmpDataRdBuf.get(tmpArray);
-            buffer.rewind();
-            cacheMsgList.add(buffer);
+            cacheMsgList.add(tmpDataRdBuf.slice());
+            tmpDataRdBuf.clear();
             lastDataRdOff = cDataPos + cDataSize;
-            readedSize += DataStoreUtils.STORE_INDEX_HEAD_LEN;
             totalReadSize += cDataSize;
             // break when exceed the max transfer size.
             if (totalReadSize >= maxReadSize) {
@@ -311,8 +410,47 @@ public class MsgMemStore implements Closeable {
             }
         }
         // return result
-        return new GetCacheMsgResult(true, 0, "Ok1",
-                lstRdIndexOffset, readedSize, lastDataRdOff, totalReadSize, cacheMsgList);
+        GetCacheMsgResult cacheMsgResult = new GetCacheMsgResult(true, 0, "Ok1",
+                lstRdIndexOffset, readEndOff - startReadOff, lastDataRdOff, totalReadSize, cacheMsgList);
+        if (cacheMsgList.isEmpty()) {
+            releaseReader();
+        } else {
+            cacheMsgResult.setHoldStore(this);
+        }
+        return cacheMsgResult;
+    }
+
+    /**
+     * Add a reader reference before handing out slices of the cached data.
+     *
+     * @return    whether the reference is added, false if the store is closed
+     */
+    public boolean retainReader() {
+        this.readerRefCnt.incrementAndGet();
+        if (this.closePending.get()) {
+            releaseReader();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Release a reader reference, the slices got by the reader can't be accessed after that.
+     */
+    public void releaseReader() {
+        if (this.readerRefCnt.decrementAndGet() == 0
+                && this.closePending.get()) {
+            freeCacheMemory();
+        }
+    }
+
+    /**
+     * Whether any read result still refers to the cached data.
+     *
+     * @return    true if reader reference held, the store can't be reset then
+     */
+    public boolean hasReaderRef() {
+        return this.readerRefCnt.get() > 0;
     }
 
     /**
@@ -410,10 +548,42 @@ public class MsgMemStore implements Closeable {
         this.rightAppendTime.set(System.currentTimeMillis());
     }
 
+    private void appendIndexPos(int partitionId, int keyCode, int indexPos) {
+        MemIndexChain chain = this.queuesMap.get(partitionId);
+        if (chain == null) {
+            chain = new MemIndexChain();
+            this.queuesMap.put(partitionId, chain);
+        }
+        chain.append(indexPos);
+        long partKeyId = getPartKeyId(partitionId, keyCode);
+        chain = this.keysMap.get(partKeyId);
+        if (chain == null) {
+            chain = new MemIndexChain();
+            this.keysMap.put(partKeyId, chain);
+        }
+        chain.append(indexPos);
+    }
+
+    private static long getPartKeyId(int partitionId, int keyCode) {
+        return ((long) partitionId << 32) | (keyCode & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Close the store, the direct memory is freed after all reader references are released.
+     */
     @Override
     public void close() {
-        ((DirectBuffer) this.cacheDataSegment).cleaner().clean();
-        ((DirectBuffer) this.cachedIndexSegment).cleaner().clean();
+        this.closePending.set(true);
+        if (this.readerRefCnt.get() == 0) {
+            freeCacheMemory();
+        }
+    }
+
+    private void freeCacheMemory() {
+        if (this.memReleased.compareAndSet(false, true)) {
+            ((DirectBuffer) this.cacheDataSegment).cleaner().clean();
+            ((DirectBuffer) this.cachedIndexSegment).cleaner().clean();
+        }
     }
 
 }
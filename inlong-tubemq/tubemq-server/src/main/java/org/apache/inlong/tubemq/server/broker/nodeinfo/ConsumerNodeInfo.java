@@ -21,6 +21,7 @@ import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.policies.FlowCtrlResult;
 import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficSlot;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 
 import java.util.HashSet;
@@ -63,6 +64,8 @@ public class ConsumerNodeInfo {
     private final AtomicInteger qryPriorityId =
             new AtomicInteger(TBaseConstants.META_VALUE_UNDEFINED);
     private long createTime = System.currentTimeMillis();
+    // the consume statistics slot, reset when the consumer changes
+    private volatile TrafficSlot statsSlot = null;
 
     /**
      * Initial consumer node information
@@ -217,6 +220,7 @@ public class ConsumerNodeInfo {
 
     public void setConsumerId(String consumerId) {
         this.consumerId = consumerId;
+        this.statsSlot = null;
         if (consumerId.lastIndexOf("_") != -1) {
             String targetStr = consumerId.substring(consumerId.lastIndexOf("_") + 1);
             String[] strInfos = targetStr.split("-");
@@ -275,6 +279,14 @@ public class ConsumerNodeInfo {
         return this.rmtAddrInfo;
     }
 
+    public TrafficSlot getStatsSlot() {
+        return statsSlot;
+    }
+
+    public void setStatsSlot(TrafficSlot statsSlot) {
+        this.statsSlot = statsSlot;
+    }
+
     /**
      * Recalculate message limit value.
      *
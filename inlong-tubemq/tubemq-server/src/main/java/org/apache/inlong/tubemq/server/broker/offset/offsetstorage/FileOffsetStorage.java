@@ -0,0 +1,602 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * The offset storage kept in the local disk of the broker.
+ *
+ * The committed offsets are appended to an offset log, and the records of one commit
+ * round are written and forced to disk together by {@link #flush()}. When the log grows
+ * over the snapshot size, all current offsets are written to a snapshot file and the log
+ * is truncated. On startup the snapshot is loaded and the log is replayed, the tail of the
+ * log after the first broken record is dropped.
+ *
+ * Each record is laid out as: body length 4 + crc32 of body 8 + body, and the body is
+ * record type 1 + group + topic + partition id 4 + offset 8 + message id 8.
+ *
+ * If a migrate storage is set, the offsets not found locally are loaded from it and
+ * kept in the local storage since then.
+ */
+public class FileOffsetStorage implements OffsetStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileOffsetStorage.class);
+    public static final String OFFSET_LOG_FILE_NAME = "offset.log";
+    public static final String OFFSET_SNAPSHOT_FILE_NAME = "offset.snapshot";
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+    private static final byte RECORD_TYPE_COMMIT = 1;
+    private static final byte RECORD_TYPE_DELETE = 2;
+    private static final int RECORD_HEAD_LEN = 12;
+    private static final int MAX_RECORD_BODY_LEN = 64 * 1024;
+    // the pending data size that triggers a flush inside the commit round
+    private static final int MAX_PENDING_DATA_SIZE = 4 * 1024 * 1024;
+    private final int brokerId;
+    private final File storeDir;
+    private final File logFile;
+    private final File snapshotFile;
+    private final long snapshotLogSize;
+    private final OffsetStorage migrateStorage;
+    private final Object writeLock = new Object();
+    // group -> topic -> partitionId -> offset record
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetRecord>>> offsetMap =
+            new ConcurrentHashMap<>();
+    private final ByteArrayOutputStream pendingData = new ByteArrayOutputStream(64 * 1024);
+    private final ByteArrayOutputStream bodyData = new ByteArrayOutputStream(512);
+    private final DataOutputStream bodyOutput = new DataOutputStream(bodyData);
+    private final CRC32 crc32 = new CRC32();
+    private final RandomAccessFile logRaf;
+    private final FileChannel logChannel;
+    private volatile boolean closed = false;
+
+    /**
+     * Initial the file offset storage, load the stored offsets.
+     *
+     * @param storePath         the directory of the offset files
+     * @param brokerId          the broker id
+     * @param snapshotLogSize   the log size that triggers a snapshot
+     * @param migrateStorage    the storage to migrate offsets from, null if not required
+     * @throws IOException      the exception while loading the offset files
+     */
+    public FileOffsetStorage(String storePath, int brokerId,
+            long snapshotLogSize, OffsetStorage migrateStorage) throws IOException {
+        this.brokerId = brokerId;
+        this.snapshotLogSize = snapshotLogSize;
+        this.migrateStorage = migrateStorage;
+        this.storeDir = new File(storePath);
+        if (!this.storeDir.exists() && !this.storeDir.mkdirs()) {
+            throw new IOException(new StringBuilder(512)
+                    .append("Could not make offset storage directory ")
+                    .append(this.storeDir.getAbsolutePath()).toString());
+        }
+        this.logFile = new File(this.storeDir, OFFSET_LOG_FILE_NAME);
+        this.snapshotFile = new File(this.storeDir, OFFSET_SNAPSHOT_FILE_NAME);
+        long startTime = System.currentTimeMillis();
+        if (this.snapshotFile.exists()) {
+            long validLen = replayFile(this.snapshotFile);
+            if (validLen != this.snapshotFile.length()) {
+                logger.warn("[File Offset Storage] found broken records in offset snapshot, valid length is "
+                        + validLen + ", file length is " + this.snapshotFile.length());
+            }
+        }
+        long logValidLen = 0L;
+        if (this.logFile.exists()) {
+            logValidLen = replayFile(this.logFile);
+        }
+        this.logRaf = new RandomAccessFile(this.logFile, "rw");
+        this.logChannel = this.logRaf.getChannel();
+        if (logValidLen != this.logChannel.size()) {
+            logger.warn("[File Offset Storage] truncate broken offset log tail, valid length is "
+                    + logValidLen + ", file length is " + this.logChannel.size());
+            this.logChannel.truncate(logValidLen);
+            this.logChannel.force(true);
+        }
+        this.logChannel.position(logValidLen);
+        logger.info(new StringBuilder(512)
+                .append("[File Offset Storage] loaded offsets of ").append(offsetMap.size())
+                .append(" groups from ").append(this.storeDir.getAbsolutePath())
+                .append(", cost ").append(System.currentTimeMillis() - startTime)
+                .append(" ms").toString());
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            logger.info("[File Offset Storage] Offset Storage closing .......");
+            try {
+                flushPending();
+                if (this.logChannel.size() > 0) {
+                    writeSnapshot();
+                }
+            } catch (Throwable e) {
+                logger.error("[File Offset Storage] flush offsets failure while closing", e);
+            }
+            closed = true;
+            try {
+                this.logChannel.close();
+                this.logRaf.close();
+            } catch (Throwable e) {
+                logger.error("[File Offset Storage] close offset log failure", e);
+            }
+        }
+        if (migrateStorage != null) {
+            migrateStorage.close();
+        }
+        logger.info("[File Offset Storage] Offset Storage closed!");
+    }
+
+    @Override
+    public OffsetStorageInfo loadOffset(String group, String topic, int partitionId) {
+        OffsetRecord record = getRecord(group, topic, partitionId);
+        if (record != null) {
+            return new OffsetStorageInfo(topic, brokerId,
+                    partitionId, record.offset, record.msgId, false);
+        }
+        if (migrateStorage == null) {
+            return null;
+        }
+        OffsetStorageInfo info = migrateStorage.loadOffset(group, topic, partitionId);
+        if (info != null) {
+            synchronized (writeLock) {
+                // keep the offset committed meanwhile
+                if (getRecord(group, topic, partitionId) == null) {
+                    appendCommit(group, topic, partitionId,
+                            info.getOffset(), info.getMessageId());
+                }
+            }
+        }
+        return info;
+    }
+
+    @Override
+    public void commitOffset(String group,
+            Collection<OffsetStorageInfo> offsetInfoList,
+            boolean isFailRetry) {
+        if (offsetInfoList == null || offsetInfoList.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            for (final OffsetStorageInfo info : offsetInfoList) {
+                long newOffset;
+                long msgId;
+                synchronized (info) {
+                    if (!info.isModified()) {
+                        continue;
+                    }
+                    newOffset = info.getOffset();
+                    msgId = info.getMessageId();
+                    info.setModified(false);
+                }
+                appendCommit(group, info.getTopic(), info.getPartitionId(), newOffset, msgId);
+            }
+            if (pendingData.size() >= MAX_PENDING_DATA_SIZE) {
+                flushWithRetry(isFailRetry);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            flushWithRetry(true);
+        }
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZkAllGroupTopicInfos() {
+        Map<String, Set<String>> groupTopicMap = new HashMap<>();
+        for (Map.Entry<String, ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetRecord>>> entry : offsetMap
+                .entrySet()) {
+            Set<String> topicSet = getStoredTopics(entry.getValue());
+            if (!topicSet.isEmpty()) {
+                groupTopicMap.put(entry.getKey(), topicSet);
+            }
+        }
+        if (migrateStorage != null) {
+            mergeGroupTopicInfos(groupTopicMap, migrateStorage.queryZkAllGroupTopicInfos());
+        }
+        return groupTopicMap;
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet) {
+        Map<String, Set<String>> groupTopicMap = new HashMap<>();
+        if (groupSet == null || groupSet.isEmpty()) {
+            return groupTopicMap;
+        }
+        for (String group : groupSet) {
+            if (group == null) {
+                continue;
+            }
+            Set<String> topicSet = getStoredTopics(offsetMap.get(group));
+            if (!topicSet.isEmpty()) {
+                groupTopicMap.put(group, topicSet);
+            }
+        }
+        if (migrateStorage != null) {
+            mergeGroupTopicInfos(groupTopicMap, migrateStorage.queryZKGroupTopicInfo(groupSet));
+        }
+        return groupTopicMap;
+    }
+
+    @Override
+    public Map<Integer, Long> queryGroupOffsetInfo(String group, String topic,
+            Set<Integer> partitionIds) {
+        Map<Integer, Long> offsetMap = new HashMap<>(partitionIds.size());
+        Set<Integer> missingParts = new HashSet<>();
+        for (Integer partitionId : partitionIds) {
+            if (partitionId == null) {
+                continue;
+            }
+            OffsetRecord record = getRecord(group, topic, partitionId);
+            if (record == null) {
+                missingParts.add(partitionId);
+            } else {
+                offsetMap.put(partitionId, record.offset);
+            }
+        }
+        if (!missingParts.isEmpty()) {
+            Map<Integer, Long> migrateOffsets = null;
+            if (migrateStorage != null) {
+                migrateOffsets = migrateStorage.queryGroupOffsetInfo(group, topic, missingParts);
+            }
+            for (Integer partitionId : missingParts) {
+                offsetMap.put(partitionId,
+                        migrateOffsets == null ? null : migrateOffsets.get(partitionId));
+            }
+        }
+        return offsetMap;
+    }
+
+    @Override
+    public void deleteGroupOffsetInfo(
+            Map<String, Map<String, Set<Integer>>> groupTopicPartMap) {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            for (Map.Entry<String, Map<String, Set<Integer>>> entry : groupTopicPartMap.entrySet()) {
+                if (entry.getKey() == null
+                        || entry.getValue() == null
+                        || entry.getValue().isEmpty()) {
+                    continue;
+                }
+                for (Map.Entry<String, Set<Integer>> topicEntry : entry.getValue().entrySet()) {
+                    if (topicEntry.getKey() == null
+                            || topicEntry.getValue() == null
+                            || topicEntry.getValue().isEmpty()) {
+                        continue;
+                    }
+                    for (Integer partitionId : topicEntry.getValue()) {
+                        if (partitionId != null) {
+                            appendDelete(entry.getKey(), topicEntry.getKey(), partitionId);
+                        }
+                    }
+                }
+            }
+            flushWithRetry(true);
+        }
+        // the deleted offsets should not be migrated back
+        if (migrateStorage != null) {
+            migrateStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+        }
+    }
+
+    private void appendCommit(String group, String topic,
+            int partitionId, long offset, long msgId) {
+        putRecord(group, topic, partitionId, new OffsetRecord(offset, msgId));
+        encodeRecord(RECORD_TYPE_COMMIT, group, topic, partitionId, offset, msgId, pendingData);
+    }
+
+    private void appendDelete(String group, String topic, int partitionId) {
+        removeRecord(group, topic, partitionId);
+        encodeRecord(RECORD_TYPE_DELETE, group, topic, partitionId, 0L, 0L, pendingData);
+    }
+
+    private void flushWithRetry(boolean isFailRetry) {
+        int retries = isFailRetry ? 3 : 1;
+        for (int i = 0; i < retries; i++) {
+            try {
+                flushPending();
+                return;
+            } catch (IOException e) {
+                logger.error("[File Offset Storage] flush offset log failure with retry " + i, e);
+            }
+        }
+    }
+
+    /**
+     * Write the pending records to the offset log and force them to disk,
+     * take a snapshot if the log is over the snapshot size.
+     *
+     * @throws IOException  the exception while writing the files
+     */
+    private void flushPending() throws IOException {
+        if (pendingData.size() > 0) {
+            long startPos = logChannel.position();
+            ByteBuffer buffer = ByteBuffer.wrap(pendingData.toByteArray());
+            try {
+                while (buffer.hasRemaining()) {
+                    logChannel.write(buffer);
+                }
+                logChannel.force(false);
+            } catch (IOException e) {
+                // drop the partial written records, they are rewritten in the next flush
+                logChannel.truncate(startPos);
+                logChannel.position(startPos);
+                throw e;
+            }
+            pendingData.reset();
+        }
+        if (logChannel.size() >= snapshotLogSize) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Write all current offsets to the snapshot file and truncate the offset log.
+     * The snapshot is renamed into place before the log is truncated, so the
+     * offsets are recovered from the snapshot and the log in any crash point.
+     *
+     * @throws IOException  the exception while writing the files
+     */
+    private void writeSnapshot() throws IOException {
+        File tmpFile = new File(storeDir, OFFSET_SNAPSHOT_FILE_NAME + TMP_FILE_SUFFIX);
+        ByteArrayOutputStream recordData = new ByteArrayOutputStream(512);
+        try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+            for (Map.Entry<String, ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetRecord>>> groupEntry : offsetMap
+                    .entrySet()) {
+                for (Map.Entry<String, ConcurrentHashMap<Integer, OffsetRecord>> topicEntry : groupEntry.getValue()
+                        .entrySet()) {
+                    for (Map.Entry<Integer, OffsetRecord> partEntry : topicEntry.getValue().entrySet()) {
+                        recordData.reset();
+                        encodeRecord(RECORD_TYPE_COMMIT, groupEntry.getKey(), topicEntry.getKey(),
+                                partEntry.getKey(), partEntry.getValue().offset,
+                                partEntry.getValue().msgId, recordData);
+                        recordData.writeTo(fos);
+                    }
+                }
+            }
+            fos.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), snapshotFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logChannel.truncate(0L);
+        logChannel.position(0L);
+        logChannel.force(true);
+    }
+
+    private void encodeRecord(byte recordType, String group, String topic,
+            int partitionId, long offset, long msgId, ByteArrayOutputStream out) {
+        try {
+            bodyData.reset();
+            bodyOutput.writeByte(recordType);
+            bodyOutput.writeUTF(group);
+            bodyOutput.writeUTF(topic);
+            bodyOutput.writeInt(partitionId);
+            bodyOutput.writeLong(offset);
+            bodyOutput.writeLong(msgId);
+            bodyOutput.flush();
+            crc32.reset();
+            crc32.update(bodyData.toByteArray(), 0, bodyData.size());
+            ByteBuffer head = ByteBuffer.allocate(RECORD_HEAD_LEN);
+            head.putInt(bodyData.size());
+            head.putLong(crc32.getValue());
+            out.write(head.array(), 0, RECORD_HEAD_LEN);
+            bodyData.writeTo(out);
+        } catch (IOException e) {
+            // not happen for the memory streams
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Replay the records of an offset file into the memory.
+     *
+     * @param file   the offset file
+     * @return       the length of the valid records
+     * @throws IOException  the exception while reading the file
+     */
+    private long replayFile(File file) throws IOException {
+        long validLen = 0L;
+        byte[] head = new byte[RECORD_HEAD_LEN];
+        CRC32 checksum = new CRC32();
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            while (true) {
+                if (!readFully(dis, head)) {
+                    break;
+                }
+                ByteBuffer headBuffer = ByteBuffer.wrap(head);
+                int bodyLen = headBuffer.getInt();
+                long crcValue = headBuffer.getLong();
+                if (bodyLen <= 0 || bodyLen > MAX_RECORD_BODY_LEN) {
+                    break;
+                }
+                byte[] body = new byte[bodyLen];
+                if (!readFully(dis, body)) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(body, 0, bodyLen);
+                if (checksum.getValue() != crcValue) {
+                    break;
+                }
+                DataInputStream bodyInput = new DataInputStream(new ByteArrayInputStream(body));
+                byte recordType = bodyInput.readByte();
+                String group = bodyInput.readUTF();
+                String topic = bodyInput.readUTF();
+                int partitionId = bodyInput.readInt();
+                long offset = bodyInput.readLong();
+                long msgId = bodyInput.readLong();
+                if (recordType == RECORD_TYPE_COMMIT) {
+                    putRecord(group, topic, partitionId, new OffsetRecord(offset, msgId));
+                } else if (recordType == RECORD_TYPE_DELETE) {
+                    removeRecord(group, topic, partitionId);
+                } else {
+                    break;
+                }
+                validLen += RECORD_HEAD_LEN + bodyLen;
+            }
+        }
+        return validLen;
+    }
+
+    private boolean readFully(DataInputStream in, byte[] buffer) throws IOException {
+        try {
+            in.readFully(buffer);
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private OffsetRecord getRecord(String group, String topic, int partitionId) {
+        ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetRecord>> topicMap =
+                offsetMap.get(group);
+        if (topicMap == null) {
+            return null;
+        }
+        ConcurrentHashMap<Integer, OffsetRecord> partMap = topicMap.get(topic);
+        if (partMap == null) {
+            return null;
+        }
+        return partMap.get(partitionId);
+    }
+
+    private void putRecord(String group, String topic, int partitionId, OffsetRecord record) {
+        ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetRecord>> topicMap =
+                offsetMap.get(group);
+        if (topicMap == null) {
+            ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetRecord>> tmpTopicMap =
+                    new ConcurrentHashMap<>();
+            topicMap = offsetMap.putIfAbsent(group, tmpTopicMap);
+            if (topicMap == null) {
+                topicMap = tmpTopicMap;
+            }
+        }
+        ConcurrentHashMap<Integer, OffsetRecord> partMap = topicMap.get(topic);
+        if (partMap == null) {
+            ConcurrentHashMap<Integer, OffsetRecord> tmpPartMap = new ConcurrentHashMap<>();
+            partMap = topicMap.putIfAbsent(topic, tmpPartMap);
+            if (partMap == null) {
+                partMap = tmpPartMap;
+            }
+        }
+        partMap.put(partitionId, record);
+    }
+
+    private void removeRecord(String group, String topic, int partitionId) {
+        ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetRecord>> topicMap =
+                offsetMap.get(group);
+        if (topicMap == null) {
+            return;
+        }
+        ConcurrentHashMap<Integer, OffsetRecord> partMap = topicMap.get(topic);
+        if (partMap == null) {
+            return;
+        }
+        partMap.remove(partitionId);
+        if (partMap.isEmpty()) {
+            topicMap.remove(topic, partMap);
+            if (topicMap.isEmpty()) {
+                offsetMap.remove(group, topicMap);
+            }
+        }
+    }
+
+    private Set<String> getStoredTopics(
+            ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetRecord>> topicMap) {
+        Set<String> topicSet = new HashSet<>();
+        if (topicMap == null) {
+            return topicSet;
+        }
+        for (Map.Entry<String, ConcurrentHashMap<Integer, OffsetRecord>> entry : topicMap.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                topicSet.add(entry.getKey());
+            }
+        }
+        return topicSet;
+    }
+
+    private void mergeGroupTopicInfos(Map<String, Set<String>> groupTopicMap,
+            Map<String, Set<String>> migrateTopicMap) {
+        if (migrateTopicMap == null) {
+            return;
+        }
+        for (Map.Entry<String, Set<String>> entry : migrateTopicMap.entrySet()) {
+            if (entry.getKey() == null
+                    || entry.getValue() == null
+                    || entry.getValue().isEmpty()) {
+                continue;
+            }
+            Set<String> topicSet = groupTopicMap.get(entry.getKey());
+            if (topicSet == null) {
+                topicSet = new HashSet<>();
+                groupTopicMap.put(entry.getKey(), topicSet);
+            }
+            topicSet.addAll(entry.getValue());
+        }
+    }
+
+    private static class OffsetRecord {
+
+        private final long offset;
+        private final long msgId;
+
+        OffsetRecord(long offset, long msgId) {
+            this.offset = offset;
+            this.msgId = msgId;
+        }
+    }
+}
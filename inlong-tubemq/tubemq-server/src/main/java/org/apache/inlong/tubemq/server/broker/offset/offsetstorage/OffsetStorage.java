@@ -32,6 +32,12 @@ public interface OffsetStorage {
             Collection<OffsetStorageInfo> offsetInfoList,
             boolean isFailRetry);
 
+    /**
+     * Persist the offsets committed in the current commit round,
+     * called after all groups' offsets are committed.
+     */
+    void flush();
+
     Map<String, Set<String>> queryZkAllGroupTopicInfos();
 
     Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet);
@@ -139,6 +139,11 @@ public class ZkOffsetStorage implements OffsetStorage {
         }
     }
 
+    @Override
+    public void flush() {
+        // the offsets are written to ZooKeeper while committing
+    }
+
     @Override
     public OffsetStorageInfo loadOffset(String group, String topic, int partitionId) {
         String zkNode = new StringBuilder(512).append(this.consumerZkDir).append("/")
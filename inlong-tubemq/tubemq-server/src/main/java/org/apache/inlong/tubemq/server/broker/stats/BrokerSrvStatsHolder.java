@@ -134,6 +134,10 @@ public class BrokerSrvStatsHolder {
         switchableSets[getIndex()].fileSyncDltStats.update(dltTime);
     }
 
+    public static void updDiskFlushLagDlt(long dltTime) {
+        switchableSets[getIndex()].fileFlushLagStats.update(dltTime);
+    }
+
     public static void updZKSyncDataDlt(long dltTime) {
         switchableSets[getIndex()].zkSyncDltStats.update(dltTime);
     }
@@ -203,6 +207,7 @@ public class BrokerSrvStatsHolder {
             statsMap.put(statsSet.errPubOverFlowStats.getFullName(),
                     statsSet.errPubOverFlowStats.getAndResetValue());
             statsSet.fileSyncDltStats.snapShort(statsMap, false);
+            statsSet.fileFlushLagStats.snapShort(statsMap, false);
             statsSet.zkSyncDltStats.snapShort(statsMap, false);
             statsSet.msgPubLatencyStats.snapShort(statsMap, false);
             statsSet.msgSubLatencyStats.snapShort(statsMap, false);
@@ -223,6 +228,7 @@ public class BrokerSrvStatsHolder {
             statsMap.put(statsSet.errPubOverFlowStats.getFullName(),
                     statsSet.errPubOverFlowStats.getValue());
             statsSet.fileSyncDltStats.getValue(statsMap, false);
+            statsSet.fileFlushLagStats.getValue(statsMap, false);
             statsSet.zkSyncDltStats.getValue(statsMap, false);
             statsSet.msgPubLatencyStats.getValue(statsMap, false);
             statsSet.msgSubLatencyStats.getValue(statsMap, false);
@@ -254,6 +260,8 @@ public class BrokerSrvStatsHolder {
                     .append(",");
             statsSet.fileSyncDltStats.snapShort(strBuff, false);
             strBuff.append(",");
+            statsSet.fileFlushLagStats.snapShort(strBuff, false);
+            strBuff.append(",");
             statsSet.zkSyncDltStats.snapShort(strBuff, false);
             strBuff.append(",");
             statsSet.msgPubLatencyStats.snapShort(strBuff, false);
@@ -280,6 +288,8 @@ public class BrokerSrvStatsHolder {
                     .append(",");
             statsSet.fileSyncDltStats.getValue(strBuff, false);
             strBuff.append(",");
+            statsSet.fileFlushLagStats.getValue(strBuff, false);
+            strBuff.append(",");
             statsSet.zkSyncDltStats.getValue(strBuff, false);
             strBuff.append(",");
             statsSet.msgPubLatencyStats.getValue(strBuff, false);
@@ -322,6 +332,9 @@ public class BrokerSrvStatsHolder {
         // Delay statistics for syncing data to files
         protected final ESTHistogram fileSyncDltStats =
                 new ESTHistogram("file_sync_dlt", null);
+        // Delay statistics from the flush request of a store to the end of its disk sync
+        protected final ESTHistogram fileFlushLagStats =
+                new ESTHistogram("file_flush_lag", null);
         // Disk IO Exception statistics
         protected final LongStatsCounter fileIOExcStats =
                 new LongStatsCounter("file_exc_cnt", null);
@@ -55,6 +55,8 @@ public class MsgStoreStatsHolder {
     private volatile boolean isClosed;
     // whether the statistic is manual closed
     private volatile boolean isManualClosed = false;
+    // the total bytes written to the store files, always counted for the store placement
+    private final AtomicLong fileWrittenBytes = new AtomicLong(0);
 
     public MsgStoreStatsHolder() {
         this.isClosed = true;
@@ -167,6 +169,7 @@ public class MsgStoreStatsHolder {
             boolean isDataSizeFull, boolean isMsgCntFull,
             boolean isCacheTimeFull, boolean isForceMetadata,
             long dltAppendTime) {
+        fileWrittenBytes.addAndGet(msgIndexSize + msgDataSize);
         if (isClosed) {
             return;
         }
@@ -227,6 +230,15 @@ public class MsgStoreStatsHolder {
         }
     }
 
+    /**
+     * Get the total bytes written to the store files since the store is loaded.
+     *
+     * @return the written bytes
+     */
+    public long getFileWrittenBytes() {
+        return fileWrittenBytes.get();
+    }
+
     /**
      * Check whether has exceeded the maximum self-statistics period.
      *
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.stats;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Traffic counts of a read request, by message time.
+ *
+ * A read request usually carries messages of a few message times, so the counts are
+ * kept in small arrays searched linearly, instead of a map keyed by the statistics
+ * key of each message. The message time is kept as the number of its digits,
+ * such as 202207041219 for the time "202207041219".
+ */
+public class TrafficCounts {
+
+    // the message time of the messages without a message time
+    public static final long NO_MSG_TIME = -1L;
+    // the message time not made of digits only
+    public static final long INVALID_MSG_TIME = -2L;
+    private static final int INIT_TIME_CNT = 4;
+    private static final int MAX_TIME_DIGITS = 18;
+    private long[] msgTimes = new long[INIT_TIME_CNT];
+    private long[] msgCnts = new long[INIT_TIME_CNT];
+    private long[] msgSizes = new long[INIT_TIME_CNT];
+    private int timeCnt = 0;
+
+    public TrafficCounts() {
+
+    }
+
+    /**
+     * Add the count and size of the messages of a message time
+     *
+     * @param msgTime   the message time
+     * @param msgCnt    the message count
+     * @param msgSize   the message size
+     */
+    public void add(long msgTime, long msgCnt, long msgSize) {
+        // the messages read in order usually share the last time
+        for (int i = timeCnt - 1; i >= 0; i--) {
+            if (msgTimes[i] == msgTime) {
+                msgCnts[i] += msgCnt;
+                msgSizes[i] += msgSize;
+                return;
+            }
+        }
+        if (timeCnt == msgTimes.length) {
+            msgTimes = Arrays.copyOf(msgTimes, timeCnt << 1);
+            msgCnts = Arrays.copyOf(msgCnts, timeCnt << 1);
+            msgSizes = Arrays.copyOf(msgSizes, timeCnt << 1);
+        }
+        msgTimes[timeCnt] = msgTime;
+        msgCnts[timeCnt] = msgCnt;
+        msgSizes[timeCnt] = msgSize;
+        timeCnt++;
+    }
+
+    public int getTimeCnt() {
+        return timeCnt;
+    }
+
+    public boolean isEmpty() {
+        return timeCnt == 0;
+    }
+
+    public long getMsgTime(int index) {
+        return msgTimes[index];
+    }
+
+    public long getMsgCnt(int index) {
+        return msgCnts[index];
+    }
+
+    public long getMsgSize(int index) {
+        return msgSizes[index];
+    }
+
+    public void clear() {
+        timeCnt = 0;
+    }
+
+    /**
+     * Parse the message time
+     *
+     * @param msgTime   the message time string
+     * @return          the message time, NO_MSG_TIME if blank,
+     *                  INVALID_MSG_TIME if it can't be kept as a number
+     */
+    public static long parseMsgTime(String msgTime) {
+        if (msgTime == null || msgTime.isEmpty()) {
+            return NO_MSG_TIME;
+        }
+        if (msgTime.length() > MAX_TIME_DIGITS
+                || (msgTime.length() > 1 && msgTime.charAt(0) == '0')) {
+            return INVALID_MSG_TIME;
+        }
+        long result = 0L;
+        for (int i = 0; i < msgTime.length(); i++) {
+            char digit = msgTime.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return INVALID_MSG_TIME;
+            }
+            result = result * 10 + (digit - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Parse the message time in the buffer, without copying it out
+     *
+     * @param buffer   the buffer
+     * @param start    the start position of the message time
+     * @param end      the end position of the message time, exclusive
+     * @return         the message time, NO_MSG_TIME if empty,
+     *                 INVALID_MSG_TIME if it can't be kept as a number
+     */
+    public static long parseMsgTime(ByteBuffer buffer, int start, int end) {
+        if (end <= start) {
+            return NO_MSG_TIME;
+        }
+        if (end - start > MAX_TIME_DIGITS
+                || (end - start > 1 && buffer.get(start) == '0')) {
+            return INVALID_MSG_TIME;
+        }
+        long result = 0L;
+        for (int i = start; i < end; i++) {
+            byte digit = buffer.get(i);
+            if (digit < '0' || digit > '9') {
+                return INVALID_MSG_TIME;
+            }
+            result = result * 10 + (digit - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Get the message time string of the statistics key
+     *
+     * @param msgTime   the message time
+     * @return          the message time string, empty if no message time
+     */
+    public static String msgTimeToString(long msgTime) {
+        return msgTime < 0 ? "" : String.valueOf(msgTime);
+    }
+}
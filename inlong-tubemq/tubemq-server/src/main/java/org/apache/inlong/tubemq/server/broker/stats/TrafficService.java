@@ -49,4 +49,31 @@ public interface TrafficService {
      * @param msgSize   the total message size
      */
     void add(String statsKey, long msgCnt, long msgSize);
+
+    /**
+     * Get the statistics slot registered for the statistical key,
+     * register one if not found
+     *
+     * @param statsKey  the statistical key, without the message time
+     * @return          the statistics slot
+     */
+    TrafficSlot getStatsSlot(String statsKey);
+
+    /**
+     * Add the traffic information of a message time to the statistics slot
+     *
+     * @param statsSlot  the statistics slot
+     * @param msgTime    the message time
+     * @param msgCnt     the total message count
+     * @param msgSize    the total message size
+     */
+    void add(TrafficSlot statsSlot, String msgTime, long msgCnt, long msgSize);
+
+    /**
+     * Add the traffic counts to the statistics slot
+     *
+     * @param statsSlot      the statistics slot
+     * @param trafficCounts  the traffic counts by message time
+     */
+    void add(TrafficSlot statsSlot, TrafficCounts trafficCounts);
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.stats;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TrafficSlot, the statistics slot registered for a statistics key, such as
+ * a partition consumed by a consumer, or a partition produced by a producer address.
+ *
+ * The slot keeps two sets of time cells, indexed by the writable unit index of the
+ * TrafficStatsService, one set is written while the other is output. Each cell keeps
+ * the counts of a message time in LongAdder counters, so the writers add to the
+ * statistics without locks, and without allocation except for the first message
+ * of a message time in each output period.
+ */
+public class TrafficSlot {
+
+    // the max message times kept in a cell set
+    static final int MAX_TIME_CELL_CNT = 8;
+    private final String statsKey;
+    private final AtomicReferenceArray<TimeCell> cellSet0 =
+            new AtomicReferenceArray<>(MAX_TIME_CELL_CNT);
+    private final AtomicReferenceArray<TimeCell> cellSet1 =
+            new AtomicReferenceArray<>(MAX_TIME_CELL_CNT);
+    // the output round the slot was last written
+    private volatile int activeRound;
+    // the output round the slot was released, -1 if not released
+    private volatile int releasedRound = -1;
+
+    TrafficSlot(String statsKey, int activeRound) {
+        this.statsKey = statsKey;
+        this.activeRound = activeRound;
+    }
+
+    public String getStatsKey() {
+        return statsKey;
+    }
+
+    public boolean isReleased() {
+        return releasedRound >= 0;
+    }
+
+    /**
+     * Add the counts to the cell of the message time
+     *
+     * @param setIndex   the cell set index
+     * @param msgTime    the message time
+     * @param msgCnt     the message count
+     * @param msgSize    the message size
+     * @return           whether added, false if the cells are taken by other times
+     */
+    boolean add(int setIndex, long msgTime, long msgCnt, long msgSize) {
+        AtomicReferenceArray<TimeCell> cellSet = getCellSet(setIndex);
+        for (int i = 0; i < MAX_TIME_CELL_CNT; i++) {
+            TimeCell timeCell = cellSet.get(i);
+            if (timeCell == null) {
+                TimeCell newCell = new TimeCell(msgTime);
+                if (cellSet.compareAndSet(i, null, newCell)) {
+                    timeCell = newCell;
+                } else {
+                    timeCell = cellSet.get(i);
+                    if (timeCell == null) {
+                        continue;
+                    }
+                }
+            }
+            if (timeCell.msgTime == msgTime) {
+                timeCell.msgCnt.add(msgCnt);
+                timeCell.msgSize.add(msgSize);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take out a cell of the cell set, called after the writers of the set left
+     *
+     * @param setIndex    the cell set index
+     * @param cellIndex   the cell index
+     * @return            the cell, null if not used
+     */
+    TimeCell takeCell(int setIndex, int cellIndex) {
+        return getCellSet(setIndex).getAndSet(cellIndex, null);
+    }
+
+    int getActiveRound() {
+        return activeRound;
+    }
+
+    void setActiveRound(int round) {
+        // avoid writing the shared field on each add
+        if (this.activeRound != round) {
+            this.activeRound = round;
+        }
+    }
+
+    int getReleasedRound() {
+        return releasedRound;
+    }
+
+    void release(int round) {
+        this.releasedRound = round;
+    }
+
+    private AtomicReferenceArray<TimeCell> getCellSet(int setIndex) {
+        return setIndex == 0 ? cellSet0 : cellSet1;
+    }
+
+    /**
+     * The counts of a message time
+     */
+    static class TimeCell {
+
+        final long msgTime;
+        final LongAdder msgCnt = new LongAdder();
+        final LongAdder msgSize = new LongAdder();
+
+        TimeCell(long msgTime) {
+            this.msgTime = msgTime;
+        }
+    }
+}
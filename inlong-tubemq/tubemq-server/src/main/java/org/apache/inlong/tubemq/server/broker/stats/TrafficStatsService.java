@@ -24,6 +24,9 @@ import org.apache.inlong.tubemq.corebase.metric.impl.LongOnlineCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,11 +38,19 @@ import java.util.concurrent.atomic.AtomicInteger;
  *  Due to the large amount of traffic-related metric data, this statistics service uses
  *  a daemon thread to periodically refresh the data to the special metric file
  *  for metric data collection.
+ *
+ *  The frequently written statistics keys are registered as statistics slots, which
+ *  are written through their LongAdder cells without building the statistics key of
+ *  each record, the slots not written for SLOT_IDLE_ROUNDS outputs are released.
  */
 public class TrafficStatsService extends AbstractDaemonService implements TrafficService {
 
     // Maximum write wait time
     private static final long MAX_WRITING_WAIT_DLT = 5000L;
+    // Output rounds a statistics slot is kept without being written
+    private static final int SLOT_IDLE_ROUNDS = 10;
+    // Output rounds a released statistics slot is still output
+    private static final int SLOT_RETIRE_ROUNDS = 3;
     // Statistics output log file
     private final Logger logger;
     // Statistic category
@@ -48,6 +59,13 @@ public class TrafficStatsService extends AbstractDaemonService implements Traffi
     private final WritableUnit[] switchableUnits = new WritableUnit[2];
     // Current writable index
     private final AtomicInteger writableIndex = new AtomicInteger(0);
+    // Registered statistics slots
+    private final ConcurrentHashMap<String, TrafficSlot> statsSlotMap =
+            new ConcurrentHashMap<>(512);
+    // Released statistics slots, output until the late writers have left
+    private final List<TrafficSlot> retiredSlots = new ArrayList<>();
+    // Current output round
+    private volatile int outputRound = 0;
 
     /**
      * Initial traffic statistics service
@@ -142,14 +160,104 @@ public class TrafficStatsService extends AbstractDaemonService implements Traffi
         }
     }
 
+    @Override
+    public TrafficSlot getStatsSlot(String statsKey) {
+        TrafficSlot statsSlot = statsSlotMap.get(statsKey);
+        if (statsSlot == null) {
+            TrafficSlot tmpSlot = new TrafficSlot(statsKey, outputRound);
+            statsSlot = statsSlotMap.putIfAbsent(statsKey, tmpSlot);
+            if (statsSlot == null) {
+                statsSlot = tmpSlot;
+            }
+        }
+        return statsSlot;
+    }
+
+    @Override
+    public void add(TrafficSlot statsSlot, String msgTime, long msgCnt, long msgSize) {
+        long parsedTime = TrafficCounts.parseMsgTime(msgTime);
+        if (parsedTime == TrafficCounts.INVALID_MSG_TIME) {
+            // not kept in the time cells, count it by the statistics key
+            add(statsSlot.getStatsKey() + "#" + msgTime, msgCnt, msgSize);
+            return;
+        }
+        // Increment write reference count
+        int selectedIndex = getIndex();
+        WritableUnit selectedUnit = switchableUnits[selectedIndex];
+        selectedUnit.refCnt.incValue();
+        try {
+            addToSlot(selectedUnit, selectedIndex,
+                    getActiveSlot(statsSlot), parsedTime, msgCnt, msgSize);
+        } finally {
+            // Decrement write reference count
+            selectedUnit.refCnt.decValue();
+        }
+    }
+
+    @Override
+    public void add(TrafficSlot statsSlot, TrafficCounts trafficCounts) {
+        if (trafficCounts == null || trafficCounts.isEmpty()) {
+            return;
+        }
+        // Increment write reference count
+        int selectedIndex = getIndex();
+        WritableUnit selectedUnit = switchableUnits[selectedIndex];
+        selectedUnit.refCnt.incValue();
+        try {
+            TrafficSlot activeSlot = getActiveSlot(statsSlot);
+            for (int i = 0; i < trafficCounts.getTimeCnt(); i++) {
+                addToSlot(selectedUnit, selectedIndex, activeSlot,
+                        trafficCounts.getMsgTime(i), trafficCounts.getMsgCnt(i),
+                        trafficCounts.getMsgSize(i));
+            }
+        } finally {
+            // Decrement write reference count
+            selectedUnit.refCnt.decValue();
+        }
+    }
+
+    /**
+     * Get the registered slot of the statistical key, and mark it written
+     *
+     * @param statsSlot   the slot got before
+     * @return            the slot registered
+     */
+    private TrafficSlot getActiveSlot(TrafficSlot statsSlot) {
+        if (statsSlot.isReleased()) {
+            statsSlot = getStatsSlot(statsSlot.getStatsKey());
+        }
+        statsSlot.setActiveRound(outputRound);
+        return statsSlot;
+    }
+
+    private void addToSlot(WritableUnit selectedUnit, int selectedIndex,
+            TrafficSlot statsSlot, long msgTime, long msgCnt, long msgSize) {
+        if (statsSlot.add(selectedIndex, msgTime, msgCnt, msgSize)) {
+            return;
+        }
+        // the time cells are used up, count it by the statistics key
+        String statsKey = statsSlot.getStatsKey()
+                + "#" + TrafficCounts.msgTimeToString(msgTime);
+        TrafficStatsUnit trafficStatsSet = selectedUnit.statsUnitMap.get(statsKey);
+        if (trafficStatsSet == null) {
+            TrafficStatsUnit tmpStatsSet = new TrafficStatsUnit("msg_cnt", "msg_size", null);
+            trafficStatsSet = selectedUnit.statsUnitMap.putIfAbsent(statsKey, tmpStatsSet);
+            if (trafficStatsSet == null) {
+                trafficStatsSet = tmpStatsSet;
+            }
+        }
+        trafficStatsSet.addMsgCntAndSize(msgCnt, msgSize);
+    }
+
     /**
      * Print statistics data to file
      *
      * @param readIndex   the readable index
      */
-    private void output2file(int readIndex) {
+    private synchronized void output2file(int readIndex) {
+        final int selectedIndex = getIndex(readIndex);
         WritableUnit selectedUnit =
-                switchableUnits[getIndex(readIndex)];
+                switchableUnits[selectedIndex];
         if (selectedUnit == null) {
             return;
         }
@@ -173,6 +281,39 @@ public class TrafficStatsService extends AbstractDaemonService implements Traffi
                     entry.getValue().msgSize.getValue());
         }
         statsMap.clear();
+        // Output the statistics slots, and release the idle ones
+        final int curRound = outputRound;
+        for (TrafficSlot statsSlot : statsSlotMap.values()) {
+            outputSlot(statsSlot, selectedIndex);
+            if (curRound - statsSlot.getActiveRound() > SLOT_IDLE_ROUNDS) {
+                statsSlot.release(curRound);
+                statsSlotMap.remove(statsSlot.getStatsKey(), statsSlot);
+                retiredSlots.add(statsSlot);
+            }
+        }
+        Iterator<TrafficSlot> iterator = retiredSlots.iterator();
+        while (iterator.hasNext()) {
+            TrafficSlot statsSlot = iterator.next();
+            if (statsSlot.getReleasedRound() != curRound) {
+                outputSlot(statsSlot, selectedIndex);
+            }
+            if (curRound - statsSlot.getReleasedRound() >= SLOT_RETIRE_ROUNDS) {
+                iterator.remove();
+            }
+        }
+        outputRound = curRound + 1;
+    }
+
+    private void outputSlot(TrafficSlot statsSlot, int selectedIndex) {
+        for (int i = 0; i < TrafficSlot.MAX_TIME_CELL_CNT; i++) {
+            TrafficSlot.TimeCell timeCell = statsSlot.takeCell(selectedIndex, i);
+            if (timeCell == null) {
+                continue;
+            }
+            logger.info("{}#{}#{}#{}#{}", statsCat, statsSlot.getStatsKey(),
+                    TrafficCounts.msgTimeToString(timeCell.msgTime),
+                    timeCell.msgCnt.sum(), timeCell.msgSize.sum());
+        }
     }
 
     /**
@@ -19,14 +19,11 @@ package org.apache.inlong.tubemq.server.broker.stats.audit;
 
 import org.apache.inlong.audit.AuditOperator;
 import org.apache.inlong.audit.util.AuditConfig;
-import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.utils.DateTimeConvertUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
-import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficCounts;
 import org.apache.inlong.tubemq.server.common.fileconfig.ADConfig;
 
-import java.util.Map;
-
 /**
  * AuditUtils
  *
@@ -77,31 +74,21 @@ public class AuditUtils {
     /**
      * add consume record
      *
-     * @param trafficInfos the consumed traffic information
+     * @param topicName the consumed topic name
+     * @param groupName the consume group name
+     * @param trafficCounts the consumed traffic counts by message time
      */
-    public static void addConsumeRecord(Map<String, TrafficInfo> trafficInfos) {
-        if (!auditConfig.isAuditEnable() || trafficInfos == null || trafficInfos.isEmpty()) {
+    public static void addConsumeRecord(String topicName,
+            String groupName, TrafficCounts trafficCounts) {
+        if (!auditConfig.isAuditEnable() || trafficCounts == null
+                || trafficCounts.isEmpty() || TStringUtils.isEmpty(topicName)) {
             return;
         }
-        for (Map.Entry<String, TrafficInfo> entry : trafficInfos.entrySet()) {
-            if (entry == null || entry.getKey() == null || entry.getValue() == null) {
-                continue;
-            }
-            String statKey = entry.getKey();
-            String[] statKeyItems = statKey.split(TokenConstants.SEGMENT_SEP, -1);
-            if (statKeyItems.length < 8) {
-                continue;
-            }
-            if (TStringUtils.isEmpty(statKeyItems[0])) {
-                continue;
-            }
-            // like: test_1#127.0.0.1#test_consume_127.0.0.1-32677-1656672066382-1-Pull-3.9.2
-            // #127.0.0.1#32677#test_consume#2#202207041219
-            // topicName, brokerIP, clientId,
-            // clientIP, client processId, consume group, partitionId, msgTime
+        for (int i = 0; i < trafficCounts.getTimeCnt(); i++) {
             AuditOperator.getInstance().add(auditConfig.getAuditIdConsume(),
-                    statKeyItems[0], statKeyItems[5], DateTimeConvertUtils.yyyyMMddHHmm2ms(statKeyItems[7]),
-                    entry.getValue().getMsgCount(), entry.getValue().getMsgSize());
+                    topicName, groupName, DateTimeConvertUtils.yyyyMMddHHmm2ms(
+                            TrafficCounts.msgTimeToString(trafficCounts.getMsgTime(i))),
+                    trafficCounts.getMsgCnt(i), trafficCounts.getMsgSize(i));
         }
     }
 
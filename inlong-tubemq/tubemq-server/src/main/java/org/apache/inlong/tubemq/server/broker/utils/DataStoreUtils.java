@@ -21,15 +21,13 @@ import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
-import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
-import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficCounts;
 
 import com.google.protobuf.ByteString;
 
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.NumberFormat;
-import java.util.HashMap;
 
 /**
  * Storage util. Used for data and index file storage format.
@@ -51,6 +49,8 @@ public class DataStoreUtils {
     // + data 0
     //
     public static final int MAX_MSG_TRANSFER_SIZE = 1024 * 1024;
+    // the max file region count of a raw data fetch response
+    public static final int MAX_RAW_TRANSFER_REGION_CNT = 1024;
 
     public static final int STORE_DATA_PREFX_LEN = 48;
     public static final int STORE_DATA_HEADER_LEN = STORE_DATA_PREFX_LEN + 4;
@@ -91,6 +91,14 @@ public class DataStoreUtils {
 
     public static final String DATA_FILE_SUFFIX = ".tube";
     public static final String INDEX_FILE_SUFFIX = ".index";
+    public static final String INDEX_SUMMARY_FILE_SUFFIX = ".summary";
+    public static final String TIERED_FILE_SUFFIX = ".tiered";
+    // the directory of the segments moved from the other data paths, hidden from the store loading
+    public static final String MOVED_SEGMENTS_DIR = ".segments";
+    private static final byte[] MSG_TIME_TOKEN =
+            TokenConstants.TOKEN_MSG_TIME.getBytes(StandardCharsets.UTF_8);
+    private static final byte ATTR_ITEM_SEP = (byte) TokenConstants.ARRAY_SEP.charAt(0);
+    private static final byte ATTR_VALUE_SEP = (byte) TokenConstants.EQ.charAt(0);
 
     public static int getInt(final int offset, final byte[] data) {
         return ByteBuffer.wrap(data, offset, 4).getInt();
@@ -107,18 +115,14 @@ public class DataStoreUtils {
     /**
      * Convert inner message to protobuf format, then reply to client.
      *
-     * @param dataBuffer      the raw stored data
+     * @param dataBuffer      the raw stored data, starts from index 0
      * @param dataTotalSize   the data size
-     * @param countMap        the statistics map
-     * @param statisKeyBase   the statistics key prefix
-     * @param sBuilder        the string buffer
+     * @param trafficCounts   the traffic counts of the read
      * @return                the converted messages
      */
-    public static ClientBroker.TransferedMessage getTransferMsg(ByteBuffer dataBuffer, int dataTotalSize,
-            HashMap<String, TrafficInfo> countMap,
-            String statisKeyBase,
-            StringBuilder sBuilder) {
-        if (dataBuffer.array().length < dataTotalSize) {
+    public static ClientBroker.TransferedMessage getTransferMsg(ByteBuffer dataBuffer,
+            int dataTotalSize, TrafficCounts trafficCounts) {
+        if (dataBuffer.capacity() < dataTotalSize) {
             return null;
         }
         final int msgLen =
@@ -137,65 +141,99 @@ public class DataStoreUtils {
         final long msgId = dataBuffer.getLong(DataStoreUtils.STORE_HEADER_POS_MSGID);
         final int flag = dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG);
         final int payLoadLen2 = payLoadLen;
-        final byte[] payLoadData = new byte[payLoadLen];
-        System.arraycopy(dataBuffer.array(), payLoadOffset, payLoadData, 0, payLoadLen);
+        // copy the payload once, the buffer may be a slice of the direct memory cache
+        final ByteBuffer payLoadData = dataBuffer.duplicate();
+        payLoadData.limit(payLoadOffset + payLoadLen);
+        payLoadData.position(payLoadOffset);
         ClientBroker.TransferedMessage.Builder dataBuilder =
                 ClientBroker.TransferedMessage.newBuilder();
         dataBuilder.setMessageId(msgId);
         dataBuilder.setCheckSum(checkSum);
         dataBuilder.setFlag(flag);
         dataBuilder.setPayLoadData(ByteString.copyFrom(payLoadData));
-        // get statistic data
-        int attrLen = 0;
-        String attribute = null;
+        // get statistic data, the message time is parsed in place from the attribute
+        long msgTime = TrafficCounts.NO_MSG_TIME;
         if (MessageFlagUtils.hasAttribute(flag)) {
             if (payLoadLen < 4) {
                 return null;
             }
-            attrLen = dataBuffer.getInt(DataStoreUtils.STORE_DATA_HEADER_LEN);
+            int attrLen = dataBuffer.getInt(DataStoreUtils.STORE_DATA_HEADER_LEN);
             payLoadOffset += 4;
             payLoadLen -= 4;
             if (attrLen > payLoadLen) {
                 return null;
             }
             if (attrLen > 0) {
-                final byte[] attrData = new byte[attrLen];
-                System.arraycopy(dataBuffer.array(), payLoadOffset, attrData, 0, attrLen);
-                try {
-                    attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
-                } catch (final UnsupportedEncodingException e) {
-                    throw new RuntimeException(e);
-                }
+                msgTime = getAttrMsgTime(dataBuffer, payLoadOffset, payLoadOffset + attrLen);
             }
         }
-        String messageTime = "";
-        if (TStringUtils.isNotBlank(attribute)) {
-            if (attribute.contains(TokenConstants.TOKEN_MSG_TIME)) {
-
-                String[] strAttrs = attribute.split(TokenConstants.ARRAY_SEP);
-                for (String strAttrItem : strAttrs) {
-                    if (TStringUtils.isNotBlank(strAttrItem)) {
-                        if (strAttrItem.contains(TokenConstants.TOKEN_MSG_TIME)) {
-                            String[] strItems = strAttrItem.split(TokenConstants.EQ);
-                            if (strItems.length > 1) {
-                                messageTime = strItems[1];
-                            }
-                        }
-                    }
+        trafficCounts.add(msgTime, 1L, payLoadLen2);
+        ClientBroker.TransferedMessage transferedMessage = dataBuilder.build();
+        dataBuilder.clear();
+        return transferedMessage;
+    }
+
+    /**
+     * Add the statistics of a message read in raw data fetch mode.
+     *
+     * The payload is not read in this mode, so the message time
+     * carried in attributes is not included in the statistics.
+     *
+     * @param trafficCounts   the traffic counts of the read
+     * @param dataTotalSize   the stored data size
+     */
+    public static void addRawTransferStats(TrafficCounts trafficCounts, int dataTotalSize) {
+        trafficCounts.add(TrafficCounts.NO_MSG_TIME, 1L,
+                dataTotalSize - DataStoreUtils.STORE_DATA_HEADER_LEN);
+    }
+
+    /**
+     * Get the message time in the message attribute, like "k1=v1,$msgTime$=202207041219".
+     *
+     * @param dataBuffer   the stored data
+     * @param attrStart    the start position of the attribute
+     * @param attrEnd      the end position of the attribute, exclusive
+     * @return             the message time, NO_MSG_TIME if not found or not valid
+     */
+    private static long getAttrMsgTime(ByteBuffer dataBuffer, int attrStart, int attrEnd) {
+        long msgTime = TrafficCounts.NO_MSG_TIME;
+        int itemStart = attrStart;
+        while (itemStart < attrEnd) {
+            int itemEnd = indexOf(dataBuffer, ATTR_ITEM_SEP, itemStart, attrEnd);
+            if (containsMsgTimeToken(dataBuffer, itemStart, itemEnd)) {
+                int valueStart = indexOf(dataBuffer, ATTR_VALUE_SEP, itemStart, itemEnd) + 1;
+                if (valueStart < itemEnd) {
+                    int valueEnd = indexOf(dataBuffer, ATTR_VALUE_SEP, valueStart, itemEnd);
+                    long itemTime = TrafficCounts.parseMsgTime(dataBuffer, valueStart, valueEnd);
+                    msgTime = itemTime == TrafficCounts.INVALID_MSG_TIME
+                            ? TrafficCounts.NO_MSG_TIME
+                            : itemTime;
                 }
             }
+            itemStart = itemEnd + 1;
         }
-        String baseKey = sBuilder.append(statisKeyBase)
-                .append("#").append(messageTime).toString();
-        sBuilder.delete(0, sBuilder.length());
-        TrafficInfo getCount = countMap.get(baseKey);
-        if (getCount == null) {
-            countMap.put(baseKey, new TrafficInfo(1L, payLoadLen2));
-        } else {
-            getCount.addMsgCntAndSize(1L, payLoadLen2);
+        return msgTime;
+    }
+
+    private static int indexOf(ByteBuffer dataBuffer, byte value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (dataBuffer.get(i) == value) {
+                return i;
+            }
         }
-        ClientBroker.TransferedMessage transferedMessage = dataBuilder.build();
-        dataBuilder.clear();
-        return transferedMessage;
+        return end;
+    }
+
+    private static boolean containsMsgTimeToken(ByteBuffer dataBuffer, int start, int end) {
+        for (int i = start; i <= end - MSG_TIME_TOKEN.length; i++) {
+            int j = 0;
+            while (j < MSG_TIME_TOKEN.length && dataBuffer.get(i + j) == MSG_TIME_TOKEN[j]) {
+                j++;
+            }
+            if (j == MSG_TIME_TOKEN.length) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -137,6 +137,12 @@ public class BrokerAdminServlet extends AbstractWebHandler {
         // get message store stats info
         innRegisterWebMethod("admin_get_msgstore_stats",
                 "adminGetMsgStoreStatsInfo", false);
+        // get the flush lag of each data device
+        innRegisterWebMethod("admin_get_flush_lag_info",
+                "adminGetFlushLagInfo", false);
+        // get the store placement of each data directory
+        innRegisterWebMethod("admin_get_store_dir_info",
+                "adminGetStoreDirInfo", false);
         // Enable metrics statistics
         innRegisterWebMethod("admin_enable_stats",
                 "adminEnableMetricsStats", false);
@@ -889,8 +895,7 @@ public class BrokerAdminServlet extends AbstractWebHandler {
             qryThrow = null;
             try {
                 getMessageResult = msgStore.getMessages(303, itemInitOffset,
-                        partitionId, consumerNodeInfo, TServerConstants.OFFSET_HISTORY_NAME,
-                        maxTransferSize, recordStamp);
+                        partitionId, consumerNodeInfo, maxTransferSize, recordStamp);
             } catch (Throwable e2) {
                 qryThrow = e2;
                 continue;
@@ -1181,8 +1186,7 @@ public class BrokerAdminServlet extends AbstractWebHandler {
             qryThrow = null;
             try {
                 getMessageResult = msgStore.getMessages(303, itemInitOffset,
-                        partitionId, consumerNodeInfo, TServerConstants.OFFSET_HISTORY_NAME,
-                        maxTransferSize, recStartTime);
+                        partitionId, consumerNodeInfo, maxTransferSize, recStartTime);
             } catch (Throwable e2) {
                 qryThrow = e2;
                 continue;
@@ -1342,6 +1346,32 @@ public class BrokerAdminServlet extends AbstractWebHandler {
         WebParameterUtils.buildSuccessResult(sBuffer);
     }
 
+    /**
+     * Get the flush lag information of each device holding the store data
+     *
+     * @param req  HttpServletRequest
+     * @param sBuffer query result
+     */
+    public void adminGetFlushLagInfo(HttpServletRequest req,
+            StringBuilder sBuffer) {
+        WebParameterUtils.buildSuccessWithDataRetBegin(sBuffer);
+        int totalCnt = broker.getStoreManager().getFlushScheduler().getFlushLagInfo(sBuffer);
+        WebParameterUtils.buildSuccessWithDataRetEnd(sBuffer, totalCnt);
+    }
+
+    /**
+     * Get the store placement information of each data directory
+     *
+     * @param req  HttpServletRequest
+     * @param sBuffer query result
+     */
+    public void adminGetStoreDirInfo(HttpServletRequest req,
+            StringBuilder sBuffer) {
+        WebParameterUtils.buildSuccessWithDataRetBegin(sBuffer);
+        int totalCnt = broker.getStoreManager().getStoreDirManager().getDirStatsInfo(sBuffer);
+        WebParameterUtils.buildSuccessWithDataRetEnd(sBuffer, totalCnt);
+    }
+
     /**
      * Get broker's metric information, include service status statistic and web-api call
      *
@@ -99,6 +99,24 @@ public final class TServerConstants {
     public static final long CFG_DEFAULT_GROUP_OFFSET_SCAN_DUR = 60000L;
     public static final long CFG_MIN_GROUP_OFFSET_SCAN_DUR = 20000L;
     public static final long CFG_MAX_GROUP_OFFSET_SCAN_DUR = 480000L;
+    public static final int CFG_DEFAULT_FLUSH_THREADS_PER_DISK = 2;
+    public static final int CFG_MAX_FLUSH_THREADS_PER_DISK = 16;
+    public static final int CFG_DEFAULT_MAX_FETCH_WAIT_MS = 5000;
+    public static final int CFG_MAX_MAX_FETCH_WAIT_MS = 30000;
+    public static final int CFG_DEFAULT_FETCH_WAKE_THREADS = 4;
+    public static final int CFG_MAX_FETCH_WAKE_THREADS = 64;
+    public static final long CFG_DEFAULT_TIER_HOT_RETAIN_MS = 24 * 3600 * 1000L;
+    public static final long CFG_MIN_TIER_HOT_RETAIN_MS = 10 * 60 * 1000L;
+    public static final long CFG_TIER_SEGMENT_IDLE_CLOSE_MS = 5 * 60 * 1000L;
+    public static final int CFG_TIER_PREFETCH_THREADS = 2;
+    public static final int CFG_DEFAULT_DIR_BALANCE_USAGE_DIFF = 10;
+    public static final long CFG_DIR_BALANCE_MAX_MOVE_BYTES = 1024 * 1024 * 1024L;
+    public static final int CFG_DIR_MIN_USABLE_PERCENT = 5;
+    public static final String OFFSET_STORAGE_TYPE_ZK = "zookeeper";
+    public static final String OFFSET_STORAGE_TYPE_FILE = "file";
+    public static final String CFG_DEFAULT_OFFSET_STORAGE_DIR = ".offsets";
+    public static final long CFG_DEFAULT_OFFSET_SNAPSHOT_LOG_SIZE = 64 * 1024 * 1024L;
+    public static final long CFG_MIN_OFFSET_SNAPSHOT_LOG_SIZE = 1024 * 1024L;
 
     public static final long CFG_OFFSET_RESET_MIN_ALARM_CHECK =
             DataStoreUtils.STORE_INDEX_HEAD_LEN * 100000L;
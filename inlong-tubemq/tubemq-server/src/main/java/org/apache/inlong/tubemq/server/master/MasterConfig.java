@@ -85,6 +85,8 @@ public class MasterConfig extends AbstractFileConfig {
     private String visitPassword = "";
     private long authValidTimeStampPeriodMs = TBaseConstants.CFG_DEFAULT_AUTH_TIMESTAMP_VALID_INTERVAL;
     private int rebalanceParallel = 4;
+    // whether to balance the groups by moving the fewest partitions
+    private boolean stickyBalanceEnable = false;
     private long maxMetaForceUpdatePeriodMs = TBaseConstants.CFG_DEF_META_FORCE_UPDATE_PERIOD;
 
     /**
@@ -271,6 +273,10 @@ public class MasterConfig extends AbstractFileConfig {
         return rebalanceParallel;
     }
 
+    public boolean isStickyBalanceEnable() {
+        return stickyBalanceEnable;
+    }
+
     public long getMaxMetaForceUpdatePeriodMs() {
         return maxMetaForceUpdatePeriodMs;
     }
@@ -526,6 +532,9 @@ public class MasterConfig extends AbstractFileConfig {
             int tmpParallel = this.getInt(masterConf, "rebalanceParallel");
             this.rebalanceParallel = MixedUtils.mid(tmpParallel, 1, 20);
         }
+        if (TStringUtils.isNotBlank(masterConf.get("stickyBalanceEnable"))) {
+            this.stickyBalanceEnable = this.getBoolean(masterConf, "stickyBalanceEnable");
+        }
         if (TStringUtils.isNotBlank(masterConf.get("maxMetaForceUpdatePeriodMs"))) {
             long tmpPeriodMs = this.getLong(masterConf, "maxMetaForceUpdatePeriodMs");
             if (tmpPeriodMs < TBaseConstants.CFG_MIN_META_FORCE_UPDATE_PERIOD) {
@@ -836,6 +845,7 @@ public class MasterConfig extends AbstractFileConfig {
                 .append("visitPassword", visitPassword)
                 .append("authValidTimeStampPeriodMs", authValidTimeStampPeriodMs)
                 .append("rebalanceParallel", rebalanceParallel)
+                .append("stickyBalanceEnable", stickyBalanceEnable)
                 .append("maxMetaForceUpdatePeriodMs", maxMetaForceUpdatePeriodMs)
                 .toString();
     }
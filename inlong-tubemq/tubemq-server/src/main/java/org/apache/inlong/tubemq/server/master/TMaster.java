@@ -86,6 +86,7 @@ import org.apache.inlong.tubemq.server.common.utils.RowLock;
 import org.apache.inlong.tubemq.server.common.utils.Sleeper;
 import org.apache.inlong.tubemq.server.master.balance.DefaultLoadBalancer;
 import org.apache.inlong.tubemq.server.master.balance.LoadBalancer;
+import org.apache.inlong.tubemq.server.master.balance.StickyLoadBalancer;
 import org.apache.inlong.tubemq.server.master.metamanage.DefaultMetaDataService;
 import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.BrokerConfEntity;
@@ -201,7 +202,9 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         this.consumerHolder = new ConsumerInfoHolder(this);
         this.consumerEventManager = new ConsumerEventManager(consumerHolder);
         this.topicPSInfoManager = new TopicPSInfoManager(this);
-        this.loadBalancer = new DefaultLoadBalancer();
+        this.loadBalancer = this.masterConfig.isStickyBalanceEnable()
+                ? new StickyLoadBalancer()
+                : new DefaultLoadBalancer();
         heartbeatManager.regConsumerCheckBusiness(masterConfig.getConsumerHeartbeatTimeoutMs(),
                 new TimeoutListener() {
 
@@ -109,40 +109,10 @@ public class DefaultLoadBalancer implements LoadBalancer {
                 continue;
             }
             Set<String> topicSet = consumeGroupInfo.getTopicSet();
-            if (consumeGroupInfo.needResourceCheck()) {
-                // check if current client meet minimal requirements
-                GroupResCtrlEntity offsetResetGroupEntity =
-                        defMetaDataService.getGroupCtrlConf(group);
-                int confAllowBClientRate = (offsetResetGroupEntity != null
-                        && offsetResetGroupEntity.getAllowedBrokerClientRate() > 0)
-                                ? offsetResetGroupEntity.getAllowedBrokerClientRate()
-                                : -2;
-                int allowRate = confAllowBClientRate > 0
-                        ? confAllowBClientRate
-                        : consumerHolder.getDefResourceRate();
-                int maxBrokerCount =
-                        brokerRunManager.getSubTopicMaxBrokerCount(topicSet);
-                int curBClientRate = (int) Math.floor(maxBrokerCount / newConsumerList.size());
-                if (curBClientRate > allowRate) {
-                    int minClientCnt = maxBrokerCount / allowRate;
-                    if (maxBrokerCount % allowRate != 0) {
-                        minClientCnt += 1;
-                    }
-                    consumeGroupInfo.setConsumeResourceInfo(confAllowBClientRate,
-                            curBClientRate, minClientCnt, false);
-                    if (consumeGroupInfo.isEnableBalanceChkPrint()) {
-                        logger.info(strBuffer.append("[UnBound Alloc 2] Not allocate partition :group(")
-                                .append(group).append(")'s consumer getCachedSize(")
-                                .append(consumeGroupInfo.getGroupCnt())
-                                .append(") low than min required client count:")
-                                .append(minClientCnt).toString());
-                        strBuffer.delete(0, strBuffer.length());
-                    }
-                    continue;
-                } else {
-                    consumeGroupInfo.setConsumeResourceInfo(confAllowBClientRate,
-                            curBClientRate, -2, true);
-                }
+            if (consumeGroupInfo.needResourceCheck()
+                    && !checkResourceRequirement(consumeGroupInfo, newConsumerList.size(),
+                            consumerHolder, brokerRunManager, defMetaDataService, strBuffer)) {
+                continue;
             }
             RebProcessInfo rebProcessInfo = new RebProcessInfo();
             if (!consumeGroupInfo.isBalanceMapEmpty()) {
@@ -235,6 +205,58 @@ public class DefaultLoadBalancer implements LoadBalancer {
         return finalSubInfoMap;
     }
 
+    /**
+     * Check if the consumers of the group meet the minimal client count requirement
+     *
+     * @param consumeGroupInfo     the consume group
+     * @param consumerCnt          the consumer count of the group
+     * @param consumerHolder       the consumer holder
+     * @param brokerRunManager     the broker run manager
+     * @param defMetaDataService   the meta data service
+     * @param strBuffer            string buffer
+     * @return                     whether the requirement is met
+     */
+    protected boolean checkResourceRequirement(ConsumeGroupInfo consumeGroupInfo,
+            int consumerCnt,
+            ConsumerInfoHolder consumerHolder,
+            BrokerRunManager brokerRunManager,
+            MetaDataService defMetaDataService,
+            StringBuilder strBuffer) {
+        String group = consumeGroupInfo.getGroupName();
+        GroupResCtrlEntity offsetResetGroupEntity =
+                defMetaDataService.getGroupCtrlConf(group);
+        int confAllowBClientRate = (offsetResetGroupEntity != null
+                && offsetResetGroupEntity.getAllowedBrokerClientRate() > 0)
+                        ? offsetResetGroupEntity.getAllowedBrokerClientRate()
+                        : -2;
+        int allowRate = confAllowBClientRate > 0
+                ? confAllowBClientRate
+                : consumerHolder.getDefResourceRate();
+        int maxBrokerCount =
+                brokerRunManager.getSubTopicMaxBrokerCount(consumeGroupInfo.getTopicSet());
+        int curBClientRate = (int) Math.floor(maxBrokerCount / consumerCnt);
+        if (curBClientRate > allowRate) {
+            int minClientCnt = maxBrokerCount / allowRate;
+            if (maxBrokerCount % allowRate != 0) {
+                minClientCnt += 1;
+            }
+            consumeGroupInfo.setConsumeResourceInfo(confAllowBClientRate,
+                    curBClientRate, minClientCnt, false);
+            if (consumeGroupInfo.isEnableBalanceChkPrint()) {
+                logger.info(strBuffer.append("[UnBound Alloc 2] Not allocate partition :group(")
+                        .append(group).append(")'s consumer getCachedSize(")
+                        .append(consumeGroupInfo.getGroupCnt())
+                        .append(") low than min required client count:")
+                        .append(minClientCnt).toString());
+                strBuffer.delete(0, strBuffer.length());
+            }
+            return false;
+        }
+        consumeGroupInfo.setConsumeResourceInfo(confAllowBClientRate,
+                curBClientRate, -2, true);
+        return true;
+    }
+
     // #lizard forgives
     private void balance(
             Map<String, Map<String, List<Partition>>> clusterState,
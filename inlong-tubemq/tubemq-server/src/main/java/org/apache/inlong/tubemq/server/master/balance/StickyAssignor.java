@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Sticky partition assignment of a consume group.
+ *
+ * Each consumer keeps the partitions it holds, up to its share of the partitions; the larger
+ * shares go to the consumers holding more partitions, so the fewest partitions are moved.
+ * A consumer over its share releases the partitions of the brokers it holds most, and the
+ * released and unassigned partitions are dealt out in broker order to the consumers under
+ * their share, so the partitions of a broker are spread over the consumers.
+ */
+public class StickyAssignor {
+
+    private StickyAssignor() {
+        // utility class
+    }
+
+    /**
+     * Assign the partitions to the consumers.
+     *
+     * @param consumers     the consumers to assign to
+     * @param curAssigned   the partitions held by each consumer currently
+     * @param partitions    the partitions to assign, partition key to partition
+     * @return              the partitions assigned to each consumer
+     */
+    public static Map<String, List<Partition>> assign(List<String> consumers,
+            Map<String, ? extends Collection<Partition>> curAssigned,
+            Map<String, Partition> partitions) {
+        Map<String, List<Partition>> result = new HashMap<>(consumers.size() * 2);
+        if (consumers.isEmpty()) {
+            return result;
+        }
+        List<String> sortedConsumers = new ArrayList<>(consumers);
+        Collections.sort(sortedConsumers);
+        // keep the valid partitions held by each consumer
+        Set<String> keptKeys = new HashSet<>();
+        for (String consumerId : sortedConsumers) {
+            List<Partition> kept = new ArrayList<>();
+            result.put(consumerId, kept);
+            Collection<Partition> curParts = curAssigned.get(consumerId);
+            if (curParts == null) {
+                continue;
+            }
+            for (Partition partition : curParts) {
+                Partition curPart = partitions.get(partition.getPartitionKey());
+                if (curPart != null && keptKeys.add(curPart.getPartitionKey())) {
+                    kept.add(curPart);
+                }
+            }
+        }
+        // the consumers holding more partitions take the larger shares
+        final Map<String, List<Partition>> keptMap = result;
+        List<String> shareOrder = new ArrayList<>(sortedConsumers);
+        shareOrder.sort(new Comparator<String>() {
+
+            @Override
+            public int compare(String o1, String o2) {
+                return Integer.compare(keptMap.get(o2).size(), keptMap.get(o1).size());
+            }
+        });
+        int minShare = partitions.size() / sortedConsumers.size();
+        int largeShareCnt = partitions.size() % sortedConsumers.size();
+        List<Partition> pending = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            if (!keptKeys.contains(partition.getPartitionKey())) {
+                pending.add(partition);
+            }
+        }
+        List<String> takers = new ArrayList<>();
+        List<Integer> takerNeeds = new ArrayList<>();
+        for (int i = 0; i < shareOrder.size(); i++) {
+            String consumerId = shareOrder.get(i);
+            int share = (i < largeShareCnt) ? minShare + 1 : minShare;
+            List<Partition> kept = result.get(consumerId);
+            if (kept.size() > share) {
+                releaseByBroker(kept, kept.size() - share, pending);
+            } else if (kept.size() < share) {
+                takers.add(consumerId);
+                takerNeeds.add(share - kept.size());
+            }
+        }
+        // deal out the pending partitions in broker order
+        pending.sort(new Comparator<Partition>() {
+
+            @Override
+            public int compare(Partition o1, Partition o2) {
+                int cmp = Integer.compare(o1.getBrokerId(), o2.getBrokerId());
+                return cmp != 0 ? cmp : o1.getPartitionKey().compareTo(o2.getPartitionKey());
+            }
+        });
+        int takerIdx = 0;
+        for (Partition partition : pending) {
+            if (takers.isEmpty()) {
+                break;
+            }
+            if (takerIdx >= takers.size()) {
+                takerIdx = 0;
+            }
+            result.get(takers.get(takerIdx)).add(partition);
+            int need = takerNeeds.get(takerIdx) - 1;
+            if (need > 0) {
+                takerNeeds.set(takerIdx, need);
+                takerIdx++;
+            } else {
+                // the last taker fills the place, and is served next
+                int lastIdx = takers.size() - 1;
+                takers.set(takerIdx, takers.get(lastIdx));
+                takerNeeds.set(takerIdx, takerNeeds.get(lastIdx));
+                takers.remove(lastIdx);
+                takerNeeds.remove(lastIdx);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Release the partitions of the brokers the consumer holds most.
+     */
+    private static void releaseByBroker(List<Partition> kept,
+            int releaseCnt, List<Partition> released) {
+        Map<Integer, List<Partition>> brokerParts = new HashMap<>();
+        for (Partition partition : kept) {
+            List<Partition> parts = brokerParts.get(partition.getBrokerId());
+            if (parts == null) {
+                parts = new ArrayList<>();
+                brokerParts.put(partition.getBrokerId(), parts);
+            }
+            parts.add(partition);
+        }
+        PriorityQueue<List<Partition>> brokerQueue =
+                new PriorityQueue<>(brokerParts.size(), new Comparator<List<Partition>>() {
+
+                    @Override
+                    public int compare(List<Partition> o1, List<Partition> o2) {
+                        return Integer.compare(o2.size(), o1.size());
+                    }
+                });
+        brokerQueue.addAll(brokerParts.values());
+        Set<Partition> releasedSet = new HashSet<>();
+        for (int i = 0; i < releaseCnt; i++) {
+            List<Partition> parts = brokerQueue.poll();
+            Partition partition = parts.remove(parts.size() - 1);
+            releasedSet.add(partition);
+            released.add(partition);
+            if (!parts.isEmpty()) {
+                brokerQueue.add(parts);
+            }
+        }
+        kept.removeAll(releasedSet);
+    }
+}
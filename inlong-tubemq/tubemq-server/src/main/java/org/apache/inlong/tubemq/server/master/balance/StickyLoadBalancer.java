@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumeGroupInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfoHolder;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.RebProcessInfo;
+
+import org.apache.commons.collections.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/*
+ * Load balance class for server side load balance, keeps the partitions held by the consumers
+ * and moves only those needed to even the group, see StickyAssignor.
+ */
+public class StickyLoadBalancer extends DefaultLoadBalancer {
+
+    public StickyLoadBalancer() {
+        super();
+    }
+
+    /**
+     * Load balance, move the fewest partitions between the consumers of each group
+     *
+     * @param clusterState         the current partitions of each consumer
+     * @param consumerHolder       the consumer holder
+     * @param brokerRunManager     the broker run manager
+     * @param groupSet             the groups to balance
+     * @param defMetaDataService   the meta data service
+     * @param strBuffer            string buffer
+     * @return                     the partitions of each consumer after balance
+     */
+    @Override
+    public Map<String, Map<String, List<Partition>>> balanceCluster(
+            Map<String, Map<String, Map<String, Partition>>> clusterState,
+            ConsumerInfoHolder consumerHolder,
+            BrokerRunManager brokerRunManager,
+            List<String> groupSet,
+            MetaDataService defMetaDataService,
+            StringBuilder strBuffer) {
+        Map<String/* consumer */, Map<String/* topic */, List<Partition>>> finalSubInfoMap =
+                new HashMap<>();
+        Map<String, RebProcessInfo> rejGroupClientInfoMap = new HashMap<>();
+        for (String group : groupSet) {
+            if (group == null) {
+                continue;
+            }
+            ConsumeGroupInfo consumeGroupInfo = consumerHolder.getConsumeGroupInfo(group);
+            if (consumeGroupInfo == null
+                    || consumeGroupInfo.isClientBalance()
+                    || consumeGroupInfo.isUnReadyServerBalance()) {
+                continue;
+            }
+            List<ConsumerInfo> consumerList = new ArrayList<>();
+            List<ConsumerInfo> consumerList1 = consumeGroupInfo.getConsumerInfoList();
+            if (CollectionUtils.isEmpty(consumerList1)) {
+                continue;
+            }
+            for (ConsumerInfo consumerInfo : consumerList1) {
+                if (consumerInfo != null) {
+                    consumerList.add(consumerInfo);
+                }
+            }
+            if (consumerList.isEmpty()) {
+                continue;
+            }
+            if (consumeGroupInfo.needResourceCheck()
+                    && !checkResourceRequirement(consumeGroupInfo, consumerList.size(),
+                            consumerHolder, brokerRunManager, defMetaDataService, strBuffer)) {
+                continue;
+            }
+            RebProcessInfo rebProcessInfo = new RebProcessInfo();
+            if (!consumeGroupInfo.isBalanceMapEmpty()) {
+                rebProcessInfo = consumerHolder.getNeedRebNodeList(group);
+                if (!rebProcessInfo.isProcessInfoEmpty()) {
+                    rejGroupClientInfoMap.put(group, rebProcessInfo);
+                }
+            }
+            // the consumers required to release their partitions take no partition this round
+            List<String> assignConsumers = new ArrayList<>();
+            Map<String, List<Partition>> curAssigned = new HashMap<>();
+            for (ConsumerInfo consumer : consumerList) {
+                String consumerId = consumer.getConsumerId();
+                Map<String, List<Partition>> partitions = new HashMap<>();
+                finalSubInfoMap.put(consumerId, partitions);
+                Map<String, Map<String, Partition>> relation = clusterState.get(consumerId);
+                if (relation != null) {
+                    for (String topic : relation.keySet()) {
+                        partitions.put(topic, new ArrayList<Partition>());
+                    }
+                }
+                if (rebProcessInfo.needProcessList.contains(consumerId)
+                        || rebProcessInfo.needEscapeList.contains(consumerId)) {
+                    continue;
+                }
+                assignConsumers.add(consumerId);
+                if (relation != null) {
+                    List<Partition> curParts = new ArrayList<>();
+                    for (Map<String, Partition> partMap : relation.values()) {
+                        if (partMap != null) {
+                            curParts.addAll(partMap.values());
+                        }
+                    }
+                    curAssigned.put(consumerId, curParts);
+                }
+            }
+            Map<String, List<Partition>> assigned = StickyAssignor.assign(assignConsumers,
+                    curAssigned, brokerRunManager.getSubBrokerAcceptSubParts(
+                            consumeGroupInfo.getTopicSet()));
+            for (Entry<String, List<Partition>> entry : assigned.entrySet()) {
+                Map<String, List<Partition>> partitions = finalSubInfoMap.get(entry.getKey());
+                for (Partition partition : entry.getValue()) {
+                    List<Partition> topicParts = partitions.get(partition.getTopic());
+                    if (topicParts == null) {
+                        topicParts = new ArrayList<>();
+                        partitions.put(partition.getTopic(), topicParts);
+                    }
+                    topicParts.add(partition);
+                }
+            }
+        }
+        if (!rejGroupClientInfoMap.isEmpty()) {
+            for (Entry<String, RebProcessInfo> entry : rejGroupClientInfoMap.entrySet()) {
+                consumerHolder.setRebNodeProcessed(entry.getKey(),
+                        entry.getValue().needProcessList);
+            }
+        }
+        return finalSubInfoMap;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FetchWaitManager test.
+ */
+public class FetchWaitManagerTest {
+
+    @Test
+    public void wakeupOnDataArrived() throws Exception {
+        FetchWaitManager waitManager = new FetchWaitManager(2);
+        try {
+            final CountDownLatch latch = new CountDownLatch(2);
+            final AtomicInteger timeoutCnt = new AtomicInteger(0);
+            FetchWaitManager.WakeupCallback callback = new FetchWaitManager.WakeupCallback() {
+
+                @Override
+                public void onWakeup(boolean timeout) {
+                    if (timeout) {
+                        timeoutCnt.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            };
+            Assert.assertTrue(waitManager.await("test", 1, 30000L, callback));
+            Assert.assertTrue(waitManager.await("test", 1, 30000L, callback));
+            Assert.assertEquals(2, waitManager.getWaitingCount());
+            // the messages of other partitions not wake up the waiters
+            waitManager.notifyDataArrived("test", 2);
+            Assert.assertEquals(2, waitManager.getWaitingCount());
+            waitManager.notifyDataArrived("test", 1);
+            Assert.assertTrue(latch.await(5000L, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(0, timeoutCnt.get());
+            Assert.assertEquals(0, waitManager.getWaitingCount());
+        } finally {
+            waitManager.close();
+        }
+    }
+
+    @Test
+    public void wakeupOnTimeout() throws Exception {
+        FetchWaitManager waitManager = new FetchWaitManager(1);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final AtomicBoolean isTimeout = new AtomicBoolean(false);
+            Assert.assertTrue(waitManager.await("test", 0, 50L,
+                    new FetchWaitManager.WakeupCallback() {
+
+                        @Override
+                        public void onWakeup(boolean timeout) {
+                            isTimeout.set(timeout);
+                            latch.countDown();
+                        }
+                    }));
+            Assert.assertTrue(latch.await(5000L, TimeUnit.MILLISECONDS));
+            Assert.assertTrue(isTimeout.get());
+            Assert.assertEquals(0, waitManager.getWaitingCount());
+        } finally {
+            waitManager.close();
+        }
+        // not parked after closed
+        Assert.assertFalse(waitManager.await("test", 0, 50L, null));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * StoreDirManager test.
+ */
+public class StoreDirManagerTest {
+
+    private File baseDir;
+    private String path1;
+    private String path2;
+    private StoreDirManager dirManager;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = Files.createTempDirectory("storedir").toFile();
+        path1 = new File(baseDir, "data1").getAbsolutePath();
+        path2 = new File(baseDir, "data2").getAbsolutePath();
+        dirManager = new StoreDirManager(Arrays.asList(path1, path2), 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtil.fullyDelete(baseDir);
+    }
+
+    @Test
+    public void placeStores() throws Exception {
+        // the directories on the same device are equal, placed by the store count
+        Assert.assertEquals(path1, dirManager.getStorePath("test-0"));
+        Assert.assertEquals(path2, dirManager.getStorePath("test-1"));
+        Assert.assertEquals(path1, dirManager.getStorePath("test-0"));
+        // the existing store is kept in its directory
+        FileUtil.checkDir(new File(path2, "test-2"));
+        Assert.assertEquals(path2, dirManager.getStorePath("test-2"));
+        Assert.assertEquals(path1, dirManager.getStorePath("test-3"));
+        dirManager.removeStore("test-1");
+        dirManager.removeStore("test-2");
+        Assert.assertEquals(path2, dirManager.getStorePath("test-4"));
+        // the moved segment directories
+        Assert.assertTrue(dirManager.getMovedSegmentDirs("test-0", SegmentType.DATA).isEmpty());
+        File movedDir = StoreDirManager.getMovedSegmentDir(path2, "test-0", SegmentType.INDEX);
+        FileUtil.checkDir(movedDir);
+        Assert.assertTrue(dirManager.getMovedSegmentDirs("test-0", SegmentType.DATA).size() == 1);
+        Assert.assertEquals(movedDir,
+                dirManager.getMovedSegmentDirs("test-0", SegmentType.INDEX).get(0));
+        StringBuilder sBuilder = new StringBuilder();
+        Assert.assertEquals(2, dirManager.getDirStatsInfo(sBuilder));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * StoreFlushScheduler test.
+ */
+public class StoreFlushSchedulerTest {
+
+    @Test
+    public void routeFlushesByDevice() throws Exception {
+        StoreFlushScheduler scheduler = new TestFlushScheduler(1);
+        try {
+            final List<String> threadNames1 = new CopyOnWriteArrayList<>();
+            final List<String> threadNames2 = new CopyOnWriteArrayList<>();
+            MessageStore store1 = mockStore("test-1", "/data1/test-1", threadNames1);
+            MessageStore store2 = mockStore("test-2", "/data1/test-2", threadNames1);
+            MessageStore store3 = mockStore("test-3", "/data2/test-3", threadNames2);
+            scheduler.submitDiskFlush(store1, false);
+            scheduler.submitDiskFlush(store2, false);
+            scheduler.submitDiskFlush(store3, false);
+            verify(store1, timeout(5000L)).flushFile(false);
+            verify(store2, timeout(5000L)).flushFile(false);
+            verify(store3, timeout(5000L)).flushFile(false);
+            // the stores on the same device share its flush worker
+            Assert.assertEquals(2, threadNames1.size());
+            for (String threadName : threadNames1) {
+                Assert.assertTrue(threadName, threadName.contains("-disk1-"));
+            }
+            Assert.assertEquals(1, threadNames2.size());
+            Assert.assertTrue(threadNames2.get(0), threadNames2.get(0).contains("-disk2-"));
+            StringBuilder sBuilder = new StringBuilder(512);
+            Assert.assertEquals(2, scheduler.getFlushLagInfo(sBuilder));
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void flushOnThresholdAndInterval() throws Exception {
+        StoreFlushScheduler scheduler = new TestFlushScheduler(1);
+        try {
+            final CountDownLatch runningLatch = new CountDownLatch(1);
+            final CountDownLatch releaseLatch = new CountDownLatch(1);
+            MessageStore store = mock(MessageStore.class);
+            when(store.getStoreKey()).thenReturn("test-1");
+            when(store.getPrimStorePath()).thenReturn("/data1/test-1");
+            doAnswer(invocation -> {
+                runningLatch.countDown();
+                Assert.assertTrue(releaseLatch.await(5000L, TimeUnit.MILLISECONDS));
+                return true;
+            }).when(store).flushFile(anyBoolean());
+            // the interval flush checks the flush interval
+            scheduler.submitDiskFlush(store, false);
+            Assert.assertTrue(runningLatch.await(5000L, TimeUnit.MILLISECONDS));
+            // the threshold requests made during a flush are served by one forced flush
+            scheduler.submitDiskFlush(store, true);
+            scheduler.submitDiskFlush(store, true);
+            scheduler.submitDiskFlush(store, false);
+            releaseLatch.countDown();
+            verify(store, timeout(5000L)).flushFile(true);
+            verify(store, times(1)).flushFile(false);
+            verify(store, times(1)).flushFile(true);
+            assertFlushCount(scheduler, 2);
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void countOnlySyncedFlushes() throws Exception {
+        StoreFlushScheduler scheduler = new TestFlushScheduler(1);
+        try {
+            MessageStore store = mock(MessageStore.class);
+            when(store.getStoreKey()).thenReturn("test-1");
+            when(store.getPrimStorePath()).thenReturn("/data1/test-1");
+            when(store.flushFile(anyBoolean())).thenReturn(false);
+            scheduler.submitDiskFlush(store, false);
+            verify(store, timeout(5000L)).flushFile(false);
+            assertFlushCount(scheduler, 0);
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void drainPendingFlushesOnClose() throws Exception {
+        final StoreFlushScheduler scheduler = new TestFlushScheduler(1);
+        final CountDownLatch runningLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        MessageStore store1 = mockStore("test-1", "/data1/test-1", null);
+        doAnswer(invocation -> {
+            runningLatch.countDown();
+            Assert.assertTrue(releaseLatch.await(5000L, TimeUnit.MILLISECONDS));
+            return true;
+        }).when(store1).flushFile(anyBoolean());
+        MessageStore store2 = mockStore("test-2", "/data1/test-2", null);
+        MessageStore store3 = mockStore("test-3", "/data1/test-3", null);
+        scheduler.submitDiskFlush(store1, false);
+        Assert.assertTrue(runningLatch.await(5000L, TimeUnit.MILLISECONDS));
+        scheduler.submitDiskFlush(store2, true);
+        scheduler.submitMemFlush(store3);
+        Thread closeThread = new Thread(scheduler::close);
+        closeThread.start();
+        releaseLatch.countDown();
+        closeThread.join(10000L);
+        Assert.assertFalse(closeThread.isAlive());
+        // the flushes queued before the close are done
+        verify(store2, times(1)).flushFile(true);
+        verify(store3, times(1)).flushMemCacheData();
+        // the requests after the close are dropped
+        scheduler.submitDiskFlush(store2, true);
+        verify(store2, never()).flushFile(false);
+        verify(store2, times(1)).flushFile(anyBoolean());
+    }
+
+    private MessageStore mockStore(String storeKey, String storePath,
+            final List<String> threadNames) throws IOException {
+        MessageStore store = mock(MessageStore.class);
+        when(store.getStoreKey()).thenReturn(storeKey);
+        when(store.getPrimStorePath()).thenReturn(storePath);
+        doAnswer(invocation -> {
+            if (threadNames != null) {
+                threadNames.add(Thread.currentThread().getName());
+            }
+            return true;
+        }).when(store).flushFile(anyBoolean());
+        return store;
+    }
+
+    private void assertFlushCount(StoreFlushScheduler scheduler,
+            int flushCnt) throws InterruptedException {
+        // the flush count is updated after the flush returned
+        String flushLagInfo = null;
+        long endTime = System.currentTimeMillis() + 5000L;
+        do {
+            StringBuilder sBuilder = new StringBuilder(512);
+            Assert.assertEquals(1, scheduler.getFlushLagInfo(sBuilder));
+            flushLagInfo = sBuilder.toString();
+            if (flushLagInfo.contains("\"flushCnt\":" + flushCnt + ",")) {
+                return;
+            }
+            Thread.sleep(10L);
+        } while (System.currentTimeMillis() < endTime);
+        Assert.fail(flushLagInfo);
+    }
+
+    /**
+     * Resolve the device by the first path element.
+     */
+    private static class TestFlushScheduler extends StoreFlushScheduler {
+
+        TestFlushScheduler(int threadsPerDevice) {
+            super(threadsPerDevice);
+        }
+
+        @Override
+        String getFileStoreName(String storePath) {
+            return storePath.startsWith("/data1/") ? "disk1" : "disk2";
+        }
+    }
+}
@@ -17,9 +17,14 @@
 
 package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 
+import io.netty.channel.FileRegion;
+import org.junit.Assert;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 
 /**
  * FileSegment test.
@@ -83,4 +88,30 @@ public class FileSegmentTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void regionKeepsFileOpen() throws Exception {
+        File file = File.createTempFile("testdata", null);
+        file.deleteOnExit();
+        fileSegment = new FileSegment(0, file, true, SegmentType.DATA);
+        byte[] bytes = "abcdef".getBytes();
+        long appendTime = System.currentTimeMillis();
+        fileSegment.append(ByteBuffer.wrap(bytes), appendTime, appendTime);
+        fileSegment.flush(true);
+        FileRegion region = fileSegment.getFileRegion(1, 4);
+        Assert.assertEquals(1, fileSegment.getViewRefCnt());
+        // the segment is closed by expiry or store close before the region is sent
+        fileSegment.close();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(4, region.transferTo(Channels.newChannel(out), 0));
+        Assert.assertEquals("bcde", out.toString());
+        Assert.assertTrue(region.release());
+        Assert.assertEquals(0, fileSegment.getViewRefCnt());
+        try {
+            fileSegment.getFileRegion(1, 4);
+            Assert.fail("the closed segment should not return region");
+        } catch (IOException e) {
+            Assert.assertEquals(0, fileSegment.getViewRefCnt());
+        }
+    }
+}
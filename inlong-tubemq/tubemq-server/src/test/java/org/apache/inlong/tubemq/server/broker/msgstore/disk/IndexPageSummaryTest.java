@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+
+/**
+ * IndexPageSummary test.
+ */
+public class IndexPageSummaryTest {
+
+    private static final int PAGE_SIZE =
+            IndexPageSummary.PAGE_ENTRY_CNT * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+
+    @Test
+    public void getNextReadOffset() throws Exception {
+        File indexDir = Files.createTempDirectory("index").toFile();
+        indexDir.deleteOnExit();
+        IndexPageSummary summary = new IndexPageSummary(indexDir);
+        // offsets out of the covered range are not skipped
+        Assert.assertEquals(100L, summary.getNextReadOffset(1, null, 100L));
+        // three pages, partition 1 appears only in the last page
+        summary.append(0L, 0L, buildIndex(0, 5, IndexPageSummary.PAGE_ENTRY_CNT * 2), PAGE_SIZE * 2);
+        summary.append(0L, PAGE_SIZE * 2L, buildIndex(1, 6, 10), DataStoreUtils.STORE_INDEX_HEAD_LEN * 10);
+        long coveredEnd = PAGE_SIZE * 2L + DataStoreUtils.STORE_INDEX_HEAD_LEN * 10;
+        Assert.assertEquals(0L, summary.getNextReadOffset(0, null, 0L));
+        Assert.assertEquals(PAGE_SIZE * 2L, summary.getNextReadOffset(1, null, 0L));
+        Assert.assertEquals(PAGE_SIZE * 2L + 28, summary.getNextReadOffset(1, null, PAGE_SIZE * 2L + 28));
+        // partition 0 has no record after the second page
+        Assert.assertEquals(coveredEnd, summary.getNextReadOffset(0, null, PAGE_SIZE * 2L));
+        // the pages without the filter items are skipped
+        Assert.assertEquals(0L, summary.getNextReadOffset(0, Collections.singleton(5), 0L));
+        Assert.assertEquals(coveredEnd, summary.getNextReadOffset(0, Collections.singleton(6), 0L));
+        Assert.assertEquals(PAGE_SIZE * 2L, summary.getNextReadOffset(1, Collections.singleton(6), 0L));
+        // the next segment continues the skip
+        summary.append(coveredEnd, coveredEnd, buildIndex(2, 7, 1), DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        Assert.assertEquals(coveredEnd + DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                summary.getNextReadOffset(3, null, 0L));
+        Assert.assertEquals(coveredEnd, summary.getNextReadOffset(2, null, 0L));
+        // a discontinuous append restarts the covered range of the segment
+        summary.append(0L, 280L, buildIndex(0, 5, 1), DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        Assert.assertEquals(0L, summary.getNextReadOffset(1, null, 0L));
+        // the summaries of the segments below the min offset are dropped
+        summary.trim(coveredEnd);
+        Assert.assertEquals(0L, summary.getNextReadOffset(2, null, 0L));
+        Assert.assertEquals(coveredEnd, summary.getNextReadOffset(2, null, coveredEnd));
+    }
+
+    @Test
+    public void storeAndLoad() throws Exception {
+        File indexDir = Files.createTempDirectory("index").toFile();
+        indexDir.deleteOnExit();
+        File indexFile = new File(indexDir,
+                DataStoreUtils.nameFromOffset(0L, DataStoreUtils.INDEX_FILE_SUFFIX));
+        indexFile.deleteOnExit();
+        int indexSize = PAGE_SIZE * 2;
+        ByteBuffer indexBuffer = buildIndex(0, 5, IndexPageSummary.PAGE_ENTRY_CNT * 2);
+        FileSegment segment = new FileSegment(0L, indexFile, SegmentType.INDEX);
+        long appendTime = System.currentTimeMillis();
+        segment.append(indexBuffer.duplicate(), appendTime, appendTime);
+        segment.flush(true);
+        IndexPageSummary summary = new IndexPageSummary(indexDir);
+        summary.append(0L, 0L, indexBuffer, indexSize);
+        summary.store(0L);
+        File summaryFile = new File(indexDir,
+                DataStoreUtils.nameFromOffset(0L, DataStoreUtils.INDEX_SUMMARY_FILE_SUFFIX));
+        summaryFile.deleteOnExit();
+        Assert.assertTrue(summaryFile.exists());
+        // the stored summary is used after reload
+        IndexPageSummary loadedSummary = new IndexPageSummary(indexDir);
+        loadedSummary.load(new Segment[]{segment});
+        Assert.assertEquals(indexSize, loadedSummary.getNextReadOffset(1, null, 0L));
+        Assert.assertEquals(0L, loadedSummary.getNextReadOffset(0, null, 0L));
+        // the summary without index segment is removed
+        loadedSummary = new IndexPageSummary(indexDir);
+        loadedSummary.load(new Segment[0]);
+        Assert.assertFalse(summaryFile.exists());
+        Assert.assertEquals(0L, loadedSummary.getNextReadOffset(1, null, 0L));
+        segment.close();
+    }
+
+    @Test
+    public void rebuildMissingSummary() throws Exception {
+        File indexDir = Files.createTempDirectory("index").toFile();
+        indexDir.deleteOnExit();
+        File indexFile = new File(indexDir,
+                DataStoreUtils.nameFromOffset(0L, DataStoreUtils.INDEX_FILE_SUFFIX));
+        indexFile.deleteOnExit();
+        File summaryFile = new File(indexDir,
+                DataStoreUtils.nameFromOffset(0L, DataStoreUtils.INDEX_SUMMARY_FILE_SUFFIX));
+        summaryFile.deleteOnExit();
+        int indexSize = PAGE_SIZE * 2 + DataStoreUtils.STORE_INDEX_HEAD_LEN * 10;
+        ByteBuffer indexBuffer = ByteBuffer.allocate(indexSize);
+        indexBuffer.put(buildIndex(0, 5, IndexPageSummary.PAGE_ENTRY_CNT * 2));
+        indexBuffer.put(buildIndex(1, 6, 10));
+        indexBuffer.flip();
+        FileSegment segment = new FileSegment(0L, indexFile, SegmentType.INDEX);
+        long appendTime = System.currentTimeMillis();
+        segment.append(indexBuffer, appendTime, appendTime);
+        segment.flush(true);
+        // the summary of the last segment is rebuilt on load
+        IndexPageSummary summary = new IndexPageSummary(indexDir);
+        summary.load(new Segment[]{segment});
+        Assert.assertEquals(PAGE_SIZE * 2L, summary.getNextReadOffset(1, null, 0L));
+        Assert.assertEquals(indexSize, summary.getNextReadOffset(0, Collections.singleton(5), PAGE_SIZE * 2L));
+        Assert.assertFalse(summaryFile.exists());
+        // the summary of a sealed segment is rebuilt and stored in background
+        segment.setMutable(false);
+        summary = new IndexPageSummary(indexDir);
+        summary.load(new Segment[]{segment});
+        long endTime = System.currentTimeMillis() + 5000L;
+        while (!summaryFile.exists() && System.currentTimeMillis() < endTime) {
+            Thread.sleep(10L);
+        }
+        Assert.assertTrue(summaryFile.exists());
+        Assert.assertEquals(PAGE_SIZE * 2L, summary.getNextReadOffset(1, null, 0L));
+        // the stored summary is used after reload
+        summary = new IndexPageSummary(indexDir);
+        summary.load(new Segment[]{segment});
+        Assert.assertEquals(PAGE_SIZE * 2L, summary.getNextReadOffset(1, null, 0L));
+        segment.close();
+    }
+
+    private ByteBuffer buildIndex(int partitionId, int keyCode, int count) {
+        ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN * count);
+        for (int i = 0; i < count; i++) {
+            indexBuffer.putInt(partitionId);
+            indexBuffer.putLong(i * 100L);
+            indexBuffer.putInt(100);
+            indexBuffer.putInt(keyCode);
+            indexBuffer.putLong(System.currentTimeMillis());
+        }
+        indexBuffer.flip();
+        return indexBuffer;
+    }
+}
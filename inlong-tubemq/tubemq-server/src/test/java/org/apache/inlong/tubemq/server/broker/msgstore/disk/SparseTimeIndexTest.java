@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * SparseTimeIndex test.
+ */
+public class SparseTimeIndexTest {
+
+    private static final int RECORD_CNT = 1000;
+    private static final long BASE_TIME = 1000000L;
+    private File baseDir;
+    private FileSegment segment;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = Files.createTempDirectory("timeindex").toFile();
+        segment = new FileSegment(0L, new File(baseDir,
+                DataStoreUtils.nameFromOffset(0L, DataStoreUtils.INDEX_FILE_SUFFIX)),
+                SegmentType.INDEX);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        segment.close();
+        FileUtil.fullyDelete(baseDir);
+    }
+
+    @Test
+    public void lookupAppendedAndScanned() throws Exception {
+        SparseTimeIndex appendIndex = new SparseTimeIndex();
+        appendRecords(appendIndex, RECORD_CNT);
+        SparseTimeIndex scanIndex = new SparseTimeIndex();
+        scanIndex.load(new Segment[]{segment});
+        for (SparseTimeIndex timeIndex : new SparseTimeIndex[]{appendIndex, scanIndex}) {
+            // before the first record
+            Assert.assertEquals(0L, timeIndex.getOffsetByTimeStamp(segment, BASE_TIME - 10, 0L));
+            Assert.assertEquals(0L, timeIndex.getOffsetByTimeStamp(segment, BASE_TIME, 0L));
+            // the first record of the time
+            Assert.assertEquals(2L * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    timeIndex.getOffsetByTimeStamp(segment, BASE_TIME + 1, 0L));
+            Assert.assertEquals(130L * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    timeIndex.getOffsetByTimeStamp(segment, BASE_TIME + 65, 0L));
+            Assert.assertEquals(998L * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    timeIndex.getOffsetByTimeStamp(segment, BASE_TIME + 499, 0L));
+            // after the last record
+            Assert.assertEquals(999L * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    timeIndex.getOffsetByTimeStamp(segment, BASE_TIME + 600, 0L));
+        }
+        // the segment not sampled is left to the caller
+        Assert.assertEquals(-1L, new SparseTimeIndex().getOffsetByTimeStamp(segment, BASE_TIME, 0L));
+    }
+
+    @Test
+    public void loadSamplesOfWrittenSegment() throws Exception {
+        // over the initial sample capacity, so the sample array is grown
+        final int recordCnt = 300 * SparseTimeIndex.SAMPLE_ENTRY_CNT;
+        SparseTimeIndex appendIndex = new SparseTimeIndex();
+        appendRecords(appendIndex, recordCnt);
+        long[] appendSamples = appendIndex.getSampleTimes(0L);
+        Assert.assertEquals(300, appendSamples.length);
+        // reload the written file as the last segment, sampled at once
+        File indexFile = segment.getFile();
+        segment.close();
+        segment = new FileSegment(0L, indexFile, SegmentType.INDEX);
+        SparseTimeIndex loadIndex = new SparseTimeIndex();
+        loadIndex.load(new Segment[]{segment});
+        Assert.assertArrayEquals(appendSamples, loadIndex.getSampleTimes(0L));
+        // reload it as a sealed segment, sampled by the background thread
+        segment.setMutable(false);
+        SparseTimeIndex sealedIndex = new SparseTimeIndex();
+        sealedIndex.load(new Segment[]{segment});
+        long[] sealedSamples = sealedIndex.getSampleTimes(0L);
+        for (int i = 0; sealedSamples == null && i < 100; i++) {
+            Thread.sleep(50);
+            sealedSamples = sealedIndex.getSampleTimes(0L);
+        }
+        Assert.assertArrayEquals(appendSamples, sealedSamples);
+        long timestamp = BASE_TIME + recordCnt / 4 + 1;
+        Assert.assertEquals(appendIndex.getOffsetByTimeStamp(segment, timestamp, 0L),
+                sealedIndex.getOffsetByTimeStamp(segment, timestamp, 0L));
+    }
+
+    private void appendRecords(SparseTimeIndex timeIndex, int recordCnt) throws Exception {
+        // every two records share a receive time
+        for (int i = 0; i < recordCnt; i += 10) {
+            ByteBuffer indexBuffer = ByteBuffer.allocate(10 * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            for (int j = i; j < i + 10; j++) {
+                indexBuffer.putInt(0);
+                indexBuffer.putLong(j * 100L);
+                indexBuffer.putInt(100);
+                indexBuffer.putInt(0);
+                indexBuffer.putLong(BASE_TIME + j / 2);
+            }
+            indexBuffer.flip();
+            long time = BASE_TIME + i / 2;
+            long offset = segment.append(indexBuffer, time, time);
+            indexBuffer.rewind();
+            timeIndex.append(0L, offset, indexBuffer, indexBuffer.limit());
+        }
+        segment.flush(true);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import io.netty.channel.FileRegion;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+
+/**
+ * TieredSegment test.
+ */
+public class TieredSegmentTest {
+
+    private static final String STORE_KEY = "test-0";
+    private File baseDir;
+    private SegmentTierManager tierManager;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = Files.createTempDirectory("tiered").toFile();
+        tierManager = new SegmentTierManager(
+                new LocalDirTierStore(new File(baseDir, "tier").getAbsolutePath()),
+                60000L, 60000L, 1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        tierManager.close();
+        FileUtil.fullyDelete(baseDir);
+    }
+
+    @Test
+    public void moveAndRead() throws Exception {
+        File dataDir = new File(baseDir, STORE_KEY);
+        FileUtil.checkDir(dataDir);
+        File segFile = new File(dataDir,
+                DataStoreUtils.nameFromOffset(100L, DataStoreUtils.DATA_FILE_SUFFIX));
+        FileSegment segment = new FileSegment(100L, segFile, SegmentType.DATA);
+        byte[] data = "abcdefgh".getBytes();
+        long appendTime = System.currentTimeMillis();
+        segment.append(ByteBuffer.wrap(data), appendTime, appendTime);
+        segment.flush(true);
+        segment.setMutable(false);
+        // move the sealed segment to the tier
+        tierManager.getTierStore().put(STORE_KEY, SegmentType.DATA, segFile);
+        TieredSegment tieredSeg =
+                TieredSegment.create(tierManager, STORE_KEY, segment, SegmentType.DATA);
+        FileSegmentList segList = new FileSegmentList(new Segment[]{segment});
+        tieredSeg.setSegmentList(segList);
+        Assert.assertTrue(segList.replace(segment, tieredSeg));
+        Assert.assertSame(tieredSeg, segList.findSegment(103L));
+        segment.deleteFile();
+        Assert.assertFalse(segFile.exists());
+        // read from the tier
+        Assert.assertFalse(tieredSeg.isOpened());
+        ByteBuffer readBuf = ByteBuffer.allocate(4);
+        tieredSeg.read(readBuf, 102L);
+        Assert.assertEquals("cdef", new String(readBuf.array()));
+        Assert.assertTrue(tieredSeg.isOpened());
+        tieredSeg.closeIfIdle(System.currentTimeMillis() + 60000L, 60000L);
+        Assert.assertFalse(tieredSeg.isOpened());
+        tieredSeg.close();
+        // load from the stub file
+        TieredSegment loadedSeg = TieredSegment.load(tierManager,
+                STORE_KEY, SegmentType.DATA, tieredSeg.getFile());
+        Assert.assertEquals(100L, loadedSeg.getStart());
+        Assert.assertEquals(108L, loadedSeg.getLast());
+        Assert.assertTrue(loadedSeg.contains(107L));
+        Assert.assertFalse(loadedSeg.contains(108L));
+        readBuf.clear();
+        loadedSeg.relRead(readBuf, 4L);
+        Assert.assertEquals("efgh", new String(readBuf.array()));
+        // delete both the stub file and the tier file
+        loadedSeg.deleteFile();
+        Assert.assertFalse(loadedSeg.getFile().exists());
+        Assert.assertFalse(new File(new File(new File(baseDir, "tier"), STORE_KEY),
+                segFile.getName()).exists());
+    }
+
+    @Test
+    public void regionPinsOpenedFile() throws Exception {
+        File dataDir = new File(baseDir, STORE_KEY);
+        FileUtil.checkDir(dataDir);
+        File segFile = new File(dataDir,
+                DataStoreUtils.nameFromOffset(0L, DataStoreUtils.DATA_FILE_SUFFIX));
+        FileSegment segment = new FileSegment(0L, segFile, SegmentType.DATA);
+        long appendTime = System.currentTimeMillis();
+        segment.append(ByteBuffer.wrap("abcdefgh".getBytes()), appendTime, appendTime);
+        segment.flush(true);
+        segment.setMutable(false);
+        tierManager.getTierStore().put(STORE_KEY, SegmentType.DATA, segFile);
+        TieredSegment tieredSeg =
+                TieredSegment.create(tierManager, STORE_KEY, segment, SegmentType.DATA);
+        segment.deleteFile();
+        FileRegion region = tieredSeg.getFileRegion(2L, 4L);
+        Assert.assertEquals(1, tieredSeg.getViewRefCnt());
+        // neither the idle check nor the close releases the file in sending
+        tieredSeg.closeIfIdle(System.currentTimeMillis() + 120000L, 60000L);
+        Assert.assertTrue(tieredSeg.isOpened());
+        tieredSeg.close();
+        Assert.assertTrue(tieredSeg.isOpened());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        while (region.transferred() < region.count()) {
+            region.transferTo(Channels.newChannel(output), region.transferred());
+        }
+        Assert.assertEquals("cdef", output.toString());
+        // the file is closed after the region is released
+        Assert.assertTrue(region.release());
+        Assert.assertEquals(0, tieredSeg.getViewRefCnt());
+        Assert.assertFalse(tieredSeg.isOpened());
+        try {
+            tieredSeg.getFileRegion(0L, 2L);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals(0, tieredSeg.getViewRefCnt());
+        }
+    }
+}
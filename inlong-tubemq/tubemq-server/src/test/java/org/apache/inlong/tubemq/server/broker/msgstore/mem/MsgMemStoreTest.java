@@ -21,9 +21,11 @@ import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.Collections;
 
 /**
  * MsgMemStore test.
@@ -105,4 +107,113 @@ public class MsgMemStoreTest {
         // get messages
         GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 2, 1024, 1000, 0, false, false, null, 0);
     }
+
+    @Test
+    public void getMessagesBySlice() {
+        byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdfasdfasdfasdfaaaaaaaaaaa".getBytes();
+        int dataLength = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        // build data buffer
+        final ByteBuffer dataBuffer = ByteBuffer.allocate(dataLength);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(33);
+        dataBuffer.putInt(0);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(2222L);
+        dataBuffer.putInt(255555);
+        dataBuffer.putInt(11);
+        dataBuffer.putLong(222L);
+        dataBuffer.putInt(1);
+        dataBuffer.put(testData);
+        dataBuffer.flip();
+        // build index buffer
+        ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(0);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(dataLength);
+        indexBuffer.putInt(32);
+        indexBuffer.putLong(System.currentTimeMillis());
+        indexBuffer.flip();
+        AppendResult appendResult = new AppendResult();
+        MsgMemStore msgMemStore = new MsgMemStore(2 * 1024 * 1024, 10000, 0, 0);
+        MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        msgMemStore.appendMsg(memStatsHolder, 0, 32,
+                System.currentTimeMillis(), indexBuffer, dataLength, dataBuffer, appendResult);
+        // the read result refers to the cache until released
+        GetCacheMsgResult cacheMsgResult =
+                msgMemStore.getMessages(0, 0, 1024, 1000, 0, false, false, null, 0);
+        Assert.assertTrue(cacheMsgResult.isSuccess);
+        Assert.assertEquals(1, cacheMsgResult.cacheMsgList.size());
+        ByteBuffer slice = cacheMsgResult.cacheMsgList.get(0);
+        Assert.assertTrue(slice.isReadOnly());
+        Assert.assertEquals(dataLength, slice.remaining());
+        Assert.assertEquals(dataBuffer, slice);
+        Assert.assertTrue(msgMemStore.hasReaderRef());
+        cacheMsgResult.release();
+        Assert.assertFalse(msgMemStore.hasReaderRef());
+        // no reader reference is given after the store closed
+        msgMemStore.close();
+        Assert.assertFalse(msgMemStore.retainReader());
+        Assert.assertFalse(msgMemStore.hasReaderRef());
+    }
+
+    @Test
+    public void getMessagesByIndexChain() {
+        MsgMemStore msgMemStore = new MsgMemStore(2 * 1024 * 1024, 10000, 0, 0);
+        MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        // interleave the messages of two partitions and two filter items
+        for (int i = 0; i < 6; i++) {
+            int partitionId = i % 2;
+            int keyCode = (i < 4) ? 10 : 20;
+            byte[] testData = ("message-" + i).getBytes();
+            int dataLength = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+            ByteBuffer dataBuffer = ByteBuffer.allocate(dataLength);
+            dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+            dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+            dataBuffer.putInt(33);
+            dataBuffer.putInt(partitionId);
+            dataBuffer.putLong(-1L);
+            dataBuffer.putLong(2222L);
+            dataBuffer.putInt(255555);
+            dataBuffer.putInt(11);
+            dataBuffer.putLong(222L);
+            dataBuffer.putInt(1);
+            dataBuffer.put(testData);
+            dataBuffer.flip();
+            ByteBuffer indexBuffer =
+                    ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            indexBuffer.putInt(partitionId);
+            indexBuffer.putLong(-1L);
+            indexBuffer.putInt(dataLength);
+            indexBuffer.putInt(keyCode);
+            indexBuffer.putLong(System.currentTimeMillis());
+            indexBuffer.flip();
+            Assert.assertTrue(msgMemStore.appendMsg(memStatsHolder, partitionId, keyCode,
+                    System.currentTimeMillis(), indexBuffer, dataLength, dataBuffer, new AppendResult()));
+        }
+        // only the messages of the partition are read, and the read offset
+        // moves to the end of cache after the last message of the partition
+        GetCacheMsgResult cacheMsgResult =
+                msgMemStore.getMessages(0, 0, 1024, 1000, 1, false, false, null, 0);
+        Assert.assertTrue(cacheMsgResult.isSuccess);
+        Assert.assertEquals(3, cacheMsgResult.cacheMsgList.size());
+        Assert.assertEquals(msgMemStore.getIndexCacheSize(), cacheMsgResult.dltOffset);
+        cacheMsgResult.release();
+        // the read count limit stops right after the last read message
+        cacheMsgResult = msgMemStore.getMessages(0, 0, 1024, 2, 1, false, false, null, 0);
+        Assert.assertEquals(2, cacheMsgResult.cacheMsgList.size());
+        Assert.assertEquals(4 * DataStoreUtils.STORE_INDEX_HEAD_LEN, cacheMsgResult.dltOffset);
+        cacheMsgResult.release();
+        // filter consume reads the messages of the filter item in the partition
+        cacheMsgResult = msgMemStore.getMessages(0, 0, 1024, 1000, 0,
+                false, true, Collections.singleton(20), 0);
+        Assert.assertTrue(cacheMsgResult.isSuccess);
+        Assert.assertEquals(1, cacheMsgResult.cacheMsgList.size());
+        cacheMsgResult.release();
+        cacheMsgResult = msgMemStore.getMessages(0, 5 * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                1024, 1000, 0, false, true, Collections.singleton(20), 0);
+        Assert.assertFalse(cacheMsgResult.isSuccess);
+        msgMemStore.close();
+    }
 }
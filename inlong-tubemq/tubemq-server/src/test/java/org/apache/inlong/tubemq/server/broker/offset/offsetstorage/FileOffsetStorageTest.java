@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FileOffsetStorage test.
+ */
+public class FileOffsetStorageTest {
+
+    @Test
+    public void commitAndRecover() throws Exception {
+        File storeDir = Files.createTempDirectory("offsets").toFile();
+        storeDir.deleteOnExit();
+        FileOffsetStorage storage =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 1024 * 1024L, null);
+        Assert.assertNull(storage.loadOffset("group1", "topic1", 0));
+        OffsetStorageInfo info1 = new OffsetStorageInfo("topic1", 1, 0, 280L, 10L);
+        OffsetStorageInfo info2 = new OffsetStorageInfo("topic1", 1, 1, 560L, 20L);
+        storage.commitOffset("group1", Arrays.asList(info1, info2), false);
+        storage.flush();
+        // the unmodified offsets are not written again
+        Assert.assertFalse(info1.isModified());
+        info2.getAndSetOffset(840L);
+        storage.commitOffset("group1", Collections.singletonList(info2), false);
+        storage.flush();
+        // simulate a crash without closing, a partial record is left at the log tail
+        File logFile = new File(storeDir, FileOffsetStorage.OFFSET_LOG_FILE_NAME);
+        long logLength = logFile.length();
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.seek(logLength);
+            raf.write(new byte[]{0, 0, 0, 40, 1, 2, 3});
+        }
+        FileOffsetStorage recovered =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 1024 * 1024L, null);
+        Assert.assertEquals(logLength, logFile.length());
+        OffsetStorageInfo loaded = recovered.loadOffset("group1", "topic1", 0);
+        Assert.assertEquals(280L, loaded.getOffset());
+        Assert.assertEquals(10L, loaded.getMessageId());
+        Assert.assertFalse(loaded.isFirstCreate());
+        Assert.assertEquals(840L, recovered.loadOffset("group1", "topic1", 1).getOffset());
+        Assert.assertEquals(Collections.singleton("topic1"),
+                recovered.queryZkAllGroupTopicInfos().get("group1"));
+        // delete one partition
+        Map<String, Set<Integer>> topicPartMap = new HashMap<>();
+        topicPartMap.put("topic1", Collections.singleton(0));
+        Map<String, Map<String, Set<Integer>>> groupTopicPartMap = new HashMap<>();
+        groupTopicPartMap.put("group1", topicPartMap);
+        recovered.deleteGroupOffsetInfo(groupTopicPartMap);
+        Map<Integer, Long> offsets = recovered.queryGroupOffsetInfo("group1", "topic1",
+                new HashSet<>(Arrays.asList(0, 1)));
+        Assert.assertNull(offsets.get(0));
+        Assert.assertEquals(840L, offsets.get(1).longValue());
+        recovered.close();
+        // the closed storage is compacted into the snapshot
+        Assert.assertEquals(0L, logFile.length());
+        FileOffsetStorage reloaded =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 1024 * 1024L, null);
+        Assert.assertNull(reloaded.loadOffset("group1", "topic1", 0));
+        Assert.assertEquals(840L, reloaded.loadOffset("group1", "topic1", 1).getOffset());
+        reloaded.close();
+    }
+
+    @Test
+    public void snapshotOnLogSize() throws Exception {
+        File storeDir = Files.createTempDirectory("offsets").toFile();
+        storeDir.deleteOnExit();
+        // a small snapshot size to trigger the compaction in each flush
+        FileOffsetStorage storage =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64L, null);
+        OffsetStorageInfo info = new OffsetStorageInfo("topic1", 1, 0, 0L, 0L);
+        for (int i = 1; i <= 100; i++) {
+            info.getAndSetOffset(i * 28L);
+            storage.commitOffset("group1", Collections.singletonList(info), false);
+            storage.flush();
+        }
+        File logFile = new File(storeDir, FileOffsetStorage.OFFSET_LOG_FILE_NAME);
+        File snapshotFile = new File(storeDir, FileOffsetStorage.OFFSET_SNAPSHOT_FILE_NAME);
+        Assert.assertEquals(0L, logFile.length());
+        Assert.assertTrue(snapshotFile.length() > 0L);
+        storage.close();
+        FileOffsetStorage reloaded =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64L, null);
+        Assert.assertEquals(2800L, reloaded.loadOffset("group1", "topic1", 0).getOffset());
+        reloaded.close();
+    }
+}
@@ -59,4 +59,53 @@ public class TrafficStatsServiceTest {
         trafficService.add(items);
         trafficService.add("key3", 3L, 500L);
     }
+
+    @Test
+    public void testTrafficSlot() {
+        TrafficSlot statsSlot = new TrafficSlot("topic#127.0.0.1#0", 0);
+        Assert.assertTrue(statsSlot.add(0, 202207041219L, 1L, 100L));
+        Assert.assertTrue(statsSlot.add(0, 202207041219L, 2L, 200L));
+        Assert.assertTrue(statsSlot.add(1, TrafficCounts.NO_MSG_TIME, 1L, 10L));
+        // the cells of a set are used up by the other times
+        for (int i = 1; i < TrafficSlot.MAX_TIME_CELL_CNT; i++) {
+            Assert.assertTrue(statsSlot.add(0, 202207041219L + i, 1L, 1L));
+        }
+        Assert.assertFalse(statsSlot.add(0, 202207041300L, 1L, 1L));
+        TrafficSlot.TimeCell timeCell = statsSlot.takeCell(0, 0);
+        Assert.assertEquals(202207041219L, timeCell.msgTime);
+        Assert.assertEquals(3L, timeCell.msgCnt.sum());
+        Assert.assertEquals(300L, timeCell.msgSize.sum());
+        Assert.assertNull(statsSlot.takeCell(0, 0));
+        Assert.assertEquals(10L, statsSlot.takeCell(1, 0).msgSize.sum());
+    }
+
+    @Test
+    public void testTrafficCounts() {
+        TrafficCounts trafficCounts = new TrafficCounts();
+        for (int i = 0; i < 10; i++) {
+            trafficCounts.add(202207041219L + i % 5, 1L, 100L);
+        }
+        Assert.assertEquals(5, trafficCounts.getTimeCnt());
+        Assert.assertEquals(2L, trafficCounts.getMsgCnt(4));
+        Assert.assertEquals(200L, trafficCounts.getMsgSize(4));
+        Assert.assertEquals(202207041219L, TrafficCounts.parseMsgTime("202207041219"));
+        Assert.assertEquals(TrafficCounts.NO_MSG_TIME, TrafficCounts.parseMsgTime(""));
+        Assert.assertEquals(TrafficCounts.INVALID_MSG_TIME, TrafficCounts.parseMsgTime("2022-07"));
+        Assert.assertEquals(TrafficCounts.INVALID_MSG_TIME, TrafficCounts.parseMsgTime("0922"));
+        Assert.assertEquals("", TrafficCounts.msgTimeToString(TrafficCounts.NO_MSG_TIME));
+    }
+
+    @Test
+    public void testSlotStatsService() {
+        TrafficStatsService trafficService =
+                new TrafficStatsService("GetCounterGroup", "Consumer", 60 * 1000L);
+        TrafficSlot statsSlot = trafficService.getStatsSlot("topic#127.0.0.1#0");
+        Assert.assertSame(statsSlot, trafficService.getStatsSlot("topic#127.0.0.1#0"));
+        TrafficCounts trafficCounts = new TrafficCounts();
+        trafficCounts.add(202207041219L, 2L, 200L);
+        trafficService.add(statsSlot, trafficCounts);
+        trafficService.add(statsSlot, "202207041219", 1L, 100L);
+        trafficService.add(statsSlot, "2022-07-04", 1L, 100L);
+        trafficService.close(-1);
+    }
 }
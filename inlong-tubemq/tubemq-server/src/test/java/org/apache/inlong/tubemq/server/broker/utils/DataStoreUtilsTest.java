@@ -17,10 +17,14 @@
 
 package org.apache.inlong.tubemq.server.broker.utils;
 
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficCounts;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * DataStoreUtils test.
@@ -37,4 +41,50 @@ public class DataStoreUtilsTest {
         // get int by DataStoreUtils
         Assert.assertEquals(val, 123);
     }
+
+    @Test
+    public void getTransferMsgStats() {
+        TrafficCounts trafficCounts = new TrafficCounts();
+        Assert.assertNotNull(DataStoreUtils.getTransferMsg(
+                buildRecord("k1=v1,$msgTime$=202207041219"), 100, trafficCounts));
+        Assert.assertNotNull(DataStoreUtils.getTransferMsg(
+                buildRecord("$msgTime$=202207041219,k2=v2"), 100, trafficCounts));
+        Assert.assertNotNull(DataStoreUtils.getTransferMsg(
+                buildRecord("$msgTime$=2022abc"), 100, trafficCounts));
+        ClientBroker.TransferedMessage message = DataStoreUtils.getTransferMsg(
+                buildRecord(null), 100, trafficCounts);
+        Assert.assertNotNull(message);
+        Assert.assertEquals(5, message.getPayLoadData().size());
+        // the messages of the same time are counted together
+        Assert.assertEquals(2, trafficCounts.getTimeCnt());
+        Assert.assertEquals(202207041219L, trafficCounts.getMsgTime(0));
+        Assert.assertEquals(2L, trafficCounts.getMsgCnt(0));
+        Assert.assertEquals(TrafficCounts.NO_MSG_TIME, trafficCounts.getMsgTime(1));
+        Assert.assertEquals(2L, trafficCounts.getMsgCnt(1));
+        // the stored payload size, with the attribute
+        Assert.assertEquals(74L, trafficCounts.getMsgSize(0));
+        Assert.assertEquals(31L, trafficCounts.getMsgSize(1));
+    }
+
+    private ByteBuffer buildRecord(String attribute) {
+        byte[] data = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] attrData = attribute == null
+                ? new byte[0]
+                : attribute.getBytes(StandardCharsets.UTF_8);
+        int payLoadLen = attribute == null ? data.length : 4 + attrData.length + data.length;
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        buffer.putInt(DataStoreUtils.STORE_HEADER_POS_LENGTH,
+                DataStoreUtils.STORE_DATA_PREFX_LEN + payLoadLen);
+        buffer.putInt(DataStoreUtils.STORE_HEADER_POS_DATATYPE,
+                DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        buffer.putInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG, attribute == null ? 0 : 1);
+        buffer.position(DataStoreUtils.STORE_HEADER_POS_MSGDATA);
+        if (attribute != null) {
+            buffer.putInt(attrData.length);
+            buffer.put(attrData);
+        }
+        buffer.put(data);
+        buffer.clear();
+        return buffer;
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StickyAssignor test.
+ *
+ * The churn simulation runs with a small group by default, run it with
+ * -DbalanceSimConsumers=100000 -DbalanceSimPartitions=1000000 for the full scale.
+ */
+public class StickyAssignorTest {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(StickyAssignorTest.class);
+
+    @Test
+    public void keepAndSpread() {
+        Map<String, Partition> partitions = buildPartitions(4, 3);
+        List<String> consumers = new ArrayList<>();
+        consumers.add("c1");
+        consumers.add("c2");
+        Map<String, List<Partition>> assigned =
+                StickyAssignor.assign(consumers, new HashMap<String, List<Partition>>(), partitions);
+        Assert.assertEquals(6, assigned.get("c1").size());
+        Assert.assertEquals(6, assigned.get("c2").size());
+        // each consumer takes the partitions of every broker
+        Assert.assertEquals(4, getBrokerCnt(assigned.get("c1")));
+        // a new consumer takes partitions from both, the others are kept
+        consumers.add("c3");
+        Map<String, List<Partition>> reassigned =
+                StickyAssignor.assign(consumers, assigned, partitions);
+        Assert.assertEquals(4, reassigned.get("c1").size());
+        Assert.assertEquals(4, reassigned.get("c2").size());
+        Assert.assertEquals(4, reassigned.get("c3").size());
+        Assert.assertTrue(assigned.get("c1").containsAll(reassigned.get("c1")));
+        Assert.assertTrue(assigned.get("c2").containsAll(reassigned.get("c2")));
+        // a removed consumer's partitions go to the others only
+        consumers.remove("c1");
+        Map<String, List<Partition>> reassigned2 =
+                StickyAssignor.assign(consumers, reassigned, partitions);
+        Assert.assertEquals(6, reassigned2.get("c2").size());
+        Assert.assertEquals(6, reassigned2.get("c3").size());
+        Assert.assertTrue(reassigned2.get("c2").containsAll(reassigned.get("c2")));
+        Assert.assertTrue(reassigned2.get("c3").containsAll(reassigned.get("c3")));
+        Assert.assertNull(reassigned2.get("c1"));
+    }
+
+    @Test
+    public void simulateChurn() {
+        int consumerCnt = Integer.getInteger("balanceSimConsumers", 2000);
+        int partitionCnt = Integer.getInteger("balanceSimPartitions", 20000);
+        int brokerCnt = Math.max(1, partitionCnt / 1000);
+        Map<String, Partition> partitions =
+                buildPartitions(brokerCnt, partitionCnt / brokerCnt);
+        List<String> consumers = new ArrayList<>(consumerCnt);
+        for (int i = 0; i < consumerCnt; i++) {
+            consumers.add("consumer-" + i);
+        }
+        long startTime = System.currentTimeMillis();
+        Map<String, List<Partition>> assigned =
+                StickyAssignor.assign(consumers, new HashMap<String, List<Partition>>(), partitions);
+        logger.info("[Balance Simulation] initial assignment of {} partitions to {} consumers in {} ms",
+                partitions.size(), consumers.size(), System.currentTimeMillis() - startTime);
+        checkBalanced(assigned, partitions.size());
+        // one percent of the consumers leave, and as many join
+        int churnCnt = Math.max(1, consumerCnt / 100);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < churnCnt; i++) {
+                consumers.remove(0);
+                consumers.add("consumer-" + (consumerCnt + round * churnCnt + i));
+            }
+            startTime = System.currentTimeMillis();
+            Map<String, List<Partition>> reassigned =
+                    StickyAssignor.assign(consumers, assigned, partitions);
+            long costMs = System.currentTimeMillis() - startTime;
+            checkBalanced(reassigned, partitions.size());
+            int movedCnt = 0;
+            for (Map.Entry<String, List<Partition>> entry : reassigned.entrySet()) {
+                List<Partition> oldParts = assigned.get(entry.getKey());
+                Set<Partition> oldSet = oldParts == null
+                        ? new HashSet<Partition>()
+                        : new HashSet<>(oldParts);
+                for (Partition partition : entry.getValue()) {
+                    if (!oldSet.contains(partition)) {
+                        movedCnt++;
+                    }
+                }
+            }
+            logger.info("[Balance Simulation] round {}: {} consumers changed, {} partitions moved in {} ms",
+                    round, churnCnt * 2, movedCnt, costMs);
+            // only the partitions of the left consumers and the shares of the joined ones move
+            int maxShare = (partitions.size() + consumers.size() - 1) / consumers.size();
+            Assert.assertTrue(movedCnt <= churnCnt * maxShare * 2);
+            assigned = reassigned;
+        }
+    }
+
+    private void checkBalanced(Map<String, List<Partition>> assigned, int partitionCnt) {
+        int minCnt = Integer.MAX_VALUE;
+        int maxCnt = 0;
+        Set<String> partKeys = new HashSet<>();
+        for (List<Partition> parts : assigned.values()) {
+            minCnt = Math.min(minCnt, parts.size());
+            maxCnt = Math.max(maxCnt, parts.size());
+            for (Partition partition : parts) {
+                Assert.assertTrue(partKeys.add(partition.getPartitionKey()));
+            }
+        }
+        Assert.assertTrue(maxCnt - minCnt <= 1);
+        Assert.assertEquals(partitionCnt, partKeys.size());
+    }
+
+    private int getBrokerCnt(List<Partition> parts) {
+        Set<Integer> brokerIds = new HashSet<>();
+        for (Partition partition : parts) {
+            brokerIds.add(partition.getBrokerId());
+        }
+        return brokerIds.size();
+    }
+
+    private Map<String, Partition> buildPartitions(int brokerCnt, int partsPerBroker) {
+        Map<String, Partition> partitions = new HashMap<>();
+        for (int brokerId = 1; brokerId <= brokerCnt; brokerId++) {
+            BrokerInfo broker = new BrokerInfo(brokerId, "127.0.0." + brokerId, 8123);
+            for (int partId = 0; partId < partsPerBroker; partId++) {
+                Partition partition = new Partition(broker, "topic-" + (partId % 10), partId);
+                partitions.put(partition.getPartitionKey(), partition);
+            }
+        }
+        return partitions;
+    }
+}